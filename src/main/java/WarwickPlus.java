@@ -4,6 +4,7 @@ import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
+import java.io.File;
 import java.io.IOException;
 
 import javax.swing.BorderFactory;
@@ -22,11 +23,18 @@ import org.apache.commons.cli.*;
 
 import interfaces.*;
 import screen.*;
+import stores.LsmRatings;
+import stores.Ratings;
 import stores.Stores;
 import utils.Constants;
+import utils.DataSnapshot;
 import utils.DisplayImage;
 import utils.LoadData;
 import utils.LoadData.DataLoadException;
+import utils.LoadOptions;
+import utils.Partition;
+import utils.RatingsFollower;
+import utils.StreamingLoader;
 
 public class WarwickPlus {
     // private static AbstractStores stores = new Stores();
@@ -44,20 +52,47 @@ public class WarwickPlus {
         Options options = new Options();
         
         options.addOption(Option.builder().longOpt("credits").argName("credits csv file")
-                                .hasArg().desc("The credits csv file to be used")
+                                .hasArg().desc("The credits csv file to be used, which can be gzip compressed")
                                 .build());
         options.addOption(Option.builder().longOpt("keywords").argName("keywords csv file")
-                                .hasArg().desc("The keywords csv file to be used")
+                                .hasArg().desc("The keywords csv file to be used, which can be gzip compressed")
                                 .build());
         options.addOption(Option.builder().longOpt("movies").argName("movies csv file")
-                                .hasArg().desc("The movies csv file to be used")
+                                .hasArg().desc("The movies csv file to be used, which can be gzip compressed")
                                 .build());
         options.addOption(Option.builder().longOpt("ratings").argName("ratings csv file")
-                                .hasArg().desc("The ratings csv file to be used")
+                                .hasArg().desc("The ratings csv file to be used, which can be gzip compressed")
                                 .build());
         options.addOption(Option.builder("n").argName("number of movies").hasArg()
                                 .desc("The number of movies to load in (and thereby loading in less of the other files too)")
                                 .build());
+        options.addOption(Option.builder().longOpt("lsm-ratings")
+                                .desc("Use the write-optimised LSM ratings store instead of the default one")
+                                .build());
+        options.addOption(Option.builder().longOpt("snapshot").argName("snapshot file")
+                                .hasArg().desc("The binary snapshot of the csv files to load from, and to write after loading from the csv files")
+                                .build());
+        options.addOption(Option.builder().longOpt("no-snapshot")
+                                .desc("Always load from the csv files, without reading or writing a snapshot")
+                                .build());
+        options.addOption(Option.builder().longOpt("stream")
+                                .desc("Parse the csv files straight into the stores, without holding a second copy of the data (no snapshot is written)")
+                                .build());
+        options.addOption(Option.builder().longOpt("lazy")
+                                .desc("Stream the csv files, leaving each film's overview, tagline, homepage, cast and crew in them to be read when first shown (no snapshot is read or written)")
+                                .build());
+        options.addOption(Option.builder().longOpt("follow-ratings")
+                                .desc("Keep adding ratings appended to the ratings csv file while running (best with --lsm-ratings)")
+                                .build());
+        options.addOption(Option.builder().longOpt("partition").argName("i/N")
+                                .hasArg().desc("Only load the films of partition i of N, split by film id, with their credits, keywords and ratings (no snapshot is read or written)")
+                                .build());
+        options.addOption(Option.builder().longOpt("shards").argName("shard directory")
+                                .hasArg().desc("Load every csv file from a directory, each either whole or split into name-*.csv shards that are parsed at once (no snapshot is read or written)")
+                                .build());
+        options.addOption(Option.builder().longOpt("parallel-populate")
+                                .desc("Fill the movies, credits, keywords and ratings stores at the same time once the data is read, rather than one after another")
+                                .build());
         options.addOption("h","help", false, "Show this help message");
 
         // Handle input data files.
@@ -67,6 +102,14 @@ public class WarwickPlus {
         String movieMetadataPath = Constants.defaultMovieMetadataPath;
         String ratingsPath       = Constants.defaultRatingsPath;
         Integer numMovies        = null;
+        boolean lsmRatings       = false;
+        String snapshotPath      = Constants.defaultSnapshotPath;
+        boolean streaming        = false;
+        boolean lazy             = false;
+        boolean followRatings    = false;
+        Partition partition      = null;
+        String shardDirectory    = null;
+        boolean parallelPopulate = false;
 
         CommandLineParser cliParser = new DefaultParser();
         try{
@@ -81,6 +124,27 @@ public class WarwickPlus {
             if (line.hasOption("keywords")) { keywordsPath = line.getOptionValue("keywords"); }
             if (line.hasOption("movies"))   { movieMetadataPath = line.getOptionValue("movies"); }
             if (line.hasOption("ratings"))  { ratingsPath  = line.getOptionValue("ratings"); }
+            if (line.hasOption("lsm-ratings")) { lsmRatings = true; }
+            if (line.hasOption("snapshot")) { snapshotPath = line.getOptionValue("snapshot"); }
+            if (line.hasOption("no-snapshot")) { snapshotPath = null; }
+            if (line.hasOption("stream")) { streaming = true; }
+            if (line.hasOption("lazy"))   { lazy = true; }
+            if (line.hasOption("follow-ratings")) { followRatings = true; }
+            if (line.hasOption("shards")) { shardDirectory = line.getOptionValue("shards"); }
+            if (line.hasOption("parallel-populate")) { parallelPopulate = true; }
+            if (line.hasOption("partition")){
+                try{
+                    partition = Partition.parse(line.getOptionValue("partition"));
+                }
+                catch (IllegalArgumentException e){
+                    System.out.println(e.getMessage());
+                    return;
+                }
+            }
+            if (shardDirectory != null && (streaming || lazy || followRatings)){
+                System.out.println("--shards can't be used with --stream, --lazy or --follow-ratings");
+                return;
+            }
             if (line.hasOption("n")) 
             { 
                 String optionString = line.getOptionValue("n");
@@ -103,9 +167,17 @@ public class WarwickPlus {
             return;
         }
 
-        AbstractStores stores = new Stores();
+        AbstractStores stores = new Stores(lsmRatings);
         
-        start(stores, creditsPath, keywordsPath, movieMetadataPath, ratingsPath, numMovies);
+        start(stores, LoadOptions.DEFAULT.withFiles(creditsPath, keywordsPath, movieMetadataPath, ratingsPath)
+                                         .withShards(shardDirectory)
+                                         .withNumMovies(numMovies)
+                                         .withSnapshot(snapshotPath)
+                                         .withStreaming(streaming)
+                                         .withLazy(lazy)
+                                         .withFollowRatings(followRatings)
+                                         .withPartition(partition)
+                                         .withParallelPopulate(parallelPopulate));
     }
 
     static public void start(AbstractStores stores){
@@ -117,6 +189,20 @@ public class WarwickPlus {
     }
 
     static public void start(AbstractStores stores, String creditsPath, String keywordsPath, String movieMetadataPath, String ratingsPath, Integer numMovies) {
+        start(stores, LoadOptions.DEFAULT.withFiles(creditsPath, keywordsPath, movieMetadataPath, ratingsPath).withNumMovies(numMovies));
+    }
+
+    /**
+     * Loads the dataset into the stores as the options say, showing progress on a loading screen, then opens the home screen
+     */
+    static public void start(AbstractStores stores, LoadOptions options) {
+        String creditsPath       = options.getCreditsPath();
+        String keywordsPath      = options.getKeywordsPath();
+        String movieMetadataPath = options.getMovieMetadataPath();
+        String ratingsPath       = options.getRatingsPath();
+        Integer numMovies        = options.getNumMovies();
+        String snapshotPath      = options.getSnapshotPath();
+
         //Create the UI
         JFrame frame = new JFrame("Warwick+");
         frame.setVisible(false);
@@ -160,13 +246,69 @@ public class WarwickPlus {
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
         try{
-            LoadData loading = new LoadData(loadingBar, loadingText, creditsPath, keywordsPath, movieMetadataPath, ratingsPath);
-            //Populate the student stores
-            if (numMovies == null){
-                loading.populate(stores);
+            // Ratings appended from here on are picked up by the follower once loading is done
+            long ratingsLoadedTo = options.getShardDirectory() != null ? 0 : new File(ratingsPath).length();
+
+            // Load straight from the snapshot if it was made from these csv files, otherwise parse them and write a new one
+            // A lazy load keeps the heavy fields in the csv files, which a snapshot holds everything of, so doesn't use one
+            // A snapshot also holds every film, so isn't used for a partition, nor made from one
+            boolean wholeDataset = options.getPartition() == null && options.getShardDirectory() == null;
+            DataSnapshot snapshot = null;
+            if (snapshotPath != null && !options.isLazy() && wholeDataset){
+                snapshot = DataSnapshot.open(snapshotPath, creditsPath, keywordsPath, movieMetadataPath, ratingsPath);
+            }
+
+            if (snapshot != null){
+                loadingText.setText("Loading Data from snapshot...");
+                //Populate the student stores
+                if (numMovies == null){
+                    snapshot.populate(stores, options.isParallelPopulate());
+                }
+                else {
+                    snapshot.populate(stores, 0, numMovies, options.isParallelPopulate());
+                }
+            }
+            else if (options.isStreaming() || options.isLazy()){
+                // Parse straight into the stores. There's no copy of the records left to write a snapshot from
+                StreamingLoader.load(stores, LoadData.progressBarUpdater(loadingBar, loadingText), options);
             }
             else {
-                loading.populate(stores, 0, numMovies);
+                LoadData loading = new LoadData(LoadData.progressBarUpdater(loadingBar, loadingText), options);
+                //Populate the student stores
+                if (numMovies == null){
+                    loading.populate(stores, options.isParallelPopulate());
+                }
+                else {
+                    loading.populate(stores, 0, numMovies, options.isParallelPopulate());
+                }
+
+                if (snapshotPath != null && wholeDataset){
+                    // written in the background, as the stores don't need it
+                    Thread writer = new Thread(() -> DataSnapshot.write(snapshotPath, loading, creditsPath, keywordsPath, movieMetadataPath, ratingsPath), "snapshot-writer");
+                    writer.start();
+                }
+            }
+
+            // the data is mostly read from here on, so switch the ratings to their read-optimised layout. followed ratings are
+            // kept in a small delta over it
+            if (stores.getRatings() instanceof Ratings){
+                ((Ratings) stores.getRatings()).freeze();
+            }
+            else if (stores.getRatings() instanceof LsmRatings){
+                ((LsmRatings) stores.getRatings()).compact();
+            }
+
+            if (options.isFollowRatings()){
+                try{
+                    // the new ratings are added on the follower's own thread, as the ratings stores lock themselves against the
+                    // screens reading them at the same time
+                    RatingsFollower follower = new RatingsFollower(stores, ratingsPath, ratingsLoadedTo, null);
+                    follower.start();
+                    System.out.println("Following " + ratingsPath + " for new ratings");
+                }
+                catch (IOException e){
+                    System.err.println("Unable to follow " + ratingsPath + ": " + e.getMessage());
+                }
             }
 
             System.out.println("\nFinished Loading...");
@@ -229,9 +371,12 @@ public class WarwickPlus {
             @Override
             public void mouseClicked(MouseEvent e) {searchBox.setText("");}
         });
+        // search as the user types, as well as when they press enter
+        SearchAsYouType searchAsYouType = new SearchAsYouType(searchBox, content, stores);
         searchBox.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                searchAsYouType.cancel();
                 SwingUtilities.invokeLater(new Runnable() {
                     @Override
                     public void run() {
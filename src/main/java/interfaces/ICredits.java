@@ -2,11 +2,23 @@ package interfaces;
 
 import stores.CastCredit;
 import stores.CrewCredit;
+import stores.FilmCredits;
 import stores.Person;
 
 public interface ICredits{
     public boolean add(CastCredit[] cast, CrewCredit[] crew, int filmID);
     public boolean remove(int filmID);
+
+    // adds the cast and crew of a batch of films, where film i has cast[i], crew[i] and filmIDs[i].
+    // returns the number of new films added
+    public int addAll(CastCredit[][] cast, CrewCredit[][] crew, int[] filmIDs);
+
+    // as addAll, but the cast and crew of film i are only used to index its people, and are read back from offsets[i] by the
+    // source given to setCreditSource when they are asked for. a negative offset keeps that film's cast and crew as addAll does
+    public int addAll(CastCredit[][] cast, CrewCredit[][] crew, int[] filmIDs, long[] offsets);
+
+    // sets where the cast and crew of films added with offsets are read from, keeping at most cacheSize films' worth in memory
+    public void setCreditSource(RecordSource<FilmCredits> source, int cacheSize);
     
     public CastCredit[] getFilmCast(int filmID);
     public CrewCredit[] getFilmCrew(int filmID);
@@ -28,6 +40,9 @@ public interface ICredits{
 
     public Person[] findCast(String searchTerm);
     public Person[] findCrew(String searchTerm);
+    // find the people with a name word within a few edits of each word of a search term, ignoring case and accents, closest first
+    public Person[] findCastFuzzy(String searchTerm);
+    public Person[] findCrewFuzzy(String searchTerm);
 
     public int size();
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ public interface IKeywords{
 
     public boolean add(int filmID, Keyword[] keywords);
     public boolean add(int filmID, Keyword keyword);
+    public int addAll(int[] filmIDs, Keyword[][] keywords);
 
     public boolean remove(int filmID);
     public boolean removeKeywordFromFilm(int filmID, int keywordID);
@@ -21,6 +22,8 @@ public interface IKeywords{
     public int[] getMostKeywordFilms(int numResults);
 
     public Keyword[] findKeywords(String searchTerm);
+    // finds the keywords with a word within a few edits of each word of a search term, ignoring case and accents, closest first
+    public Keyword[] findKeywordsFuzzy(String searchTerm);
 
     public String toString();
     public int size();
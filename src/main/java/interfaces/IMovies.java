@@ -4,14 +4,30 @@ import java.time.LocalDate;
 
 import stores.Company;
 import stores.Genre;
+import stores.MovieBatch;
+import stores.MovieText;
 
 public interface IMovies {
     public boolean add(int id, String title, String originalTitle, String overview, String tagline, String status, Genre[] genres, LocalDate release, long budget, long revenue, String[] languages, String originalLanguage, double runtime, String homepage, boolean adult, boolean video, String poster);
     public boolean remove(int id);
 
+    // adds every film in a batch, along with its votes, IMDb id, popularity, collection, companies and countries.
+    // returns the number of new films added
+    public int addAll(MovieBatch batch);
+
+    // sets where the overview, tagline and homepage of films added with an offset (see MovieBatch.offsets) are read from,
+    // keeping at most cacheSize films' worth in memory at once
+    public void setTextSource(RecordSource<MovieText> source, int cacheSize);
+
     public int[] getAllIDs();
     public int[] getAllIDsReleasedInRange(LocalDate start, LocalDate end);
 
+    // the number of films released in each year from firstYear to lastYear
+    public int[] getReleaseCountsByYear(int firstYear, int lastYear);
+
+    // the number of films released in each decade from firstDecade to lastDecade, each given by its first year
+    public int[] getReleaseCountsByDecade(int firstDecade, int lastDecade);
+
     public String getTitle(int id);
     public String getOriginalTitle(int id);
     public String getOverview(int id);
@@ -52,6 +68,12 @@ public interface IMovies {
     public String[] getProductionCountries(int movieId);
 
     public int[] findFilms(String searchTerm);
+    // finds the films whose title, original title or overview contain the words of a phrase together as whole words, ignoring case
+    public int[] findFilmsByWords(String phrase);
+    // ranks the films by how well their text and keywords match a query, returning the best k, best first
+    public int[] searchFilms(String query, int k);
+    // finds the films with a title word within a few edits of each word of a search term, ignoring case and accents, closest first
+    public int[] findFilmsFuzzy(String searchTerm);
 
     public int size();
 }
@@ -9,6 +9,10 @@ public interface IRatings {
 
     public boolean set(int userID, int movieID, float rating, LocalDateTime timestamp);
 
+    // adds a batch of ratings given as parallel columns, with timestamps in seconds since the epoch (UTC).
+    // returns the number of ratings added, ratings the user has already given are skipped as in add
+    public int addRatings(int[] userIDs, int[] movieIDs, float[] ratings, long[] timestamps);
+
     public float[] getMovieRatings(int movieID);
     public float[] getUserRatings(int userID);
     public float getMovieAverageRating(int movieID);
@@ -0,0 +1,7 @@
+package interfaces;
+
+// reads a record back from the file a store was loaded from, so the store doesn't have to keep every field in memory
+public interface RecordSource<T> {
+    // reads the record starting at a byte offset in the file, as given to the store when it was added
+    public T read(long offset);
+}
@@ -0,0 +1,188 @@
+package screen;
+
+import java.awt.event.ActionEvent;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.JMenuItem;
+import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import interfaces.AbstractStores;
+import utils.Constants;
+import utils.SearchSuggestions;
+import utils.SearchSuggestions.Suggestion;
+
+/**
+ * Searches as the user types into a search box, rather than only when they press enter. Once typing pauses for DEBOUNCE_MILLIS, a
+ * list of suggested completions is shown under the box and the search screen is filled in with the results so far. The
+ * suggestions and searches are worked out on a background thread, so typing never waits for them, and only the search screen
+ * itself is built on the event dispatch thread.
+ *
+ * Each pause starts a new search, which makes any search still running stale. A stale search that hasn't started is dropped, and
+ * one that has stops at the next column it would have searched, and its results are never shown, so only the latest search
+ * reaches the screen.
+ */
+public class SearchAsYouType {
+    // how long typing has to pause for before searching
+    private static final int DEBOUNCE_MILLIS = 250;
+
+    // the fewest characters searched for, as one character matches too much to be worth showing
+    private static final int MIN_SEARCH_LENGTH = 2;
+
+    // the most suggestions of each kind
+    private static final int SUGGESTIONS_PER_KIND = 4;
+
+    // the text the search box shows before anything has been typed
+    private static final String PLACEHOLDER = "Search...";
+
+    // suggestions take a pass over the stores to build, so they are shared by every search box on the same stores
+    private static SearchSuggestions suggestions;
+    private static AbstractStores suggestionsFor;
+
+    // searches run one at a time on a daemon thread, so a search left running doesn't hold up the program closing
+    private static final ExecutorService searcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-as-you-type");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final JTextField searchBox;
+    private final JPanel content;
+    private final AbstractStores stores;
+    private final Timer debounce;
+    private final JPopupMenu popup = new JPopupMenu();
+
+    // the number of the latest search, so older ones know they are stale
+    private final AtomicLong latest = new AtomicLong();
+    private Future<?> running;
+
+    /**
+     * Searches as the user types into a search box
+     *
+     * @param searchBox the box typed into
+     * @param content the panel the search screen is shown in
+     * @param stores the stores to search
+     */
+    public SearchAsYouType(JTextField searchBox, JPanel content, AbstractStores stores) {
+        this.searchBox = searchBox;
+        this.content = content;
+        this.stores = stores;
+
+        this.debounce = new Timer(DEBOUNCE_MILLIS, this::search);
+        this.debounce.setRepeats(false);
+
+        // the popup mustn't take the focus, or the next key typed would go to it rather than the box
+        popup.setFocusable(false);
+        popup.setBackground(Constants.getHighlight());
+
+        searchBox.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+    }
+
+    /**
+     * Cancels any search waiting for typing to pause or still running, such as when enter is pressed to search straight away
+     */
+    public void cancel() {
+        debounce.stop();
+        latest.incrementAndGet();
+        // a running search isn't interrupted, as that would close the files a lazy load reads from. it sees that it is stale
+        // and stops by itself
+        if (running != null) {
+            running.cancel(false);
+        }
+        popup.setVisible(false);
+    }
+
+    // runs on the event dispatch thread once typing has paused
+    private void search(ActionEvent e) {
+        String searchTerm = searchBox.getText();
+        cancel();
+        if (searchTerm.trim().isEmpty() || searchTerm.equals(PLACEHOLDER)) {
+            return;
+        }
+
+        long search = latest.get();
+        running = searcher.submit(() -> {
+            Suggestion[] suggested = suggestionsFor(stores).suggest(searchTerm, SUGGESTIONS_PER_KIND);
+            if (latest.get() != search) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> showSuggestions(suggested, search));
+
+            if (searchTerm.trim().length() < MIN_SEARCH_LENGTH) {
+                return;
+            }
+            SearchResults found = SearchResults.find(stores, searchTerm, () -> latest.get() != search);
+            if (found != null) {
+                SwingUtilities.invokeLater(() -> {
+                    if (latest.get() == search) {
+                        SearchScreen.createPanel(content, searchTerm, stores, found);
+                    }
+                });
+            }
+        });
+    }
+
+    private void showSuggestions(Suggestion[] suggested, long search) {
+        popup.setVisible(false);
+        popup.removeAll();
+        if (latest.get() != search || suggested.length == 0 || !searchBox.isShowing()) {
+            return;
+        }
+
+        for (Suggestion suggestion : suggested) {
+            JMenuItem item = new JMenuItem(suggestion.text + "  (" + suggestion.kind.toString().toLowerCase() + ")");
+            item.setForeground(Constants.getFontColor());
+            item.setBackground(Constants.getHighlight());
+            item.addActionListener(chosen -> open(suggestion));
+            popup.add(item);
+        }
+        popup.show(searchBox, 0, searchBox.getHeight());
+    }
+
+    // films and cast members have a screen of their own, anything else is searched for by name
+    private void open(Suggestion suggestion) {
+        cancel();
+        switch (suggestion.kind) {
+            case FILM:
+                FilmScreen.createPanel(content, suggestion.id, stores);
+                break;
+            case CAST:
+                CastMemberScreen.createPanel(content, suggestion.id, stores);
+                break;
+            default:
+                SearchScreen.createPanel(content, suggestion.text, stores);
+        }
+    }
+
+    // the suggestions for some stores, building them the first time they are asked for
+    private static synchronized SearchSuggestions suggestionsFor(AbstractStores stores) {
+        if (suggestionsFor != stores) {
+            suggestions = new SearchSuggestions(stores);
+            suggestionsFor = stores;
+        }
+        return suggestions;
+    }
+}
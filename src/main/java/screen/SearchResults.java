@@ -0,0 +1,105 @@
+package screen;
+
+import java.util.function.BooleanSupplier;
+
+import interfaces.AbstractStores;
+import interfaces.ICredits;
+import interfaces.IKeyword;
+import interfaces.IKeywords;
+import interfaces.IMovies;
+import interfaces.IPerson;
+
+/**
+ * The results of every column of a search, which can be found away from the event dispatch thread before the search screen is
+ * shown, such as by SearchAsYouType. Each column falls back to the names a few edits away when the search term finds nothing, as
+ * a misspelt term would.
+ */
+class SearchResults {
+    // the most films listed in order of how well they match, before the rest of the films containing the search term
+    private static final int RANKED_RESULTS = 50;
+
+    final int[] films;
+    final IPerson[] cast;
+    final IPerson[] crew;
+    final IKeyword[] keywords;
+
+    private SearchResults(int[] films, IPerson[] cast, IPerson[] crew, IKeyword[] keywords) {
+        this.films = films;
+        this.cast = cast;
+        this.crew = crew;
+        this.keywords = keywords;
+    }
+
+    // searches each column in turn, giving up as soon as the search is stale, when null is returned
+    static SearchResults find(AbstractStores stores, String searchTerm, BooleanSupplier stale) {
+        int[] films = searchFilms(stores.getMovies(), searchTerm);
+        if (stale.getAsBoolean()) {
+            return null;
+        }
+        IPerson[] cast = searchCast(stores.getCredits(), searchTerm);
+        if (stale.getAsBoolean()) {
+            return null;
+        }
+        IPerson[] crew = searchCrew(stores.getCredits(), searchTerm);
+        if (stale.getAsBoolean()) {
+            return null;
+        }
+        IKeyword[] keywords = searchKeywords(stores.getKeywords(), searchTerm);
+        return stale.getAsBoolean() ? null : new SearchResults(films, cast, crew, keywords);
+    }
+
+    // the best matching films first, then any other film containing the search term, such as part of a word, in id order. a
+    // misspelt term finds nothing, so then the films with title words a few edits away are found instead
+    static int[] searchFilms(IMovies movies, String searchTerm) {
+        int[] ranked = movies.searchFilms(searchTerm, RANKED_RESULTS);
+        int[] found = movies.findFilms(searchTerm);
+
+        int[] results = new int[ranked.length + found.length];
+        System.arraycopy(ranked, 0, results, 0, ranked.length);
+        int count = ranked.length;
+        for (int id : found) {
+            boolean listed = false;
+            for (int i = 0; i < ranked.length && !listed; i++) {
+                listed = ranked[i] == id;
+            }
+            if (!listed) {
+                results[count++] = id;
+            }
+        }
+
+        if (count == 0) {
+            return movies.findFilmsFuzzy(searchTerm);
+        }
+
+        int[] finalResults = new int[count];
+        System.arraycopy(results, 0, finalResults, 0, count);
+        return finalResults;
+    }
+
+    // the cast members with the search term in their name. a misspelt name finds nothing, so then the names a few edits away
+    static IPerson[] searchCast(ICredits credits, String searchTerm) {
+        IPerson[] castResults = credits.findCast(searchTerm);
+        if (castResults == null || castResults.length == 0) {
+            castResults = credits.findCastFuzzy(searchTerm);
+        }
+        return castResults;
+    }
+
+    // the crew members with the search term in their name, falling back to the names a few edits away as for the cast
+    static IPerson[] searchCrew(ICredits credits, String searchTerm) {
+        IPerson[] crewResults = credits.findCrew(searchTerm);
+        if (crewResults == null || crewResults.length == 0) {
+            crewResults = credits.findCrewFuzzy(searchTerm);
+        }
+        return crewResults;
+    }
+
+    // the keywords with the search term in their name. a misspelt keyword finds nothing, so then the keywords a few edits away
+    static IKeyword[] searchKeywords(IKeywords keywords, String searchTerm) {
+        IKeyword[] keywordResults = keywords.findKeywords(searchTerm);
+        if (keywordResults == null || keywordResults.length == 0) {
+            keywordResults = keywords.findKeywordsFuzzy(searchTerm);
+        }
+        return keywordResults;
+    }
+}
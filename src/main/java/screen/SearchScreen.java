@@ -14,6 +14,16 @@ import utils.Constants;
 public class SearchScreen {
     
     public static void createPanel(JPanel panel, String searchTerm, AbstractStores stores) {
+        createPanel(panel, searchTerm, stores, null);
+    }
+
+    /**
+     * Shows the results of a search, which may have been found already, such as by SearchAsYouType away from the event
+     * dispatch thread
+     *
+     * @param found the results of each column, or null to search for them as each column is shown
+     */
+    static void createPanel(JPanel panel, String searchTerm, AbstractStores stores, SearchResults found) {
         IKeywords keywords = stores.getKeywords();
         System.out.println("Search screen --> \"" + searchTerm + "\"");
         if (searchTerm == "" || searchTerm.isEmpty()) {
@@ -59,7 +69,8 @@ public class SearchScreen {
         movieSearch.setAutoscrolls(false);
         movieResultsOuter.add(movieSearch);
 
-        MovieSearchRunnable movieSearchRunnable = new MovieSearchRunnable(panel, movieSearch, movieResults, stores, searchTerm);
+        MovieSearchRunnable movieSearchRunnable = new MovieSearchRunnable(panel, movieSearch, movieResults, stores, searchTerm,
+                                                                          found != null ? found.films : null);
 
         TitledBorder castResultsBorder;
         castResultsBorder = BorderFactory.createTitledBorder(BorderFactory.createLineBorder(Constants.getFontColor()),
@@ -91,7 +102,8 @@ public class SearchScreen {
         castSearch.setAutoscrolls(false);
         castResultsOuter.add(castSearch);
 
-        CreditsSearchRunnable castSearchRunnable = new CreditsSearchRunnable(panel, castSearch, castResults, stores, searchTerm, true);
+        CreditsSearchRunnable castSearchRunnable = new CreditsSearchRunnable(panel, castSearch, castResults, stores, searchTerm, true,
+                                                                            found != null ? found.cast : null);
 
         TitledBorder crewResultsBorder;
         crewResultsBorder = BorderFactory.createTitledBorder(BorderFactory.createLineBorder(Constants.getFontColor()),
@@ -129,7 +141,8 @@ public class SearchScreen {
         crewSearch.setAutoscrolls(false);
         crewResultsOuter.add(crewSearch);
 
-        CreditsSearchRunnable crewSearchRunnable = new CreditsSearchRunnable(panel, crewSearch, crewResults, stores, searchTerm, false);
+        CreditsSearchRunnable crewSearchRunnable = new CreditsSearchRunnable(panel, crewSearch, crewResults, stores, searchTerm, false,
+                                                                            found != null ? found.crew : null);
 
         TitledBorder keywordsResultsBorder;
         keywordsResultsBorder = BorderFactory.createTitledBorder(BorderFactory.createLineBorder(Constants.getFontColor()),
@@ -169,7 +182,8 @@ public class SearchScreen {
         keywordSearch.setAutoscrolls(false);
         keywordsResultsOuter.add(keywordSearch);
 
-        KeywordSearchRunnable keywordSearchRunnable = new KeywordSearchRunnable(keywordSearch, keywordResults, keywords, searchTerm);
+        KeywordSearchRunnable keywordSearchRunnable = new KeywordSearchRunnable(keywordSearch, keywordResults, keywords, searchTerm,
+                                                                            found != null ? found.keywords : null);
 
         panel.add(title);
         panel.add(movieResultsOuter);
@@ -193,13 +207,16 @@ class MovieSearchRunnable implements Runnable {
     private JLabel loadingText;
     private String searchTerm;
     private AbstractStores stores;
+    // the films found already, or null to search for them when run
+    private int[] found;
 
-    public MovieSearchRunnable(JPanel masterPane, JScrollPane scrollPane, JPanel resultsPane, AbstractStores stores, String searchTerm) {
+    public MovieSearchRunnable(JPanel masterPane, JScrollPane scrollPane, JPanel resultsPane, AbstractStores stores, String searchTerm, int[] found) {
         this.masterPane = masterPane;
         this.scrollPane = scrollPane;
         this.resultsPane = resultsPane;
         this.stores = stores;
         this.searchTerm = searchTerm;
+        this.found = found;
 
         scrollPane.setVisible(false);
 
@@ -215,7 +232,7 @@ class MovieSearchRunnable implements Runnable {
 
     @Override
     public void run() {
-        int[] idResults = stores.getMovies().findFilms(searchTerm);
+        int[] idResults = found != null ? found : SearchResults.searchFilms(stores.getMovies(), searchTerm);
 
         scrollPane.setVisible(false);
 
@@ -297,14 +314,17 @@ class CreditsSearchRunnable implements Runnable {
     private JLabel loadingText;
     private String searchTerm;
     private boolean castFlag;
+    // the people found already, or null to search for them when run
+    private IPerson[] found;
 
-    public CreditsSearchRunnable(JPanel masterPanel, JScrollPane scrollPane, JPanel resultsPane, AbstractStores stores, String searchTerm, boolean castFlag) {
+    public CreditsSearchRunnable(JPanel masterPanel, JScrollPane scrollPane, JPanel resultsPane, AbstractStores stores, String searchTerm, boolean castFlag, IPerson[] found) {
         this.masterPanel = masterPanel;
         this.scrollPane = scrollPane;
         this.resultsPane = resultsPane;
         this.stores = stores;
         this.searchTerm = searchTerm;
         this.castFlag = castFlag;
+        this.found = found;
 
         scrollPane.setVisible(false);
 
@@ -328,7 +348,7 @@ class CreditsSearchRunnable implements Runnable {
     public void run() {
         ICredits credits = stores.getCredits();
         if (castFlag) {
-            IPerson[] castResults = credits.findCast(searchTerm);
+            IPerson[] castResults = found != null ? found : SearchResults.searchCast(credits, searchTerm);
 
             if (castResults == null || castResults.length == 0) {
                 loadingText.setText("No Cast Members found for \"" + searchTerm + "\"!");
@@ -398,7 +418,7 @@ class CreditsSearchRunnable implements Runnable {
             }
             scrollPane.setVisible(true);
         } else {
-            IPerson[] crewResults = credits.findCrew(searchTerm);
+            IPerson[] crewResults = found != null ? found : SearchResults.searchCrew(credits, searchTerm);
 
             if (crewResults == null || crewResults.length == 0) {
                 loadingText.setText("No Crew Members found for \"" + searchTerm + "\"!");
@@ -453,12 +473,15 @@ class KeywordSearchRunnable implements Runnable {
     private IKeywords keywords;
     private JLabel loadingText;
     private String searchTerm;
+    // the keywords found already, or null to search for them when run
+    private IKeyword[] found;
 
-    public KeywordSearchRunnable(JScrollPane scrollPane, JPanel resultsPane, IKeywords keywords, String searchTerm) {
+    public KeywordSearchRunnable(JScrollPane scrollPane, JPanel resultsPane, IKeywords keywords, String searchTerm, IKeyword[] found) {
         this.scrollPane = scrollPane;
         this.resultsPane = resultsPane;
         this.keywords = keywords;
         this.searchTerm = searchTerm;
+        this.found = found;
 
         scrollPane.setVisible(false);
 
@@ -474,7 +497,7 @@ class KeywordSearchRunnable implements Runnable {
 
     @Override
     public void run() {
-        IKeyword[] keywordResults = keywords.findKeywords(searchTerm);
+        IKeyword[] keywordResults = found != null ? found : SearchResults.searchKeywords(keywords, searchTerm);
 
         if (keywordResults == null || keywordResults.length == 0) {
             loadingText.setText("No keywords found for \"" + searchTerm + "\"!");
@@ -520,4 +543,4 @@ class KeywordSearchRunnable implements Runnable {
         }
         scrollPane.setVisible(true);
     }
-}
\ No newline at end of file
+}
@@ -3,14 +3,27 @@ package stores;
 import structures.*;
 
 import interfaces.ICredits;
+import interfaces.RecordSource;
 
 public class Credits implements ICredits{
     Stores stores;
 
-    private MyHashMap<Integer, Credit> creditsMap;
+    private MyIntHashMap<Credit> creditsMap;
     
-    private MyHashMap<Integer, CastMember> castMap;
-    private MyHashMap<Integer, Member> crewMap;
+    private MyIntHashMap<CastMember> castMap;
+    private MyIntHashMap<Member> crewMap;
+
+    // substring indexes of the cast and crew members' names, for findCast and findCrew
+    private TrigramIndex castNames;
+    private TrigramIndex crewNames;
+
+    // typo tolerant indexes of the words of the cast and crew members' names, for findCastFuzzy and findCrewFuzzy
+    private FuzzyIndex fuzzyCastNames;
+    private FuzzyIndex fuzzyCrewNames;
+
+    // where the cast and crew of films added with an offset are read from, and the ones read most recently
+    private RecordSource<FilmCredits> creditSource;
+    private ClockCache<FilmCredits> creditCache;
 
     // todo create hashmaps to store each cast and crew member
 
@@ -23,9 +36,13 @@ public class Credits implements ICredits{
      */
     public Credits (Stores stores) {
         this.stores = stores;
-        this.creditsMap = new MyHashMap<>();
-        this.castMap = new MyHashMap<>();
-        this.crewMap = new MyHashMap<>();
+        this.creditsMap = new MyIntHashMap<>();
+        this.castMap = new MyIntHashMap<>();
+        this.crewMap = new MyIntHashMap<>();
+        this.castNames = new TrigramIndex();
+        this.crewNames = new TrigramIndex();
+        this.fuzzyCastNames = new FuzzyIndex();
+        this.fuzzyCrewNames = new FuzzyIndex();
         // TODO Add initialisation of data structure here
     }
 
@@ -40,58 +57,161 @@ public class Credits implements ICredits{
      */
     @Override
     public boolean add(CastCredit[] cast, CrewCredit[] crew, int id) {
-        // create a new credits object
-        Credit credit = new Credit(cast, crew, id);
+        // add the cast and crew members
+        addMembers(cast, crew, id);
+
+        // any cast and crew read for a film this replaces are out of date
+        forgetCredits(id);
+
+        // insert the credit into the hashmap
+        return creditsMap.put(id, new Credit(cast, crew, id));
+    }
+
+    /**
+     * Adds the cast and crew of a batch of films. This gives the same result as calling add for each film in turn, but the credits
+     * hashmap is presized for the whole batch.
+     * 
+     * @param cast    The cast of each film
+     * @param crew    The crew of each film
+     * @param filmIDs The (unique) movie ID of each film
+     * @return the number of new films added
+     */
+    @Override
+    public int addAll(CastCredit[][] cast, CrewCredit[][] crew, int[] filmIDs) {
+        // presize the hashmap so it doesn't resize part way through the batch
+        creditsMap.ensureCapacity(creditsMap.size() + filmIDs.length);
+        int added = 0;
+
+        for (int i = 0; i < filmIDs.length; i++){
+            if (add(cast[i], crew[i], filmIDs[i])){
+                added++;
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * Adds the cast and crew of a batch of films, leaving those with an offset out of memory. Their people are indexed as addAll
+     * would, so every lookup by person still works, but only the number of cast and crew are kept for the film itself. The arrays
+     * are read back from the credit source when they are asked for.
+     * 
+     * @param cast    The cast of each film
+     * @param crew    The crew of each film
+     * @param filmIDs The (unique) movie ID of each film
+     * @param offsets Where each film's record starts in the credits file, or a negative number to keep its cast and crew
+     * @return the number of new films added
+     */
+    @Override
+    public int addAll(CastCredit[][] cast, CrewCredit[][] crew, int[] filmIDs, long[] offsets) {
+        // presize the hashmap so it doesn't resize part way through the batch
+        creditsMap.ensureCapacity(creditsMap.size() + filmIDs.length);
+        int added = 0;
+
+        for (int i = 0; i < filmIDs.length; i++){
+            if (offsets[i] < 0){
+                if (add(cast[i], crew[i], filmIDs[i])){
+                    added++;
+                }
+                continue;
+            }
+
+            // index the people, then keep only where to read the arrays from
+            addMembers(cast[i], crew[i], filmIDs[i]);
+            forgetCredits(filmIDs[i]);
+            if (creditsMap.put(filmIDs[i], new Credit(cast[i].length, crew[i].length, filmIDs[i], offsets[i]))){
+                added++;
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * Sets where the cast and crew of films added with an offset are read from. They are read the first time they are asked for,
+     * and the most recently used are cached, so only the cache's worth of credits is held in memory.
+     * 
+     * @param source    reads the cast and crew of the film whose record starts at an offset
+     * @param cacheSize the most films to keep the cast and crew of at once
+     */
+    @Override
+    public void setCreditSource(RecordSource<FilmCredits> source, int cacheSize) {
+        this.creditSource = source;
+        this.creditCache = new ClockCache<>(cacheSize);
+    }
+
+    /**
+     * Gets the cast and crew of a film that was added without them, reading them from the credit source if they aren't cached
+     * 
+     * @param filmCredit the film's credit, whose offset is 0 or more
+     * @return the film's cast and crew
+     */
+    private FilmCredits credits(Credit filmCredit) {
+        FilmCredits credits = creditCache != null ? creditCache.get(filmCredit.id) : null;
+        if (credits == null){
+            if (creditSource == null){
+                throw new IllegalStateException("Film " + filmCredit.id + " was added without its credits, but there is nowhere to read them from");
+            }
+            credits = creditSource.read(filmCredit.offset);
+            creditCache.put(filmCredit.id, credits);
+        }
+        return credits;
+    }
 
+    // drops the cached cast and crew of a film, if any
+    private void forgetCredits(int id) {
+        if (creditCache != null){
+            creditCache.remove(id);
+        }
+    }
+
+    /**
+     * Records a film against each of its cast and crew members, creating members that haven't been seen before. Each member costs
+     * one lookup, plus a put the first time they are seen.
+     * 
+     * @param cast An array of all cast members that starred in the given film
+     * @param crew An array of all crew members that worked on a given film
+     * @param id   The movie ID
+     */
+    private void addMembers(CastCredit[] cast, CrewCredit[] crew, int id) {
         // add each cast member to the hashmap
         for (CastCredit castMember : cast){
-            // create a new person and a new cast member
-            Person newPerson = new Person(castMember.getID(), castMember.getName(), castMember.getProfilePath());
-            CastMember newMember = new CastMember(newPerson);
-            
-            // if a cast member exists
-            if(castMap.get(castMember.getID()) != null){
-                // update the member value
-                newMember = castMap.get(castMember.getID());
+            CastMember member = castMap.get(castMember.getID());
+
+            // if the cast member doesn't exist, create them
+            if (member == null){
+                member = new CastMember(new Person(castMember.getID(), castMember.getName(), castMember.getProfilePath()));
+                castMap.put(castMember.getID(), member);
+                castNames.add(castMember.getID(), castMember.getName());
+                fuzzyCastNames.add(castMember.getID(), castMember.getName());
             }
-            
-            
+
             // increment number of appearances + add to appearances map
-            newMember.appearances++;
-            newMember.films.put(id, id);
+            member.appearances++;
+            member.films.add(id);
 
             // if the cast member stars in the film
             if(castMember.getOrder() <= 2){
-                // add the starred film to the hashmap
-                newMember.starredFilms.put(id, id);
+                // add the starred film to the set
+                member.starredFilms.add(id);
             }
-
-            //todo add the film to the hashmap
-
-            // put the member in the hashmap
-            castMap.put(castMember.getID(), newMember);
         }
 
         // add each crew member to the crewmap
         for (CrewCredit crewMember : crew){
-            // todo modify here
-            // create a new person and a new cast member
-            Person newPerson = new Person(crewMember.getID(), crewMember.getName(), crewMember.getProfilePath());
-            Member newMember = new Member(newPerson);
-
-            if(crewMap.get(crewMember.getID()) != null){
-                newMember = crewMap.get(crewMember.getID());
+            Member member = crewMap.get(crewMember.getID());
+
+            // if the crew member doesn't exist, create them
+            if (member == null){
+                member = new Member(new Person(crewMember.getID(), crewMember.getName(), crewMember.getProfilePath()));
+                crewMap.put(crewMember.getID(), member);
+                crewNames.add(crewMember.getID(), crewMember.getName());
+                fuzzyCrewNames.add(crewMember.getID(), crewMember.getName());
             }
 
-            // incremement number of appearances + add to appearances map
-            newMember.films.put(id, id);
-            
-            // add the member to the hashmap
-            crewMap.put(crewMember.getID(), newMember);
+            // add the film to the members films
+            member.films.add(id);
         }
-        
-        // insert the credit into the hashmap
-        return creditsMap.put(id, credit);
     }
 
     /**
@@ -102,6 +222,8 @@ public class Credits implements ICredits{
      */
     @Override
     public boolean remove(int id) {
+        forgetCredits(id);
+
         // remove the id from the hashmap
         return creditsMap.remove(id);
 
@@ -124,6 +246,10 @@ public class Credits implements ICredits{
         
         // return the cast if the film exists
         if(filmCredit != null){
+            // read the cast from the credits file if it was left there
+            if (filmCredit.offset >= 0){
+                return credits(filmCredit).getCast();
+            }
             return filmCredit.cast;
         }
 
@@ -147,6 +273,10 @@ public class Credits implements ICredits{
         
         // return the crew if the film exists
         if(filmCredit != null){
+            // read the crew from the credits file if it was left there
+            if (filmCredit.offset >= 0){
+                return credits(filmCredit).getCrew();
+            }
             return filmCredit.crew;
         }
 
@@ -215,14 +345,13 @@ public class Credits implements ICredits{
      */
     @Override
     public Person[] getUniqueCast() {
-        // get a list of all keys entered into the hashmap
-        Integer[] keys = castMap.keys();
         Person[] uniqueCast = new Person[castMap.size()];
-        
-        // get the person associated with the hashmap
-        for (int i = 0; i < castMap.size(); i++){
-            // add the person to the unique cast list
-            uniqueCast[i] = castMap.get(keys[i]).person;
+        int index = 0;
+
+        // add the person of each entry in the hashmap to the unique cast list
+        MyIntHashMap<CastMember>.Cursor cursor = castMap.cursor();
+        while (cursor.next()){
+            uniqueCast[index++] = cursor.value().person;
         }
 
         // return the list of unique cast members
@@ -237,14 +366,13 @@ public class Credits implements ICredits{
      */
     @Override
     public Person[] getUniqueCrew() {
-        // get a list of all crew members added
-        Integer[] keys = crewMap.keys();
         Person[] uniqueCrew = new Person[crewMap.size()];
+        int index = 0;
 
-        // check each crew member
-        for (int i = 0; i < crewMap.size(); i++){
-            // get the value associated with the given key
-            uniqueCrew[i] = crewMap.get(keys[i]).person;
+        // add the person of each entry in the hashmap to the unique crew list
+        MyIntHashMap<Member>.Cursor cursor = crewMap.cursor();
+        while (cursor.next()){
+            uniqueCrew[index++] = cursor.value().person;
         }
         
         // return the list of unique crew members
@@ -252,82 +380,90 @@ public class Credits implements ICredits{
     }
 
     /**
-     * Get all the cast members that have the given string within their name
+     * Get all the cast members that have the given string within their name. The names are looked up in a trigram index, so only
+     * the names that contain every three letter run of the string are checked, rather than every cast member. Strings shorter than
+     * three letters still check every name.
      * 
      * @param cast The string that needs to be found
      * @return An array of unique Person objects of all cast members that have the 
-     *         requested string in their name
+     *         requested string in their name, in ID order
      */
     @Override
     public Person[] findCast(String cast) {
-        // get all keys associated
-        Integer[] keys = castMap.keys();
-        Person[] matchingCast = new Person[castMap.size()];
-        int index = 0;
-
-        // check each cast member
-        for (int i = 0; i < castMap.size(); i++){
-            // get the cast member
-            Person castMember = castMap.get(keys[i]).person;
-
-            // if the search term can be found in the name
-            if (castMember.getName().contains(cast)){
-                // add the cast member to the matching cast array
-                matchingCast[index++] = castMember;
-            }
+        // find the ids of the matching names
+        int[] castIDs = castNames.find(cast);
 
+        // map each id to its person
+        Person[] matchingCast = new Person[castIDs.length];
+        for (int i = 0; i < castIDs.length; i++){
+            matchingCast[i] = castMap.get(castIDs[i]).person;
         }
 
-        // remove null keys by creating a subarray
-        Person[] finalArrayOfCast = new Person[index];
-        System.arraycopy(matchingCast, 0, finalArrayOfCast, 0, index);
+        return matchingCast;
+    }
 
-        return finalArrayOfCast;
+    /**
+     * Get all the crew members that have the given string within their name. As with findCast, the names are looked up in a
+     * trigram index.
+     * 
+     * @param crew The string that needs to be found
+     * @return An array of unique Person objects of all crew members that have the 
+     *         requested string in their name, in ID order
+     */
+    @Override
+    public Person[] findCrew(String crew) {
+        // find the ids of the matching names
+        int[] crewIDs = crewNames.find(crew);
 
-        // todo iterate through each cast member in the hashmap O(n)
+        // map each id to its person
+        Person[] matchingCrew = new Person[crewIDs.length];
+        for (int i = 0; i < crewIDs.length; i++){
+            matchingCrew[i] = crewMap.get(crewIDs[i]).person;
+        }
 
-        // todo check to see if the string contains the given values
+        return matchingCrew;
+    }
 
-        // todo add to an array O(n)
+    /**
+     * Get the cast members with a word in their name close to each word of the given string, for when a misspelt name finds
+     * nothing with findCast. Words match if they are a few edits apart, ignoring case and accents, so "Speilberg" finds "Steven
+     * Spielberg". The name words are searched in sorted order, skipping every word whose start is already too far off, so only a
+     * small part of them are compared with each word searched for.
+     * 
+     * @param cast The string that needs to be found
+     * @return An array of unique Person objects of the matching cast members, the closest first
+     */
+    @Override
+    public Person[] findCastFuzzy(String cast) {
+        int[] castIDs = fuzzyCastNames.find(cast);
 
+        // map each id to its person
+        Person[] matchingCast = new Person[castIDs.length];
+        for (int i = 0; i < castIDs.length; i++){
+            matchingCast[i] = castMap.get(castIDs[i]).person;
+        }
 
-        
-        // TODO Implement this function
+        return matchingCast;
     }
 
     /**
-     * Get all the crew members that have the given string within their name
+     * Get the crew members with a word in their name close to each word of the given string. As with findCastFuzzy, the name
+     * words are searched in sorted order, skipping the words whose start is too far off.
      * 
      * @param crew The string that needs to be found
-     * @return An array of unique Person objects of all crew members that have the 
-     *         requested string in their name
+     * @return An array of unique Person objects of the matching crew members, the closest first
      */
     @Override
-    public Person[] findCrew(String crew) {
-        // get all keys associated
-        Integer[] keys = crewMap.keys();
-        Person[] matchingCrew = new Person[crewMap.size()];
-        int index = 0;
-
-        // check each cast member
-        for (int i = 0; i < crewMap.size(); i++){
-            // get the cast member
-            Person crewMember = crewMap.get(keys[i]).person;
-
-            // if the search term can be found in the name
-            if (crewMember.getName().contains(crew)){
-                // add the cast member to the matching cast array
-                matchingCrew[index++] = crewMember;
-            }
+    public Person[] findCrewFuzzy(String crew) {
+        int[] crewIDs = fuzzyCrewNames.find(crew);
 
+        // map each id to its person
+        Person[] matchingCrew = new Person[crewIDs.length];
+        for (int i = 0; i < crewIDs.length; i++){
+            matchingCrew[i] = crewMap.get(crewIDs[i]).person;
         }
 
-        // remove null keys by creating a subarray
-        Person[] finalArrayOfCrew = new Person[index];
-        System.arraycopy(matchingCrew, 0, finalArrayOfCrew, 0, index);
-
-        // TODO Implement this function
-        return finalArrayOfCrew;
+        return matchingCrew;
     }
 
     /**
@@ -391,17 +527,8 @@ public class Credits implements ICredits{
             return new int[0];
         }
         
-        // get the keys for the films hashmap
-        Integer[] keys = member.films.keys();
-        int[] films = new int[member.films.size()];
-
-        // map each key to the film array
-        for (int i = 0; i < member.films.size(); i++){
-            films[i] = keys[i];
-        }
-        
-        // return the list of films
-        return films;
+        // return a copy of the films set
+        return member.films.toArray();
     }
 
     /**
@@ -422,17 +549,8 @@ public class Credits implements ICredits{
             return new int[0];
         }
         
-        // get the keys for the films hashmap
-        Integer[] keys = member.films.keys();
-        int[] films = new int[member.films.size()];
-
-        // map each key to the film array
-        for (int i = 0; i < member.films.size(); i++){
-            films[i] = keys[i];
-        }
-        
-        // return the list of films
-        return films;
+        // return a copy of the films set
+        return member.films.toArray();
     }
 
     /**
@@ -455,17 +573,8 @@ public class Credits implements ICredits{
             return new int[0];
         }
         
-        // get the keys for the films hashmap
-        Integer[] keys = member.starredFilms.keys();
-        int[] films = new int[member.starredFilms.size()];
-
-        // map each key to the film array
-        for (int i = 0; i < member.starredFilms.size(); i++){
-            films[i] = keys[i];
-        }
-        
-        // return the list of films
-        return films;
+        // return a copy of the films set
+        return member.starredFilms.toArray();
     }
     
     /**
@@ -483,33 +592,19 @@ public class Credits implements ICredits{
      */
     @Override
     public Person[] getMostCastCredits(int numResults) {
-        // if there is no cast, return an empty array
-        if(castMap.size() == 0){
-            return new Person[0];
-        }
-        
-        // get list of all keys
-        Integer[] keys = castMap.keys();
-        MyPair<Person, Integer>[] castMemberPair = new MyPair[keys.length];
-
-        // pair each person object with the number of appearances they have
-        for (int i = 0; i < keys.length; i++){
-            if(castMap.get(keys[i]) != null){
-                // create a new pair to represent
-                int numCredits = getNumCastCredits(keys[i]);
-                castMemberPair[i] = new MyPair<>(castMap.get(keys[i]).person, numCredits);
-            }
-        }
+        TopK top = new TopK(numResults);
 
-        // quicksort it
-        quickSort(castMemberPair, 0, castMemberPair.length - 1);
-        
-        // create an array of num elements
-        Person[] result = new Person[numResults];
+        // offer each cast member with the number of appearances they have
+        MyIntHashMap<CastMember>.Cursor cursor = castMap.cursor();
+        while (cursor.next()){
+            top.offer(cursor.key(), cursor.value().appearances);
+        }
 
-        // map the person object of the first n elements to our new arary
-        for (int i = 0; i < numResults; i++){
-            result[i] = castMemberPair[i].identifier;
+        // map the ids of the cast members with the most credits to their person objects
+        int[] castIDs = top.result();
+        Person[] result = new Person[castIDs.length];
+        for (int i = 0; i < castIDs.length; i++){
+            result[i] = castMap.get(castIDs[i]).person;
         }
 
         // return
@@ -539,66 +634,6 @@ public class Credits implements ICredits{
         // return the number of appearances the individual has
         return member.appearances;
     }
-
-    /**
-     * Performs a recursive quicksort on an array. This has a time complexity of O(n log n) instead of O(n^2) as due to the fact we are calculating the pivot by getting
-     * the median of 3 values, it means we are very very unlikely to encounter the worst case of O(n^2), meaning we can write it as O(n log n). The space complexity is
-     * 
-     * 
-     * @param arr the array we wish to sort
-     * @param low the lowerbound of the subarray
-     * @param high the upperbound of the array
-     */
-    private void quickSort(MyPair[] arr, int low, int high){
-        if (low < high){
-            // partition the array and get the pivot index
-            int pivot = partition(arr, low, high);
-
-            // recursively sort elemetns before and after the pivot
-            quickSort(arr, low, pivot - 1);
-            quickSort(arr, pivot + 1, high);
-        }
-    }
-
-    /**
-     * Calculates the pivot for a subarray to be quicksorted. This has a time complexity of O(n) due to the fact that, we need to iterate through the entire array.
-     * The space complexity for this method is constant O(1) as we are doing an in-place swap to calcaulate the pivot.
-     * 
-     * @param arr the array we wish to sort
-     * @param low the lowerbound of the subarray
-     * @param high the upperbound of the array
-     */
-    private int partition(MyPair[] arr, int low, int high){
-        // choose the last element as the pivot
-        double pivot = arr[high].value.doubleValue();
-        int i = low - 1;
-
-        // traverse the array
-        for (int j = low; j < high; j++){
-            // if the current eleemnt is greater than or equal to the pivot
-            if(arr[j] != null && arr[j].value.doubleValue() >= pivot){
-                // increment smaller element
-                i++;
-
-                // swap elements
-                MyPair temp = arr[i];
-                arr[i] = arr[j];
-                arr[j] = temp;
-            }
-        }
-
-        // swap the pivot element with the element at index (i + 1)
-        MyPair temp = arr[i + 1];
-        arr[i + 1] = arr[high];
-        arr[high] = temp;
-
-        // return the index of the pivot element
-        return i + 1;
-    }
-
-
-
-
 }
 
 
@@ -610,6 +645,8 @@ class Credit {
     int id;
     int castSize;
     int crewSize;
+    // where the film's record starts in the credits file, if its cast and crew were left there, or -1
+    long offset = -1;
 
     // create a new instance of the rating
     Credit(CastCredit[] cast, CrewCredit[] crew, int id){
@@ -619,12 +656,20 @@ class Credit {
         this.castSize = cast.length;
         this.crewSize = crew.length;
     }
+
+    // a credit whose cast and crew are left in the credits file
+    Credit(int castSize, int crewSize, int id, long offset){
+        this.id = id;
+        this.castSize = castSize;
+        this.crewSize = crewSize;
+        this.offset = offset;
+    }
 }
 
 
 class Member {
     Person person;
-    MyHashMap<Integer, Integer> films = new MyHashMap<>();
+    IntSet films = new IntSet();
 
     public Member(Person person){
         this.person = person;
@@ -633,7 +678,7 @@ class Member {
 
 
 class CastMember extends Member{
-    MyHashMap<Integer, Integer> starredFilms = new MyHashMap<>();
+    IntSet starredFilms = new IntSet();
     int appearances = 0;
 
     public CastMember(Person person){
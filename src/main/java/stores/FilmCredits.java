@@ -0,0 +1,22 @@
+package stores;
+
+/**
+ * The cast and crew of a film, which a lazily loaded Credits store reads back from the credits file when they are asked for
+ */
+public class FilmCredits {
+    private final CastCredit[] cast;
+    private final CrewCredit[] crew;
+
+    public FilmCredits(CastCredit[] cast, CrewCredit[] crew) {
+        this.cast = cast;
+        this.crew = crew;
+    }
+
+    public CastCredit[] getCast() {
+        return cast;
+    }
+
+    public CrewCredit[] getCrew() {
+        return crew;
+    }
+}
@@ -2,7 +2,11 @@ package stores;
 
 import interfaces.IKeywords;
 import interfaces.AbstractStores;
+import structures.FuzzyIndex;
 import structures.MyArrayList;
+import structures.MyIntHashMap;
+import structures.TopK;
+import structures.TrigramIndex;
 
 public class Keywords implements IKeywords{
     AbstractStores stores;
@@ -11,16 +15,69 @@ public class Keywords implements IKeywords{
     MyArrayList<Keyword[]> keywords;
     MyArrayList<Keyword> unique;
 
+    // the unique keywords by id, and a substring index of their names for findKeywords
+    MyIntHashMap<Keyword> uniqueByID;
+    TrigramIndex names;
+
+    // how many of the films' keyword lists each keyword is in, so its name leaves the indexes once none are
+    MyIntHashMap<Integer> filmCounts;
+
+    // a typo tolerant index of the words of their names, for findKeywordsFuzzy
+    FuzzyIndex fuzzyNames;
+
     Keywords(AbstractStores stores) {
         this.stores = stores;
         id = new MyArrayList<>();
         keywords = new MyArrayList<>();
         unique = new MyArrayList<>();
+        uniqueByID = new MyIntHashMap<>();
+        names = new TrigramIndex();
+        filmCounts = new MyIntHashMap<>();
+        fuzzyNames = new FuzzyIndex();
+    }
+
+    // records a keyword as one of the unique keywords, if it is the first with its id, and counts one more film with it
+    private void addUnique(Keyword keyword) {
+        if (!uniqueByID.containsKey(keyword.getID())) {
+            uniqueByID.put(keyword.getID(), keyword);
+            unique.add(keyword);
+        }
+
+        // the name is searchable again if every film with the keyword was removed before
+        Integer count = filmCounts.get(keyword.getID());
+        if (count == null) {
+            names.add(keyword.getID(), keyword.getName());
+            fuzzyNames.add(keyword.getID(), keyword.getName());
+        }
+        filmCounts.put(keyword.getID(), count == null ? 1 : count + 1);
+    }
+
+    // counts one less film with a keyword, taking its name out of the indexes once no film has it
+    private void removeUnique(int keywordID) {
+        Integer count = filmCounts.get(keywordID);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            filmCounts.put(keywordID, count - 1);
+            return;
+        }
+        filmCounts.remove(keywordID);
+        names.remove(keywordID);
+        fuzzyNames.remove(keywordID);
+    }
+
+    // passes a film's keywords on to the movies store, which ranks films by them in searchFilms
+    private void indexFilm(int filmID, Keyword[] filmKeywords) {
+        if (stores.getMovies() instanceof Movies) {
+            ((Movies) stores.getMovies()).indexKeywords(filmID, filmKeywords);
+        }
     }
 
     @Override
     public boolean add(int filmID, Keyword keyword) {
         boolean result = true;
+        addUnique(keyword);
 
         for (int i = 0; i < this.id.size(); i++) {
             if(this.id.get(i) == filmID) {
@@ -30,32 +87,24 @@ public class Keywords implements IKeywords{
                 }
                 tmp[keywords.get(i).length] = keyword;
                 keywords.set(i, tmp);
+                indexFilm(filmID, tmp);
                 return result;
             }
         }
 
-        boolean flag = true;
-        for(int i = 0; i < unique.size(); i++) {
-            if(this.unique.get(i).getID() == keyword.getID()) {
-                flag = false;
-                break;
-            }
-        }
-
-        if (flag) {
-            unique.add(keyword);
-        }
-        
-
         result &= this.id.add(filmID);
         Keyword[] tmp = {keyword};
         result &= keywords.add(tmp);
+        indexFilm(filmID, tmp);
         return result;
     }
 
     @Override
     public boolean add(int id, Keyword[] keywords) {
         boolean result = true;
+        for (Keyword keyword : keywords) {
+            addUnique(keyword);
+        }
 
         for (int i = 0; i < this.id.size(); i++) {
             if (this.id.get(i) == id) {
@@ -67,33 +116,62 @@ public class Keywords implements IKeywords{
                     tmp[this.keywords.get(i).length+j] = keywords[j];
                 }
                 this.keywords.set(i, tmp);
+                indexFilm(id, tmp);
                 return result;
             }
         }
 
-        for (int i = 0; i < keywords.length; i++) {
-            boolean flag = true;
-            for (int j = 0; j < unique.size(); j++) {
-                if(this.unique.get(j).getID() == keywords[i].getID()) {
-                    flag = false;
-                    break;
-                }
-            }
-            if(flag){
-                unique.add(keywords[i]);
-            }
-        }
-
         result &= this.id.add(id);
         result &= this.keywords.add(keywords);
+        indexFilm(id, keywords);
         return result;
     }
 
+    @Override
+    public int addAll(int[] filmIDs, Keyword[][] keywords) {
+        MyIntHashMap<Integer> index = new MyIntHashMap<>(this.id.size() + filmIDs.length);
+        for (int i = 0; i < this.id.size(); i++) {
+            if (!index.containsKey(this.id.get(i))) {
+                index.put(this.id.get(i), i);
+            }
+        }
+
+        int added = 0;
+        for (int i = 0; i < filmIDs.length; i++) {
+            for (Keyword keyword : keywords[i]) {
+                addUnique(keyword);
+            }
+
+            Integer existing = index.get(filmIDs[i]);
+            if (existing != null) {
+                Keyword[] current = this.keywords.get(existing);
+                Keyword[] tmp = new Keyword[current.length + keywords[i].length];
+                System.arraycopy(current, 0, tmp, 0, current.length);
+                System.arraycopy(keywords[i], 0, tmp, current.length, keywords[i].length);
+                this.keywords.set(existing, tmp);
+                indexFilm(filmIDs[i], tmp);
+                continue;
+            }
+
+            index.put(filmIDs[i], this.id.size());
+            this.id.add(filmIDs[i]);
+            this.keywords.add(keywords[i]);
+            indexFilm(filmIDs[i], keywords[i]);
+            added++;
+        }
+        return added;
+    }
+
     @Override
     public boolean remove(int id) {
         int index = this.id.indexOf(id);
+        Keyword[] filmKeywords = this.keywords.get(index);
         boolean result = this.id.remove(id);
-        result &= this.keywords.remove(this.keywords.get(index));
+        result &= this.keywords.remove(filmKeywords);
+        for (Keyword keyword : filmKeywords) {
+            removeUnique(keyword.getID());
+        }
+        indexFilm(id, null);
         return result;
     }
 
@@ -120,6 +198,8 @@ public class Keywords implements IKeywords{
                     }
 
                     this.keywords.set(i, tmp);
+                    removeUnique(keywordID);
+                    indexFilm(id, tmp);
                 }
                 return true;
             }
@@ -192,21 +272,40 @@ public class Keywords implements IKeywords{
         return keywords.size();
     }
 
+    /**
+     * Finds the unique keywords with the search term in their name. The names are looked up in a trigram index, so only the names
+     * containing every three letter run of the term are checked, and each keyword is returned once however many films have it.
+     *
+     * @param keyword the term to search for
+     * @return the matching keywords, in id order
+     */
     @Override
     public Keyword[] findKeywords(String keyword) {
-        MyArrayList<Keyword> tmpResult = new MyArrayList<>();
-        for (int i = 0; i < keywords.size(); i++) {
-            for (int j = 0; j < keywords.get(i).length; j++) {
-                if (keywords.get(i)[j].getName().contains(keyword)) {
-                    tmpResult.add(keywords.get(i)[j]);
-                }
-            }
+        int[] keywordIDs = names.find(keyword);
+
+        Keyword[] result = new Keyword[keywordIDs.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = uniqueByID.get(keywordIDs[i]);
         }
 
-        Keyword[] result = new Keyword[tmpResult.size()];
+        return result;
+    }
+
+    /**
+     * Finds the unique keywords with a word in their name close to each word of the search term, for when a misspelt term finds
+     * nothing with findKeywords. Words match if they are a few edits apart, ignoring case and accents, and the words whose start
+     * is already too far off are skipped, so only a small part of them are compared with each word searched for.
+     *
+     * @param keyword the term to search for
+     * @return the matching keywords, the closest first
+     */
+    @Override
+    public Keyword[] findKeywordsFuzzy(String keyword) {
+        int[] keywordIDs = fuzzyNames.find(keyword);
 
+        Keyword[] result = new Keyword[keywordIDs.length];
         for (int i = 0; i < result.length; i++) {
-            result[i] = tmpResult.get(i);
+            result[i] = uniqueByID.get(keywordIDs[i]);
         }
 
         return result;
@@ -215,29 +314,10 @@ public class Keywords implements IKeywords{
 
     @Override
     public int[] getMostKeywordFilms(int numResults) {
-        int[] results = new int[numResults];
-        int[] keywordCount = new int[numResults];
-
+        TopK top = new TopK(numResults);
         for (int i = 0; i < id.size(); i++) {
-            int currentID = id.get(i);
-            int currentNumKeywords = keywords.get(i).length;
-            for (int j = 0 ; j < results.length; j++) {
-                if (keywordCount[j] == 0) {
-                    results[j] = currentID;
-                    keywordCount[j] = currentNumKeywords;
-                    break;
-                } else if (keywordCount[j] < currentNumKeywords) {
-                    for (int k = (results.length-1); k > j; k--) {
-                        results[k] = results[k-1];
-                        keywordCount[k] = keywordCount[k-1];
-                    }
-                    results[j] = currentID;
-                    keywordCount[j] = currentNumKeywords;
-                    break;
-                }
-            }
+            top.offer(id.get(i), keywords.get(i).length);
         }
-
-        return results;
+        return top.result();
     }
 }
@@ -0,0 +1,817 @@
+package stores;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import structures.*;
+import interfaces.IRatings;
+
+/**
+ * A write-optimised ratings store, built as a log-structured merge tree. Writes go into a small mutable hash table (the memtable),
+ * which is flushed into an immutable sorted run once it fills up. A background thread merges runs of similar sizes together, so
+ * there are only ever O(log n) runs. Removals are written as tombstones, which are dropped once a merge reaches the oldest run.
+ *
+ * Every rating is keyed by (movieId, userId) packed into a long, and each run also keeps a (userId, movieId) ordering, so both
+ * movie and user lookups are range scans. The count and sum of the ratings for each movie and user are kept up to date on every
+ * write, so averages, counts and the leaderboards never need to look at the runs.
+ */
+public class LsmRatings implements IRatings {
+    // number of entries in the memtable before it is flushed to a run
+    private static final int MEMTABLE_LIMIT = 1 << 15;
+
+    private Stores stores;
+
+    // the mutable memtable and the immutable runs, oldest first
+    private RatingMemtable memtable;
+    private volatile RatingRun[] runs;
+
+    // exact count and sum of the ratings for each movie and user
+    private MyIntHashMap<RatingStats> movieStats;
+    private MyIntHashMap<RatingStats> userStats;
+    private int size = 0;
+
+    // one background thread merges the runs of every store, so a store that is dropped doesn't leave a thread waiting behind it
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "ratings-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // whether a merge of this store's runs is queued and hasn't started yet
+    private boolean compactionQueued = false;
+
+    // held for the whole of a merge, so only one merge changes the runs at a time
+    private final Object compactionLock = new Object();
+
+    public LsmRatings(Stores stores) {
+        this.stores = stores;
+        this.memtable = new RatingMemtable(MEMTABLE_LIMIT);
+        this.runs = new RatingRun[0];
+        this.movieStats = new MyIntHashMap<>();
+        this.userStats = new MyIntHashMap<>();
+    }
+
+    /**
+     * Inserts a rating if the user hasn't already rated the movie. This is one memtable write plus a lookup of the existing rating,
+     * which is an O(1) probe of the memtable and a binary search of each of the O(log n) runs.
+     *
+     * @param userid the id of the user rating the movie
+     * @param movieid the id of the movie being rated
+     * @param rating the actual rating of the movie
+     * @param timestamp the timestamp of the rating
+     *
+     * @return whether the addition was successful or not
+     */
+    @Override
+    public synchronized boolean add(int userid, int movieid, float rating, LocalDateTime timestamp) {
+        long key = RatingRun.movieKey(movieid, userid);
+
+        // fail if the user has already rated the movie
+        if (!Float.isNaN(lookup(key))){
+            return false;
+        }
+
+        write(key, rating, timestamp);
+        stats(movieStats, movieid).add(rating);
+        stats(userStats, userid).add(rating);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a rating by writing a tombstone over it. This has the same cost as add.
+     *
+     * @param userid the id of the user rating the movie
+     * @param movieid the id of the movie being rated
+     *
+     * @return whether or not the removal was successful
+     */
+    @Override
+    public synchronized boolean remove(int userid, int movieid) {
+        long key = RatingRun.movieKey(movieid, userid);
+
+        // fail if there is no rating to remove
+        float oldRating = lookup(key);
+        if (Float.isNaN(oldRating)){
+            return false;
+        }
+
+        write(key, RatingRun.TOMBSTONE, null);
+        movieStats.get(movieid).remove(oldRating);
+        userStats.get(userid).remove(oldRating);
+        size--;
+        return true;
+    }
+
+    /**
+     * Inserts or replaces a rating. Unlike Ratings, this is a single memtable write rather than a remove followed by an add.
+     *
+     * @param userid the id of the user rating the movie
+     * @param movieid the id of the movie being rated
+     * @param rating the actual rating of the movie
+     * @param timestamp the timestamp of the rating
+     *
+     * @return whether the addition was successful or not
+     */
+    @Override
+    public synchronized boolean set(int userid, int movieid, float rating, LocalDateTime timestamp) {
+        long key = RatingRun.movieKey(movieid, userid);
+        float oldRating = lookup(key);
+
+        // replace the old rating in the sums, or count the new one
+        if (Float.isNaN(oldRating)){
+            stats(movieStats, movieid).add(rating);
+            stats(userStats, userid).add(rating);
+            size++;
+        } else {
+            movieStats.get(movieid).replace(oldRating, rating);
+            userStats.get(userid).replace(oldRating, rating);
+        }
+
+        write(key, rating, timestamp);
+        return true;
+    }
+
+    /**
+     * Adds a batch of ratings. If the store is empty, the batch is radix sorted and written straight out as a single run, skipping
+     * the memtable. Otherwise each rating is added in turn.
+     *
+     * @param userIDs the ids of the users rating the movies
+     * @param movieIDs the ids of the movies being rated
+     * @param ratings the actual ratings
+     * @param timestamps the timestamps of the ratings, in seconds since the epoch (UTC)
+     *
+     * @return the number of ratings added
+     */
+    @Override
+    public synchronized int addRatings(int[] userIDs, int[] movieIDs, float[] ratings, long[] timestamps) {
+        int length = userIDs.length;
+
+        // add each rating in turn if there is anything to merge with
+        if (size > 0 || memtable.size > 0 || runs.length > 0){
+            int added = 0;
+            for (int i = 0; i < length; i++){
+                if (add(userIDs[i], movieIDs[i], ratings[i], LocalDateTime.ofEpochSecond(timestamps[i], 0, ZoneOffset.UTC))){
+                    added++;
+                }
+            }
+            return added;
+        }
+
+        // sort by key, the sort is stable so the first of any duplicates comes first
+        long[] keys = new long[length];
+        for (int i = 0; i < length; i++){
+            keys[i] = RatingRun.movieKey(movieIDs[i], userIDs[i]);
+        }
+        int[] order = RadixSort.order(keys, length);
+
+        // mark the first rating for each key
+        boolean[] isKept = new boolean[length];
+        int kept = 0;
+        for (int i = 0; i < length; i++){
+            if (i == 0 || keys[order[i]] != keys[order[i - 1]]){
+                isKept[order[i]] = true;
+                kept++;
+            }
+        }
+
+        // write the run in key order
+        long[] runKeys = new long[kept];
+        float[] runRatings = new float[kept];
+        int[] runEpochSeconds = new int[kept];
+        int next = 0;
+        for (int i = 0; i < length; i++){
+            int index = order[i];
+            if (isKept[index]){
+                runKeys[next] = keys[index];
+                runRatings[next] = ratings[index];
+                runEpochSeconds[next] = (int) timestamps[index];
+                next++;
+            }
+        }
+        if (kept > 0){
+            runs = new RatingRun[] {new RatingRun(runKeys, runRatings, runEpochSeconds)};
+        }
+
+        // update the stats in the order the ratings were given
+        for (int i = 0; i < length; i++){
+            if (isKept[i]){
+                stats(movieStats, movieIDs[i]).add(ratings[i]);
+                stats(userStats, userIDs[i]).add(ratings[i]);
+            }
+        }
+        size = kept;
+
+        return kept;
+    }
+
+    /**
+     * Get all the ratings for a given film, in descending order of user id. This merges the memtable with every run, keeping the
+     * newest version of each rating.
+     *
+     * @param movieid The movie ID
+     * @return An array of ratings. If there are no ratings or the film cannot be
+     *         found, then return an empty array
+     */
+    @Override
+    public synchronized float[] getMovieRatings(int movieid) {
+        RatingStats movie = movieStats.get(movieid);
+        if (movie == null || movie.count == 0){
+            return new float[0];
+        }
+        return collect(movieid, true, movie.count);
+    }
+
+    /**
+     * Get all the ratings for a given user, in descending order of movie id
+     *
+     * @param userid The user ID
+     * @return An array of ratings. If there are no ratings or the user cannot be
+     *         found, then return an empty array
+     */
+    @Override
+    public synchronized float[] getUserRatings(int userid) {
+        RatingStats user = userStats.get(userid);
+        if (user == null || user.count == 0){
+            return new float[0];
+        }
+        return collect(userid, false, user.count);
+    }
+
+    /**
+     * Get the average rating for a given film. This is O(1), from the running count and sum.
+     *
+     * @param movieid The movie ID
+     * @return the average rating for the film, 0 if all of its ratings have been removed, or -1 if it has never been rated
+     */
+    @Override
+    public synchronized float getMovieAverageRating(int movieid) {
+        RatingStats movie = movieStats.get(movieid);
+        return movie == null ? -1 : movie.getAverage();
+    }
+
+    /**
+     * Get the average rating for a given user. This is O(1), from the running count and sum.
+     *
+     * @param userid The user ID
+     * @return the average rating for the user, 0 if all of their ratings have been removed, or -1 if they have never rated
+     */
+    @Override
+    public synchronized float getUserAverageRating(int userid) {
+        RatingStats user = userStats.get(userid);
+        return user == null ? -1 : user.getAverage();
+    }
+
+    /**
+     * Gets the top N movies with the most ratings, in order from most to least. This is O(m log k) over the running counts.
+     *
+     * @param num The number of movies that should be returned
+     * @return A sorted array of movie IDs with the most ratings
+     */
+    @Override
+    public synchronized int[] getMostRatedMovies(int num) {
+        return mostRated(movieStats, num);
+    }
+
+    /**
+     * Gets the top N users with the most ratings, in order from most to least. This is O(u log k) over the running counts.
+     *
+     * @param num The number of users that should be returned
+     * @return A sorted array of user IDs with the most ratings
+     */
+    @Override
+    public synchronized int[] getMostRatedUsers(int num) {
+        return mostRated(userStats, num);
+    }
+
+    /**
+     * Get the number of ratings that a movie has, from the running count
+     *
+     * @param movieid The movie id to be found
+     * @return The number of ratings the specified movie has, or -1 if it has never been rated
+     */
+    @Override
+    public synchronized int getNumRatings(int movieid) {
+        RatingStats movie = movieStats.get(movieid);
+        return movie == null ? -1 : movie.count;
+    }
+
+    /**
+     * Get the highest average rated film IDs, highest first. This is O(m log k) over the running counts and sums.
+     *
+     * @param numResults The maximum number of results to be returned
+     * @return An array of the film IDs with the highest average ratings
+     */
+    @Override
+    public synchronized int[] getTopAverageRatedMovies(int numResults) {
+        TopK top = new TopK(numResults);
+        MyIntHashMap<RatingStats>.Cursor cursor = movieStats.cursor();
+        while (cursor.next()){
+            top.offer(cursor.key(), cursor.value().getAverage());
+        }
+        return top.result();
+    }
+
+    /**
+     * @return The number of ratings in the data structure
+     */
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Flushes the memtable and merges every run into one, on the calling thread. This leaves the store in its most read-efficient
+     * state, so it is worth calling after a bulk load.
+     */
+    public void compact() {
+        synchronized (compactionLock){
+            RatingRun[] snapshot;
+            synchronized (this){
+                flush();
+                snapshot = runs;
+            }
+
+            // nothing to merge
+            if (snapshot.length < 2){
+                return;
+            }
+
+            RatingRun merged = RatingRun.merge(snapshot, 0, snapshot.length, true);
+            synchronized (this){
+                replaceRuns(0, snapshot.length, merged);
+            }
+        }
+    }
+
+    /**
+     * Finds the current rating for a key, checking the memtable and then the runs from newest to oldest
+     *
+     * @param key the (movie, user) key
+     * @return the rating, or NaN if there is no rating for the key
+     */
+    private float lookup(long key) {
+        int entry = memtable.find(key);
+        if (entry >= 0){
+            return memtable.ratings[entry];
+        }
+
+        RatingRun[] current = runs;
+        for (int i = current.length - 1; i >= 0; i--){
+            int index = current[i].find(key);
+            if (index >= 0){
+                return current[i].ratings[index];
+            }
+        }
+        return RatingRun.TOMBSTONE;
+    }
+
+    /**
+     * Writes an entry into the memtable, flushing it first if it is full
+     *
+     * @param key the (movie, user) key
+     * @param rating the rating, or TOMBSTONE for a removal
+     * @param timestamp the timestamp of the rating
+     */
+    private void write(long key, float rating, LocalDateTime timestamp) {
+        if (memtable.find(key) < 0 && memtable.size == MEMTABLE_LIMIT){
+            flush();
+        }
+        memtable.put(key, rating, RatingRows.toEpochSeconds(timestamp));
+    }
+
+    /**
+     * Turns the memtable into a new run and queues a merge on the compaction thread. Must be called while holding the lock.
+     */
+    private void flush() {
+        if (memtable.size == 0){
+            return;
+        }
+
+        // append the new run as the newest
+        RatingRun[] newRuns = new RatingRun[runs.length + 1];
+        System.arraycopy(runs, 0, newRuns, 0, runs.length);
+        newRuns[runs.length] = RatingRun.fromMemtable(memtable);
+        runs = newRuns;
+        memtable.clear();
+
+        // a merge that is queued but hasn't started will see the new run, so only queue one if there isn't one already
+        if (!compactionQueued){
+            compactionQueued = true;
+            COMPACTOR.execute(this::compactNewest);
+        }
+    }
+
+    /**
+     * Run on the compaction thread after runs are flushed. It merges the newest runs together while the run before them is no more
+     * than twice their combined size, which keeps O(log n) runs with each rating merged O(log n) times.
+     */
+    private void compactNewest() {
+        synchronized (this){
+            compactionQueued = false;
+        }
+
+        synchronized (compactionLock){
+            while (true){
+                RatingRun[] snapshot = runs;
+
+                // find the newest runs that should be merged
+                int end = snapshot.length;
+                int start = end - 1;
+                long mergedSize = start >= 0 ? snapshot[start].size() : 0;
+                while (start > 0 && snapshot[start - 1].size() <= 2 * mergedSize){
+                    start--;
+                    mergedSize += snapshot[start].size();
+                }
+                if (end - start < 2){
+                    return;
+                }
+
+                // merge them without blocking writers, tombstones can be dropped once the oldest run is included. then check
+                // again, as the merged run may now be mergeable with the one before it
+                RatingRun merged = RatingRun.merge(snapshot, start, end, start == 0);
+                synchronized (this){
+                    replaceRuns(start, end, merged);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces runs [start, end) with a merged run, keeping any runs flushed since. Only merges remove runs, one at a time under
+     * compactionLock, and flushes only append to the end, so the merged runs are still at the same positions. Must be called while
+     * holding the lock.
+     */
+    private void replaceRuns(int start, int end, RatingRun merged) {
+        RatingRun[] current = runs;
+        RatingRun[] newRuns = new RatingRun[current.length - (end - start) + 1];
+        System.arraycopy(current, 0, newRuns, 0, start);
+        newRuns[start] = merged;
+        System.arraycopy(current, end, newRuns, start + 1, current.length - end);
+        runs = newRuns;
+    }
+
+    /**
+     * Collects the live ratings for a movie or a user from the memtable and every run
+     *
+     * @param id the movie or user id
+     * @param byMovie true to collect the ratings of a movie, false for the ratings of a user
+     * @param count the number of live ratings, from the running count
+     * @return the ratings in descending order of the other id
+     */
+    private float[] collect(int id, boolean byMovie, int count) {
+        // pack each (other id, rating) into a long so they can be sorted together
+        long[] packed = new long[count];
+        int found = 0;
+
+        // newer versions are visited first, so keep track of the ids already seen
+        IntSet seen = new IntSet();
+
+        // the memtable has no ordering, so scan it
+        for (int i = 0; i < memtable.size; i++){
+            long key = memtable.keys[i];
+            if ((byMovie ? RatingRun.movieOf(key) : RatingRun.userOf(key)) == id){
+                int other = byMovie ? RatingRun.userOf(key) : RatingRun.movieOf(key);
+                seen.add(other);
+                if (!Float.isNaN(memtable.ratings[i])){
+                    packed[found++] = pack(other, memtable.ratings[i]);
+                }
+            }
+        }
+
+        // then range scan each run from newest to oldest
+        RatingRun[] current = runs;
+        for (int r = current.length - 1; r >= 0; r--){
+            RatingRun run = current[r];
+            int start = byMovie ? run.movieRangeStart(id) : run.userRangeStart(id);
+            int end = byMovie ? run.movieRangeStart(id + 1L) : run.userRangeStart(id + 1L);
+
+            for (int i = start; i < end; i++){
+                int index = byMovie ? i : run.userOrder[i];
+                long key = run.keys[index];
+                int other = byMovie ? RatingRun.userOf(key) : RatingRun.movieOf(key);
+                if (seen.add(other) && !Float.isNaN(run.ratings[index])){
+                    packed[found++] = pack(other, run.ratings[index]);
+                }
+            }
+        }
+
+        // sort by the other id and return the ratings highest id first
+        Arrays.sort(packed, 0, found);
+        float[] result = new float[found];
+        for (int i = 0; i < found; i++){
+            result[i] = Float.intBitsToFloat((int) packed[found - 1 - i]);
+        }
+        return result;
+    }
+
+    private static long pack(int id, float rating) {
+        return ((long) id << 32) | (Float.floatToRawIntBits(rating) & 0xffffffffL);
+    }
+
+    /**
+     * @return the stats for an id, creating them if the id hasn't been seen before
+     */
+    private static RatingStats stats(MyIntHashMap<RatingStats> map, int id) {
+        RatingStats stats = map.get(id);
+        if (stats == null){
+            stats = new RatingStats();
+            map.put(id, stats);
+        }
+        return stats;
+    }
+
+    private static int[] mostRated(MyIntHashMap<RatingStats> map, int num) {
+        TopK top = new TopK(num);
+        MyIntHashMap<RatingStats>.Cursor cursor = map.cursor();
+        while (cursor.next()){
+            top.offer(cursor.key(), cursor.value().count);
+        }
+        return top.result();
+    }
+}
+
+// the running count and sum of the ratings of a movie or user
+class RatingStats {
+    int count;
+
+    // ratings are floats, so a double sum is exact under any number of additions and removals
+    double sum;
+
+    void add(float rating) {
+        count++;
+        sum += rating;
+    }
+
+    void remove(float rating) {
+        count--;
+        sum -= rating;
+    }
+
+    void replace(float oldRating, float newRating) {
+        sum += newRating - (double) oldRating;
+    }
+
+    float getAverage() {
+        return count == 0 ? 0 : (float) (sum / count);
+    }
+}
+
+// the mutable part of an LsmRatings store, an open-addressing hash table from (movie, user) key to the latest rating
+class RatingMemtable {
+    // the entries, in the order they were first written
+    long[] keys;
+    float[] ratings;
+    int[] epochSeconds;
+    int size = 0;
+
+    // probe table, each slot stores (entry index + 1), or 0 when the slot is empty
+    private int[] table;
+    private int mask;
+
+    RatingMemtable(int capacity) {
+        keys = new long[capacity];
+        ratings = new float[capacity];
+        epochSeconds = new int[capacity];
+        table = new int[Integer.highestOneBit(capacity) << 2];
+        mask = table.length - 1;
+    }
+
+    /**
+     * @param key the (movie, user) key
+     * @return the index of the entry for the key, or -1 if there isn't one
+     */
+    int find(long key) {
+        for (int slot = slotFor(key); table[slot] != 0; slot = (slot + 1) & mask){
+            if (keys[table[slot] - 1] == key){
+                return table[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes an entry, replacing any existing entry for the key. The memtable must not be full if the key is new.
+     */
+    void put(long key, float rating, int epochSecond) {
+        int slot = slotFor(key);
+        while (table[slot] != 0){
+            int entry = table[slot] - 1;
+            if (keys[entry] == key){
+                ratings[entry] = rating;
+                epochSeconds[entry] = epochSecond;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[size] = key;
+        ratings[size] = rating;
+        epochSeconds[size] = epochSecond;
+        table[slot] = ++size;
+    }
+
+    void clear() {
+        for (int i = 0; i < table.length; i++){
+            table[i] = 0;
+        }
+        size = 0;
+    }
+
+    private int slotFor(long key) {
+        // murmur3 64 bit finaliser
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
+
+// an immutable sorted run of an LsmRatings store
+class RatingRun {
+    // rating stored for a removed entry
+    static final float TOMBSTONE = Float.NaN;
+
+    // entries sorted by (movie, user) key, with no duplicate keys
+    final long[] keys;
+    final float[] ratings;
+    final int[] epochSeconds;
+
+    // indexes of the entries, sorted by (user, movie)
+    final int[] userOrder;
+
+    RatingRun(long[] keys, float[] ratings, int[] epochSeconds) {
+        this.keys = keys;
+        this.ratings = ratings;
+        this.epochSeconds = epochSeconds;
+        this.userOrder = sortByUser(keys);
+    }
+
+    static long movieKey(int movieid, int userid) {
+        return ((long) movieid << 32) | (userid & 0xffffffffL);
+    }
+
+    static int movieOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int userOf(long key) {
+        return (int) key;
+    }
+
+    private static long userKey(long key) {
+        return ((long) userOf(key) << 32) | (movieOf(key) & 0xffffffffL);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return the index of the entry for a key, or -1 if it isn't in the run
+     */
+    int find(long key) {
+        int index = Arrays.binarySearch(keys, key);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * @param movieid the movie id, as a long so that the range end (movieid + 1) can't overflow
+     * @return the first position in keys whose movie is at least movieid
+     */
+    int movieRangeStart(long movieid) {
+        if (movieid > Integer.MAX_VALUE){
+            return keys.length;
+        }
+        long target = movieid << 32;
+        int low = 0;
+        int high = keys.length;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < target){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param userid the user id, as a long so that the range end (userid + 1) can't overflow
+     * @return the first position in userOrder whose user is at least userid
+     */
+    int userRangeStart(long userid) {
+        if (userid > Integer.MAX_VALUE){
+            return userOrder.length;
+        }
+        long target = userid << 32;
+        int low = 0;
+        int high = userOrder.length;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if (userKey(keys[userOrder[mid]]) < target){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Builds a run from the entries of a memtable
+     */
+    static RatingRun fromMemtable(RatingMemtable memtable) {
+        long[] keys = new long[memtable.size];
+        System.arraycopy(memtable.keys, 0, keys, 0, keys.length);
+        Arrays.sort(keys);
+
+        // keys are unique in the memtable, so look each payload back up
+        float[] ratings = new float[keys.length];
+        int[] epochSeconds = new int[keys.length];
+        for (int i = 0; i < keys.length; i++){
+            int entry = memtable.find(keys[i]);
+            ratings[i] = memtable.ratings[entry];
+            epochSeconds[i] = memtable.epochSeconds[entry];
+        }
+
+        return new RatingRun(keys, ratings, epochSeconds);
+    }
+
+    /**
+     * Merges runs [start, end) into a single run. Where a key is in more than one run the newest entry wins.
+     *
+     * @param runs the runs, oldest first
+     * @param dropTombstones whether removed entries can be dropped, which is only safe when no older run is left
+     * @return the merged run
+     */
+    static RatingRun merge(RatingRun[] runs, int start, int end, boolean dropTombstones) {
+        int total = 0;
+        for (int r = start; r < end; r++){
+            total += runs[r].size();
+        }
+
+        long[] keys = new long[total];
+        float[] ratings = new float[total];
+        int[] epochSeconds = new int[total];
+        int[] positions = new int[end - start];
+        int count = 0;
+
+        while (true){
+            // find the smallest key across the runs, preferring the newest run on ties
+            int best = -1;
+            long bestKey = 0;
+            for (int r = end - 1; r >= start; r--){
+                int position = positions[r - start];
+                if (position < runs[r].size() && (best < 0 || runs[r].keys[position] < bestKey)){
+                    best = r;
+                    bestKey = runs[r].keys[position];
+                }
+            }
+            if (best < 0){
+                break;
+            }
+
+            // copy the newest entry for the key, then skip it in every run
+            RatingRun run = runs[best];
+            int position = positions[best - start];
+            if (!dropTombstones || !Float.isNaN(run.ratings[position])){
+                keys[count] = bestKey;
+                ratings[count] = run.ratings[position];
+                epochSeconds[count] = run.epochSeconds[position];
+                count++;
+            }
+            for (int r = start; r < end; r++){
+                int p = positions[r - start];
+                if (p < runs[r].size() && runs[r].keys[p] == bestKey){
+                    positions[r - start]++;
+                }
+            }
+        }
+
+        // trim the arrays if entries were dropped or duplicated
+        if (count < total){
+            keys = Arrays.copyOf(keys, count);
+            ratings = Arrays.copyOf(ratings, count);
+            epochSeconds = Arrays.copyOf(epochSeconds, count);
+        }
+        return new RatingRun(keys, ratings, epochSeconds);
+    }
+
+    /**
+     * @return the indexes of the keys, in (user, movie) order
+     */
+    private static int[] sortByUser(long[] keys) {
+        long[] userKeys = new long[keys.length];
+        for (int i = 0; i < keys.length; i++){
+            userKeys[i] = userKey(keys[i]);
+        }
+        return RadixSort.order(userKeys, userKeys.length);
+    }
+}
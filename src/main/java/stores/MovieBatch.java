@@ -0,0 +1,100 @@
+package stores;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * A batch of films in columnar form, for IMovies.addAll. Each column holds one field for every film, so film i is made up of
+ * ids[i], titles[i], and so on. This carries everything that would otherwise take an add, setVote, setIMDB, setPopularity,
+ * addToCollection and one addProductionCompany/addProductionCountry call per company and country.
+ *
+ * A collectionID below 0 means the film isn't in a collection. An offset of 0 or more means the film's overview, tagline and
+ * homepage are left out of the batch, to be read back from that offset in the movies file by the store's text source. Those films
+ * carry every word of their overview and tagline instead, from TokenIndex.words.
+ */
+public class MovieBatch {
+    // the number of films in the batch
+    public final int size;
+
+    // the fields taken by IMovies.add
+    public final int[] ids;
+    public final String[] titles;
+    public final String[] originalTitles;
+    public final String[] overviews;
+    public final String[] taglines;
+    public final String[] statuses;
+    public final Genre[][] genres;
+    public final LocalDate[] releases;
+    public final long[] budgets;
+    public final long[] revenues;
+    public final String[][] languages;
+    public final String[] originalLanguages;
+    public final double[] runtimes;
+    public final String[] homepages;
+    public final boolean[] adult;
+    public final boolean[] video;
+    public final String[] posters;
+
+    // the fields set after adding a film
+    public final double[] voteAverages;
+    public final int[] voteCounts;
+    public final String[] imdbIDs;
+    public final double[] popularities;
+
+    // the collection each film belongs to
+    public final int[] collectionIDs;
+    public final String[] collectionNames;
+    public final String[] collectionPosterPaths;
+    public final String[] collectionBackdropPaths;
+
+    // the production companies and countries of each film
+    public final Company[][] productionCompanies;
+    public final String[][] productionCountries;
+
+    // where each film's record starts in the movies file, or -1 if its text fields are in the batch
+    public final long[] offsets;
+
+    // the words of the overview and tagline of each film whose text is left in the movies file, so they can still be searched
+    public final String[][] overviewWords;
+    public final String[][] taglineWords;
+
+    /**
+     * Creates an empty batch with room for a given number of films. The caller fills in every column.
+     *
+     * @param size the number of films in the batch
+     */
+    public MovieBatch(int size) {
+        this.size = size;
+        this.ids = new int[size];
+        this.titles = new String[size];
+        this.originalTitles = new String[size];
+        this.overviews = new String[size];
+        this.taglines = new String[size];
+        this.statuses = new String[size];
+        this.genres = new Genre[size][];
+        this.releases = new LocalDate[size];
+        this.budgets = new long[size];
+        this.revenues = new long[size];
+        this.languages = new String[size][];
+        this.originalLanguages = new String[size];
+        this.runtimes = new double[size];
+        this.homepages = new String[size];
+        this.adult = new boolean[size];
+        this.video = new boolean[size];
+        this.posters = new String[size];
+        this.voteAverages = new double[size];
+        this.voteCounts = new int[size];
+        this.imdbIDs = new String[size];
+        this.popularities = new double[size];
+        this.collectionIDs = new int[size];
+        this.collectionNames = new String[size];
+        this.collectionPosterPaths = new String[size];
+        this.collectionBackdropPaths = new String[size];
+        this.productionCompanies = new Company[size][];
+        this.productionCountries = new String[size][];
+        this.offsets = new long[size];
+        Arrays.fill(this.offsets, -1);
+        this.overviewWords = new String[size][];
+        this.taglineWords = new String[size][];
+    }
+}
@@ -0,0 +1,28 @@
+package stores;
+
+/**
+ * The long text fields of a film, which a lazily loaded Movies store reads back from the movies file when they are asked for
+ */
+public class MovieText {
+    private final String overview;
+    private final String tagline;
+    private final String homepage;
+
+    public MovieText(String overview, String tagline, String homepage) {
+        this.overview = overview;
+        this.tagline = tagline;
+        this.homepage = homepage;
+    }
+
+    public String getOverview() {
+        return overview;
+    }
+
+    public String getTagline() {
+        return tagline;
+    }
+
+    public String getHomepage() {
+        return homepage;
+    }
+}
@@ -4,13 +4,37 @@ import java.time.LocalDate;
 import java.lang.reflect.Array;
 
 import interfaces.IMovies;
+import interfaces.RecordSource;
 import structures.*;
 
 public class Movies implements IMovies{
     Stores stores;
     // hashmap to store the list of movies
-    private MyHashMap<Integer, Movie> movieMap;
-    private MyHashMap<Integer, Collection> collectionMap;
+    private MyIntHashMap<Movie> movieMap;
+    private MyIntHashMap<Collection> collectionMap;
+
+    // where the text fields of films added with an offset are read from, and the ones read most recently
+    private RecordSource<MovieText> textSource;
+    private ClockCache<MovieText> textCache;
+
+    // the words of each film's title, original title and overview, for findFilms
+    private TokenIndex textIndex;
+
+    // the fields of each film ranked by searchFilms, by field number, and how much a word in each counts. a film's keywords are
+    // indexed by the keywords store, through indexKeywords
+    static final int TITLE = 0;
+    static final int ORIGINAL_TITLE = 1;
+    static final int TAGLINE = 2;
+    static final int OVERVIEW = 3;
+    static final int KEYWORDS = 4;
+    private static final double[] FIELD_BOOSTS = {3.0, 2.0, 1.5, 1.0, 2.0};
+    private RankedIndex rankedIndex;
+
+    // the words of each film's title and original title, for findFilmsFuzzy
+    private FuzzyIndex fuzzyTitles;
+
+    // the films with a release date, sorted by it as its epoch day, for getAllIDsReleasedInRange and the release counts
+    private DateIndex releaseIndex;
     
 
     /**
@@ -22,8 +46,12 @@ public class Movies implements IMovies{
     public Movies(Stores stores) {
         this.stores = stores;
 
-        this.movieMap = new MyHashMap<>();
-        this.collectionMap = new MyHashMap<>();
+        this.movieMap = new MyIntHashMap<>();
+        this.collectionMap = new MyIntHashMap<>();
+        this.textIndex = new TokenIndex();
+        this.rankedIndex = new RankedIndex(FIELD_BOOSTS);
+        this.fuzzyTitles = new FuzzyIndex();
+        this.releaseIndex = new DateIndex();
     }
 
     /**
@@ -56,10 +84,129 @@ public class Movies implements IMovies{
         // create a new movie object
         Movie newMovie = new Movie(id, title, originalTitle, overview, tagline, status, genres, release, budget, revenue, languages, originalLanguage, runtime, homepage, adult, video, poster);
         
+        // any text read for a film this replaces is out of date
+        forgetText(id);
+
+        // index the film's words, replacing those of any film it replaces
+        indexText(id, TokenIndex.words(title), TokenIndex.words(originalTitle), TokenIndex.words(tagline), TokenIndex.words(overview));
+        fuzzyTitles.add(id, title, originalTitle);
+
+        // index the film's release date, in place of that of any film it replaces
+        unindexRelease(movieMap.get(id));
+        if (release != null){
+            releaseIndex.add(id, day(release.toEpochDay()));
+        }
+
         // add the movie to the hashmap, return success of addition
         return movieMap.put(id, newMovie);
     }
 
+    /**
+     * Adds every film in a batch. This gives the same result as calling add, setVote, setIMDB, setPopularity, addToCollection,
+     * addProductionCompany and addProductionCountry for each film in turn, but each film is built completely before being put into
+     * the hashmap once, and the hashmap is presized for the whole batch. This takes O(n) time, where n is the number of films plus
+     * the number of companies and countries.
+     * 
+     * @param batch the films to add
+     * @return the number of new films added. films whose ID already exists replace the existing film, but are not counted
+     */
+    @Override
+    public int addAll(MovieBatch batch) {
+        // presize the hashmap so it doesn't resize part way through the batch
+        movieMap.ensureCapacity(movieMap.size() + batch.size);
+        int added = 0;
+
+        // the release dates of the batch, indexed together once the batch is in
+        int[] releasedIDs = new int[batch.size];
+        int[] releaseDays = new int[batch.size];
+        int released = 0;
+
+        for (int i = 0; i < batch.size; i++){
+            int id = batch.ids[i];
+
+            // create the movie with every field set
+            Movie film = new Movie(id, batch.titles[i], batch.originalTitles[i], batch.overviews[i], batch.taglines[i], batch.statuses[i], batch.genres[i], batch.releases[i], batch.budgets[i], batch.revenues[i], batch.languages[i], batch.originalLanguages[i], batch.runtimes[i], batch.homepages[i], batch.adult[i], batch.video[i], batch.posters[i]);
+            film.voteAverage = batch.voteAverages[i];
+            film.voteCount = batch.voteCounts[i];
+            film.imdbID = batch.imdbIDs[i];
+            film.popularity = batch.popularities[i];
+            film.offset = batch.offsets[i];
+            forgetText(id);
+
+            // index the film's words. a film whose text was left in the movies file comes with the words of it instead
+            boolean lazy = batch.offsets[i] >= 0;
+            indexText(id, TokenIndex.words(batch.titles[i]), TokenIndex.words(batch.originalTitles[i]),
+                      lazy ? batch.taglineWords[i] : TokenIndex.words(batch.taglines[i]),
+                      lazy ? batch.overviewWords[i] : TokenIndex.words(batch.overviews[i]));
+            fuzzyTitles.add(id, batch.titles[i], batch.originalTitles[i]);
+
+            // add the production companies and countries, presizing their hashmaps
+            Company[] companies = batch.productionCompanies[i];
+            if (companies != null){
+                film.companies = new MyIntHashMap<>(companies.length);
+                for (Company company : companies){
+                    film.companies.put(company.getID(), company);
+                }
+            }
+            String[] countries = batch.productionCountries[i];
+            if (countries != null){
+                film.countries = new MyIntHashMap<>(countries.length);
+                for (String country : countries){
+                    film.countries.put(country.hashCode(), country);
+                }
+            }
+
+            // a film this replaces is unindexed, and may only be in this batch so far
+            Movie replaced = movieMap.get(id);
+            if (replaced != null && replaced.release != null && !releaseIndex.remove(id, day(replaced.release.toEpochDay()))){
+                for (int j = 0; j < released; j++){
+                    if (releasedIDs[j] == id){
+                        releasedIDs[j] = releasedIDs[--released];
+                        releaseDays[j] = releaseDays[released];
+                        break;
+                    }
+                }
+            }
+            if (film.release != null){
+                releasedIDs[released] = id;
+                releaseDays[released++] = day(film.release.toEpochDay());
+            }
+
+            // put the complete movie into the hashmap once
+            if (movieMap.put(id, film)){
+                added++;
+            }
+
+            // add the movie to its collection, if it has one
+            int collectionID = batch.collectionIDs[i];
+            if (collectionID >= 0){
+                Collection collection = collectionMap.get(collectionID);
+                if (collection == null){
+                    collection = new Collection(collectionID, batch.collectionNames[i], batch.collectionPosterPaths[i], batch.collectionBackdropPaths[i]);
+                    collectionMap.put(collectionID, collection);
+                }
+                collection.films.add(id);
+                film.collectionID = collectionID;
+            }
+        }
+        releaseIndex.addAll(releasedIDs, releaseDays, released);
+
+        return added;
+    }
+
+    /**
+     * Sets where the overview, tagline and homepage of films added with an offset are read from. They are read the first time
+     * they are asked for, and the most recently used are cached, so only the cache's worth of text is held in memory.
+     * 
+     * @param source    reads the text fields of the film whose record starts at an offset
+     * @param cacheSize the most films to keep the text fields of at once
+     */
+    @Override
+    public void setTextSource(RecordSource<MovieText> source, int cacheSize) {
+        this.textSource = source;
+        this.textCache = new ClockCache<>(cacheSize);
+    }
+
     /**
      * Removes a film from the data structure, and any data
      * added through this class related to the film
@@ -69,10 +216,98 @@ public class Movies implements IMovies{
      */
     @Override
     public boolean remove(int id) {
+        forgetText(id);
+
+        // the film's keywords stay ranked, as they belong to the keywords store
+        indexText(id, null, null, null, null);
+        fuzzyTitles.remove(id);
+        unindexRelease(movieMap.get(id));
+
         // attempt to remove the key from the hashmap, return success
         return movieMap.remove(id);
     }
 
+    /**
+     * Gets the text fields of a film that was added without them, reading them from the text source if they aren't cached
+     * 
+     * @param film the film, whose offset is 0 or more
+     * @return the film's text fields
+     */
+    private MovieText text(Movie film) {
+        MovieText text = textCache != null ? textCache.get(film.id) : null;
+        if (text == null){
+            // fails if there is no text source, so there is a cache from here on
+            text = readText(film);
+            textCache.put(film.id, text);
+        }
+        return text;
+    }
+
+    /**
+     * Indexes the words of a film's text fields for findFilms and searchFilms, replacing the words it had before. Null words
+     * clear a field, and the tagline is only ranked, not found by findFilms.
+     */
+    private void indexText(int id, String[] titleWords, String[] originalTitleWords, String[] taglineWords, String[] overviewWords) {
+        if (titleWords == null){
+            textIndex.remove(id);
+        }
+        else{
+            // a word in more than one field is indexed once either way, so the fields can just be put together
+            String[] all = new String[titleWords.length + originalTitleWords.length + overviewWords.length];
+            System.arraycopy(titleWords, 0, all, 0, titleWords.length);
+            System.arraycopy(originalTitleWords, 0, all, titleWords.length, originalTitleWords.length);
+            System.arraycopy(overviewWords, 0, all, titleWords.length + originalTitleWords.length, overviewWords.length);
+            textIndex.add(id, all);
+        }
+
+        rankedIndex.setField(id, TITLE, titleWords);
+        rankedIndex.setField(id, ORIGINAL_TITLE, originalTitleWords);
+        rankedIndex.setField(id, TAGLINE, taglineWords);
+        rankedIndex.setField(id, OVERVIEW, overviewWords);
+    }
+
+    /**
+     * Sets the keywords of a film that searchFilms ranks it by, called by the keywords store whenever a film's keywords change
+     * 
+     * @param filmID   the film's ID
+     * @param keywords every keyword the film now has, or null if it has none
+     */
+    void indexKeywords(int filmID, Keyword[] keywords) {
+        String[] words = new String[0];
+        if (keywords != null){
+            for (Keyword keyword : keywords){
+                String[] keywordWords = TokenIndex.words(keyword.getName());
+                String[] all = new String[words.length + keywordWords.length];
+                System.arraycopy(words, 0, all, 0, words.length);
+                System.arraycopy(keywordWords, 0, all, words.length, keywordWords.length);
+                words = all;
+            }
+        }
+        rankedIndex.setField(filmID, KEYWORDS, words);
+    }
+
+    // takes a film out of the release date index, if it is there
+    private void unindexRelease(Movie film) {
+        if (film != null && film.release != null){
+            releaseIndex.remove(film.id, day(film.release.toEpochDay()));
+        }
+    }
+
+    // reads the text fields of a film that was added without them
+    private MovieText readText(Movie film) {
+        if (textSource == null){
+            throw new IllegalStateException("Film " + film.id + " was added without its text, but there is nowhere to read it from");
+        }
+        return textSource.read(film.offset);
+    }
+
+    // drops the cached text fields of a film, if any
+    private void forgetText(int id) {
+        if (textCache != null){
+            textCache.remove(id);
+        }
+    }
+
     /**
      * Gets all the IDs for all films
      * 
@@ -80,15 +315,14 @@ public class Movies implements IMovies{
      */
     @Override
     public int[] getAllIDs() {
-        // get all the keys (movies) in the hashmap
-        Integer[] allFilms = movieMap.keys();
-
-        // create a new hashmap to store ids
+        // create a new array to store ids
         int[] allIDs = new int[movieMap.size()];
+        int index = 0;
 
-        // map each entry to allIDs to the ids in allFilms
-        for (int i = 0; i < movieMap.size(); i++){
-            allIDs[i] = movieMap.get(allFilms[i]).id;
+        // walk the hashmap, copying each key (movie id) across
+        MyIntHashMap<Movie>.Cursor cursor = movieMap.cursor();
+        while (cursor.next()){
+            allIDs[index++] = cursor.key();
         }
 
         // return the array of IDs
@@ -98,41 +332,68 @@ public class Movies implements IMovies{
     /**
      * Finds the film IDs of all films released within a given range. If a film is
      * released either on the start or end dates, then that film should not be
-     * included
+     * included. The films are found in the release date index, in O(log n + k) time
+     * for k films
      * 
      * @param start The start point of the range of dates
      * @param end   The end point of the range of dates
-     * @return An array of film IDs that were released between start and end
+     * @return An array of film IDs that were released between start and end, in
+     *         order of release
      */
     @Override
     public int[] getAllIDsReleasedInRange(LocalDate start, LocalDate end) {
-        Integer[] allFilms = movieMap.keys();
-        int[] releasedInRange = new int[allFilms.length];
-        int currentIndex = 0;
-
-        // check each song
-        for (int i = 0; i < allFilms.length; i++){
-            // store the release date of the movie we are currently checking
-            // System.out.println("Getting date");
-            Movie targetFilm = movieMap.get(allFilms[i]);
-
-            LocalDate target = targetFilm.release;
-            // System.out.println(target.toString() + ":" + (target.isAfter(start) && target.isBefore(end)) + "\n\n\n");
-
-            // check if the film is released between the start and end dates
-            if (target != null && target.isAfter(start) && target.isBefore(end)){
-                // add the film to the list and increment the pointer
-                releasedInRange[currentIndex++] = targetFilm.id;
-            }
+        // neither date is included, so the range runs from the day after the start up to the end. open ended bounds such as
+        // LocalDate.MIN are far outside the index's days, so they are clamped first
+        return releaseIndex.range(day(start.toEpochDay() + 1), day(end.toEpochDay()));
+    }
+
+    /**
+     * Counts the films released in each year of a range of years, in O(log n) time
+     * per year
+     * 
+     * @param firstYear The first year to count
+     * @param lastYear  The last year to count
+     * @return The number of films released in each year, from firstYear to
+     *         lastYear. Empty if lastYear is before firstYear
+     */
+    @Override
+    public int[] getReleaseCountsByYear(int firstYear, int lastYear) {
+        return releaseCounts(firstYear, lastYear, 1);
+    }
+
+    /**
+     * Counts the films released in each decade of a range of decades, in O(log n)
+     * time per decade
+     * 
+     * @param firstDecade The first year of the first decade to count, such as 1990
+     * @param lastDecade  The first year of the last decade to count
+     * @return The number of films released in each decade, from firstDecade to
+     *         lastDecade. Empty if lastDecade is before firstDecade
+     */
+    @Override
+    public int[] getReleaseCountsByDecade(int firstDecade, int lastDecade) {
+        return releaseCounts(firstDecade, lastDecade, 10);
+    }
+
+    // counts the films released in each span of some years, from the start of first to the start of last
+    private int[] releaseCounts(int first, int last, int years) {
+        if (last < first){
+            return new int[0];
         }
 
-        
-        // remove null keys by creating a subarray
-        int[] finalArrayOfFilms = new int[currentIndex];
-        System.arraycopy(releasedInRange, 0, finalArrayOfFilms, 0, currentIndex);
+        int[] counts = new int[(last - first) / years + 1];
+        int from = day(LocalDate.of(first, 1, 1).toEpochDay());
+        for (int i = 0; i < counts.length; i++){
+            int to = day(LocalDate.of(first + (i + 1) * years, 1, 1).toEpochDay());
+            counts[i] = releaseIndex.count(from, to);
+            from = to;
+        }
+        return counts;
+    }
 
-        // return the array
-        return finalArrayOfFilms;
+    // an epoch day as the release date index holds it, clamped to the int range
+    private static int day(long epochDay) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, epochDay));
     }
 
     /**
@@ -196,6 +457,11 @@ public class Movies implements IMovies{
         }
         
         // return the overview
+        // read the overview from the movies file if it was left there
+        if (film.offset >= 0){
+            return text(film).getOverview();
+        }
+
         return film.overview;
     }
 
@@ -217,6 +483,11 @@ public class Movies implements IMovies{
         }
 
         // return the tagline
+        // read the tagline from the movies file if it was left there
+        if (film.offset >= 0){
+            return text(film).getTagline();
+        }
+
         return film.tagline;
     }
 
@@ -408,6 +679,11 @@ public class Movies implements IMovies{
         }
         
         // return the homepage
+        // read the homepage from the movies file if it was left there
+        if (film.offset >= 0){
+            return text(film).getHomepage();
+        }
+
         return film.homepage;
     }
 
@@ -582,7 +858,7 @@ public class Movies implements IMovies{
         Collection collection = collectionMap.get(collectionID);
         
         // add the film to the films list in the hashmap
-        collection.films.put(filmID, filmID);
+        collection.films.add(filmID);
 
         // adds the collection back to the hashap
         collectionMap.put(collectionID, collection);
@@ -612,19 +888,8 @@ public class Movies implements IMovies{
             return new int[0];
         }
 
-        // MyHashMap<Integer, Integer> filmCollection = collection.films;
-        
-        // create a new array to return the films in the collection
-        Integer[] keys = collection.films.keys();
-        int[] newArr = new int[keys.length];
-        
-        // convert each film into the appropriate integer format
-        for (int i = 0; i < keys.length; i++){
-            newArr[i] = keys[i];
-        }
-        
-        // return the film
-        return newArr;
+        // return a copy of the films in the collection
+        return collection.films.toArray();
     }
 
     /**
@@ -868,17 +1133,16 @@ public class Movies implements IMovies{
         }
 
         // get the map of companies
-        MyHashMap<Integer, Company> companyMap = film.companies;
-
-        // get a list of all company IDs in the collection
-        Integer[] companyIDs = companyMap.keys();
+        MyIntHashMap<Company> companyMap = film.companies;
 
         // create a list of all the companies
         Company[] companyList = new Company[companyMap.size()];
+        int index = 0;
 
-        // get the company object associated with each company ID and store it in the company list
-        for (int i = 0; i < companyMap.size(); i++){
-            companyList[i] = companyMap.get(companyIDs[i]);
+        // store each company object in the company list
+        MyIntHashMap<Company>.Cursor cursor = companyMap.cursor();
+        while (cursor.next()){
+            companyList[index++] = cursor.value();
         }
 
         // return the company list        
@@ -903,17 +1167,17 @@ public class Movies implements IMovies{
             return null;
         }
         
-        Integer[] keys = film.countries.keys();
+        // create a new array to return the countries of the film
+        String[] newArr = new String[film.countries.size()];
+        int index = 0;
 
-        // create a new array to return the films in the collection
-        String[] newArr = new String[keys.length];
-        
-        // convert each film into the appropriate integer format
-        for (int i = 0; i < keys.length; i++){
-            newArr[i] = film.countries.get(keys[i]);
+        // copy each country across
+        MyIntHashMap<String>.Cursor cursor = film.countries.cursor();
+        while (cursor.next()){
+            newArr[index++] = cursor.value();
         }
-        
-        // return the film
+
+        // return the countries
         return newArr;
     }
 
@@ -930,7 +1194,10 @@ public class Movies implements IMovies{
 
     /**
      * Produces a list of movie IDs that have the search term in their title,
-     * original title or their overview. O(n * m)
+     * original title or their overview. The films that could contain the term are
+     * looked up in the word index, and only those are checked, so this takes time
+     * in proportion to the number of candidate films rather than every film. A term
+     * without any letters or digits can't be looked up, so every film is checked.
      * 
      * @param searchTerm The term that needs to be checked
      * @return An array of movie IDs that have the search term in their title,
@@ -939,24 +1206,125 @@ public class Movies implements IMovies{
      */
     @Override
     public int[] findFilms(String searchTerm) {
-        Integer[] listOfFilmIDs = movieMap.keys();
-        
+        // the films whose words could make up the search term, or null if any film could
+        int[] candidates = textIndex.candidates(searchTerm);
+        if (candidates == null){
+            return scanFilms(searchTerm);
+        }
+
         // array to add all films which meet the criteria
-        int[] matchingFilms = new int[listOfFilmIDs.length];
+        int[] matchingFilms = new int[candidates.length];
         int index = 0;
 
-        // check each film
-        for (int i = 0; i < listOfFilmIDs.length; i++){
-            if(listOfFilmIDs[i] != null){
-                // get the film we want to check
-                Integer currentKey = listOfFilmIDs[i];
-                
-                // if the search term is in the title, original title or overview
-                if (getTitle(currentKey).contains(searchTerm) || getOriginalTitle(currentKey).contains(searchTerm) || getOverview(currentKey).contains(searchTerm)){
-                    // add the current key to the list of matching films
-                    matchingFilms[index++] = currentKey;
+        // check each candidate, as matching words doesn't mean the term itself is there
+        for (int id : candidates){
+            Movie film = movieMap.get(id);
+            if (film != null && containsTerm(film, searchTerm)){
+                matchingFilms[index++] = id;
+            }
+        }
+
+        // remove null keys by creating a subarray
+        int[] finalArrayOfFilms = new int[index];
+        System.arraycopy(matchingFilms, 0, finalArrayOfFilms, 0, index);
+
+        // return the new list
+        return finalArrayOfFilms;
+    }
+
+    /**
+     * Finds the films whose title, original title or overview contain a phrase as whole words, ignoring case, so "the matrix"
+     * finds "The Matrix" but "matri" finds nothing. As with findFilms, only the films with every word of the phrase are checked.
+     * 
+     * @param phrase the words to search for
+     * @return the IDs of the matching films, in ascending order. empty if there are none, or the phrase has no words
+     */
+    @Override
+    public int[] findFilmsByWords(String phrase) {
+        int[] candidates = textIndex.withWords(phrase);
+        if (candidates == null){
+            return new int[0];
+        }
+
+        int[] matchingFilms = new int[candidates.length];
+        int index = 0;
+        for (int id : candidates){
+            Movie film = movieMap.get(id);
+            if (film != null && (TokenIndex.containsWords(film.title, phrase) || TokenIndex.containsWords(film.originalTitle, phrase)
+                                 || TokenIndex.containsWords(overviewForSearch(film), phrase))){
+                matchingFilms[index++] = id;
+            }
+        }
+
+        int[] finalArrayOfFilms = new int[index];
+        System.arraycopy(matchingFilms, 0, finalArrayOfFilms, 0, index);
+        return finalArrayOfFilms;
+    }
+
+    /**
+     * Ranks the films by how well they match a query, using BM25F over the words of their title, original title, tagline,
+     * overview and keywords, with a word in the title counting most. Films with any of the query's words are ranked, and a
+     * word counts for more the fewer films have it, so "the matrix" puts films with "matrix" first. The best k are found without
+     * scoring every film that has a common word, so this takes about the same time however many films match.
+     * 
+     * @param query the words to search for, matched as whole words ignoring case
+     * @param k     the most films to return
+     * @return the IDs of the best matching films, best first. empty if no film has any of the words, or k is 0 or less
+     */
+    @Override
+    public int[] searchFilms(String query, int k) {
+        if (k <= 0){
+            return new int[0];
+        }
+        String[] words = TokenIndex.tokens(query);
+
+        // films only in the keywords store are ranked too, so ask for more until there are k loaded films or no more films
+        int asked = k;
+        while (true){
+            int[] ranked = rankedIndex.search(words, asked);
+            int[] films = new int[Math.min(k, ranked.length)];
+            int index = 0;
+            for (int i = 0; i < ranked.length && index < films.length; i++){
+                if (movieMap.containsKey(ranked[i])){
+                    films[index++] = ranked[i];
                 }
             }
+            if (index == films.length || ranked.length < asked){
+                int[] finalArrayOfFilms = new int[index];
+                System.arraycopy(films, 0, finalArrayOfFilms, 0, index);
+                return finalArrayOfFilms;
+            }
+            asked *= 2;
+        }
+    }
+
+    /**
+     * Finds the films whose title or original title has a word close to each word of a search term, for when a misspelt term
+     * finds nothing with findFilms. Words match if they are a few edits apart, ignoring case and accents, so "termnator" finds
+     * "The Terminator". The words are searched in sorted order, skipping every word whose start is already too far off, so only
+     * a small part of them are compared with each word searched for.
+     * 
+     * @param searchTerm the words to search for
+     * @return the IDs of the matching films, the closest first. empty if there are none
+     */
+    @Override
+    public int[] findFilmsFuzzy(String searchTerm) {
+        return fuzzyTitles.find(searchTerm);
+    }
+
+    // checks every film for a search term, for terms the word index can't narrow down
+    private int[] scanFilms(String searchTerm) {
+        // array to add all films which meet the criteria
+        int[] matchingFilms = new int[movieMap.size()];
+        int index = 0;
+
+        // check each film, reading its fields straight from the entry rather than looking it up again
+        MyIntHashMap<Movie>.Cursor cursor = movieMap.cursor();
+        while (cursor.next()){
+            if (containsTerm(cursor.value(), searchTerm)){
+                // add the current key to the list of matching films
+                matchingFilms[index++] = cursor.key();
+            }
         }
         
         // remove null keys by creating a subarray
@@ -966,6 +1334,21 @@ public class Movies implements IMovies{
         // return the new list
         return finalArrayOfFilms;
     }
+
+    // if the search term is in the title, original title or overview. overviews left in the movies file are read without being
+    // cached, so searching doesn't push out the films that are being looked at
+    private boolean containsTerm(Movie film, String searchTerm) {
+        return film.title.contains(searchTerm) || film.originalTitle.contains(searchTerm) || overviewForSearch(film).contains(searchTerm);
+    }
+
+    // the overview of a film for findFilms, from the cache if it is there but without adding it otherwise
+    private String overviewForSearch(Movie film) {
+        if (film.offset < 0){
+            return film.overview;
+        }
+        MovieText text = textCache != null ? textCache.get(film.id) : null;
+        return text != null ? text.getOverview() : readText(film).getOverview();
+    }
 }
 
 
@@ -995,8 +1378,11 @@ class Movie{
     double popularity;
     int collectionID;
 
-    MyHashMap<Integer, Company> companies = new MyHashMap<>();
-    MyHashMap<Integer, String> countries = new MyHashMap<>();
+    // where the film's record starts in the movies file, if its overview, tagline and homepage were left there, or -1
+    long offset = -1;
+
+    MyIntHashMap<Company> companies = new MyIntHashMap<>();
+    MyIntHashMap<String> countries = new MyIntHashMap<>();
 
 
     public Movie(int id, String title, String originalTitle, String overview, String tagline, String status, Genre[] genres, LocalDate release, long budget, long revenue, String[] languages, String originalLanguage, double runtime, String homepage, boolean adult, boolean video, String poster){
@@ -1028,7 +1414,7 @@ class Collection{
     String collectionPosterPath;
     String collectionBackdropPath;
     
-    MyHashMap<Integer, Integer> films = new MyHashMap<>();
+    IntSet films = new IntSet();
 
 
     public Collection(int collectionID, String collectionName, String collectionPosterPath, String collectionBackdropPath){
@@ -0,0 +1,485 @@
+package stores;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import structures.*;
+
+/**
+ * A compressed sparse row index of ratings, with one row for each movie (or each user). The rows themselves are written once, but
+ * ratings can still be added and removed: each change goes into a small delta for its row, kept sorted by the other id, and reads
+ * of a changed row merge the written ratings with its delta. Once the deltas hold more than a share of the ratings they are folded
+ * into newly written rows in one pass, in O(n + d log d) time for d changes, so a change costs O(1) amortised writes of the rows.
+ */
+class RatingRows {
+    // marker stored in epochSeconds for ratings without a timestamp
+    static final int NO_TIMESTAMP = Integer.MIN_VALUE;
+
+    // the fewest changes the deltas can hold before being folded in, and otherwise the share of the ratings they can hold (1/32)
+    private static final int DELTA_MIN = 1024;
+    private static final int DELTA_SHIFT = 5;
+
+    // the sorted ids of each row, row i spans [offsets[i], offsets[i + 1]) of the columns
+    int[] rowIds;
+    int[] offsets;
+
+    // the columns, within a row these are sorted by the other id (user id for a movie row and vice versa)
+    int[] columnIds;
+    float[] ratings;
+    int[] epochSeconds;
+
+    // the running sum of the ratings in each row, used for the averages
+    float[] sums;
+
+    // the changes to each row since the rows were written, by row id, with the number of changes and the change in ratings
+    private MyIntHashMap<RowDelta> deltas = new MyIntHashMap<>();
+    private int deltaSize = 0;
+    private int sizeChange = 0;
+
+    // the ratings added to a row and the written ratings removed from it, each sorted by the other id. a written rating that is
+    // replaced is both removed and added
+    private static class RowDelta {
+        // the index of the row, or -1 for a row that hasn't been written yet
+        final int row;
+
+        // the number and sum of the ratings in the row, with the changes
+        int count;
+        float sum;
+
+        int[] addedIds = new int[2];
+        float[] addedRatings = new float[2];
+        int[] addedSeconds = new int[2];
+        int added = 0;
+
+        int[] removedIds = new int[2];
+        int removed = 0;
+
+        RowDelta(int row, int count, float sum) {
+            this.row = row;
+            this.count = count;
+            this.sum = sum;
+        }
+    }
+
+    /**
+     * Builds the rows from parallel columns, visited in (row id, column id) order. The sums are left at 0 for the caller to fill in.
+     * 
+     * @param rowOf the row id of each rating
+     * @param columnOf the column id of each rating
+     * @param ratings the rating of each rating
+     * @param timestamps the timestamp of each rating, in seconds since the epoch (UTC)
+     * @param order the indexes of the ratings to include, sorted by (row id, column id)
+     * @param count the number of indexes in order
+     * @param rowIndexOut filled in with the row each included rating was written to
+     * @return the compressed rows
+     */
+    static RatingRows fromSorted(int[] rowOf, int[] columnOf, float[] ratings, long[] timestamps, int[] order, int count, int[] rowIndexOut) {
+        RatingRows rows = new RatingRows();
+
+        // count the distinct row ids
+        int numRows = 0;
+        for (int i = 0; i < count; i++){
+            if (i == 0 || rowOf[order[i]] != rowOf[order[i - 1]]){
+                numRows++;
+            }
+        }
+
+        rows.rowIds = new int[numRows];
+        rows.offsets = new int[numRows + 1];
+        rows.sums = new float[numRows];
+        rows.columnIds = new int[count];
+        rows.ratings = new float[count];
+        rows.epochSeconds = new int[count];
+
+        // copy each rating across, starting a new row whenever the row id changes
+        int row = -1;
+        for (int i = 0; i < count; i++){
+            int index = order[i];
+            if (i == 0 || rowOf[index] != rowOf[order[i - 1]]){
+                row++;
+                rows.rowIds[row] = rowOf[index];
+                rows.offsets[row] = i;
+            }
+            rows.columnIds[i] = columnOf[index];
+            rows.ratings[i] = ratings[index];
+            rows.epochSeconds[i] = (int) timestamps[index];
+            rowIndexOut[index] = row;
+        }
+        rows.offsets[numRows] = count;
+
+        return rows;
+    }
+
+    /**
+     * Finds the row for a given id
+     * 
+     * @param id the movie or user id
+     * @return the index of the row, or -1 if there is no row for the id
+     */
+    int find(int id) {
+        int row = Arrays.binarySearch(rowIds, id);
+        return row < 0 ? -1 : row;
+    }
+
+    /**
+     * Adds a rating to a row, unless the row already has a rating for the other id. The row is made if it doesn't exist.
+     * 
+     * @param id the movie or user id
+     * @param columnId the other id
+     * @param rating the rating
+     * @param seconds the timestamp of the rating, in seconds since the epoch (UTC), or NO_TIMESTAMP
+     * @return whether the rating was added
+     */
+    boolean add(int id, int columnId, float rating, int seconds) {
+        RowDelta delta = deltas.get(id);
+        int row = delta != null ? delta.row : find(id);
+        if (delta != null && search(delta.addedIds, delta.added, columnId) >= 0){
+            return false;
+        }
+        if (row >= 0 && column(row, columnId) >= 0 && (delta == null || search(delta.removedIds, delta.removed, columnId) < 0)){
+            return false;
+        }
+
+        if (delta == null){
+            delta = delta(id, row);
+        }
+        int at = -search(delta.addedIds, delta.added, columnId) - 1;
+        if (delta.added == delta.addedIds.length){
+            delta.addedIds = Arrays.copyOf(delta.addedIds, delta.added * 2);
+            delta.addedRatings = Arrays.copyOf(delta.addedRatings, delta.added * 2);
+            delta.addedSeconds = Arrays.copyOf(delta.addedSeconds, delta.added * 2);
+        }
+        System.arraycopy(delta.addedIds, at, delta.addedIds, at + 1, delta.added - at);
+        System.arraycopy(delta.addedRatings, at, delta.addedRatings, at + 1, delta.added - at);
+        System.arraycopy(delta.addedSeconds, at, delta.addedSeconds, at + 1, delta.added - at);
+        delta.addedIds[at] = columnId;
+        delta.addedRatings[at] = rating;
+        delta.addedSeconds[at] = seconds;
+        delta.added++;
+
+        delta.count++;
+        delta.sum += rating;
+        sizeChange++;
+        deltaSize++;
+        foldIfFull();
+        return true;
+    }
+
+    /**
+     * Removes a rating from a row. The row is kept even if it has no ratings left, as with the avl trees.
+     * 
+     * @param id the movie or user id
+     * @param columnId the other id
+     * @return whether the row had a rating for the other id
+     */
+    boolean remove(int id, int columnId) {
+        RowDelta delta = deltas.get(id);
+
+        // a rating added since the rows were written is just taken back out of the delta
+        if (delta != null){
+            int at = search(delta.addedIds, delta.added, columnId);
+            if (at >= 0){
+                float rating = delta.addedRatings[at];
+                System.arraycopy(delta.addedIds, at + 1, delta.addedIds, at, delta.added - at - 1);
+                System.arraycopy(delta.addedRatings, at + 1, delta.addedRatings, at, delta.added - at - 1);
+                System.arraycopy(delta.addedSeconds, at + 1, delta.addedSeconds, at, delta.added - at - 1);
+                delta.added--;
+
+                delta.count--;
+                delta.sum -= rating;
+                sizeChange--;
+                deltaSize--;
+                return true;
+            }
+        }
+
+        // otherwise a written rating is marked as removed
+        int row = delta != null ? delta.row : find(id);
+        int column = row < 0 ? -1 : column(row, columnId);
+        if (column < 0 || (delta != null && search(delta.removedIds, delta.removed, columnId) >= 0)){
+            return false;
+        }
+        if (delta == null){
+            delta = delta(id, row);
+        }
+        int at = -search(delta.removedIds, delta.removed, columnId) - 1;
+        if (delta.removed == delta.removedIds.length){
+            delta.removedIds = Arrays.copyOf(delta.removedIds, delta.removed * 2);
+        }
+        System.arraycopy(delta.removedIds, at, delta.removedIds, at + 1, delta.removed - at);
+        delta.removedIds[at] = columnId;
+        delta.removed++;
+
+        delta.count--;
+        delta.sum -= ratings[column];
+        sizeChange--;
+        deltaSize++;
+        foldIfFull();
+        return true;
+    }
+
+    /**
+     * @param id the movie or user id
+     * @return the ratings in the row, in descending order of the other id to match the avl trees. empty if there is no row.
+     */
+    float[] getRatings(int id) {
+        RowDelta delta = deltas.get(id);
+        int row = delta != null ? delta.row : find(id);
+        if (delta == null){
+            if (row < 0){
+                return new float[0];
+            }
+
+            float[] result = new float[offsets[row + 1] - offsets[row]];
+            for (int i = 0; i < result.length; i++){
+                result[i] = ratings[offsets[row + 1] - 1 - i];
+            }
+            return result;
+        }
+
+        // merge the written ratings that are left with the added ones, filling the result from the back
+        float[] result = new float[delta.count];
+        int k = result.length;
+        int i = row < 0 ? 0 : offsets[row];
+        int end = row < 0 ? 0 : offsets[row + 1];
+        int j = 0;
+        int r = 0;
+        while (i < end || j < delta.added){
+            r = skipRemoved(delta, r, i < end ? columnIds[i] : Integer.MAX_VALUE);
+            if (i < end && r < delta.removed && delta.removedIds[r] == columnIds[i]){
+                i++;
+            }
+            else if (j >= delta.added || (i < end && columnIds[i] < delta.addedIds[j])){
+                result[--k] = ratings[i++];
+            }
+            else{
+                result[--k] = delta.addedRatings[j++];
+            }
+
+        }
+        return result;
+    }
+
+    /**
+     * @param id the movie or user id
+     * @return the average of the ratings in the row, 0 if it is empty, or -1 if there is no row
+     */
+    float getAverage(int id) {
+        RowDelta delta = deltas.get(id);
+        if (delta != null){
+            return delta.count == 0 ? 0 : delta.sum / delta.count;
+        }
+
+        int row = find(id);
+        if (row < 0){
+            return -1;
+        }
+
+        int count = offsets[row + 1] - offsets[row];
+        return count == 0 ? 0 : sums[row] / count;
+    }
+
+    /**
+     * @param id the movie or user id
+     * @return the number of ratings in the row, or -1 if there is no row
+     */
+    int getCount(int id) {
+        RowDelta delta = deltas.get(id);
+        if (delta != null){
+            return delta.count;
+        }
+
+        int row = find(id);
+        return row < 0 ? -1 : offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * @param num the number of ids to return
+     * @return the ids of the rows with the most ratings, most first
+     */
+    int[] getMostRated(int num) {
+        TopK top = new TopK(num);
+        for (int row = 0; row < rowIds.length; row++){
+            RowDelta delta = deltas.size() == 0 ? null : deltas.get(rowIds[row]);
+            top.offer(rowIds[row], delta != null ? delta.count : offsets[row + 1] - offsets[row]);
+        }
+
+        // then the rows made since the rows were written
+        MyIntHashMap<RowDelta>.Cursor cursor = deltas.cursor();
+        while (cursor.next()){
+            if (cursor.value().row < 0){
+                top.offer(cursor.key(), cursor.value().count);
+            }
+        }
+        return top.result();
+    }
+
+    /**
+     * @param num the number of ids to return
+     * @return the ids of the rows with the highest average rating, highest first
+     */
+    int[] getTopAverage(int num) {
+        TopK top = new TopK(num);
+        for (int row = 0; row < rowIds.length; row++){
+            RowDelta delta = deltas.size() == 0 ? null : deltas.get(rowIds[row]);
+            if (delta != null){
+                top.offer(rowIds[row], delta.count == 0 ? 0 : delta.sum / delta.count);
+            }
+            else{
+                int count = offsets[row + 1] - offsets[row];
+                top.offer(rowIds[row], count == 0 ? 0 : sums[row] / count);
+            }
+        }
+
+        // then the rows made since the rows were written
+        MyIntHashMap<RowDelta>.Cursor cursor = deltas.cursor();
+        while (cursor.next()){
+            RowDelta delta = cursor.value();
+            if (delta.row < 0){
+                top.offer(cursor.key(), delta.count == 0 ? 0 : delta.sum / delta.count);
+            }
+        }
+        return top.result();
+    }
+
+    /**
+     * @return the total number of ratings
+     */
+    int size() {
+        return columnIds.length + sizeChange;
+    }
+
+    /**
+     * Folds the deltas into newly written rows, keeping every row in id order, including the ones made since the rows were last
+     * written
+     */
+    void fold() {
+        if (deltas.size() == 0){
+            return;
+        }
+
+        // the ids of the new rows, to merge in with the written ones
+        int[] newIds = new int[deltas.size()];
+        int numNew = 0;
+        MyIntHashMap<RowDelta>.Cursor cursor = deltas.cursor();
+        while (cursor.next()){
+            if (cursor.value().row < 0){
+                newIds[numNew++] = cursor.key();
+            }
+        }
+        Arrays.sort(newIds, 0, numNew);
+
+        int numRows = rowIds.length + numNew;
+        int total = size();
+        int[] newRowIds = new int[numRows];
+        int[] newOffsets = new int[numRows + 1];
+        float[] newSums = new float[numRows];
+        int[] newColumnIds = new int[total];
+        float[] newRatings = new float[total];
+        int[] newSeconds = new int[total];
+
+        int next = 0;
+        int a = 0;
+        int b = 0;
+        for (int row = 0; row < numRows; row++){
+            int id;
+            int oldRow;
+            if (b >= numNew || (a < rowIds.length && rowIds[a] < newIds[b])){
+                id = rowIds[a];
+                oldRow = a++;
+            }
+            else{
+                id = newIds[b++];
+                oldRow = -1;
+            }
+            newRowIds[row] = id;
+            newOffsets[row] = next;
+
+            RowDelta delta = deltas.get(id);
+            if (delta == null){
+                // an unchanged row is copied across as it is
+                int length = offsets[oldRow + 1] - offsets[oldRow];
+                System.arraycopy(columnIds, offsets[oldRow], newColumnIds, next, length);
+                System.arraycopy(ratings, offsets[oldRow], newRatings, next, length);
+                System.arraycopy(epochSeconds, offsets[oldRow], newSeconds, next, length);
+                newSums[row] = sums[oldRow];
+                next += length;
+                continue;
+            }
+
+            // a changed row is merged with its delta, as getRatings does but in ascending order
+            int i = oldRow < 0 ? 0 : offsets[oldRow];
+            int end = oldRow < 0 ? 0 : offsets[oldRow + 1];
+            int j = 0;
+            int r = 0;
+            while (i < end || j < delta.added){
+                r = skipRemoved(delta, r, i < end ? columnIds[i] : Integer.MAX_VALUE);
+                if (i < end && r < delta.removed && delta.removedIds[r] == columnIds[i]){
+                    i++;
+                }
+                else if (j >= delta.added || (i < end && columnIds[i] < delta.addedIds[j])){
+                    newColumnIds[next] = columnIds[i];
+                    newRatings[next] = ratings[i];
+                    newSeconds[next++] = epochSeconds[i++];
+                }
+                else{
+                    newColumnIds[next] = delta.addedIds[j];
+                    newRatings[next] = delta.addedRatings[j];
+                    newSeconds[next++] = delta.addedSeconds[j++];
+                }
+            }
+            newSums[row] = delta.sum;
+        }
+        newOffsets[numRows] = next;
+
+        rowIds = newRowIds;
+        offsets = newOffsets;
+        sums = newSums;
+        columnIds = newColumnIds;
+        ratings = newRatings;
+        epochSeconds = newSeconds;
+        deltas = new MyIntHashMap<>();
+        deltaSize = 0;
+        sizeChange = 0;
+    }
+
+    // folds the deltas in once they hold too many changes
+    private void foldIfFull() {
+        if (deltaSize > Math.max(DELTA_MIN, columnIds.length >> DELTA_SHIFT)){
+            fold();
+        }
+    }
+
+    // the delta of a row, made for the row's current count and sum
+    private RowDelta delta(int id, int row) {
+        RowDelta delta = row < 0 ? new RowDelta(-1, 0, 0) : new RowDelta(row, offsets[row + 1] - offsets[row], sums[row]);
+        deltas.put(id, delta);
+        return delta;
+    }
+
+    // the position of the other id among a written row's columns, or -1 if the row has no rating for it
+    private int column(int row, int columnId) {
+        int at = Arrays.binarySearch(columnIds, offsets[row], offsets[row + 1], columnId);
+        return at < 0 ? -1 : at;
+    }
+
+    // moves on from the removed id at r to the first that isn't below the next written column, to check whether it was removed
+    private static int skipRemoved(RowDelta delta, int r, int columnId) {
+        while (r < delta.removed && delta.removedIds[r] < columnId){
+            r++;
+        }
+        return r;
+    }
+
+    // binary searches the first length ids, as Arrays.binarySearch does
+    private static int search(int[] ids, int length, int id) {
+        return Arrays.binarySearch(ids, 0, length, id);
+    }
+
+    /**
+     * Converts a timestamp to seconds since the epoch (UTC). The ratings data has second precision and ends well before 2038.
+     */
+    static int toEpochSeconds(LocalDateTime timestamp) {
+        return timestamp == null ? NO_TIMESTAMP : (int) timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+}
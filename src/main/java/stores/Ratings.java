@@ -1,23 +1,40 @@
 package stores;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
 import structures.*;
 import interfaces.IRatings;
 
-import java.util.Arrays;
-
+/**
+ * The default ratings store. Every method takes a read/write lock, so ratings can be added on one thread, such as while following
+ * the ratings file, while the screens read them on another. Reads run alongside each other and only wait for changes.
+ */
 public class Ratings implements IRatings {
     private Stores stores;
+
+    // held for reading by every read and for writing by every change
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     
     // create two hashmaps -> one to store data about users and one to store data about movies
-    private MyHashMap<Integer, MyAVLTree<Rating>> movieRatingsMap;
-    private MyHashMap<Integer, MyAVLTree<Rating>> userRatingsMap;
+    private MyIntHashMap<MyAVLTree<Rating>> movieRatingsMap;
+    private MyIntHashMap<MyAVLTree<Rating>> userRatingsMap;
+
+    // read-optimised copies of both indexes, built by freeze(). while these are set the hashmaps above are empty
+    private RatingRows frozenMovies;
+    private RatingRows frozenUsers;
+
+    // batches are only sorted in parallel when each thread would get at least this many ratings
+    private static final int PARALLEL_MIN_RATINGS = 1 << 16;
 
     public Ratings(Stores stores) {
         // create new instances of the hashmaps + stores structure
         this.stores = stores;
-        this.movieRatingsMap = new MyHashMap<>();
-        this.userRatingsMap = new MyHashMap<>();
+        this.movieRatingsMap = new MyIntHashMap<>();
+        this.userRatingsMap = new MyIntHashMap<>();
     }
 
     /**
@@ -36,46 +53,62 @@ public class Ratings implements IRatings {
      */
     @Override
     public boolean add(int userid, int movieid, float rating, LocalDateTime timestamp) {
-        // create a new Rating object to store the rating
-        Rating newRating = new Rating(userid, movieid, rating, timestamp);
+        lock.writeLock().lock();
+        try{
+            // a frozen store keeps the rating in the delta of both rows
+            if (frozenMovies != null){
+                int seconds = RatingRows.toEpochSeconds(timestamp);
+                if (!frozenMovies.add(movieid, userid, rating, seconds)){
+                    return false;
+                }
+                frozenUsers.add(userid, movieid, rating, seconds);
+                return true;
+            }
+
+            // create a new Rating object to store the rating
+            Rating newRating = new Rating(userid, movieid, rating, timestamp);
         
-        // update the movie hashmap
+            // update the movie hashmap
 
-        // get the avl tree associated with the movie
-        MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
-        // check to see if already in
-        if(movieRatings != null && movieRatings.contains(newRating)){
-            return false;
-        }
-        // if an AVL tree doesn't exist for the given movie, create a new one
-        if (movieRatings == null){
-            movieRatings = new MyAVLTree<>();
-        }
+            // get the avl tree associated with the movie
+            MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
+            // check to see if already in
+            if(movieRatings != null && movieRatings.contains(newRating)){
+                return false;
+            }
+            // if an AVL tree doesn't exist for the given movie, create a new one
+            if (movieRatings == null){
+                movieRatings = new MyAVLTree<>();
+            }
         
-        // add the rating to the avl tree, put the avl tree and movie into the hashmap
-        movieRatings.insert(newRating, rating);
-        movieRatingsMap.put(movieid, movieRatings);
+            // add the rating to the avl tree, put the avl tree and movie into the hashmap
+            movieRatings.insert(newRating, rating);
+            movieRatingsMap.put(movieid, movieRatings);
 
 
-        // update to user hashmap
+            // update to user hashmap
         
-        // get the avl tree associated with the user
-        MyAVLTree<Rating> userRatings = userRatingsMap.get(userid);
-        // check to see if already in
-        if(userRatings != null && userRatings.contains(newRating)){
-            // return false on failure
-            return false;
+            // get the avl tree associated with the user
+            MyAVLTree<Rating> userRatings = userRatingsMap.get(userid);
+            // check to see if already in
+            if(userRatings != null && userRatings.contains(newRating)){
+                // return false on failure
+                return false;
+            }
+            // if avl tree doesn't exist for the given user, create a new one
+            if(userRatings == null){
+                userRatings = new MyAVLTree<>();
+            }
+            // add the rating to the avl tree, then put the avl tree and user into the hashmap
+            userRatings.insert(newRating, rating);
+            userRatingsMap.put(userid, userRatings);
+
+            // return true on completion
+            return true;
         }
-        // if avl tree doesn't exist for the given user, create a new one
-        if(userRatings == null){
-            userRatings = new MyAVLTree<>();
+        finally{
+            lock.writeLock().unlock();
         }
-        // add the rating to the avl tree, then put the avl tree and user into the hashmap
-        userRatings.insert(newRating, rating);
-        userRatingsMap.put(userid, userRatings);
-
-        // return true on completion
-        return true;
     }
 
     /**
@@ -91,31 +124,46 @@ public class Ratings implements IRatings {
      */
     @Override
     public boolean remove(int userid, int movieid) {
-        // get the AVL tree associated with the movie ID
-        MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
-
-        // if there is a movie associated with it
-        if (movieRatings != null){
-            // replace it with null
-            Rating targetRating = new Rating(userid, movieid, 0, null);
-
-            // if you can remove the target rating
-            if(movieRatings.remove(targetRating)){
-                // update the hashmap on completion
-                movieRatingsMap.put(movieid, movieRatings);
-
-                // remove from userRatingsMap aswell
-                MyAVLTree<Rating> userRatings = userRatingsMap.get(userid);
-                if (userRatings != null){
-                    userRatings.remove(targetRating);
-                    userRatingsMap.put(userid, userRatings);
+        lock.writeLock().lock();
+        try{
+            // a frozen store marks the rating as removed in the delta of both rows
+            if (frozenMovies != null){
+                if (!frozenMovies.remove(movieid, userid)){
+                    return false;
                 }
-                // return true on completion
+                frozenUsers.remove(userid, movieid);
                 return true;
             }
+
+            // get the AVL tree associated with the movie ID
+            MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
+
+            // if there is a movie associated with it
+            if (movieRatings != null){
+                // replace it with null
+                Rating targetRating = new Rating(userid, movieid, 0, null);
+
+                // if you can remove the target rating
+                if(movieRatings.remove(targetRating)){
+                    // update the hashmap on completion
+                    movieRatingsMap.put(movieid, movieRatings);
+
+                    // remove from userRatingsMap aswell
+                    MyAVLTree<Rating> userRatings = userRatingsMap.get(userid);
+                    if (userRatings != null){
+                        userRatings.remove(targetRating);
+                        userRatingsMap.put(userid, userRatings);
+                    }
+                    // return true on completion
+                    return true;
+                }
+            }
+            // return false on failute
+            return false;
+        }
+        finally{
+            lock.writeLock().unlock();
         }
-        // return false on failute
-        return false;
     }
 
     /**
@@ -131,12 +179,53 @@ public class Ratings implements IRatings {
      */
     @Override
     public boolean set(int userid, int movieid, float rating, LocalDateTime timestamp) {
-        //todo optimise?
-        // remove the rating if it already exists
-        remove(userid, movieid);
+        lock.writeLock().lock();
+        try{
+            //todo optimise?
+            // remove the rating if it already exists
+            remove(userid, movieid);
+
+            // add the rating back to the structure
+            return add(userid, movieid, rating, timestamp);
+        }
+        finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of ratings. If the store is empty, the batch is built straight into the frozen layout: the ratings are radix
+     * sorted by (movie, user) and by (user, movie) and each index is written in a single pass, which is O(n) time and avoids creating
+     * any Rating objects or tree nodes. Otherwise each rating is added in turn, in O(n log n) time.
+     * 
+     * @param userIDs the ids of the users rating the movies
+     * @param movieIDs the ids of the movies being rated
+     * @param ratings the actual ratings
+     * @param timestamps the timestamps of the ratings, in seconds since the epoch (UTC)
+     * 
+     * @return the number of ratings added
+     */
+    @Override
+    public int addRatings(int[] userIDs, int[] movieIDs, float[] ratings, long[] timestamps) {
+        lock.writeLock().lock();
+        try{
+            // build the frozen layout directly if there is nothing to merge with
+            if (userIDs.length > 0 && frozenMovies == null && movieRatingsMap.size() == 0 && userRatingsMap.size() == 0){
+                return buildFrozen(userIDs, movieIDs, ratings, timestamps);
+            }
 
-        // add the rating back to the structure
-        return add(userid, movieid, rating, timestamp);
+            // otherwise add each rating in turn
+            int added = 0;
+            for (int i = 0; i < userIDs.length; i++){
+                if (add(userIDs[i], movieIDs[i], ratings[i], LocalDateTime.ofEpochSecond(timestamps[i], 0, ZoneOffset.UTC))){
+                    added++;
+                }
+            }
+            return added;
+        }
+        finally{
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -150,17 +239,28 @@ public class Ratings implements IRatings {
      */
     @Override
     public float[] getMovieRatings(int movieid) {
-        // get the avl tree for the associated movieid
-        MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
+        lock.readLock().lock();
+        try{
+            // read from the frozen rows if the store is frozen
+            if (frozenMovies != null){
+                return frozenMovies.getRatings(movieid);
+            }
+
+            // get the avl tree for the associated movieid
+            MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
         
-        // if we can't find any ratings
-        if(movieRatings == null){
-            // return an empty list
-            return new float [0];
-        }
+            // if we can't find any ratings
+            if(movieRatings == null){
+                // return an empty list
+                return new float [0];
+            }
 
-        // search avl tree and return array
-        return movieRatings.getRatingsArray(rating -> rating.rating);
+            // search avl tree and return array
+            return movieRatings.getRatingsArray(rating -> rating.rating);
+        }
+        finally{
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -174,17 +274,28 @@ public class Ratings implements IRatings {
      */
     @Override
     public float[] getUserRatings(int userid) {
-        // get the avl tree for the assocaited userid
-        MyAVLTree<Rating> userRatings = userRatingsMap.get(userid);
+        lock.readLock().lock();
+        try{
+            // read from the frozen rows if the store is frozen
+            if (frozenUsers != null){
+                return frozenUsers.getRatings(userid);
+            }
 
-        // if we can't find any ratings
-        if (userRatings == null){
-            // return an empty list
-            return new float[0];
-        }
+            // get the avl tree for the assocaited userid
+            MyAVLTree<Rating> userRatings = userRatingsMap.get(userid);
 
-        // search the avl tree and return array
-        return userRatings.getRatingsArray(rating -> rating.rating);
+            // if we can't find any ratings
+            if (userRatings == null){
+                // return an empty list
+                return new float[0];
+            }
+
+            // search the avl tree and return array
+            return userRatings.getRatingsArray(rating -> rating.rating);
+        }
+        finally{
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -199,18 +310,28 @@ public class Ratings implements IRatings {
      */
     @Override
     public float getMovieAverageRating(int movieid) {
-        // get the avl tree associated with a movie id
-        MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
+        lock.readLock().lock();
+        try{
+            // read from the frozen rows if the store is frozen
+            if (frozenMovies != null){
+                return frozenMovies.getAverage(movieid);
+            }
 
-        // if we can't find any ratings for this movie
-        if(movieRatings == null){
-            // return -1
-            return -1;
-        }
+            // get the avl tree associated with a movie id
+            MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
 
-        // return the average of the avl tree
-        return movieRatings.getAverage();
-        
+            // if we can't find any ratings for this movie
+            if(movieRatings == null){
+                // return -1
+                return -1;
+            }
+
+            // return the average of the avl tree
+            return movieRatings.getAverage();
+        }
+        finally{
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -222,25 +343,34 @@ public class Ratings implements IRatings {
      */
     @Override
     public float getUserAverageRating(int userid) {
-        // get the avl tree associated with a user id
-        MyAVLTree<Rating> userRatings = userRatingsMap.get(userid);
+        lock.readLock().lock();
+        try{
+            // read from the frozen rows if the store is frozen
+            if (frozenUsers != null){
+                return frozenUsers.getAverage(userid);
+            }
 
-        // if we can't find any ratings for that user
-        if(userRatings == null){
-            // return -1
-            return -1;
-        }
+            // get the avl tree associated with a user id
+            MyAVLTree<Rating> userRatings = userRatingsMap.get(userid);
+
+            // if we can't find any ratings for that user
+            if(userRatings == null){
+                // return -1
+                return -1;
+            }
 
-        // return the average of the avl tree
-        return userRatings.getAverage();
+            // return the average of the avl tree
+            return userRatings.getAverage();
+        }
+        finally{
+            lock.readLock().unlock();
+        }
     }
 
     /**
-     * Gets the top N movies with the most ratings, in order from most to least. The time complexity of accessing and mapping the keys is O(n). To sort them using a
-     * quick sort, however, is O(n log n) due to the fact that we calculate the pivot by getting the median of 3 values, meaning even though the actual worst case is 
-     * O(n^2), it is very unlikely we will ever encounter this, so we can assume it is O(n log n). Creating the array is O(num) which can be written as O(1), as its
-     * constant. Therefore, we can write the worst case time complexity for this algorithm being O(n log n). The space complexity is O(n), as we have to create new
-     * arrays for the pairs of ids and sizes. As this correlates to each element in keys, we can write this as O(n).
+     * Gets the top N movies with the most ratings, in order from most to least. Each movie is offered to a bounded top-k selector,
+     * so the time complexity is O(n log k), where n is the number of movies and k is num, rather than sorting every movie. The space
+     * complexity is O(k). Movies with the same number of ratings are ordered by ascending id.
      * 
      * @param num The number of movies that should be returned
      * @return A sorted array of movie IDs with the most ratings. The array should be
@@ -249,40 +379,32 @@ public class Ratings implements IRatings {
      */
     @Override
     public int[] getMostRatedMovies(int num) {
-        // get a list of all the movie ids in the hashmap
-        Integer[] keys = movieRatingsMap.keys();
-        MyPair<Integer, Integer>[] movieSizesPairs = new MyPair[keys.length];
+        lock.readLock().lock();
+        try{
+            // read from the frozen rows if the store is frozen
+            if (frozenMovies != null){
+                return frozenMovies.getMostRated(num);
+            }
 
-        // pair each movie id with its size
-        for (int i = 0; i < keys.length; i++){
-            if(movieRatingsMap.get(keys[i]) != null){
-                int size = movieRatingsMap.get(keys[i]).size();
-                movieSizesPairs[i] = new MyPair<>(keys[i], size);
+            TopK top = new TopK(num);
+
+            // offer each movie id with its number of ratings
+            MyIntHashMap<MyAVLTree<Rating>>.Cursor cursor = movieRatingsMap.cursor();
+            while (cursor.next()){
+                top.offer(cursor.key(), cursor.value().size());
             }
-        }
-        
-        // sort sizes using quicksort
-        quickSort(movieSizesPairs, 0, movieSizesPairs.length - 1);
         
-        // create an array of num elements
-        int[] result = new int[num];
-
-        // map the IDs of the first num elements to our new array
-        for (int i = 0; i < num; i++){
-            result[i] = movieSizesPairs[i].identifier;
+            // return the ids of the most rated movies
+            return top.result();
+        }
+        finally{
+            lock.readLock().unlock();
         }
-        
-        // return the first num elements of keys
-        return result;
-
     }
 
     /**
-     * Gets the top N users with the most ratings, in order from most to least. The time complexity of accessing and mapping the keys is O(n). To sort them using a
-     * quick sort, however, is O(n log n) due to the fact that we calculate the pivot by getting the median of 3 values, meaning even though the actual worst case is 
-     * O(n^2), it is very unlikely we will ever encounter this, so we can assume it is O(n log n). Creating the array is O(num) which can be written as O(1), as its
-     * constant. Therefore, we can write the worst case time complexity for this algorithm being O(n log n). The space complexity is O(n), as we have to create new
-     * arrays for the pairs of ids and sizes. As this correlates to each element in keys, we can write this as O(n).
+     * Gets the top N users with the most ratings, in order from most to least. As with getMostRatedMovies, this has a time complexity
+     * of O(n log k) and a space complexity of O(k). Users with the same number of ratings are ordered by ascending id.
      * 
      * @param num The number of users that should be returned
      * @return A sorted array of user IDs with the most ratings. The array should be
@@ -291,115 +413,57 @@ public class Ratings implements IRatings {
      */
     @Override
     public int[] getMostRatedUsers(int num) {
-        // get a list of all the user ids in the hashmap
-        Integer[] keys = userRatingsMap.keys();
-        MyPair<Integer, Integer>[] userSizesPairs = new MyPair[keys.length];
-
-        // pair each user id with its size
-        for (int i = 0; i < keys.length; i++){
-            if(userRatingsMap.get(keys[i]) != null){
-                int size = userRatingsMap.get(keys[i]).size();
-                userSizesPairs[i] = new MyPair<>(keys[i], size);
+        lock.readLock().lock();
+        try{
+            // read from the frozen rows if the store is frozen
+            if (frozenUsers != null){
+                return frozenUsers.getMostRated(num);
             }
-        }
-        
 
-        // sort sizes using quicksort
-        quickSort(userSizesPairs, 0, userSizesPairs.length - 1);
-        
-        // create an array of num elements
-        int[] result = new int[num];
+            TopK top = new TopK(num);
 
-        // map the IDs of the first num elements to our new array
-        for (int i = 0; i < num; i++){
-            result[i] = userSizesPairs[i].identifier;
-        }
+            // offer each user id with its number of ratings
+            MyIntHashMap<MyAVLTree<Rating>>.Cursor cursor = userRatingsMap.cursor();
+            while (cursor.next()){
+                top.offer(cursor.key(), cursor.value().size());
+            }
         
-        // return the first num elements of keys
-        return result;
-    }
-
-
-    /**
-     * Performs a recursive quicksort on an array. This has a time complexity of O(n log n) instead of O(n^2) as due to the fact we are calculating the pivot by getting
-     * the median of 3 values, it means we are very very unlikely to encounter the worst case of O(n^2), meaning we can write it as O(n log n). The space complexity is
-     * 
-     * 
-     * @param arr the array we wish to sort
-     * @param low the lowerbound of the subarray
-     * @param high the upperbound of the array
-     */
-    private void quickSort(MyPair[] arr, int low, int high){
-        if (low < high){
-            // partition the array and get the pivot index
-            int pivot = partition(arr, low, high);
-
-            // recursively sort elemetns before and after the pivot
-            quickSort(arr, low, pivot - 1);
-            quickSort(arr, pivot + 1, high);
+            // return the ids of the most rated users
+            return top.result();
         }
-    }
-
-    /**
-     * Calculates the pivot for a subarray to be quicksorted. This has a time complexity of O(n) due to the fact that, we need to iterate through the entire array.
-     * The space complexity for this method is constant O(1) as we are doing an in-place swap to calcaulate the pivot.
-     * 
-     * @param arr the array we wish to sort
-     * @param low the lowerbound of the subarray
-     * @param high the upperbound of the array
-     */
-    private int partition(MyPair[] arr, int low, int high){
-        // choose the last element as the pivot
-        double pivot = arr[high].value.doubleValue();
-        int i = low - 1;
-
-        // traverse the array
-        for (int j = low; j < high; j++){
-            // if the current eleemnt is greater than or equal to the pivot
-            if(arr[j] != null && arr[j].value.doubleValue() >= pivot){
-                // increment smaller element
-                i++;
-
-                // swap elements
-                MyPair temp = arr[i];
-                arr[i] = arr[j];
-                arr[j] = temp;
-            }
+        finally{
+            lock.readLock().unlock();
         }
-
-        // swap the pivot element with the element at index (i + 1)
-        MyPair temp = arr[i + 1];
-        arr[i + 1] = arr[high];
-        arr[high] = temp;
-
-        // return the index of the pivot element
-        return i + 1;
     }
 
     /**
-     * Gets the number of ratings in the data structure. This has a time complexity of O(n), as getting the keys takes O(n) and iterating through the keys also takes
-     * O(n), where n is the number of elements in the hashmap. From here, getting the size of each avl tree at each index in the hashmap is constant O(1), and the
+     * Gets the number of ratings in the data structure. This has a time complexity of O(n), as we walk each entry of the hashmap once,
+     * where n is the number of elements in the hashmap. From here, getting the size of each avl tree at each index in the hashmap is constant O(1), and the
      * space complexity of this method is also O(1).
      * 
      * @return The number of ratings in the data structure
      */
     @Override
     public int size() {
-        int total = 0;
-        
-        // get a list of all the keys in the hashmap
-        Integer[] keys = movieRatingsMap.keys();
+        lock.readLock().lock();
+        try{
+            // the frozen rows store every rating once per index
+            if (frozenMovies != null){
+                return frozenMovies.size();
+            }
 
-        // iterate through these keys
-        for (Integer key : keys){
-            // add the size of each avl tree associated with a key to the total
-            total += movieRatingsMap.get(key).size();
-            
-        }
-        
-        // return the total
-        return total;
+            // initialise array to hold the running total
+            int[] total = {0};
 
+            // add the size of each avl tree in the hashmap to the total
+            movieRatingsMap.forEach((movieid, movieRatings) -> total[0] += movieRatings.size());
+
+            // return the total
+            return total[0];
+        }
+        finally{
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -415,22 +479,34 @@ public class Ratings implements IRatings {
      */
     @Override
     public int getNumRatings(int movieid) {
-        // get the avl tree for the movie in question
-        MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
+        lock.readLock().lock();
+        try{
+            // read from the frozen rows if the store is frozen
+            if (frozenMovies != null){
+                return frozenMovies.getCount(movieid);
+            }
 
-        // return -1 if there aren't any reviews associated with that movie
-        if(movieRatings == null){
-            return -1;
-        }
+            // get the avl tree for the movie in question
+            MyAVLTree<Rating> movieRatings = movieRatingsMap.get(movieid);
+
+            // return -1 if there aren't any reviews associated with that movie
+            if(movieRatings == null){
+                return -1;
+            }
         
-        // return the size of the avl tree (correlating to no of reviews)
-        return movieRatings.size();
+            // return the size of the avl tree (correlating to no of reviews)
+            return movieRatings.size();
+        }
+        finally{
+            lock.readLock().unlock();
+        }
     }
 
     /**
      * Get the highest average rated film IDs, in order of there average rating
      * (hightst first). Similar to getMostRatedUsers, this has time complexity
-     * of O(n log n) and space complexity of O(n)
+     * of O(n log k) and space complexity of O(k). Movies with the same average
+     * are ordered by ascending id.
      * 
      * @param numResults The maximum number of results to be returned
      * @return An array of the film IDs with the highest average ratings, highest
@@ -439,30 +515,334 @@ public class Ratings implements IRatings {
      */
     @Override
     public int[] getTopAverageRatedMovies(int numResults) {
-        // get a list of all the movie ids in the hashmap
-        Integer[] keys = movieRatingsMap.keys();
-        MyPair<Integer, Double>[] movieAveragePairs = new MyPair[keys.length];
+        lock.readLock().lock();
+        try{
+            // read from the frozen rows if the store is frozen
+            if (frozenMovies != null){
+                return frozenMovies.getTopAverage(numResults);
+            }
+
+            TopK top = new TopK(numResults);
+
+            // offer each movie id with its average
+            MyIntHashMap<MyAVLTree<Rating>>.Cursor cursor = movieRatingsMap.cursor();
+            while (cursor.next()){
+                top.offer(cursor.key(), cursor.value().getAverage());
+            }
         
-        // pair each movie id with its average
-        for (int i = 0; i < keys.length; i++){
-            double average = movieRatingsMap.get(keys[i]).getAverage();
-            movieAveragePairs[i] = new MyPair<>(keys[i], average);
-            
+            // return the ids of the highest average rated movies
+            return top.result();
         }
-        
-        // sort averages using quicksort
-        quickSort(movieAveragePairs, 0, movieAveragePairs.length - 1);
-        
-        // create an array of num elements
-        int[] result = new int[numResults];
+        finally{
+            lock.readLock().unlock();
+        }
+    }
 
-        // map the IDs of the first num elements to our new array
-        for (int i = 0; i < numResults; i++){
-            result[i] = movieAveragePairs[i].identifier;
+    /**
+     * Freezes the store into a read-optimised layout. Both the movie and user indexes are converted into compressed sparse rows: a
+     * sorted array of ids, and for each id a contiguous run of the other id, the rating and the timestamp in parallel primitive arrays.
+     * This drops every Rating object and AVL node, so it takes a fraction of the memory, and scans are sequential array reads. Lookups
+     * become a binary search over the ids, which is O(log n). Freezing takes O(n log n) time, so it should be called once the data is
+     * loaded. The store stays frozen from then on: add, remove and set change a small delta over the rows, which is folded into them
+     * as it grows (see RatingRows).
+     */
+    public void freeze() {
+        lock.writeLock().lock();
+        try{
+            // nothing to do if the store is already frozen
+            if (frozenMovies != null){
+                return;
+            }
+
+            // build both indexes from the avl trees
+            frozenMovies = rowsOf(movieRatingsMap, true);
+            frozenUsers = rowsOf(userRatingsMap, false);
+
+            // release the avl trees
+            movieRatingsMap = new MyIntHashMap<>();
+            userRatingsMap = new MyIntHashMap<>();
+        }
+        finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the rows from a hashmap of avl trees
+     * 
+     * @param map the hashmap of avl trees, keyed by movie id or user id
+     * @param byMovie true if the map is keyed by movie id, false if it is keyed by user id
+     * @return the compressed rows
+     */
+    private static RatingRows rowsOf(MyIntHashMap<MyAVLTree<Rating>> map, boolean byMovie) {
+        RatingRows rows = new RatingRows();
+
+        // sort the row ids so rows can be binary searched
+        rows.rowIds = map.keys();
+        Arrays.sort(rows.rowIds);
+
+        // count every rating so the columns are allocated once
+        int total = 0;
+        for (int id : rows.rowIds){
+            total += map.get(id).size();
+        }
+
+        rows.offsets = new int[rows.rowIds.length + 1];
+        rows.sums = new float[rows.rowIds.length];
+        rows.columnIds = new int[total];
+        rows.ratings = new float[total];
+        rows.epochSeconds = new int[total];
+
+        // copy each tree across in order, the trees are ordered by user id then movie id
+        int[] next = {0};
+        for (int row = 0; row < rows.rowIds.length; row++){
+            MyAVLTree<Rating> tree = map.get(rows.rowIds[row]);
+            rows.offsets[row] = next[0];
+            rows.sums[row] = tree.getSum();
+
+            tree.inOrder(rating -> {
+                rows.columnIds[next[0]] = byMovie ? rating.userId : rating.movieId;
+                rows.ratings[next[0]] = rating.rating;
+                rows.epochSeconds[next[0]] = RatingRows.toEpochSeconds(rating.timestamp);
+                next[0]++;
+            });
+        }
+        rows.offsets[rows.rowIds.length] = next[0];
+
+        return rows;
+    }
+
+    /**
+     * Builds both frozen indexes straight from a batch of ratings, keeping the first rating for each (user, movie) pair. Large
+     * batches are split by movie id and each part is sorted on its own thread, then the sorted parts are merged, which gives the
+     * same order as sorting the whole batch at once.
+     * 
+     * @return the number of ratings kept
+     */
+    private int buildFrozen(int[] userIDs, int[] movieIDs, float[] ratings, long[] timestamps) {
+        int length = userIDs.length;
+
+        // the kept ratings in (movie, user) order and in (user, movie) order
+        int parts = Math.min(ForkJoinPool.getCommonPoolParallelism(), length / PARALLEL_MIN_RATINGS);
+        int[][] orders = parts > 1 ? sortInParts(userIDs, movieIDs, parts) : sort(userIDs, movieIDs, null, length);
+        int[] movieOrder = orders[0];
+        int[] userOrder = orders[1];
+        int kept = movieOrder.length;
+
+        // write each index in a single pass
+        int[] movieRowOf = new int[length];
+        int[] userRowOf = new int[length];
+        frozenMovies = RatingRows.fromSorted(movieIDs, userIDs, ratings, timestamps, movieOrder, kept, movieRowOf);
+        frozenUsers = RatingRows.fromSorted(userIDs, movieIDs, ratings, timestamps, userOrder, kept, userRowOf);
+
+        // sum each row in the order the ratings were given, so the sums match adding them one at a time
+        boolean[] isKept = new boolean[length];
+        for (int i = 0; i < kept; i++){
+            isKept[movieOrder[i]] = true;
+        }
+        for (int i = 0; i < length; i++){
+            if (isKept[i]){
+                frozenMovies.sums[movieRowOf[i]] += ratings[i];
+                frozenUsers.sums[userRowOf[i]] += ratings[i];
+            }
+        }
+
+        return kept;
+    }
+
+    /**
+     * Sorts some of the ratings by (movie, user), dropping all but the first rating for each pair, and then sorts the ratings that
+     * are left by (user, movie)
+     * 
+     * @param indexes the indexes of the ratings to sort, in the order they were given, or null for the first length ratings
+     * @param length the number of ratings to sort
+     * @return the indexes of the kept ratings in (movie, user) order, and then in (user, movie) order
+     */
+    private static int[][] sort(int[] userIDs, int[] movieIDs, int[] indexes, int length) {
+        // sort by (movie, user), the sort is stable so the first of any duplicates comes first
+        long[] keys = new long[length];
+        for (int i = 0; i < length; i++){
+            int index = indexes == null ? i : indexes[i];
+            keys[i] = sortKey(movieIDs[index], userIDs[index]);
+        }
+        int[] order = RadixSort.order(keys, length);
+
+        // drop the duplicates
+        int kept = 0;
+        for (int i = 0; i < length; i++){
+            if (i == 0 || keys[order[i]] != keys[order[i - 1]]){
+                order[kept++] = order[i];
+            }
+        }
+        int[] movieOrder = new int[kept];
+        for (int i = 0; i < kept; i++){
+            movieOrder[i] = indexes == null ? order[i] : indexes[order[i]];
+        }
+
+        // sort the remaining ratings by (user, movie)
+        long[] userKeys = new long[kept];
+        for (int i = 0; i < kept; i++){
+            userKeys[i] = sortKey(userIDs[movieOrder[i]], movieIDs[movieOrder[i]]);
+        }
+        int[] userOrder = RadixSort.order(userKeys, kept);
+        for (int i = 0; i < kept; i++){
+            userOrder[i] = movieOrder[userOrder[i]];
+        }
+
+        return new int[][] {movieOrder, userOrder};
+    }
+
+    /**
+     * Sorts the ratings as sort does, but split into parts by movie id that are sorted in parallel and then merged. Every rating
+     * of a movie is in the same part, so duplicates are still found within a part, and each part keeps the order the ratings
+     * were given in, so the same one of them is kept.
+     * 
+     * @param parts the number of parts to split the ratings into
+     * @return the indexes of the kept ratings in (movie, user) order, and then in (user, movie) order
+     */
+    private static int[][] sortInParts(int[] userIDs, int[] movieIDs, int parts) {
+        int length = userIDs.length;
+
+        // count the ratings in each part, then hand out their indexes in order
+        int[] partOf = new int[length];
+        int[] sizes = new int[parts];
+        for (int i = 0; i < length; i++){
+            partOf[i] = partOf(movieIDs[i], parts);
+            sizes[partOf[i]]++;
+        }
+        int[][] indexes = new int[parts][];
+        for (int part = 0; part < parts; part++){
+            indexes[part] = new int[sizes[part]];
+            sizes[part] = 0;
+        }
+        for (int i = 0; i < length; i++){
+            int part = partOf[i];
+            indexes[part][sizes[part]++] = i;
+        }
+
+        // sort each part on its own thread
+        int[][][] sorted = new int[parts][][];
+        IntStream.range(0, parts).parallel().forEach(part -> sorted[part] = sort(userIDs, movieIDs, indexes[part], indexes[part].length));
+
+        // then merge the parts, by (movie, user) and by (user, movie)
+        int[][] movieRuns = new int[parts][];
+        int[][] userRuns = new int[parts][];
+        for (int part = 0; part < parts; part++){
+            movieRuns[part] = sorted[part][0];
+            userRuns[part] = sorted[part][1];
+        }
+        return new int[][] {merge(movieRuns, movieIDs, userIDs), merge(userRuns, userIDs, movieIDs)};
+    }
+
+    /**
+     * Picks a part for a movie, spreading the bits of its id so that ids that are close together or share a stride still land in
+     * every part evenly
+     */
+    private static int partOf(int movieid, int parts) {
+        long hash = (movieid * 0x9E3779B9L) & 0xffffffffL;
+        return (int) ((hash * parts) >>> 32);
+    }
+
+    /**
+     * Merges runs of rating indexes that are each sorted by (first id, second id) into a single sorted run. The next rating of each
+     * run is kept in a binary heap, so this takes O(n log k) time for n ratings in k runs.
+     * 
+     * @param runs the sorted runs. no (first id, second id) pair may be in more than one run
+     * @param first the id the ratings are sorted by first
+     * @param second the id the ratings are sorted by within the same first id
+     * @return the merged run
+     */
+    private static int[] merge(int[][] runs, int[] first, int[] second) {
+        int total = 0;
+        for (int[] run : runs){
+            total += run.length;
+        }
+
+        // a heap of the runs that haven't been used up, ordered by the key of their next rating
+        int[] heap = new int[runs.length];
+        long[] heapKeys = new long[runs.length];
+        int[] next = new int[runs.length];
+        int heapSize = 0;
+        for (int run = 0; run < runs.length; run++){
+            if (runs[run].length > 0){
+                int index = runs[run][0];
+                heapSize = siftUp(heap, heapKeys, heapSize, run, sortKey(first[index], second[index]));
+            }
+        }
+
+        int[] merged = new int[total];
+        for (int i = 0; i < total; i++){
+            // take the smallest rating, then replace it with the next of its run or drop the run
+            int run = heap[0];
+            merged[i] = runs[run][next[run]++];
+            if (next[run] < runs[run].length){
+                int index = runs[run][next[run]];
+                siftDown(heap, heapKeys, heapSize, run, sortKey(first[index], second[index]));
+            }
+            else{
+                heapSize--;
+                siftDown(heap, heapKeys, heapSize, heap[heapSize], heapKeys[heapSize]);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Adds a run to the end of the heap and moves it up to its place
+     * 
+     * @return the new size of the heap
+     */
+    private static int siftUp(int[] heap, long[] heapKeys, int size, int run, long key) {
+        int i = size;
+        while (i > 0 && heapKeys[(i - 1) / 2] > key){
+            heap[i] = heap[(i - 1) / 2];
+            heapKeys[i] = heapKeys[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = run;
+        heapKeys[i] = key;
+        return size + 1;
+    }
+
+    /**
+     * Puts a run at the top of the heap and moves it down to its place
+     */
+    private static void siftDown(int[] heap, long[] heapKeys, int size, int run, long key) {
+        int i = 0;
+        while (2 * i + 1 < size){
+            int child = 2 * i + 1;
+            if (child + 1 < size && heapKeys[child + 1] < heapKeys[child]){
+                child++;
+            }
+            if (heapKeys[child] >= key){
+                break;
+            }
+            heap[i] = heap[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heap[i] = run;
+        heapKeys[i] = key;
+    }
+
+    /**
+     * Packs a pair of ids into a long that sorts by the first id and then the second, both as signed ints
+     */
+    private static long sortKey(int first, int second) {
+        return ((long) first << 32) | ((second ^ Integer.MIN_VALUE) & 0xffffffffL);
+    }
+
+    /**
+     * @return whether the store is currently frozen
+     */
+    public boolean isFrozen() {
+        lock.readLock().lock();
+        try{
+            return frozenMovies != null;
+        }
+        finally{
+            lock.readLock().unlock();
         }
-        
-        // return the first num elements of keys
-        return result;
     }
 }
 
@@ -490,4 +870,4 @@ class Rating implements Comparable<Rating> {
             return Integer.compare(this.movieId, other.movieId);
         }
     }
-}
\ No newline at end of file
+}
@@ -9,4 +9,12 @@ public class Stores extends AbstractStores{
         movies   = new Movies(this);
         ratings  = new Ratings(this);
     }
+
+    // lsmRatings selects the write-optimised LsmRatings store instead of Ratings
+    public Stores(boolean lsmRatings){
+        this();
+        if (lsmRatings){
+            ratings = new LsmRatings(this);
+        }
+    }
 }
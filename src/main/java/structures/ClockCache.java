@@ -0,0 +1,132 @@
+package structures;
+
+/**
+ * A cache holding at most a fixed number of values, keyed by primitive ints. When it is full the CLOCK approximation of least
+ * recently used picks the value to evict: each slot has a referenced bit that is set when its value is read, and a hand sweeps
+ * round the slots clearing the bits it passes until it finds one that was already clear. A hit is then a single hashmap lookup,
+ * with nothing reordered.
+ *
+ * Every method is synchronized, since the stores that use it can be read from more than one thread at once.
+ *
+ * @param <V> the type of cached values
+ */
+public class ClockCache<V> {
+    private static class Slot<V> {
+        int key;
+        V value;
+        boolean referenced;
+    }
+
+    // the slots in the order the hand visits them, each a Slot<V>
+    private final Object[] slots;
+    // the slot holding each cached key
+    private final MyIntHashMap<Slot<V>> index;
+    private int used = 0;
+    private int hand = 0;
+
+    /**
+     * @param capacity the most values to hold at once, at least 1
+     */
+    public ClockCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A cache must hold at least one value");
+        }
+        this.slots = new Object[capacity];
+        this.index = new MyIntHashMap<>(capacity);
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the value cached for the key, or null if it isn't cached
+     */
+    public synchronized V get(int key) {
+        Slot<V> slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        slot.referenced = true;
+        return slot.value;
+    }
+
+    /**
+     * Caches a value, evicting another if the cache is full
+     *
+     * @param key the key of the value
+     * @param value the value, not null
+     */
+    public synchronized void put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("A cache can't hold null values");
+        }
+        Slot<V> slot = index.get(key);
+        if (slot == null) {
+            if (used < slots.length) {
+                slot = new Slot<>();
+                slots[used++] = slot;
+            }
+            else {
+                // sweep round to a slot that hasn't been read since the hand last passed it
+                while (slot(hand).referenced) {
+                    slot(hand).referenced = false;
+                    hand = (hand + 1) % slots.length;
+                }
+                slot = slot(hand);
+                hand = (hand + 1) % slots.length;
+                // a slot emptied by remove no longer holds its key
+                if (slot.value != null) {
+                    index.remove(slot.key);
+                }
+            }
+            slot.key = key;
+            index.put(key, slot);
+        }
+        slot.value = value;
+        slot.referenced = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Slot<V> slot(int i) {
+        return (Slot<V>) slots[i];
+    }
+
+    /**
+     * Drops the value cached for a key, if there is one, so it is read again next time
+     *
+     * @param key the key to drop
+     */
+    public synchronized void remove(int key) {
+        Slot<V> slot = index.get(key);
+        if (slot != null) {
+            index.remove(key);
+            // the slot is left empty and unreferenced, for the hand to reuse when it next comes round
+            slot.value = null;
+            slot.referenced = false;
+        }
+    }
+
+    /**
+     * Drops every cached value
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < used; i++) {
+            slots[i] = null;
+        }
+        index.clear();
+        used = 0;
+        hand = 0;
+    }
+
+    /**
+     * @return the number of values cached
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the most values the cache holds at once
+     */
+    public int capacity() {
+        return slots.length;
+    }
+}
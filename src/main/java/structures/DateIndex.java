@@ -0,0 +1,251 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * An index of ids by a date, stored as a day number such as LocalDate.toEpochDay, for finding the ids dated within a range
+ * without checking every id. The days are kept sorted, with the id of each in a parallel array, so the ids in a range are
+ * together and found with two binary searches, in O(log n + k) time for k ids.
+ *
+ * Adding one id to the sorted arrays would mean shifting everything after it, so single adds go into a small delta, also kept
+ * sorted, which is merged into the main arrays once it fills up. Batches are sorted and merged in one pass, in O(n + b log b)
+ * time for a batch of b. Removing from the main arrays would shift them the same way, so removals are kept in another small
+ * sorted run and skipped by lookups, until the main arrays are next merged into or the run fills up, when they are dropped in
+ * one pass. Lookups search all three and merge what they find, so results are always in date order.
+ */
+public class DateIndex {
+    // the most ids held in the delta before it is merged into the main arrays
+    private static final int DELTA_LIMIT = 256;
+
+    // the main arrays, sorted by day and then id
+    private int[] days = new int[0];
+    private int[] ids = new int[0];
+    private int size = 0;
+
+    // the ids added since the last merge, sorted the same way
+    private final int[] deltaDays = new int[DELTA_LIMIT];
+    private final int[] deltaIDs = new int[DELTA_LIMIT];
+    private int deltaSize = 0;
+
+    // the entries of the main arrays removed since the last merge, sorted the same way
+    private final int[] removedDays = new int[DELTA_LIMIT];
+    private final int[] removedIDs = new int[DELTA_LIMIT];
+    private int removedSize = 0;
+
+    /**
+     * Adds an id to the index
+     *
+     * @param id the id, which shouldn't already be in the index
+     * @param day the id's date, as a day number
+     */
+    public void add(int id, int day) {
+        // an id removed from the main arrays and added back with the same date is just no longer removed
+        int at = position(removedDays, removedIDs, removedSize, day, id);
+        if (at < removedSize && removedDays[at] == day && removedIDs[at] == id) {
+            System.arraycopy(removedDays, at + 1, removedDays, at, removedSize - at - 1);
+            System.arraycopy(removedIDs, at + 1, removedIDs, at, removedSize - at - 1);
+            removedSize--;
+            return;
+        }
+
+        if (deltaSize == DELTA_LIMIT) {
+            merge(deltaDays, deltaIDs, deltaSize);
+            deltaSize = 0;
+        }
+
+        // shift the later entries along to keep the delta sorted
+        at = position(deltaDays, deltaIDs, deltaSize, day, id);
+        System.arraycopy(deltaDays, at, deltaDays, at + 1, deltaSize - at);
+        System.arraycopy(deltaIDs, at, deltaIDs, at + 1, deltaSize - at);
+        deltaDays[at] = day;
+        deltaIDs[at] = id;
+        deltaSize++;
+    }
+
+    /**
+     * Adds a batch of ids to the index at once, which is quicker than adding them one at a time
+     *
+     * @param batchIDs the ids, which shouldn't already be in the index
+     * @param batchDays the date of each id, as a day number
+     * @param count the number of ids in the batch
+     */
+    public void addAll(int[] batchIDs, int[] batchDays, int count) {
+        // sort the batch by day and then id, packed together. flipping the id's sign bit makes it sort as a signed int would
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (long) batchDays[i] << 32 | ((batchIDs[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+        }
+        Arrays.sort(order);
+        int[] sortedDays = new int[count];
+        int[] sortedIDs = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedDays[i] = (int) (order[i] >> 32);
+            sortedIDs[i] = (int) order[i] ^ Integer.MIN_VALUE;
+        }
+        merge(sortedDays, sortedIDs, count);
+    }
+
+    /**
+     * Removes an id from the index
+     *
+     * @param id the id
+     * @param day the date it was added with
+     * @return whether the id was in the index with that date
+     */
+    public boolean remove(int id, int day) {
+        int at = position(deltaDays, deltaIDs, deltaSize, day, id);
+        if (at < deltaSize && deltaDays[at] == day && deltaIDs[at] == id) {
+            System.arraycopy(deltaDays, at + 1, deltaDays, at, deltaSize - at - 1);
+            System.arraycopy(deltaIDs, at + 1, deltaIDs, at, deltaSize - at - 1);
+            deltaSize--;
+            return true;
+        }
+
+        at = position(days, ids, size, day, id);
+        if (at >= size || days[at] != day || ids[at] != id) {
+            return false;
+        }
+
+        // mark it removed rather than shifting the main arrays, unless it already is
+        at = position(removedDays, removedIDs, removedSize, day, id);
+        if (at < removedSize && removedDays[at] == day && removedIDs[at] == id) {
+            return false;
+        }
+        if (removedSize == DELTA_LIMIT) {
+            compact();
+            return remove(id, day);
+        }
+        System.arraycopy(removedDays, at, removedDays, at + 1, removedSize - at);
+        System.arraycopy(removedIDs, at, removedIDs, at + 1, removedSize - at);
+        removedDays[at] = day;
+        removedIDs[at] = id;
+        removedSize++;
+        return true;
+    }
+
+    /**
+     * Finds the ids dated within a range
+     *
+     * @param from the first day in the range
+     * @param to the day after the last day in the range
+     * @return the ids, in date order and then id order
+     */
+    public int[] range(int from, int to) {
+        int found = count(from, to);
+        if (found == 0) {
+            return new int[0];
+        }
+        int start = position(days, ids, size, from, Integer.MIN_VALUE);
+        int end = position(days, ids, size, to, Integer.MIN_VALUE);
+        int deltaStart = position(deltaDays, deltaIDs, deltaSize, from, Integer.MIN_VALUE);
+        int deltaEnd = position(deltaDays, deltaIDs, deltaSize, to, Integer.MIN_VALUE);
+
+        // merge the two sorted runs, skipping the removed entries of the main arrays, which are in the same order
+        int[] result = new int[found];
+        int count = 0;
+        int i = start;
+        int j = deltaStart;
+        int r = position(removedDays, removedIDs, removedSize, from, Integer.MIN_VALUE);
+        while (i < end || j < deltaEnd) {
+            if (j >= deltaEnd || (i < end && compare(days[i], ids[i], deltaDays[j], deltaIDs[j]) < 0)) {
+                if (r < removedSize && removedDays[r] == days[i] && removedIDs[r] == ids[i]) {
+                    r++;
+                    i++;
+                }
+                else {
+                    result[count++] = ids[i++];
+                }
+            }
+            else {
+                result[count++] = deltaIDs[j++];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the ids dated within a range, in O(log n) time
+     *
+     * @param from the first day in the range
+     * @param to the day after the last day in the range
+     * @return the number of ids
+     */
+    public int count(int from, int to) {
+        if (from >= to) {
+            return 0;
+        }
+        return position(days, ids, size, to, Integer.MIN_VALUE) - position(days, ids, size, from, Integer.MIN_VALUE)
+             + position(deltaDays, deltaIDs, deltaSize, to, Integer.MIN_VALUE) - position(deltaDays, deltaIDs, deltaSize, from, Integer.MIN_VALUE)
+             - position(removedDays, removedIDs, removedSize, to, Integer.MIN_VALUE) + position(removedDays, removedIDs, removedSize, from, Integer.MIN_VALUE);
+    }
+
+    // drops the removed entries from the main arrays in one pass
+    private void compact() {
+        int kept = 0;
+        int r = 0;
+        for (int i = 0; i < size; i++) {
+            if (r < removedSize && removedDays[r] == days[i] && removedIDs[r] == ids[i]) {
+                r++;
+            }
+            else {
+                days[kept] = days[i];
+                ids[kept++] = ids[i];
+            }
+        }
+        size = kept;
+        removedSize = 0;
+    }
+
+    // merges sorted entries into the main arrays, from the back so it can be done in place once they are big enough. the removed
+    // entries are dropped first, as the merge passes over everything anyway
+    private void merge(int[] addDays, int[] addIDs, int count) {
+        if (removedSize > 0) {
+            compact();
+        }
+        if (size + count > days.length) {
+            int capacity = Math.max(size + count, days.length + (days.length >> 1));
+            days = Arrays.copyOf(days, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        int i = size - 1;
+        int j = count - 1;
+        for (int k = size + count - 1; j >= 0; k--) {
+            if (i >= 0 && compare(days[i], ids[i], addDays[j], addIDs[j]) > 0) {
+                days[k] = days[i];
+                ids[k] = ids[i--];
+            }
+            else {
+                days[k] = addDays[j];
+                ids[k] = addIDs[j--];
+            }
+        }
+        size += count;
+    }
+
+    // the first position of a sorted run at or after a day and id
+    private static int position(int[] runDays, int[] runIDs, int length, int day, int id) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(runDays[mid], runIDs[mid], day, id) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(int dayA, int idA, int dayB, int idB) {
+        return dayA != dayB ? Integer.compare(dayA, dayB) : Integer.compare(idA, idB);
+    }
+
+    /**
+     * @return the number of ids in the index
+     */
+    public int size() {
+        return size + deltaSize - removedSize;
+    }
+}
@@ -0,0 +1,303 @@
+package structures;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * A typo tolerant index from the words of some short text, such as titles and names, to the ids of the records they appear in. A
+ * search finds the records with a word within a few edits of every word searched for, so "Speilberg" finds "Spielberg" and
+ * "termnator" finds "Terminator". Words are folded before they are compared, lower cased and with their accents taken off, so
+ * "bjork" finds "Björk".
+ *
+ * The distinct words are searched in sorted order, as a Levenshtein automaton would walk a trie of them. The table of edit
+ * distances between the word searched for and a word is built a row per letter, and words with a prefix in common share its
+ * rows, so each prefix is only worked out once. Once every entry in a prefix's row is over the edits allowed, no word starting
+ * with it can match, so they are skipped all at once by a binary search. Only the prefixes close to the word searched for are
+ * visited, rather than every word being compared. Words are kept once added, and words no record has any more are skipped.
+ */
+public class FuzzyIndex {
+    // the distinct folded words, and the records each appears in by word id
+    private final WordTable words = new WordTable();
+    private IntSet[] postings = new IntSet[16];
+
+    // the word ids of each record, so a record can be unindexed without its text
+    private final MyIntHashMap<int[]> records = new MyIntHashMap<>();
+
+    /**
+     * Gets the most edits a word can be from the word searched for and still match it. Short words allow fewer, as one edit to
+     * a three letter word already matches a lot of other words.
+     *
+     * @param length the length of the word searched for
+     * @return the most edits allowed
+     */
+    public static int maxEdits(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Splits text into its distinct words, folded
+     *
+     * @param texts the text to split, null text is skipped
+     * @return the distinct folded words
+     */
+    public static String[] terms(String... texts) {
+        String[] terms = TokenIndex.tokens(texts);
+        int count = 0;
+        for (String term : terms) {
+            String folded = fold(term);
+
+            // taking accents off can make two words the same
+            boolean repeated = false;
+            for (int j = 0; j < count && !repeated; j++) {
+                repeated = terms[j].equals(folded);
+            }
+            if (!repeated && !folded.isEmpty()) {
+                terms[count++] = folded;
+            }
+        }
+        return Arrays.copyOf(terms, count);
+    }
+
+    /**
+     * Folds a word, lower casing it and taking the accents off its letters
+     *
+     * @param word the word
+     * @return the folded word
+     */
+    public static String fold(String word) {
+        boolean ascii = true;
+        for (int i = 0; i < word.length() && ascii; i++) {
+            ascii = word.charAt(i) < 128;
+        }
+        String lower = TokenIndex.fold(word, 0, word.length());
+        if (ascii) {
+            return lower;
+        }
+
+        // decompose accented letters into the letter and its accent, then drop the accents
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        char[] folded = new char[decomposed.length()];
+        int count = 0;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded[count++] = c;
+            }
+        }
+        return new String(folded, 0, count);
+    }
+
+    /**
+     * Gets the number of single character insertions, deletions and substitutions that turn one word into another
+     *
+     * @param a a word
+     * @param b another word
+     * @return the edit distance between them
+     */
+    public static int distance(String a, String b) {
+        // the distances from each prefix of a to the prefix of b so far, one row at a time
+        int[] previous = new int[a.length() + 1];
+        int[] current = new int[a.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            previous[i] = i;
+        }
+        for (int j = 1; j <= b.length(); j++) {
+            current[0] = j;
+            char c = b.charAt(j - 1);
+            for (int i = 1; i <= a.length(); i++) {
+                int substitute = previous[i - 1] + (a.charAt(i - 1) == c ? 0 : 1);
+                current[i] = Math.min(substitute, Math.min(previous[i], current[i - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[a.length()];
+    }
+
+    /**
+     * Indexes a record under the words of some text, replacing any words it was indexed under before
+     *
+     * @param id the record's id
+     * @param texts the record's text, null text is skipped
+     */
+    public void add(int id, String... texts) {
+        remove(id);
+        String[] terms = terms(texts);
+        int[] ids = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            ids[i] = wordId(terms[i]);
+            postings[ids[i]].add(id);
+        }
+        records.put(id, ids);
+    }
+
+    /**
+     * Removes a record from the index
+     *
+     * @param id the record's id
+     * @return whether the record was indexed
+     */
+    public boolean remove(int id) {
+        int[] ids = records.get(id);
+        if (ids == null) {
+            return false;
+        }
+        for (int word : ids) {
+            postings[word].remove(id);
+        }
+        records.remove(id);
+        return true;
+    }
+
+    /**
+     * Finds the records with a word close to every word of a query, where close is within maxEdits of the query word's length
+     *
+     * @param query the words to search for
+     * @return the ids of the matching records, with the fewest edits in total first, then in ascending order. empty if the
+     *         query has no words
+     */
+    public int[] find(String query) {
+        String[] terms = terms(query);
+        if (terms.length == 0) {
+            return new int[0];
+        }
+
+        // the fewest edits to each query word so far of each record that has been close to all of them
+        MyIntHashMap<Integer> edits = null;
+        for (String term : terms) {
+            MyIntHashMap<Integer> closest = new MyIntHashMap<>();
+            int[] found = within(term, maxEdits(term.length()));
+            for (int i = 0; i < found.length; i += 2) {
+                int[] ids = postings[found[i]].toArray();
+                for (int id : ids) {
+                    Integer before = edits == null ? Integer.valueOf(0) : edits.get(id);
+                    Integer best = closest.get(id);
+                    if (before != null && (best == null || before + found[i + 1] < best)) {
+                        closest.put(id, before + found[i + 1]);
+                    }
+                }
+            }
+            edits = closest;
+        }
+
+        // sort by the edits, then the id, packed together
+        long[] order = new long[edits.size()];
+        int count = 0;
+        MyIntHashMap<Integer>.Cursor cursor = edits.cursor();
+        while (cursor.next()) {
+            order[count++] = (long) cursor.value() << 32 | (cursor.key() & 0xFFFFFFFFL);
+        }
+        Arrays.sort(order);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (int) order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Walks the sorted words for the ones within some edits of a word that some record has
+     *
+     * @return pairs of the word id and its edit distance from the word
+     */
+    private int[] within(String word, int maxEdits) {
+        int[] found = new int[16];
+        int count = 0;
+        String[] sorted = words.sorted();
+
+        // rows[i] is the row of edit distances for the first i letters of the current word, against each prefix of the word
+        // searched for. the first valid rows hold for the current word, the rest are left over from earlier words
+        int[][] rows = new int[16][];
+        rows[0] = new int[word.length() + 1];
+        for (int j = 0; j <= word.length(); j++) {
+            rows[0][j] = j;
+        }
+        String previous = "";
+        int valid = 0;
+
+        int w = 0;
+        while (w < sorted.length) {
+            String current = sorted[w];
+            int depth = Math.min(valid, commonPrefix(previous, current));
+            boolean tooFar = false;
+            while (depth < current.length() && !tooFar) {
+                if (depth + 1 == rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                }
+                if (rows[depth + 1] == null) {
+                    rows[depth + 1] = new int[word.length() + 1];
+                }
+                tooFar = nextRow(rows[depth], rows[depth + 1], word, current.charAt(depth), depth + 1) > maxEdits;
+                depth++;
+            }
+            previous = current;
+            valid = depth;
+
+            if (tooFar) {
+                // no word starting with this prefix can be close enough, so skip to the first word after all of them
+                String prefix = current.substring(0, depth);
+                String after = prefix.substring(0, depth - 1) + (char) (prefix.charAt(depth - 1) + 1);
+                w = Math.max(w + 1, words.lowerBound(after));
+                continue;
+            }
+
+            int d = rows[depth][word.length()];
+            int id = d <= maxEdits ? words.find(current) : -1;
+            if (id >= 0 && !postings[id].isEmpty()) {
+                if (count + 2 > found.length) {
+                    found = Arrays.copyOf(found, found.length * 2);
+                }
+                found[count++] = id;
+                found[count++] = d;
+            }
+            w++;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Works out the row of edit distances for one more letter of a word, against each prefix of the word searched for
+     *
+     * @param length the number of letters of the word the new row is for
+     * @return the smallest distance in the row, which no longer word with the same prefix can be closer than
+     */
+    private static int nextRow(int[] row, int[] next, String word, char c, int length) {
+        next[0] = length;
+        int smallest = length;
+        for (int j = 1; j <= word.length(); j++) {
+            int substitute = row[j - 1] + (word.charAt(j - 1) == c ? 0 : 1);
+            next[j] = Math.min(substitute, Math.min(row[j], next[j - 1]) + 1);
+            smallest = Math.min(smallest, next[j]);
+        }
+        return smallest;
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // the id of a word, giving it one if it is new
+    private int wordId(String word) {
+        int id = words.add(word);
+        if (id == postings.length) {
+            postings = Arrays.copyOf(postings, id * 2);
+        }
+        if (postings[id] == null) {
+            postings[id] = new IntSet();
+        }
+        return id;
+    }
+
+    /**
+     * @return the number of records indexed
+     */
+    public int size() {
+        return records.size();
+    }
+}
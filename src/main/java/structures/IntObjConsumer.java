@@ -0,0 +1,12 @@
+package structures;
+
+/**
+ * An interface defining an action performed on each int key / value pair of a map,
+ * so that iterating a map does not need to box its keys
+ *
+ * @param <V> the type of mapped values
+ */
+public interface IntObjConsumer<V> {
+    // performs the action on the given key and its value
+    void accept(int key, V value);
+}
@@ -0,0 +1,377 @@
+package structures;
+
+/**
+ * A set of primitive ints that adapts its representation to its contents, so that
+ * the many tiny id sets held by the stores cost only a few bytes each.
+ *
+ * - SMALL: up to SMALL_LIMIT values in an unsorted array, searched linearly
+ * - SORTED: a sorted int[], searched with a binary search
+ * - BITMAP: a long[] bitmap starting at a base offset, used once the values are
+ *   dense enough that one bit per value in the range is cheaper than an int per value
+ */
+public class IntSet {
+    // the representations the set can use
+    private static final int SMALL = 0;
+    private static final int SORTED = 1;
+    private static final int BITMAP = 2;
+
+    // the largest set stored as an unsorted array
+    private static final int SMALL_LIMIT = 8;
+
+    // the smallest set that is considered for a bitmap
+    private static final int BITMAP_MIN_SIZE = 64;
+
+    // a bitmap is used while the range is at most this many times the size (one bit vs 32 bits per value),
+    // and is dropped once the range is more than twice that, so sets near the boundary don't flip back and forth
+    private static final int BITMAP_DENSITY = 32;
+
+    private static final int[] EMPTY = new int[0];
+
+    private int mode = SMALL;
+    private int size = 0;
+
+    // values for the SMALL and SORTED representations
+    private int[] values = EMPTY;
+
+    // words and first value covered for the BITMAP representation, base is always a multiple of 64
+    private long[] bits;
+    private int base;
+
+    /**
+     * Checks whether a value is in the set
+     *
+     * @param value the value to search for
+     * @return whether or not the value is in the set
+     */
+    public boolean contains(int value) {
+        switch (mode) {
+            case SMALL:
+                return indexOfSmall(value) >= 0;
+            case SORTED:
+                return binarySearch(value) >= 0;
+            default:
+                return bitmapContains(value);
+        }
+    }
+
+    /**
+     * Adds a value to the set
+     *
+     * @param value the value to add
+     * @return true if the value was added, false if it was already in the set
+     */
+    public boolean add(int value) {
+        switch (mode) {
+            case SMALL:
+                return addSmall(value);
+            case SORTED:
+                return addSorted(value);
+            default:
+                return addBitmap(value);
+        }
+    }
+
+    /**
+     * Removes a value from the set
+     *
+     * @param value the value to remove
+     * @return true if the value was removed, false if it wasn't in the set
+     */
+    public boolean remove(int value) {
+        switch (mode) {
+            case SMALL: {
+                int index = indexOfSmall(value);
+                if (index < 0) {
+                    return false;
+                }
+                // move the last value into the gap, order doesn't matter here
+                values[index] = values[--size];
+                return true;
+            }
+            case SORTED: {
+                int index = binarySearch(value);
+                if (index < 0) {
+                    return false;
+                }
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+                return true;
+            }
+            default: {
+                if (!bitmapContains(value)) {
+                    return false;
+                }
+                int offset = value - base;
+                bits[offset >>> 6] &= ~(1L << offset);
+                size--;
+
+                // go back to a sorted array once the bitmap becomes sparse
+                if (size < BITMAP_MIN_SIZE || (long) bits.length * 64 > (long) size * BITMAP_DENSITY * 2) {
+                    toSorted();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values in the set
+     *
+     * @return the size of the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether or not the set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copies the values in the set into a new array. Values are in insertion order while
+     * the set is small and in ascending order otherwise.
+     *
+     * @return a new array holding every value in the set
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+
+        // the array representations can be copied directly
+        if (mode != BITMAP) {
+            System.arraycopy(values, 0, result, 0, size);
+            return result;
+        }
+
+        // otherwise walk the set bits of each word in order
+        int index = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long w = bits[word];
+            while (w != 0) {
+                result[index++] = base + (word << 6) + Long.numberOfTrailingZeros(w);
+                w &= w - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds a value in the unsorted small array
+     *
+     * @param value the value to search for
+     * @return the index of the value, or -1 if it isn't in the set
+     */
+    private int indexOfSmall(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Binary searches the sorted array
+     *
+     * @param value the value to search for
+     * @return the index of the value, or (-(insertion point) - 1) if it isn't in the set
+     */
+    private int binarySearch(int value) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else if (values[mid] > value) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @param value the value to check
+     * @return whether the value is set in the bitmap
+     */
+    private boolean bitmapContains(int value) {
+        long offset = (long) value - base;
+        if (offset < 0 || offset >= (long) bits.length * 64) {
+            return false;
+        }
+        return (bits[(int) (offset >>> 6)] & (1L << offset)) != 0;
+    }
+
+    /**
+     * Adds a value while the set is an unsorted array
+     *
+     * @param value the value to add
+     * @return true if the value was added, false if it was already in the set
+     */
+    private boolean addSmall(int value) {
+        if (indexOfSmall(value) >= 0) {
+            return false;
+        }
+
+        // switch to a sorted array once the small array is full
+        if (size == SMALL_LIMIT) {
+            sortSmall();
+            mode = SORTED;
+            return addSorted(value);
+        }
+
+        // grow the array slowly, most sets only ever hold one or two values
+        if (size == values.length) {
+            values = copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size++] = value;
+        return true;
+    }
+
+    /**
+     * Adds a value while the set is a sorted array
+     *
+     * @param value the value to add
+     * @return true if the value was added, false if it was already in the set
+     */
+    private boolean addSorted(int value) {
+        int index = binarySearch(value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -(index + 1);
+
+        // grow the array by half when it is full
+        if (size == values.length) {
+            values = copyOf(values, size + (size >> 1) + 1);
+        }
+
+        // shift the larger values up to make room
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+
+        // switch to a bitmap if the values are dense enough
+        if (size >= BITMAP_MIN_SIZE && isDense(values[0], values[size - 1], size)) {
+            toBitmap();
+        }
+        return true;
+    }
+
+    /**
+     * Adds a value while the set is a bitmap
+     *
+     * @param value the value to add
+     * @return true if the value was added, false if it was already in the set
+     */
+    private boolean addBitmap(int value) {
+        if (bitmapContains(value)) {
+            return false;
+        }
+
+        long offset = (long) value - base;
+        if (offset < 0 || offset >= (long) bits.length * 64) {
+            // the value is outside the bitmap, so either widen it or fall back to a sorted array
+            long first = Math.min((long) value, base);
+            long last = Math.max((long) value, (long) base + (long) bits.length * 64 - 1);
+            if (!isDense(first, last, size + 1)) {
+                toSorted();
+                return addSorted(value);
+            }
+            resizeBitmap(first, last);
+            offset = (long) value - base;
+        }
+
+        bits[(int) (offset >>> 6)] |= 1L << offset;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return whether a bitmap over [first, last] is no larger than an int per value
+     */
+    private static boolean isDense(long first, long last, int count) {
+        return last - first + 1 <= (long) count * BITMAP_DENSITY;
+    }
+
+    /**
+     * Sorts the small array in place with an insertion sort
+     */
+    private void sortSmall() {
+        for (int i = 1; i < size; i++) {
+            int value = values[i];
+            int j = i - 1;
+            while (j >= 0 && values[j] > value) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * Converts the sorted array into a bitmap covering its range
+     */
+    private void toBitmap() {
+        int[] sorted = values;
+        int count = size;
+
+        bits = new long[0];
+        base = floorToWord(sorted[0]);
+        resizeBitmap(sorted[0], sorted[count - 1]);
+        for (int i = 0; i < count; i++) {
+            int offset = sorted[i] - base;
+            bits[offset >>> 6] |= 1L << offset;
+        }
+
+        values = EMPTY;
+        mode = BITMAP;
+    }
+
+    /**
+     * Converts the bitmap into a sorted array
+     */
+    private void toSorted() {
+        int[] sorted = toArray();
+        // leave a little room so the next add doesn't copy the array again
+        values = copyOf(sorted, size + (size >> 2) + 1);
+        bits = null;
+        mode = SORTED;
+    }
+
+    /**
+     * Reallocates the bitmap so that it covers at least [first, last], keeping the
+     * values already set
+     */
+    private void resizeBitmap(long first, long last) {
+        int newBase = floorToWord(first);
+        int words = (int) (((last - newBase) >>> 6) + 1);
+        long[] newBits = new long[words];
+
+        // copy the existing words across, shifted by whole words
+        int shift = (base - newBase) >>> 6;
+        for (int i = 0; i < bits.length; i++) {
+            newBits[i + shift] = bits[i];
+        }
+
+        bits = newBits;
+        base = newBase;
+    }
+
+    /**
+     * @return the largest multiple of 64 not greater than value
+     */
+    private static int floorToWord(long value) {
+        return (int) (value & ~63L);
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        int[] result = new int[length];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+}
@@ -12,6 +12,16 @@ public class MyAVLTree<T extends Comparable<T>> {
         float extract(T item);
     }
 
+    /**
+     * an interface defining a method for visiting each item in the tree
+     * 
+     * @param <T> the type of item being visited
+     */
+    public interface Visitor<T> {
+        // called once for each item in the tree
+        void visit(T item);
+    }
+
     /**
      * Class to store each node in the AVL tree
      * 
@@ -176,10 +186,11 @@ public class MyAVLTree<T extends Comparable<T>> {
         }
 
         // recursively remove starting from the root
+        int oldSize = size;
         root = remove(root, data);
 
         // return true if the removal is successful
-        return true;
+        return size < oldSize;
     }
 
     /**
@@ -207,6 +218,10 @@ public class MyAVLTree<T extends Comparable<T>> {
         }
         // if the data is found
         else {
+            // update the size and rating once for the removed item
+            size--;
+            sum -= node.rating;
+
             // if there is at most one child node
             if (node.left == null || node.right == null) {
                 // get the other subtree value
@@ -223,8 +238,9 @@ public class MyAVLTree<T extends Comparable<T>> {
                 Node temp = minValueNode(node.right);
                 // update the node so that it stores the current data
                 node.data = temp.data;
-                // remove the minimum value from the right subtree
-                node.right = remove(node.right, temp.data);
+                node.rating = temp.rating;
+                // remove the minimum value from the right subtree, without counting it as a second removal
+                node.right = removeMin(node.right);
             }
         }
 
@@ -233,14 +249,26 @@ public class MyAVLTree<T extends Comparable<T>> {
             return null;
         }
 
-        // update the size and rating
-        size--;
-        sum -= node.rating;
-
         // balance the tree
         return balanceNode(node);
     }
 
+    /**
+     * Helper method to remove the minimum node of a subtree, used when a node with two children is replaced by its successor
+     * 
+     * @param node the root of the subtree
+     * @return the root of the subtree after removal and balancing
+     */
+    private Node removeMin(Node node) {
+        // the minimum node has no left child, so replace it with its right subtree
+        if (node.left == null){
+            return node.right;
+        }
+
+        node.left = removeMin(node.left);
+        return balanceNode(node);
+    }
+
     /**
      * Balances a given node in the AVL tree
      * 
@@ -375,6 +403,30 @@ public class MyAVLTree<T extends Comparable<T>> {
         }
     }
 
+    /**
+     * Visits every item in the AVL tree in ascending order
+     * 
+     * @param visitor the action to perform on each item
+     */
+    public void inOrder(Visitor<T> visitor){
+        inOrder(root, visitor);
+    }
+
+    /**
+     * Performs an in-order traversal of the AVL tree
+     * 
+     * @param node the current node in the traversal
+     * @param visitor the action to perform on each item
+     */
+    private void inOrder(Node node, Visitor<T> visitor){
+        if (node != null){
+            // visit the left subtree, then the current node, then the right subtree
+            inOrder(node.left, visitor);
+            visitor.visit(node.data);
+            inOrder(node.right, visitor);
+        }
+    }
+
     /**
      * @return the size of the avl tree
      */
@@ -394,4 +446,11 @@ public class MyAVLTree<T extends Comparable<T>> {
         // return the average otherwise
         return sum / size;
     }
+
+    /**
+     * @return the sum of each rating in the AVL tree
+     */
+    public float getSum(){
+        return sum;
+    }
 }
@@ -0,0 +1,389 @@
+package structures;
+
+/**
+ * An open-addressing hashmap keyed by primitive ints. Keys are never boxed and no
+ * object is allocated per mapping.
+ *
+ * Entries are stored densely, in insertion order, in the parallel keys/values arrays.
+ * A separate power-of-two probe table holds (entry index + 1) for each occupied slot,
+ * so any int (including negative numbers and 0) can be used as a key without needing
+ * a reserved "empty" key. Lookups use linear probing over the probe table, and removals
+ * use backward-shift deletion so no tombstones are left in the probe table.
+ *
+ * @param <V> the type of mapped values
+ */
+public class MyIntHashMap<V> {
+    // constant variables regarding hashmap capacity and resizing
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int MAX_CAPACITY = 1 << 29;
+
+    // marker stored in the values array for entries that have been removed
+    private static final Object REMOVED = new Object();
+
+    // dense entry storage, in insertion order
+    private int[] keys;
+    private Object[] values;
+
+    // probe table, each slot stores (entry index + 1), or 0 when the slot is empty
+    private int[] table;
+    private int mask;
+
+    // number of entry slots used (including removed entries) and number of live entries
+    private int used = 0;
+    private int size = 0;
+
+    public MyIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a hashmap presized so that the given number of entries can be inserted
+     * without resizing
+     *
+     * @param expectedSize the number of entries we expect to insert
+     */
+    public MyIntHashMap(int expectedSize) {
+        // initialise the entry arrays and the probe table
+        int capacity = Math.max(DEFAULT_CAPACITY, Math.min(expectedSize, MAX_CAPACITY));
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.table = new int[tableSizeFor(capacity)];
+        this.mask = table.length - 1;
+    }
+
+    /**
+     * Calculates the probe table size for a given entry capacity, keeping the load
+     * factor of the probe table at or below 0.5
+     *
+     * @param capacity the entry capacity
+     * @return a power of two at least twice the capacity
+     */
+    private static int tableSizeFor(int capacity) {
+        int tableSize = Integer.highestOneBit(capacity);
+        if (tableSize < capacity) {
+            tableSize <<= 1;
+        }
+        return tableSize << 1;
+    }
+
+    /**
+     * Mixes the bits of a key (murmur3 finaliser) so that sequential ids and ids with
+     * a common stride are spread evenly over the probe table
+     *
+     * @param key the key to hash
+     * @return the mixed hash
+     */
+    private static int mix(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Finds the probe table slot holding a given key
+     *
+     * @param key the key we are searching for
+     * @return the slot index, or -1 if the key is not in the hashmap
+     */
+    private int findSlot(int key) {
+        int slot = mix(key) & mask;
+
+        // linear probe until an empty slot is reached
+        while (table[slot] != 0) {
+            if (keys[table[slot] - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // return -1 if unable to find the key
+        return -1;
+    }
+
+    /**
+     * Returns the value for a given key in a hashmap
+     *
+     * @param key the key we want the value for
+     * @return the value associated with that key. returns null if unable to find.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = findSlot(key);
+
+        // return null if unable to find the key
+        if (slot < 0) {
+            return null;
+        }
+
+        return (V) values[table[slot] - 1];
+    }
+
+    /**
+     * A check to see if a given key is in the hashmap. This is O(1), rather than the
+     * linear scan of the previous entry set.
+     *
+     * @param key the key we want to find in the hashmap
+     * @return whether or not the key is in the hashmap
+     */
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Inserts a new key/pair value into the hashmap. If the key already exists then
+     * its value is replaced.
+     *
+     * @param key the key we want to insert to the hashmap
+     * @param value the value we want to insert to the hashmap
+     * @return true if the key was newly added, false if an existing value was replaced
+     */
+    public boolean put(int key, V value) {
+        int slot = mix(key) & mask;
+
+        // probe for either the key or an empty slot
+        while (table[slot] != 0) {
+            int entry = table[slot] - 1;
+            if (keys[entry] == key) {
+                // if the key already exists, update value and return false
+                values[entry] = value;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // make room in the entry arrays if they are full
+        if (used == keys.length) {
+            grow();
+            slot = mix(key) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        // append the entry and point the probe slot at it
+        keys[used] = key;
+        values[used] = value;
+        table[slot] = ++used;
+        size++;
+
+        // return true if successful insertion
+        return true;
+    }
+
+    /**
+     * A method to remove a given key from the hashmap
+     *
+     * @param key the key of the object we want to remove
+     * @return whether the removal was successful
+     */
+    public boolean remove(int key) {
+        int slot = findSlot(key);
+
+        // return false if the key isn't found
+        if (slot < 0) {
+            return false;
+        }
+
+        // mark the entry as removed so that iteration skips it
+        values[table[slot] - 1] = REMOVED;
+        size--;
+
+        // backward-shift the following probe slots so lookups never need tombstones
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != 0) {
+            int home = mix(keys[table[next] - 1]) & mask;
+
+            // move the entry into the hole if its home slot is not between the hole and its slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = 0;
+
+        return true;
+    }
+
+    /**
+     * Makes room for a new entry. If most of the entry arrays are removed entries then
+     * they are compacted in place, otherwise the capacity is doubled.
+     */
+    private void grow() {
+        int capacity = keys.length;
+
+        // only double the capacity if at least half the entries are live
+        if (size >= capacity / 2) {
+            if (capacity >= MAX_CAPACITY) {
+                throw new IllegalStateException("MyIntHashMap cannot grow beyond " + MAX_CAPACITY + " entries");
+            }
+            capacity *= 2;
+        }
+
+        rebuild(capacity);
+    }
+
+    /**
+     * Makes sure the hashmap can hold a given number of entries without resizing. This is worth calling before inserting a batch
+     * of entries of known size, so the probe table is only rebuilt once.
+     *
+     * @param expectedSize the number of entries we expect the hashmap to hold
+     */
+    public void ensureCapacity(int expectedSize) {
+        if (expectedSize > keys.length) {
+            rebuild(Math.min(expectedSize, MAX_CAPACITY));
+        }
+    }
+
+    /**
+     * Moves the live entries into entry arrays of a given capacity, dropping removed entries, and rebuilds the probe table
+     *
+     * @param capacity the new entry capacity, at least the number of live entries
+     */
+    private void rebuild(int capacity) {
+        int[] newKeys = new int[capacity];
+        Object[] newValues = new Object[capacity];
+        int[] newTable = capacity == keys.length ? table : new int[tableSizeFor(capacity)];
+
+        // copy the live entries across, in order, dropping removed ones
+        int count = 0;
+        for (int i = 0; i < used; i++) {
+            if (values[i] != REMOVED) {
+                newKeys[count] = keys[i];
+                newValues[count] = values[i];
+                count++;
+            }
+        }
+
+        keys = newKeys;
+        values = newValues;
+        used = count;
+        table = newTable;
+        mask = table.length - 1;
+
+        // rebuild the probe table from the compacted entries
+        for (int i = 0; i < table.length; i++) {
+            table[i] = 0;
+        }
+        for (int i = 0; i < used; i++) {
+            int slot = mix(keys[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Performs the given action on every key/value pair in the hashmap, in insertion
+     * order. This walks the backing arrays directly, so it doesn't allocate or repeat
+     * a lookup for each key.
+     *
+     * @param action the action to perform on each key/value pair
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(IntObjConsumer<? super V> action) {
+        for (int i = 0; i < used; i++) {
+            // skip entries that have been removed
+            if (values[i] != REMOVED) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates a cursor positioned before the first entry of the hashmap. The hashmap
+     * should not be modified while the cursor is in use.
+     *
+     * @return a new cursor over the hashmap
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A cursor over the entries of the hashmap, in insertion order. Call next() to move
+     * onto each entry, then read it with key() and value(). No objects are created
+     * while advancing the cursor.
+     */
+    public class Cursor {
+        // the index of the current entry in the backing arrays
+        private int index = -1;
+
+        /**
+         * Moves the cursor onto the next entry
+         *
+         * @return true if the cursor is on an entry, false if there are no more entries
+         */
+        public boolean next() {
+            // move forward, skipping removed entries
+            index++;
+            while (index < used && values[index] == REMOVED) {
+                index++;
+            }
+            return index < used;
+        }
+
+        /**
+         * @return the key of the current entry
+         */
+        public int key() {
+            return keys[index];
+        }
+
+        /**
+         * @return the value of the current entry
+         */
+        @SuppressWarnings("unchecked")
+        public V value() {
+            return (V) values[index];
+        }
+    }
+
+    /**
+     * Return the keys in the hashmap, in insertion order
+     *
+     * @return array of keys
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int index = 0;
+
+        // copy each live key across
+        for (int i = 0; i < used; i++) {
+            if (values[i] != REMOVED) {
+                result[index++] = keys[i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of keys in the hashmap
+     *
+     * @return the size of the hashmap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry from the hashmap, keeping the current capacity
+     */
+    public void clear() {
+        for (int i = 0; i < used; i++) {
+            values[i] = null;
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] = 0;
+        }
+        used = 0;
+        size = 0;
+    }
+}
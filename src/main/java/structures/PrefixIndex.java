@@ -0,0 +1,277 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * Completes prefixes to the highest weighted of a fixed set of texts, such as titles weighted by popularity, for suggesting
+ * searches as they are typed. Texts are normalized like FuzzyIndex words, lower cased and without accents or punctuation, and can
+ * be completed from the start of any of their words, so "hanks" completes to "Tom Hanks".
+ *
+ * The start of each text and of each of its words after the first is kept as a key, in one sorted array, so the keys starting
+ * with a prefix are together and found with two binary searches. A segment tree over the keys gives the highest weighted key in
+ * any range in O(log n) time, and the best n are taken by splitting the range around each best key in turn, keeping the pieces
+ * in a heap by their best key. This takes O(n log n + log k) time for k keys, however many keys start with the prefix.
+ */
+public class PrefixIndex {
+    // the keys in sorted order, with the text each is from
+    private final String[] keys;
+    private final int[] texts;
+    private final double[] weights;
+
+    // a segment tree of the best key in each range, where node i covers the ranges of nodes 2i and 2i + 1, and the keys are
+    // the leaves from node leaves on
+    private final int[] tree;
+    private final int leaves;
+
+    // a key and the text it is from, for sorting them together
+    private static class Key implements Comparable<Key> {
+        final String key;
+        final int text;
+
+        Key(String key, int text) {
+            this.key = key;
+            this.text = text;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int order = key.compareTo(other.key);
+            return order != 0 ? order : Integer.compare(text, other.text);
+        }
+    }
+
+    /**
+     * Builds an index over some texts
+     *
+     * @param texts the texts to complete to, which are identified by their index. null texts are left out
+     * @param weights the weight of each text, where the highest weighted complete a prefix first
+     */
+    public PrefixIndex(String[] texts, double[] weights) {
+        Key[] all = new Key[16];
+        int count = 0;
+        for (int t = 0; t < texts.length; t++) {
+            if (texts[t] == null) {
+                continue;
+            }
+
+            // the text from the start of each of its words
+            String normalized = normalize(texts[t]);
+            for (int start = 0; start < normalized.length(); start = normalized.indexOf(' ', start) + 1) {
+                if (count == all.length) {
+                    all = Arrays.copyOf(all, count * 2);
+                }
+                all[count++] = new Key(normalized.substring(start), t);
+                if (normalized.indexOf(' ', start) < 0) {
+                    break;
+                }
+            }
+        }
+        Arrays.sort(all, 0, count);
+
+        this.keys = new String[count];
+        this.texts = new int[count];
+        this.weights = new double[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = all[i].key;
+            this.texts[i] = all[i].text;
+            this.weights[i] = weights[all[i].text];
+        }
+
+        int size = 1;
+        while (size < count) {
+            size *= 2;
+        }
+        this.leaves = size;
+        this.tree = new int[2 * size];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < count; i++) {
+            tree[size + i] = i;
+        }
+        for (int node = size - 1; node >= 1; node--) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Normalizes text for matching, folding each word as FuzzyIndex does and putting a single space between words
+     *
+     * @param text the text
+     * @return the normalized text, empty if it has no words
+     */
+    public static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (String word : TokenIndex.words(text)) {
+            if (normalized.length() > 0) {
+                normalized.append(' ');
+            }
+            normalized.append(FuzzyIndex.fold(word));
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Finds the highest weighted texts with a word that starts with a prefix, where the prefix may run on over several words. A
+     * prefix ending in a space or punctuation only matches whole words, so "tom " doesn't complete to "Tomorrow".
+     *
+     * @param prefix the prefix typed so far
+     * @param n the most texts to return
+     * @return the indexes of the texts, highest weighted first, with ties going to the first in sorted order. empty if the
+     *         prefix has no words
+     */
+    public int[] complete(String prefix, int n) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || n <= 0) {
+            return new int[0];
+        }
+        if (!TokenIndex.isWordChar(prefix.charAt(prefix.length() - 1))) {
+            normalized += ' ';
+        }
+
+        // the keys starting with the prefix are those from its own position up to where the prefix followed by the largest
+        // character would go
+        int from = lowerBound(normalized);
+        int to = lowerBound(normalized + Character.MAX_VALUE);
+
+        // a heap of ranges of keys, by their best key, starting with the whole range
+        int[] heapFrom = new int[16];
+        int[] heapTo = new int[16];
+        int[] heapBest = new int[16];
+        int size = 0;
+        if (from < to) {
+            heapFrom[0] = from;
+            heapTo[0] = to;
+            heapBest[0] = best(from, to);
+            size = 1;
+        }
+
+        int[] result = new int[n];
+        int found = 0;
+        while (size > 0 && found < n) {
+            int rangeFrom = heapFrom[0];
+            int rangeTo = heapTo[0];
+            int top = heapBest[0];
+
+            // take the best range off the heap, moving the last into its place
+            size--;
+            heapFrom[0] = heapFrom[size];
+            heapTo[0] = heapTo[size];
+            heapBest[0] = heapBest[size];
+            siftDown(heapFrom, heapTo, heapBest, size);
+
+            // a text with more than one word starting with the prefix is only returned once
+            boolean repeated = false;
+            for (int i = 0; i < found && !repeated; i++) {
+                repeated = result[i] == texts[top];
+            }
+            if (!repeated) {
+                result[found++] = texts[top];
+            }
+
+            // the keys either side of the best one are the next best candidates
+            if (size + 2 > heapFrom.length) {
+                heapFrom = Arrays.copyOf(heapFrom, heapFrom.length * 2);
+                heapTo = Arrays.copyOf(heapTo, heapTo.length * 2);
+                heapBest = Arrays.copyOf(heapBest, heapBest.length * 2);
+            }
+            if (rangeFrom < top) {
+                heapFrom[size] = rangeFrom;
+                heapTo[size] = top;
+                heapBest[size] = best(rangeFrom, top);
+                siftUp(heapFrom, heapTo, heapBest, size++);
+            }
+            if (top + 1 < rangeTo) {
+                heapFrom[size] = top + 1;
+                heapTo[size] = rangeTo;
+                heapBest[size] = best(top + 1, rangeTo);
+                siftUp(heapFrom, heapTo, heapBest, size++);
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    // the best key in a range, from the segment tree
+    private int best(int from, int to) {
+        int best = -1;
+        for (int low = from + leaves, high = to + leaves; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                best = better(best, tree[low++]);
+            }
+            if ((high & 1) == 1) {
+                best = better(best, tree[--high]);
+            }
+        }
+        return best;
+    }
+
+    // the better of two keys, by weight and then position, where -1 is no key
+    private int better(int a, int b) {
+        if (a < 0 || b < 0) {
+            return a < 0 ? b : a;
+        }
+        if (weights[a] != weights[b]) {
+            return weights[a] > weights[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    private void siftUp(int[] from, int[] to, int[] best, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (better(best[i], best[parent]) != best[i]) {
+                return;
+            }
+            swap(from, to, best, i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] from, int[] to, int[] best, int size) {
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && better(best[child + 1], best[child]) == best[child + 1]) {
+                child++;
+            }
+            if (better(best[child], best[i]) != best[child]) {
+                return;
+            }
+            swap(from, to, best, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] from, int[] to, int[] best, int i, int j) {
+        int swap = from[i];
+        from[i] = from[j];
+        from[j] = swap;
+        swap = to[i];
+        to[i] = to[j];
+        to[j] = swap;
+        swap = best[i];
+        best[i] = best[j];
+        best[j] = swap;
+    }
+
+    // the first key at or after a string in sorted order
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the number of keys, one for the start of each word of each text
+     */
+    public int size() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,75 @@
+package structures;
+
+/**
+ * A least significant digit radix sort for long keys. Rather than moving the keys it returns the order they should be visited in,
+ * so that any number of parallel payload arrays can be read in sorted order without being sorted themselves.
+ */
+public class RadixSort {
+    // the keys are sorted 16 bits at a time
+    private static final int DIGIT_BITS = 16;
+    private static final int RADIX = 1 << DIGIT_BITS;
+
+    private RadixSort() {
+    }
+
+    /**
+     * Calculates the sorted order of the first length keys. The sort is stable, so equal keys keep the order they were given in.
+     * This takes O(n) time, with at most four passes over the keys, and O(n) extra space.
+     *
+     * @param keys the keys to sort, which are not modified
+     * @param length the number of keys to sort
+     * @return the indexes of the keys, in ascending (signed) key order
+     */
+    public static int[] order(long[] keys, int length) {
+        int[] order = new int[length];
+        int[] buffer = new int[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = i;
+        }
+
+        // work out which bits vary, so digits every key shares can be skipped
+        long varying = 0;
+        for (int i = 1; i < length; i++) {
+            varying |= keys[i] ^ keys[0];
+        }
+
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < 64; shift += DIGIT_BITS) {
+            if (((varying >>> shift) & (RADIX - 1)) == 0) {
+                continue;
+            }
+
+            // count each digit, flipping the sign bit so negative keys sort first
+            for (int i = 0; i < RADIX; i++) {
+                counts[i] = 0;
+            }
+            for (int i = 0; i < length; i++) {
+                counts[digit(keys[i], shift)]++;
+            }
+
+            // turn the counts into starting positions
+            int position = 0;
+            for (int i = 0; i < RADIX; i++) {
+                int count = counts[i];
+                counts[i] = position;
+                position += count;
+            }
+
+            // scatter the indexes into the buffer in order of this digit
+            for (int i = 0; i < length; i++) {
+                int index = order[i];
+                buffer[counts[digit(keys[index], shift)]++] = index;
+            }
+
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+
+        return order;
+    }
+
+    private static int digit(long key, int shift) {
+        return (int) (((key ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1));
+    }
+}
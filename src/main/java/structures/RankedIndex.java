@@ -0,0 +1,337 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * A full text index that ranks records by how well they match a query, rather than only finding the ones that match. Each
+ * record has a number of fields, such as a title and a description, each with its own boost, and is scored with BM25F: the
+ * occurrences of a word in each field are normalised by the field's length against the average for that field, weighted by
+ * the field's boost and summed, then saturated and weighted by how rare the word is across the records. A record's score for a
+ * query is the sum of its scores for each distinct query word, so records with any of the words are ranked.
+ *
+ * The best k records are found without scoring every record that has a common word. For each query word, the records with it
+ * are kept sorted by their score for that word, best first, and the lists are read a position at a time in turn. Each record
+ * seen is scored in full, and reading stops as soon as the worst of the best k kept beats the sum of the scores at the current
+ * positions, which is the most any record not yet seen could score. These sorted lists are built the first time a word is
+ * searched for, and kept until the index next changes, as adding a record changes the scores of every record.
+ *
+ * Every public method is synchronized, so records can be indexed from more than one thread.
+ */
+public class RankedIndex {
+    // how quickly repeats of a word stop adding to the score, and how much a field's length counts against it
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final double[] boosts;
+
+    // the words, and the records that have each in any field, by word id
+    private final WordTable words = new WordTable();
+    private IntSet[] postings = new IntSet[16];
+
+    // the fields of each record
+    private final MyIntHashMap<Fields> records = new MyIntHashMap<>();
+
+    // the total length of each field across the records, for the average
+    private final long[] totalLengths;
+
+    // bumped on every change, so the sorted lists built before it are known to be out of date
+    private long version = 0;
+    private long impactsVersion = -1;
+    private final MyIntHashMap<Impacts> impacts = new MyIntHashMap<>();
+
+    // the words of each field of a record, as sorted word ids and the number of times each appears
+    private static class Fields {
+        final int[][] words;
+        final int[][] counts;
+        final int[] lengths;
+
+        Fields(int numFields) {
+            this.words = new int[numFields][0];
+            this.counts = new int[numFields][0];
+            this.lengths = new int[numFields];
+        }
+
+        boolean isEmpty() {
+            for (int length : lengths) {
+                if (length > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean has(int word) {
+            for (int[] field : words) {
+                if (Arrays.binarySearch(field, word) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // the records with a word, in order of their score for it, and the most any record from each position on scores for it
+    private static class Impacts {
+        final int[] ids;
+        final double[] bounds;
+
+        Impacts(int[] ids, double[] bounds) {
+            this.ids = ids;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * Creates an empty index
+     *
+     * @param boosts the weight of each field, by field number. a word in a field with twice the boost counts as much as two
+     */
+    public RankedIndex(double... boosts) {
+        this.boosts = boosts.clone();
+        this.totalLengths = new long[boosts.length];
+    }
+
+    /**
+     * Sets the words of one field of a record, replacing the words it had before
+     *
+     * @param id the record's id
+     * @param field the field number
+     * @param fieldWords every word of the field, with repeats, as given by TokenIndex.words. null or empty clears the field
+     */
+    public synchronized void setField(int id, int field, String[] fieldWords) {
+        Fields fields = records.get(id);
+        if (fields == null) {
+            if (fieldWords == null || fieldWords.length == 0) {
+                return;
+            }
+            fields = new Fields(boosts.length);
+            records.put(id, fields);
+        }
+        int[] before = fields.words[field];
+
+        // count each word by sorting the word ids, so repeats are next to each other
+        int[] ids = new int[fieldWords == null ? 0 : fieldWords.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = wordId(fieldWords[i]);
+        }
+        Arrays.sort(ids);
+        int[] distinct = new int[ids.length];
+        int[] counts = new int[ids.length];
+        int numDistinct = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (numDistinct > 0 && distinct[numDistinct - 1] == ids[i]) {
+                counts[numDistinct - 1]++;
+            }
+            else {
+                distinct[numDistinct] = ids[i];
+                counts[numDistinct++] = 1;
+            }
+        }
+        fields.words[field] = Arrays.copyOf(distinct, numDistinct);
+        fields.counts[field] = Arrays.copyOf(counts, numDistinct);
+        totalLengths[field] += ids.length - fields.lengths[field];
+        fields.lengths[field] = ids.length;
+
+        // a word the field lost only leaves the record if no other field has it
+        for (int word : before) {
+            if (!fields.has(word)) {
+                postings[word].remove(id);
+            }
+        }
+        for (int i = 0; i < numDistinct; i++) {
+            postings[distinct[i]].add(id);
+        }
+        if (fields.isEmpty()) {
+            records.remove(id);
+        }
+        version++;
+    }
+
+    /**
+     * Removes every field of a record from the index
+     *
+     * @param id the record's id
+     * @return whether the record was indexed
+     */
+    public synchronized boolean remove(int id) {
+        Fields fields = records.get(id);
+        if (fields == null) {
+            return false;
+        }
+        for (int field = 0; field < boosts.length; field++) {
+            for (int word : fields.words[field]) {
+                postings[word].remove(id);
+            }
+            totalLengths[field] -= fields.lengths[field];
+        }
+        records.remove(id);
+        version++;
+        return true;
+    }
+
+    /**
+     * Finds the best matching records for a query
+     *
+     * @param queryWords the words of the query, as given by TokenIndex.tokens. words that aren't indexed are ignored
+     * @param k the most records to return
+     * @return the ids of the best k records with any of the words, best first, with ties going to the smaller id
+     */
+    public synchronized int[] search(String[] queryWords, int k) {
+        int[] terms = termsOf(queryWords);
+        TopK best = new TopK(k);
+        if (terms.length == 0 || k <= 0) {
+            return best.result();
+        }
+
+        Impacts[] lists = new Impacts[terms.length];
+        for (int t = 0; t < terms.length; t++) {
+            lists[t] = impactsOf(terms[t]);
+        }
+
+        IntSet seen = new IntSet();
+        for (int position = 0; ; position++) {
+            // the most a record not seen yet could score, from the score for each word at the current position
+            double threshold = 0;
+            boolean more = false;
+            for (Impacts list : lists) {
+                if (position < list.ids.length) {
+                    threshold += list.bounds[position];
+                    more = true;
+                }
+            }
+            if (!more || best.worstKeptScore() > threshold) {
+                break;
+            }
+
+            for (Impacts list : lists) {
+                if (position < list.ids.length && seen.add(list.ids[position])) {
+                    int id = list.ids[position];
+                    best.offer(id, score(id, terms));
+                }
+            }
+        }
+        return best.result();
+    }
+
+    /**
+     * Scores a record against a query, as search ranks it
+     *
+     * @param id the record's id
+     * @param queryWords the words of the query, as given by TokenIndex.tokens
+     * @return the record's score, or 0 if it has none of the words or isn't indexed
+     */
+    public synchronized double score(int id, String[] queryWords) {
+        return score(id, termsOf(queryWords));
+    }
+
+    // sums the scores of each word, in the same order the threshold in search sums them, so a score never rounds above it
+    private double score(int id, int[] terms) {
+        Fields fields = records.get(id);
+        if (fields == null) {
+            return 0;
+        }
+        double score = 0;
+        for (int term : terms) {
+            score += termScore(fields, term, idf(term));
+        }
+        return score;
+    }
+
+    // the BM25F score of a record's fields for a word
+    private double termScore(Fields fields, int term, double idf) {
+        double weighted = 0;
+        for (int field = 0; field < boosts.length; field++) {
+            int at = Arrays.binarySearch(fields.words[field], term);
+            if (at >= 0) {
+                double average = (double) totalLengths[field] / records.size();
+                weighted += boosts[field] * fields.counts[field][at] / (1 - B + B * fields.lengths[field] / average);
+            }
+        }
+        return idf * weighted * (K1 + 1) / (K1 + weighted);
+    }
+
+    // how rare a word is, which is higher the fewer records have it
+    private double idf(int term) {
+        double withTerm = postings[term].size();
+        return Math.log(1 + (records.size() - withTerm + 0.5) / (withTerm + 0.5));
+    }
+
+    // the ids of the distinct indexed words of a query, in the order given
+    private int[] termsOf(String[] queryWords) {
+        int[] terms = new int[queryWords.length];
+        int count = 0;
+        for (String word : queryWords) {
+            int term = words.find(word);
+            boolean repeated = term < 0;
+            for (int j = 0; j < count && !repeated; j++) {
+                repeated = terms[j] == term;
+            }
+            if (!repeated && !postings[term].isEmpty()) {
+                terms[count++] = term;
+            }
+        }
+        return Arrays.copyOf(terms, count);
+    }
+
+    /**
+     * Gets the records with a word in order of their score for it, building the list if the index has changed since it was
+     * last built
+     */
+    private Impacts impactsOf(int term) {
+        if (impactsVersion != version) {
+            impacts.clear();
+            impactsVersion = version;
+        }
+        Impacts list = impacts.get(term);
+        if (list != null) {
+            return list;
+        }
+
+        // sort by score, best first, with the float bits of the score above the index. scores are never negative, so their bits
+        // sort in the same order they do. floats of close scores can be equal, so the bound at each position is the most of the
+        // exact scores from there on
+        int[] ids = postings[term].toArray();
+        double idf = idf(term);
+        double[] scores = new double[ids.length];
+        long[] order = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            scores[i] = termScore(records.get(ids[i]), term, idf);
+            order[i] = (long) (Integer.MAX_VALUE - Float.floatToIntBits((float) scores[i])) << 32 | i;
+        }
+        Arrays.sort(order);
+
+        int[] sortedIDs = new int[ids.length];
+        double[] bounds = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int from = (int) order[i];
+            sortedIDs[i] = ids[from];
+            bounds[i] = scores[from];
+        }
+        for (int i = ids.length - 2; i >= 0; i--) {
+            bounds[i] = Math.max(bounds[i], bounds[i + 1]);
+        }
+
+        list = new Impacts(sortedIDs, bounds);
+        impacts.put(term, list);
+        return list;
+    }
+
+    // the id of a word, giving it one if it is new
+    private int wordId(String word) {
+        int id = words.add(word);
+        if (id == postings.length) {
+            postings = Arrays.copyOf(postings, id * 2);
+        }
+        if (postings[id] == null) {
+            postings[id] = new IntSet();
+        }
+        return id;
+    }
+
+    /**
+     * @return the number of records with at least one word indexed
+     */
+    public synchronized int size() {
+        return records.size();
+    }
+}
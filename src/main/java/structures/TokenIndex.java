@@ -0,0 +1,334 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * An inverted index from the words in some text to the ids of the records they appear in. Words are runs of letters and digits,
+ * lower cased a character at a time, and each one maps to the set of ids it appears in. Records are indexed and unindexed one at a
+ * time, so the index is kept up to date as records are added and removed.
+ *
+ * Lookups give the candidate records for a search, which the caller checks against the text itself. A search for a substring only
+ * needs whole words for the words in the middle of it, so the word at each end is matched as the end or start of a word, which
+ * makes the candidates a superset of the records that contain the substring. The cost of a lookup depends on the number of words
+ * and records it matches rather than the number of records indexed, apart from matching the ends of words, which walks the words.
+ */
+public class TokenIndex {
+    // the distinct words, and the records each appears in by word id
+    private final WordTable words = new WordTable();
+    private IntSet[] postings = new IntSet[16];
+
+    // the word ids of each record, so a record can be unindexed without its text
+    private final MyIntHashMap<int[]> records = new MyIntHashMap<>();
+
+    /**
+     * Splits text into its distinct words, lower cased, in the order they first appear
+     *
+     * @param texts the text to split, null text is skipped
+     * @return the distinct words
+     */
+    public static String[] tokens(String... texts) {
+        String[] found = new String[8];
+        int count = 0;
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            int i = 0;
+            while (i < text.length()) {
+                if (!isWordChar(text.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < text.length() && isWordChar(text.charAt(i))) {
+                    i++;
+                }
+                String word = fold(text, start, i);
+
+                // texts are short, so a linear check for repeats is cheaper than hashing
+                boolean repeated = false;
+                for (int j = 0; j < count && !repeated; j++) {
+                    repeated = found[j].equals(word);
+                }
+                if (!repeated) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = word;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Splits text into every one of its words, lower cased, in order, keeping repeated words
+     *
+     * @param text the text to split, may be null
+     * @return the words
+     */
+    public static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String[] found = new String[8];
+        int count = 0;
+        int i = 0;
+        while (i < text.length()) {
+            if (!isWordChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && isWordChar(text.charAt(i))) {
+                i++;
+            }
+            if (count == found.length) {
+                found = Arrays.copyOf(found, count * 2);
+            }
+            found[count++] = fold(text, start, i);
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Checks whether a text contains some words, in order and ignoring case, starting and ending on word boundaries
+     *
+     * @param text the text to search, may be null
+     * @param phrase the words to search for
+     * @return whether the text contains the phrase
+     */
+    public static boolean containsWords(String text, String phrase) {
+        if (text == null) {
+            return false;
+        }
+        String foldedText = fold(text, 0, text.length());
+        String foldedPhrase = fold(phrase, 0, phrase.length());
+        int from = foldedText.indexOf(foldedPhrase);
+        while (from >= 0) {
+            int end = from + foldedPhrase.length();
+            boolean startsWord = from == 0 || !isWordChar(text.charAt(from - 1)) || !isWordChar(phrase.charAt(0));
+            boolean endsWord = end == text.length() || !isWordChar(text.charAt(end)) || !isWordChar(phrase.charAt(phrase.length() - 1));
+            if (startsWord && endsWord) {
+                return true;
+            }
+            from = foldedText.indexOf(foldedPhrase, from + 1);
+        }
+        return false;
+    }
+
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    // lower cases a character at a time, so the folded text lines up with the original
+    static String fold(String text, int start, int end) {
+        char[] folded = new char[end - start];
+        for (int i = start; i < end; i++) {
+            folded[i - start] = Character.toLowerCase(text.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    /**
+     * Indexes a record under some words, replacing any words it was indexed under before
+     *
+     * @param id the record's id
+     * @param tokens the record's words, as given by tokens or words. repeated words are only indexed once
+     */
+    public void add(int id, String[] tokens) {
+        remove(id);
+        int[] ids = new int[tokens.length];
+        int count = 0;
+        for (String token : tokens) {
+            int word = wordId(token);
+            if (postings[word].add(id)) {
+                ids[count++] = word;
+            }
+        }
+        records.put(id, count == ids.length ? ids : Arrays.copyOf(ids, count));
+    }
+
+    /**
+     * Removes a record from the index
+     *
+     * @param id the record's id
+     * @return whether the record was indexed
+     */
+    public boolean remove(int id) {
+        int[] ids = records.get(id);
+        if (ids == null) {
+            return false;
+        }
+        for (int word : ids) {
+            postings[word].remove(id);
+        }
+        records.remove(id);
+        return true;
+    }
+
+    /**
+     * @param id the record's id
+     * @return whether the record is indexed
+     */
+    public boolean contains(int id) {
+        return records.containsKey(id);
+    }
+
+    /**
+     * Finds the records that may contain a substring. Every record whose text contains it, with the same case, is included.
+     *
+     * @param query the substring
+     * @return the ids of the candidate records, in ascending order, or null if the query has no letters or digits to narrow the
+     *         records down by, in which case any record may contain it
+     */
+    public int[] candidates(String query) {
+        return lookup(query, false);
+    }
+
+    /**
+     * Finds the records that contain every word of a phrase as a whole word, ignoring case. The words may be in any order or
+     * apart, so containsWords is needed to check for the phrase itself.
+     *
+     * @param phrase the words to search for
+     * @return the ids of the records, in ascending order, or null if the phrase has no words
+     */
+    public int[] withWords(String phrase) {
+        return lookup(phrase, true);
+    }
+
+    private int[] lookup(String query, boolean wholeWords) {
+        int[] result = null;
+        int i = 0;
+        while (i < query.length()) {
+            if (!isWordChar(query.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < query.length() && isWordChar(query.charAt(i))) {
+                i++;
+            }
+            String word = fold(query, start, i);
+
+            // a word cut off by either end of the query may only be part of a word in the text
+            boolean wholeStart = wholeWords || start > 0;
+            boolean wholeEnd = wholeWords || i < query.length();
+            int[] matches = wholeStart && wholeEnd ? postingsOf(word) : partialPostingsOf(word, wholeStart, wholeEnd);
+            if (matches == null) {
+                // too common to narrow the records down by
+                continue;
+            }
+
+            result = result == null ? matches : intersect(result, matches);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // the records a word appears in, sorted
+    private int[] postingsOf(String word) {
+        int id = words.find(word);
+        if (id < 0) {
+            return new int[0];
+        }
+        int[] ids = postings[id].toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Finds the records of every word that starts with, ends with or contains a part of a word
+     *
+     * @return the records, sorted, or null if the words have more records between them than are indexed, when the part is so
+     *         common that it would take longer to gather the records than to check every one
+     */
+    private int[] partialPostingsOf(String part, boolean wholeStart, boolean wholeEnd) {
+        // gather the records of each matching word, then sort them and drop the repeats
+        int[] ids = new int[16];
+        int count = 0;
+        if (wholeStart) {
+            // the words starting with the part are together in sorted order
+            String[] sorted = words.sorted();
+            for (int w = words.lowerBound(part); w < sorted.length && sorted[w].startsWith(part); w++) {
+                IntSet records = postings[words.find(sorted[w])];
+                if (count + records.size() > size()) {
+                    return null;
+                }
+                ids = append(ids, count, records.toArray());
+                count += records.size();
+            }
+        }
+        else {
+            for (int w = 0; w < words.size(); w++) {
+                if (wholeEnd ? words.get(w).endsWith(part) : words.get(w).contains(part)) {
+                    if (count + postings[w].size() > size()) {
+                        return null;
+                    }
+                    ids = append(ids, count, postings[w].toArray());
+                    count += postings[w].size();
+                }
+            }
+        }
+
+        Arrays.sort(ids, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    // copies values onto the end of the first count of an array, growing it if needed
+    private static int[] append(int[] array, int count, int[] values) {
+        if (count + values.length > array.length) {
+            array = Arrays.copyOf(array, Math.max(array.length * 2, count + values.length));
+        }
+        System.arraycopy(values, 0, array, count, values.length);
+        return array;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] both = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            }
+            else if (a[i] > b[j]) {
+                j++;
+            }
+            else {
+                both[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, count);
+    }
+
+    // the id of a word, giving it one if it is new. words keep their id once given one, even once no record has them
+    private int wordId(String word) {
+        int id = words.add(word);
+        if (id == postings.length) {
+            postings = Arrays.copyOf(postings, id * 2);
+        }
+        if (postings[id] == null) {
+            postings[id] = new IntSet();
+        }
+        return id;
+    }
+
+    /**
+     * @return the number of records indexed
+     */
+    public int size() {
+        return records.size();
+    }
+}
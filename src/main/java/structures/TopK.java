@@ -0,0 +1,255 @@
+package structures;
+
+/**
+ * Selects the k best (key, score) candidates from a stream of offers, working purely
+ * on primitive arrays so no object is created per candidate.
+ *
+ * A candidate is better than another if it has a higher score, and on equal scores
+ * if it has a smaller key, so the result is deterministic regardless of the order
+ * candidates are offered in.
+ *
+ * For small k, candidates are kept in a bounded min-heap of size k whose root is the
+ * worst candidate kept so far, giving O(n log k) time. For large k, candidates are
+ * buffered and the buffer is cut back down to the best k with an iterative quickselect
+ * every time it reaches 2k entries, giving O(n) expected time with O(k) space.
+ */
+public class TopK {
+    // the largest k that uses the bounded heap, above this quickselect is used
+    private static final int HEAP_LIMIT = 256;
+
+    private final int k;
+    private final boolean useHeap;
+
+    // the candidates kept so far, as parallel arrays
+    private int[] keys;
+    private double[] scores;
+    private int count = 0;
+
+    /**
+     * Creates a selector for the k best candidates
+     *
+     * @param k the number of candidates to keep. values below 0 are treated as 0
+     */
+    public TopK(int k) {
+        this.k = Math.max(0, k);
+        this.useHeap = this.k <= HEAP_LIMIT;
+
+        // the heap never holds more than k entries, the buffer holds up to 2k
+        int capacity = useHeap ? this.k : Math.min(2 * this.k, 1024);
+        this.keys = new int[capacity];
+        this.scores = new double[capacity];
+    }
+
+    /**
+     * Offers a candidate to the selector
+     *
+     * @param key the key of the candidate, such as a movie or user id
+     * @param score the score of the candidate, higher is better
+     */
+    public void offer(int key, double score) {
+        if (k == 0) {
+            return;
+        }
+
+        if (useHeap) {
+            if (count < k) {
+                // the heap isn't full yet, so add the candidate and sift it up
+                keys[count] = key;
+                scores[count] = score;
+                siftUp(count++);
+            } else if (isBetter(key, score, keys[0], scores[0])) {
+                // replace the worst candidate kept and restore the heap
+                keys[0] = key;
+                scores[0] = score;
+                siftDown(0, count);
+            }
+            return;
+        }
+
+        // grow the buffer up to 2k entries
+        if (count == keys.length) {
+            if (count >= 2 * k) {
+                // cut the buffer back down to the best k
+                select(k);
+                count = k;
+            } else {
+                int capacity = (int) Math.min(2L * k, 2L * keys.length);
+                keys = copyOf(keys, capacity);
+                scores = copyOf(scores, capacity);
+            }
+        }
+        keys[count] = key;
+        scores[count] = score;
+        count++;
+    }
+
+    /**
+     * Gets the score a new candidate has to at least match to be kept, for callers that can stop offering once nothing left could
+     * beat it. This is only tracked by the heap, so is negative infinity until k candidates have been offered, or for a large k.
+     *
+     * @return the score of the worst candidate kept
+     */
+    public double worstKeptScore() {
+        return useHeap && k > 0 && count == k ? scores[0] : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns the keys of the best candidates offered, best first. This should only be
+     * called once, after every candidate has been offered.
+     *
+     * @return an array of at most k keys, ordered from best to worst
+     */
+    public int[] result() {
+        // cut the buffer down to the best k, the heap already holds at most k
+        if (!useHeap) {
+            if (count > k) {
+                select(k);
+                count = k;
+            }
+            heapify();
+        }
+
+        // repeatedly move the worst remaining candidate to the end of the heap
+        for (int end = count - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(keys, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * @return whether candidate a is better than candidate b
+     */
+    private static boolean isBetter(int keyA, double scoreA, int keyB, double scoreB) {
+        int compare = Double.compare(scoreA, scoreB);
+        if (compare != 0) {
+            return compare > 0;
+        }
+        return keyA < keyB;
+    }
+
+    /**
+     * @return whether the candidate at index i is better than the candidate at index j
+     */
+    private boolean isBetter(int i, int j) {
+        return isBetter(keys[i], scores[i], keys[j], scores[j]);
+    }
+
+    /**
+     * Moves the candidate at a given index up the min-heap until its parent is worse
+     *
+     * @param index the index of the candidate
+     */
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isBetter(parent, index)) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    /**
+     * Moves the candidate at a given index down the min-heap until both children are better
+     *
+     * @param index the index of the candidate
+     * @param end the number of entries in the heap
+     */
+    private void siftDown(int index, int end) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < end && isBetter(worst, left)) {
+                worst = left;
+            }
+            if (right < end && isBetter(worst, right)) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    /**
+     * Rearranges the buffer into a min-heap
+     */
+    private void heapify() {
+        for (int i = (count >>> 1) - 1; i >= 0; i--) {
+            siftDown(i, count);
+        }
+    }
+
+    /**
+     * Partially orders the buffer so that the best n candidates are in [0, n), using an
+     * iterative quickselect with a median of three pivot
+     *
+     * @param n the number of candidates to move to the front
+     */
+    private void select(int n) {
+        int low = 0;
+        int high = count - 1;
+
+        while (low < high) {
+            // put the median of the first, middle and last candidates at the end as the pivot
+            int mid = (low + high) >>> 1;
+            if (isBetter(mid, low)) {
+                swap(mid, low);
+            }
+            if (isBetter(high, low)) {
+                swap(high, low);
+            }
+            if (isBetter(mid, high)) {
+                swap(mid, high);
+            }
+
+            // move every candidate better than the pivot to the front
+            int store = low;
+            for (int i = low; i < high; i++) {
+                if (isBetter(i, high)) {
+                    swap(i, store++);
+                }
+            }
+            swap(store, high);
+
+            // only carry on in the side holding the boundary
+            if (store == n - 1 || store == n) {
+                return;
+            } else if (store < n) {
+                low = store + 1;
+            } else {
+                high = store - 1;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        int key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        int[] result = new int[length];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+
+    private static double[] copyOf(double[] array, int length) {
+        double[] result = new double[length];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+}
@@ -0,0 +1,150 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * A substring index over short pieces of text, such as names, keyed by id. Every run of three characters (a trigram) in a text
+ * maps to the set of ids whose text contains it, so any substring of three or more characters can only be in the texts that
+ * contain every one of its trigrams. A search intersects those sets, starting from the smallest, and then checks each candidate
+ * with String.contains, so the results are exactly the texts that contain the search term, with the same case.
+ *
+ * Searches for fewer than three characters have no trigram to look up, so every text is checked. Trigrams are packed into an int
+ * key, which is exact for characters below 1024 and may merge the trigrams of other characters, which only adds candidates.
+ */
+public class TrigramIndex {
+    private static final int GRAM = 3;
+
+    // the ids of the texts containing each trigram
+    private final MyIntHashMap<IntSet> postings = new MyIntHashMap<>();
+
+    // the text of each id, to check candidates against
+    private final MyIntHashMap<String> texts = new MyIntHashMap<>();
+
+    /**
+     * Indexes the text of an id, replacing any text it had before
+     *
+     * @param id the id
+     * @param text the text, which can't be searched for if it is null
+     */
+    public void add(int id, String text) {
+        remove(id);
+        if (text == null) {
+            return;
+        }
+        texts.put(id, text);
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            int key = key(text, i);
+            IntSet ids = postings.get(key);
+            if (ids == null) {
+                ids = new IntSet();
+                postings.put(key, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Removes an id and its text from the index
+     *
+     * @param id the id
+     * @return whether the id was indexed
+     */
+    public boolean remove(int id) {
+        String text = texts.get(id);
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            int key = key(text, i);
+            IntSet ids = postings.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+        texts.remove(id);
+        return true;
+    }
+
+    /**
+     * Finds the ids whose text contains a search term
+     *
+     * @param term the search term
+     * @return the ids, in ascending order
+     */
+    public int[] find(String term) {
+        if (term.length() < GRAM) {
+            return scan(term);
+        }
+
+        // the set of each distinct trigram in the term, any missing trigram means nothing can match
+        int count = term.length() - GRAM + 1;
+        IntSet[] sets = new IntSet[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            IntSet ids = postings.get(key(term, i));
+            if (ids == null) {
+                return new int[0];
+            }
+            boolean repeated = false;
+            for (int j = 0; j < distinct && !repeated; j++) {
+                repeated = sets[j] == ids;
+            }
+            if (!repeated) {
+                sets[distinct++] = ids;
+            }
+        }
+
+        // walk the smallest set, checking each id against the others before checking its text
+        int smallest = 0;
+        for (int j = 1; j < distinct; j++) {
+            if (sets[j].size() < sets[smallest].size()) {
+                smallest = j;
+            }
+        }
+        int[] candidates = sets[smallest].toArray();
+        int found = 0;
+        for (int id : candidates) {
+            boolean inAll = true;
+            for (int j = 0; j < distinct && inAll; j++) {
+                inAll = j == smallest || sets[j].contains(id);
+            }
+            if (inAll && texts.get(id).contains(term)) {
+                candidates[found++] = id;
+            }
+        }
+
+        int[] result = Arrays.copyOf(candidates, found);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // checks every text, for terms too short to have a trigram
+    private int[] scan(String term) {
+        int[] result = new int[texts.size()];
+        int found = 0;
+        MyIntHashMap<String>.Cursor cursor = texts.cursor();
+        while (cursor.next()) {
+            if (cursor.value().contains(term)) {
+                result[found++] = cursor.key();
+            }
+        }
+        result = Arrays.copyOf(result, found);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // packs the trigram starting at an index into an int, ten bits per character
+    private static int key(String text, int start) {
+        return (text.charAt(start) << 20) ^ (text.charAt(start + 1) << 10) ^ text.charAt(start + 2);
+    }
+
+    /**
+     * @return the number of ids indexed
+     */
+    public int size() {
+        return texts.size();
+    }
+}
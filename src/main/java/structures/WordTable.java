@@ -0,0 +1,113 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * A dictionary that gives each distinct word a dense id, from 0 up, for the word indexes to keep their postings in arrays. Words
+ * keep their id once given one.
+ */
+class WordTable {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // the words, by id
+    private String[] words = new String[DEFAULT_CAPACITY];
+    private int size = 0;
+
+    // probe table of (word id + 1) for each word, or 0 for an empty slot
+    private int[] table = new int[DEFAULT_CAPACITY * 2];
+
+    // the words in sorted order, for finding the words that start with a prefix. rebuilt when words have been added since
+    private String[] sorted = new String[0];
+
+    /**
+     * @return the id of a word, or -1 if it has never been given one
+     */
+    int find(String word) {
+        int mask = table.length - 1;
+        for (int slot = mix(word.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (words[table[slot] - 1].equals(word)) {
+                return table[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the id of a word, giving it the next id if it is new
+     */
+    int add(String word) {
+        int id = find(word);
+        if (id >= 0) {
+            return id;
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+            table = new int[table.length * 2];
+            for (int i = 0; i < size; i++) {
+                insert(i);
+            }
+        }
+        id = size++;
+        words[id] = word;
+        insert(id);
+        return id;
+    }
+
+    private void insert(int id) {
+        int mask = table.length - 1;
+        int slot = mix(words[id].hashCode()) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the word with an id
+     */
+    String get(int id) {
+        return words[id];
+    }
+
+    /**
+     * @return the number of words, which is one more than the largest id
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return every word, in sorted order. the array is shared, so must not be changed
+     */
+    String[] sorted() {
+        if (sorted.length != size) {
+            sorted = Arrays.copyOf(words, size);
+            Arrays.sort(sorted);
+        }
+        return sorted;
+    }
+
+    /**
+     * @return the first index of the sorted words at or after a word
+     */
+    int lowerBound(String word) {
+        String[] sorted = sorted();
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(word) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
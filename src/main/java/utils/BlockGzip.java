@@ -0,0 +1,438 @@
+package utils;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads gzip compressed csv files, decompressing them on a thread of their own so that decompressing overlaps with parsing, and
+ * without an uncompressed copy of the file ever being written out.
+ *
+ * A gzip file can be made of many members one after another. Members normally have to be decompressed in order, as where one
+ * ends is only known once it has been decompressed, but blocked gzip files (BGZF, as written by bgzip, or by Output below) note
+ * each member's compressed size in its header. Their members are read whole and decompressed in parallel on the common pool,
+ * and handed back in order. Any other gzip file is decompressed in order with GZIPInputStream.
+ */
+public class BlockGzip {
+    // how much of a file decompressed in order is handed over at a time
+    private static final int BLOCK_BYTES = 1 << 16;
+
+    // the most members read ahead of the parser, being decompressed or waiting
+    private static final int MEMBERS_AHEAD = 4 * Runtime.getRuntime().availableProcessors() + 4;
+
+    // the most uncompressed bytes a member written by Output holds, which keeps its compressed size within its 16 bit field
+    private static final int OUTPUT_MEMBER_BYTES = 0xff00;
+
+    // the header flags of a gzip member
+    private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+    private BlockGzip() {
+    }
+
+    /**
+     * @param file the file to check
+     * @return whether the file starts like a gzip file, whatever it is named
+     */
+    public static boolean isGzip(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(2);
+            channel.read(magic, 0);
+            return magic.position() == 2 && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts decompressing a gzip file
+     *
+     * @param file the file
+     * @return the uncompressed bytes of the file
+     * @throws IOException if the file can't be opened
+     */
+    public static Decompressed open(File file) throws IOException {
+        return new Decompressed(file);
+    }
+
+    // a decompressed piece of the file, and how far through the compressed file it ends
+    private static class Block {
+        final byte[] bytes;
+        final int length;
+        final long compressedEnd;
+
+        Block(byte[] bytes, int length, long compressedEnd) {
+            this.bytes = bytes;
+            this.length = length;
+            this.compressedEnd = compressedEnd;
+        }
+    }
+
+    // marks the end of the file in the queue
+    private static final Block END = new Block(new byte[0], 0, 0);
+
+    /**
+     * The uncompressed bytes of a gzip file, as they are decompressed. Only one thread should read from it.
+     */
+    public static class Decompressed extends InputStream {
+        private final File file;
+        private final FileChannel channel;
+        private final ArrayBlockingQueue<CompletableFuture<Block>> queue = new ArrayBlockingQueue<>(MEMBERS_AHEAD);
+        private final Thread thread;
+        private volatile boolean closed = false;
+
+        private Block block = null;
+        private int position = 0;
+        private long compressedRead = 0;
+        private boolean finished = false;
+
+        Decompressed(File file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.thread = new Thread(this::decompress, "gunzip-" + file.getName());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * @return how many bytes of the compressed file have been decompressed and read through, for measuring progress
+         */
+        public long compressedRead() {
+            return compressedRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (block == null || position == block.length) {
+                if (finished || !nextBlock()) {
+                    return -1;
+                }
+            }
+            int read = Math.min(length, block.length - position);
+            System.arraycopy(block.bytes, position, bytes, offset, read);
+            position += read;
+            return read;
+        }
+
+        private boolean nextBlock() throws IOException {
+            try {
+                // when read from a pool's thread, the pool is told it is waiting so that it can run other work meanwhile
+                TakeBlocker blocker = new TakeBlocker(queue);
+                ForkJoinPool.managedBlock(blocker);
+                Block next = blocker.taken.get();
+                if (next == END) {
+                    finished = true;
+                    return false;
+                }
+                block = next;
+                position = 0;
+                compressedRead = next.compressedEnd;
+                return true;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decompressing " + file.getPath());
+            }
+            catch (ExecutionException e) {
+                finished = true;
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException("Cannot decompress " + file.getPath() + ": " + cause.getMessage(), cause);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            thread.interrupt();
+            channel.close();
+        }
+
+        // runs on the stream's own thread, queueing each member as it is read
+        private void decompress() {
+            try {
+                try {
+                    long size = channel.size();
+                    long offset = 0;
+                    while (offset < size) {
+                        int memberSize = blockedMemberSize(offset);
+                        if (memberSize < 0) {
+                            // not blocked, so the rest of the file has to be decompressed in order
+                            decompressInOrder(offset);
+                            break;
+                        }
+                        byte[] member = new byte[memberSize];
+                        CsvChunkReader.read(channel, ByteBuffer.wrap(member), offset);
+                        long memberEnd = offset + memberSize;
+                        queue.put(CompletableFuture.supplyAsync(() -> inflate(member, memberEnd), ForkJoinPool.commonPool()));
+                        offset = memberEnd;
+                    }
+                    queue.put(CompletableFuture.completedFuture(END));
+                }
+                catch (IOException | RuntimeException e) {
+                    CompletableFuture<Block> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(closed ? new IOException(file.getPath() + " was closed") : e);
+                    queue.put(failed);
+                }
+            }
+            catch (InterruptedException e) {
+                // closed before the whole file was read, so nothing is waiting for the rest
+            }
+        }
+
+        private void decompressInOrder(long offset) throws IOException, InterruptedException {
+            channel.position(offset);
+            InputStream compressed = Channels.newInputStream(channel);
+            try (GZIPInputStream input = new GZIPInputStream(compressed, BLOCK_BYTES)) {
+                while (!closed) {
+                    byte[] bytes = new byte[BLOCK_BYTES];
+                    int length = 0;
+                    int read;
+                    while (length < bytes.length && (read = input.read(bytes, length, bytes.length - length)) > 0) {
+                        length += read;
+                    }
+                    if (length == 0) {
+                        return;
+                    }
+                    // the position runs ahead of what has been decompressed by at most the inflater's buffer
+                    queue.put(CompletableFuture.completedFuture(new Block(bytes, length, channel.position())));
+                }
+            }
+        }
+
+        /**
+         * Reads the header of the member starting at an offset
+         *
+         * @return the member's compressed size from its BGZF field, or -1 if it doesn't have one
+         */
+        private int blockedMemberSize(long offset) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            channel.read(header, offset);
+            if (header.position() < 12 || (header.get(0) & 0xff) != 0x1f || (header.get(1) & 0xff) != 0x8b) {
+                if (offset == 0) {
+                    throw new IOException(file.getPath() + " is not a gzip file");
+                }
+                // trailing bytes after the last member are left for GZIPInputStream to decide about
+                return -1;
+            }
+            if ((header.get(3) & FEXTRA) == 0) {
+                return -1;
+            }
+            int extraLength = (header.get(10) & 0xff) | (header.get(11) & 0xff) << 8;
+            ByteBuffer extra = ByteBuffer.allocate(extraLength);
+            channel.read(extra, offset + 12);
+
+            // the extra field is a list of subfields, two id bytes then a 16 bit length, and BGZF's is BC with the size less one
+            for (int i = 0; i + 4 <= extra.position(); ) {
+                int subfieldLength = (extra.get(i + 2) & 0xff) | (extra.get(i + 3) & 0xff) << 8;
+                if (extra.get(i) == 'B' && extra.get(i + 1) == 'C' && subfieldLength == 2 && i + 6 <= extra.position()) {
+                    return ((extra.get(i + 4) & 0xff) | (extra.get(i + 5) & 0xff) << 8) + 1;
+                }
+                i += 4 + subfieldLength;
+            }
+            return -1;
+        }
+
+        // decompresses a whole member and checks it against its trailer. Runs on the common pool.
+        private Block inflate(byte[] member, long memberEnd) {
+            try {
+                int flags = member[3] & 0xff;
+                int start = 10;
+                if ((flags & FEXTRA) != 0) {
+                    start += 2 + ((member[10] & 0xff) | (member[11] & 0xff) << 8);
+                }
+                if ((flags & FNAME) != 0) {
+                    while (member[start++] != 0) {
+                        // skip the file name
+                    }
+                }
+                if ((flags & FCOMMENT) != 0) {
+                    while (member[start++] != 0) {
+                        // skip the comment
+                    }
+                }
+                if ((flags & FHCRC) != 0) {
+                    start += 2;
+                }
+
+                int trailer = member.length - 8;
+                long crc = littleEndianInt(member, trailer) & 0xffffffffL;
+                int length = littleEndianInt(member, trailer + 4);
+                byte[] bytes = new byte[length];
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(member, start, trailer - start);
+                    int inflated = 0;
+                    while (inflated < length && !inflater.finished()) {
+                        int n = inflater.inflate(bytes, inflated, length - inflated);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        inflated += n;
+                    }
+                    if (inflated != length) {
+                        throw new IOException("Corrupt gzip member ending at byte " + memberEnd + " of " + file.getPath());
+                    }
+                }
+                finally {
+                    inflater.end();
+                }
+
+                CRC32 check = new CRC32();
+                check.update(bytes, 0, length);
+                if (check.getValue() != crc) {
+                    throw new IOException("Corrupt gzip member ending at byte " + memberEnd + " of " + file.getPath() + " (CRC mismatch)");
+                }
+                return new Block(bytes, length, memberEnd);
+            }
+            catch (IOException | DataFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new UncheckedIOException(e instanceof IOException ? (IOException) e
+                    : new IOException("Corrupt gzip member ending at byte " + memberEnd + " of " + file.getPath(), e));
+            }
+        }
+    }
+
+    // waits for the next member in the queue
+    private static class TakeBlocker implements ForkJoinPool.ManagedBlocker {
+        private final ArrayBlockingQueue<CompletableFuture<Block>> queue;
+        CompletableFuture<Block> taken;
+
+        TakeBlocker(ArrayBlockingQueue<CompletableFuture<Block>> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (taken == null) {
+                taken = queue.take();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return taken != null || (taken = queue.poll()) != null;
+        }
+    }
+
+    private static int littleEndianInt(byte[] bytes, int at) {
+        return (bytes[at] & 0xff) | (bytes[at + 1] & 0xff) << 8 | (bytes[at + 2] & 0xff) << 16 | (bytes[at + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Writes a blocked gzip file, which is a valid gzip file to any other tool, but whose members can be decompressed in
+     * parallel by this class. Each member holds up to 64KB of the uncompressed data. Not thread safe.
+     */
+    public static class Output extends FilterOutputStream {
+        private final byte[] pending = new byte[OUTPUT_MEMBER_BYTES];
+        private int pendingLength = 0;
+        private final byte[] compressed = new byte[1 << 17];
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * @param out where to write the compressed bytes, closed when this is
+         */
+        public Output(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (pendingLength == pending.length) {
+                writeMember();
+            }
+            pending[pendingLength++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (pendingLength == pending.length) {
+                    writeMember();
+                }
+                int n = Math.min(length, pending.length - pendingLength);
+                System.arraycopy(bytes, offset, pending, pendingLength, n);
+                pendingLength += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        private void writeMember() throws IOException {
+            deflater.reset();
+            deflater.setInput(pending, 0, pendingLength);
+            deflater.finish();
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+            }
+            crc.reset();
+            crc.update(pending, 0, pendingLength);
+
+            // an 18 byte header with the BC subfield, the deflated data, then the CRC and the uncompressed length
+            int memberSize = 18 + compressedLength + 8;
+            byte[] header = {0x1f, (byte) 0x8b, 8, FEXTRA, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+                             (byte) (memberSize - 1), (byte) ((memberSize - 1) >>> 8)};
+            out.write(header);
+            out.write(compressed, 0, compressedLength);
+            writeInt((int) crc.getValue());
+            writeInt(pendingLength);
+            pendingLength = 0;
+        }
+
+        private void writeInt(int value) throws IOException {
+            out.write(value);
+            out.write(value >>> 8);
+            out.write(value >>> 16);
+            out.write(value >>> 24);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (pendingLength > 0) {
+                writeMember();
+            }
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // an empty member ends the file, as bgzip writes
+                flush();
+                writeMember();
+                out.flush();
+            }
+            finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+}
@@ -54,5 +54,6 @@ public final class Constants {
     public static final String defaultKeywordsPath      = "data/keywords.csv";
     public static final String defaultMovieMetadataPath = "data/movies_metadata.csv";
     public static final String defaultRatingsPath       = "data/ratings.csv";
+    public static final String defaultSnapshotPath      = "data/warwickplus.snapshot";
 
 }
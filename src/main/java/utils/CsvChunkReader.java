@@ -0,0 +1,786 @@
+package utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Parses a csv file with a header row on a ForkJoinPool. The file is split into chunks that end on record boundaries (line breaks
+ * outside of quotes), and each chunk is parsed on its own with the header row in front of it, so every chunk sees the same columns
+ * a single CSVParser over the whole file would. MappedCsvReader splits and parses files with the same tasks, only tokenizing each
+ * chunk itself.
+ *
+ * Nothing is checked across records here. Each chunk keeps its records in file order and stops at the first record that fails,
+ * so the caller can walk the chunks in order afterwards and report errors exactly where a sequential read would have.
+ *
+ * A file can also be streamed, parsed in order on one thread and handed over a chunk at a time while parsing continues.
+ *
+ * Gzip compressed files are read through BlockGzip. They can't be split up front, so are split as they are decompressed instead,
+ * and their progress is measured in compressed bytes.
+ */
+public class CsvChunkReader {
+    // chunks are never smaller than this, so small files are parsed in one go
+    static final int MIN_CHUNK_BYTES = 1 << 20;
+
+    // how many chunks to aim for per worker thread, so that uneven chunks still balance out
+    static final int CHUNKS_PER_THREAD = 4;
+
+    // how many records to parse between progress updates
+    static final int PROGRESS_INTERVAL = 1024;
+
+    // roughly how many times bigger a gzip compressed csv file is once decompressed, for sizing its chunks
+    static final int COMPRESSION_RATIO = 5;
+
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+                                            .setHeader()
+                                            .setSkipHeaderRecord(true)
+                                            .build();
+
+    /**
+     * Turns one csv record into a loaded record. Runs on the parsing threads, so must not touch shared state.
+     *
+     * @param <T> the type of record produced
+     */
+    public interface RecordParser<T> {
+        // parses a record, calling chunk.keyRead with the record's key if it should be validated before the rest of the record.
+        // returns null to skip the record, which is still counted when numbering records
+        T parse(CSVRecord csvRecord, Chunk<T> chunk);
+    }
+
+    /**
+     * Told how many more records of a file have been parsed, and how many more bytes of the file have been read through. Called
+     * from the parsing threads.
+     */
+    public interface ProgressListener {
+        void parsed(int records, long bytes);
+    }
+
+    /**
+     * The records parsed from one chunk of a file, in file order, followed by the first failure in the chunk if there was one
+     *
+     * @param <T> the type of record
+     */
+    public static class Chunk<T> {
+        // the records parsed before any failure
+        public final ArrayList<T> records = new ArrayList<>();
+
+        // the number of fields in the record that failed the field count check, or -1 if it passed
+        public int badFieldCount = -1;
+
+        // the exception thrown by the record that failed, or null if none did
+        public RuntimeException failure;
+
+        // whether the failed record's key was read before it failed, and what it was
+        public boolean failedKeyKnown;
+        public int failedKey;
+
+        // the number of rows skipped just before each record, only made once a row is skipped, and since the last record
+        private int[] skippedBefore;
+        private int skippedSince = 0;
+
+        /**
+         * Adds a parsed record to the end of the chunk
+         *
+         * @param record the record, or null if the parser skipped the row, such as for a film in another partition
+         */
+        void add(T record) {
+            if (record == null) {
+                skippedSince++;
+                return;
+            }
+            if (skippedSince > 0) {
+                int index = records.size();
+                if (skippedBefore == null || skippedBefore.length <= index) {
+                    skippedBefore = skippedBefore == null ? new int[Math.max(16, index + 1)]
+                                                          : Arrays.copyOf(skippedBefore, Math.max(index + 1, skippedBefore.length * 2));
+                }
+                skippedBefore[index] = skippedSince;
+                skippedSince = 0;
+            }
+            records.add(record);
+        }
+
+        /**
+         * @param index the index of a record in the chunk
+         * @return the number of rows skipped between the record and the one before it, so rows can still be numbered
+         */
+        public int skippedBefore(int index) {
+            return skippedBefore != null && index < skippedBefore.length ? skippedBefore[index] : 0;
+        }
+
+        /**
+         * @return the number of rows skipped after the last record
+         */
+        public int skippedAfter() {
+            return skippedSince;
+        }
+
+        /**
+         * Records the key of the record being parsed, so that if the rest of the record fails the key can still be validated first
+         *
+         * @param key the key of the current record
+         */
+        public void keyRead(int key) {
+            failedKeyKnown = true;
+            failedKey = key;
+        }
+
+        /**
+         * @return whether a record in this chunk failed
+         */
+        public boolean failed() {
+            return badFieldCount >= 0 || failure != null;
+        }
+    }
+
+    /**
+     * Every chunk of a file, in file order, or the I/O error that stopped the file being read
+     */
+    public static class ParsedFile<T> {
+        public final ArrayList<Chunk<T>> chunks = new ArrayList<>();
+        public IOException ioFailure;
+
+        /**
+         * @return the number of records parsed across every chunk
+         */
+        public int size() {
+            int size = 0;
+            for (Chunk<T> chunk : chunks) {
+                size += chunk.records.size();
+            }
+            return size;
+        }
+    }
+
+    private CsvChunkReader() {
+    }
+
+    /**
+     * Starts parsing a file on the given pool
+     *
+     * @param pool the pool to parse on
+     * @param file the csv file, whose first record is its header
+     * @param numFields the number of fields every record must have
+     * @param parser turns each csv record into a loaded record
+     * @param listener told as records are parsed, can be null
+     * @return a task whose result is the parsed file
+     */
+    public static <T> ForkJoinTask<ParsedFile<T>> submit(ForkJoinPool pool, File file, int numFields, RecordParser<T> parser, ProgressListener listener) {
+        return pool.submit(new FileTask<>(file, header -> csvChunks(header, numFields, parser), listener, pool.getParallelism()));
+    }
+
+    // parses each chunk with commons-csv, with the header in front of it
+    private static <T> ChunkParser<T> csvChunks(ByteBuffer headerBytes, int numFields, RecordParser<T> parser) {
+        byte[] header = new byte[headerBytes.remaining()];
+        headerBytes.get(header);
+        return (bytes, start, chunk, task) -> {
+            byte[] text = new byte[header.length + bytes.remaining()];
+            System.arraycopy(header, 0, text, 0, header.length);
+            bytes.get(text, header.length, text.length - header.length);
+
+            // the parser only has the chunk as a String, so its bytes are counted once it is done
+            try (CSVParser csvParser = CSVParser.parse(new String(text, StandardCharsets.UTF_8), FORMAT)) {
+                for (CSVRecord csvRecord : csvParser) {
+                    if (!parseInto(chunk, csvRecord, numFields, parser)) {
+                        break;
+                    }
+                    task.parsed(0);
+                }
+            }
+        };
+    }
+
+    /**
+     * Parses the records of each chunk of a file, made once the file's header has been read. Shared by every chunk of the file, so
+     * must not touch shared state.
+     *
+     * @param <T> the type of record
+     */
+    interface ChunkParser<T> {
+        // parses the records of a chunk into it in file order, calling task.parsed after each one
+        void parse(ByteBuffer bytes, long start, Chunk<T> chunk, ChunkTask<T> task) throws IOException;
+    }
+
+    /**
+     * Splits a file into chunks and parses them in parallel
+     */
+    static class FileTask<T> extends RecursiveTask<ParsedFile<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final File file;
+        private final Function<ByteBuffer, ChunkParser<T>> headers;
+        private final ProgressListener listener;
+        private final int parallelism;
+
+        /**
+         * @param file the csv file, whose first record is its header
+         * @param headers makes the parser for the file's chunks from the bytes of its header
+         * @param listener told as records are parsed, can be null
+         * @param parallelism the number of threads parsing, for sizing the chunks
+         */
+        FileTask(File file, Function<ByteBuffer, ChunkParser<T>> headers, ProgressListener listener, int parallelism) {
+            this.file = file;
+            this.headers = headers;
+            this.listener = listener;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        protected ParsedFile<T> compute() {
+            if (BlockGzip.isGzip(file)) {
+                return computeCompressed();
+            }
+            ParsedFile<T> result = new ParsedFile<>();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                long targetBytes = Math.max(MIN_CHUNK_BYTES, size / ((long) parallelism * CHUNKS_PER_THREAD));
+                long[] boundaries = recordBoundaries(channel, size, Math.min(targetBytes, MappedCsvReader.MAX_CHUNK_BYTES));
+                if (boundaries.length == 0) {
+                    return result;
+                }
+
+                // the first boundary ends the header
+                ChunkParser<T> parser = headers.apply(channel.map(FileChannel.MapMode.READ_ONLY, 0, boundaries[0]));
+                if (listener != null) {
+                    listener.parsed(0, boundaries[0]);
+                }
+
+                ArrayList<ChunkTask<T>> tasks = new ArrayList<>();
+                for (int i = 1; i < boundaries.length; i++) {
+                    tasks.add(new ChunkTask<>(channel, boundaries[i - 1], boundaries[i], parser, listener));
+                }
+                invokeAll(tasks);
+                for (ChunkTask<T> task : tasks) {
+                    result.chunks.add(task.join());
+                }
+            }
+            catch (IOException e) {
+                result.ioFailure = e;
+            }
+            catch (UncheckedIOException e) {
+                result.ioFailure = e.getCause();
+            }
+            return result;
+        }
+
+        // a gzip file can only be read in order, so it is split as it is decompressed and each piece is parsed as it arrives
+        private ParsedFile<T> computeCompressed() {
+            ParsedFile<T> result = new ParsedFile<>();
+            // progress is counted in compressed bytes, which the pieces can't tell, so they only report their records
+            ProgressListener recordsOnly = listener == null ? null : (records, bytes) -> listener.parsed(records, 0);
+            try (BlockGzip.Decompressed input = BlockGzip.open(file)) {
+                RecordPieces pieces = new RecordPieces(input, compressedTargetBytes(file, parallelism));
+                ByteBuffer header = pieces.next();
+                if (header == null) {
+                    return result;
+                }
+                long start = header.limit();
+                ChunkParser<T> parser = headers.apply(header);
+                long reported = report(input, 0);
+
+                // records are still placed by where they start in the decompressed file
+                ArrayList<ChunkTask<T>> tasks = new ArrayList<>();
+                for (ByteBuffer piece = pieces.next(); piece != null; piece = pieces.next()) {
+                    ChunkTask<T> task = new ChunkTask<>(piece, start, parser, recordsOnly);
+                    task.fork();
+                    tasks.add(task);
+                    start += piece.limit();
+                    reported = report(input, reported);
+                }
+                for (ChunkTask<T> task : tasks) {
+                    result.chunks.add(task.join());
+                }
+            }
+            catch (IOException e) {
+                result.ioFailure = e;
+            }
+            catch (UncheckedIOException e) {
+                result.ioFailure = e.getCause();
+            }
+            return result;
+        }
+
+        private long report(BlockGzip.Decompressed input, long reported) {
+            long read = input.compressedRead();
+            if (listener != null && read > reported) {
+                listener.parsed(0, read - reported);
+            }
+            return Math.max(read, reported);
+        }
+    }
+
+    /**
+     * How big to make the pieces of a compressed file, from a guess at how much it will grow when decompressed
+     */
+    static int compressedTargetBytes(File file, int parallelism) {
+        long guess = file.length() * COMPRESSION_RATIO;
+        return (int) Math.min(MappedCsvReader.MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, guess / ((long) parallelism * CHUNKS_PER_THREAD)));
+    }
+
+    /**
+     * Parses the records between two boundaries of a file, mapped from the file unless they were already read out of a compressed one
+     */
+    static class ChunkTask<T> extends RecursiveTask<Chunk<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final ChunkParser<T> parser;
+        private final ProgressListener listener;
+        private int unreported = 0;
+        private long reportedTo = 0;
+        // the records already read out of a compressed file, in place of the channel, dropped once parsed
+        private ByteBuffer piece;
+
+        ChunkTask(FileChannel channel, long start, long end, ChunkParser<T> parser, ProgressListener listener) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.parser = parser;
+            this.listener = listener;
+        }
+
+        ChunkTask(ByteBuffer piece, long start, ChunkParser<T> parser, ProgressListener listener) {
+            this(null, start, start + piece.limit(), parser, listener);
+            this.piece = piece;
+        }
+
+        @Override
+        protected Chunk<T> compute() {
+            Chunk<T> chunk = new Chunk<>();
+            try {
+                // mappings don't move the channel, so every chunk can map from it at once
+                ByteBuffer bytes = piece != null ? piece : channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                piece = null;
+                parser.parse(bytes, start, chunk, this);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            catch (RuntimeException e) {
+                chunk.failure = e;
+            }
+            report(end - start);
+            return chunk;
+        }
+
+        /**
+         * Counts a record as parsed, reporting progress every PROGRESS_INTERVAL records
+         *
+         * @param position where the record ends in the chunk, or 0 if that isn't known until the whole chunk is parsed
+         */
+        void parsed(long position) {
+            if (++unreported == PROGRESS_INTERVAL) {
+                report(position);
+            }
+        }
+
+        // reports the records parsed since the last report, and the bytes up to a position in the chunk
+        private void report(long position) {
+            if (listener != null && (unreported > 0 || position > reportedTo)) {
+                listener.parsed(unreported, Math.max(0, position - reportedTo));
+            }
+            unreported = 0;
+            reportedTo = Math.max(reportedTo, position);
+        }
+    }
+
+    /**
+     * A file being parsed in order on its own thread, handed over a chunk at a time so records can be used while the rest of the
+     * file is still being parsed. Only a fixed number of chunks are buffered, so the parsing thread waits whenever the reader
+     * falls behind and memory use doesn't grow with the file.
+     *
+     * @param <T> the type of record
+     */
+    public static class ChunkStream<T> implements AutoCloseable {
+        // marks the end of the file in the queue
+        private static final Chunk<?> END = new Chunk<>();
+
+        private final ArrayBlockingQueue<Chunk<?>> queue;
+        private final ProgressListener listener;
+        private final Thread thread;
+        private volatile IOException ioFailure;
+        private boolean finished = false;
+
+        // how far through the file progress has been reported to, only used by the parsing thread
+        private long reportedBytes = 0;
+
+        ChunkStream(File file, ChunkSource<T> source, ProgressListener listener, int bufferedChunks) {
+            this.queue = new ArrayBlockingQueue<>(bufferedChunks);
+            this.listener = listener;
+            this.thread = new Thread(() -> parse(source), "parse-" + file.getName());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private void parse(ChunkSource<T> source) {
+            try {
+                try {
+                    source.parse(this);
+                }
+                catch (IOException e) {
+                    ioFailure = e;
+                }
+                queue.put(END);
+            }
+            catch (InterruptedException e) {
+                // the stream was closed early, so nothing is waiting for the rest of the file
+            }
+        }
+
+        /**
+         * Hands a chunk over to the reader, waiting for room if it has fallen behind. Only called from the parsing thread.
+         *
+         * @param chunk the next chunk of the file
+         * @param position how far through the file has been read, in bytes
+         * @throws InterruptedException if the stream was closed while waiting
+         */
+        void put(Chunk<T> chunk, long position) throws InterruptedException {
+            queue.put(chunk);
+            report(chunk.records.size(), position);
+        }
+
+        /**
+         * Reports how far through the file has been read without handing over a chunk, such as once the whole file has been read
+         *
+         * @param position how far through the file has been read, in bytes
+         */
+        void reached(long position) {
+            report(0, position);
+        }
+
+        private void report(int records, long position) {
+            long bytes = Math.max(0, position - reportedBytes);
+            reportedBytes = Math.max(reportedBytes, position);
+            if (listener != null && (records > 0 || bytes > 0)) {
+                listener.parsed(records, bytes);
+            }
+        }
+
+        /**
+         * Waits for the next chunk of the file
+         *
+         * @return the next chunk, or null once the whole file has been read
+         * @throws IOException if the file couldn't be read
+         * @throws InterruptedException if interrupted while waiting
+         */
+        @SuppressWarnings("unchecked")
+        public Chunk<T> next() throws IOException, InterruptedException {
+            if (finished) {
+                return null;
+            }
+            Chunk<?> chunk = queue.take();
+            if (chunk == END) {
+                finished = true;
+                if (ioFailure != null) {
+                    throw ioFailure;
+                }
+                return null;
+            }
+            return (Chunk<T>) chunk;
+        }
+
+        /**
+         * Stops parsing, if the whole file hasn't been read yet
+         */
+        @Override
+        public void close() {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Parses a whole file in order on a stream's thread, putting each chunk as it fills. Only the last chunk put can hold a failure.
+     *
+     * @param <T> the type of record
+     */
+    interface ChunkSource<T> {
+        void parse(ChunkStream<T> stream) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Starts parsing a file in order on a new thread
+     *
+     * @param file the csv file, whose first record is its header
+     * @param numFields the number of fields every record must have
+     * @param parser turns each csv record into a loaded record
+     * @param listener told as records are parsed, can be null
+     * @param chunkRecords the number of records in each chunk
+     * @param bufferedChunks the number of parsed chunks that can wait to be read before parsing pauses
+     * @return the stream of chunks
+     */
+    public static <T> ChunkStream<T> stream(File file, int numFields, RecordParser<T> parser, ProgressListener listener, int chunkRecords, int bufferedChunks) {
+        return new ChunkStream<>(file, stream -> {
+            Chunk<T> chunk = new Chunk<>();
+            IOException ioFailure = null;
+            long parsedTo = 0;
+            try (CountingInputStream input = new CountingInputStream(BlockGzip.isGzip(file) ? BlockGzip.open(file) : new FileInputStream(file));
+                 CSVParser csvParser = CSVParser.parse(new InputStreamReader(input, StandardCharsets.UTF_8), FORMAT)) {
+                for (CSVRecord csvRecord : csvParser) {
+                    if (!parseInto(chunk, csvRecord, numFields, parser)) {
+                        break;
+                    }
+                    if (chunk.records.size() == chunkRecords) {
+                        stream.put(chunk, input.position());
+                        chunk = new Chunk<>();
+                    }
+                }
+                parsedTo = input.position();
+            }
+            catch (IOException e) {
+                ioFailure = e;
+            }
+            catch (RuntimeException e) {
+                chunk.failure = e;
+            }
+
+            // the last chunk, which is the only one that can hold a failure
+            if (!chunk.records.isEmpty() || chunk.failed()) {
+                stream.put(chunk, parsedTo);
+            }
+            stream.reached(parsedTo);
+            if (ioFailure != null) {
+                throw ioFailure;
+            }
+        }, listener, bufferedChunks);
+    }
+
+    /**
+     * Counts the bytes read through it, which runs a little ahead of the records parsed as the parser reads ahead
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        // how far through the file has been read, which for a compressed file is in its compressed bytes
+        long position() {
+            return in instanceof BlockGzip.Decompressed ? ((BlockGzip.Decompressed) in).compressedRead() : count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    // parses a record onto the end of a chunk, returning false instead if it has the wrong number of fields
+    private static <T> boolean parseInto(Chunk<T> chunk, CSVRecord csvRecord, int numFields, RecordParser<T> parser) {
+        if (csvRecord.size() != numFields) {
+            chunk.badFieldCount = csvRecord.size();
+            return false;
+        }
+        chunk.failedKeyKnown = false;
+        chunk.add(parser.parse(csvRecord, chunk));
+        return true;
+    }
+
+    /**
+     * Finds where to split a file. Scans the whole file once, following its quoted fields with RecordEnds, and cuts at the first
+     * record start after each target number of bytes.
+     *
+     * @param channel the file
+     * @param size the size of the file
+     * @param targetBytes roughly how big each chunk should be
+     * @return the end of the header followed by the end of every chunk, or nothing if the file is empty
+     * @throws IOException if the file can't be read
+     */
+    static long[] recordBoundaries(FileChannel channel, long size, long targetBytes) throws IOException {
+        if (size == 0) {
+            return new long[0];
+        }
+
+        ArrayList<Long> boundaries = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        RecordEnds ends = new RecordEnds();
+        long position = 0;
+        long lastBoundary = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (ends.startsRecord(buffer.get(i))) {
+                    long boundary = position + i;
+                    if (boundaries.isEmpty() || boundary - lastBoundary >= targetBytes) {
+                        boundaries.add(boundary);
+                        lastBoundary = boundary;
+                    }
+                }
+            }
+            position += read;
+        }
+
+        // the last chunk runs to the end of the file, whether or not it ends with a newline
+        if (boundaries.isEmpty() || lastBoundary < size) {
+            boundaries.add(size);
+        }
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Follows a csv file a byte at a time from the start of a record, to find where records start without tokenizing them. A quote
+     * only opens a quoted field at the start of a field, as it does in CSVFormat.DEFAULT, so line breaks inside quoted fields are
+     * skipped while quotes inside unquoted fields are not mistaken for the start of one. Records end at LF, CRLF or a lone CR.
+     */
+    static class RecordEnds {
+        private boolean quoted = false;
+        // whether the last byte started a field or closed a quoted one, either of which a quote can follow to open a quoted field
+        private boolean fieldStart = true;
+        private boolean closed = false;
+        // whether the last byte was a line break outside quotes, and whether it was a CR, which an LF still belongs to
+        private boolean lineBreak = false;
+        private boolean carriageReturn = false;
+
+        /**
+         * Reads the next byte
+         *
+         * @param b the byte
+         * @return whether a record ended just before it, so that it starts the next record or a blank line
+         */
+        boolean startsRecord(byte b) {
+            boolean starts = lineBreak && !(carriageReturn && b == '\n');
+            lineBreak = false;
+            if (quoted) {
+                // a doubled quote closes the field and opens it again
+                if (b == '"') {
+                    quoted = false;
+                    closed = true;
+                }
+                return starts;
+            }
+            if (b == '"' && (fieldStart || closed)) {
+                quoted = true;
+                fieldStart = false;
+                closed = false;
+                return starts;
+            }
+            lineBreak = b == '\n' || b == '\r';
+            carriageReturn = b == '\r';
+            fieldStart = b == ',' || lineBreak;
+            closed = false;
+            return starts;
+        }
+    }
+
+    /**
+     * Splits a stream into pieces that end on record boundaries, for a file that can only be read in order, such as a compressed
+     * one. Finds records the same way as recordBoundaries, scanning each byte once, and the first piece is the header.
+     */
+    static class RecordPieces {
+        private final InputStream input;
+        private final int targetBytes;
+        private byte[] bytes;
+        private int length = 0;
+        // how much of bytes has been scanned for the next boundary, and where the scan is in the records
+        private int scanned = 0;
+        private RecordEnds ends = new RecordEnds();
+        private boolean header = true;
+        private boolean ended = false;
+
+        RecordPieces(InputStream input, int targetBytes) {
+            this.input = input;
+            this.targetBytes = targetBytes;
+            this.bytes = new byte[Math.max(1 << 16, targetBytes + (targetBytes >> 2))];
+        }
+
+        /**
+         * @return the next piece, wrapping an array of exactly its bytes, or null at the end of the stream
+         * @throws IOException if the stream can't be read
+         */
+        ByteBuffer next() throws IOException {
+            int wanted = header ? 1 : targetBytes;
+            while (true) {
+                for (; scanned < length; scanned++) {
+                    if (ends.startsRecord(bytes[scanned]) && scanned >= wanted) {
+                        return cut(scanned);
+                    }
+                }
+                if (ended) {
+                    // the last piece runs to the end of the stream, whether or not it ends with a newline
+                    return length == 0 ? null : cut(length);
+                }
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                int read = input.read(bytes, length, bytes.length - length);
+                if (read < 0) {
+                    ended = true;
+                }
+                else {
+                    length += read;
+                }
+            }
+        }
+
+        private ByteBuffer cut(int end) {
+            ByteBuffer piece = ByteBuffer.wrap(Arrays.copyOf(bytes, end));
+            System.arraycopy(bytes, end, bytes, 0, length - end);
+            length -= end;
+            // the piece ended on a record boundary, and the byte after it is scanned again as the start of a record
+            scanned = 0;
+            ends = new RecordEnds();
+            header = false;
+            return piece;
+        }
+    }
+
+    static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+
+import interfaces.RecordSource;
+import utils.MappedCsvReader.Header;
+import utils.MappedCsvReader.Row;
+
+/**
+ * Reads single records back out of a csv file, from where they start in it, so the stores can leave fields that are rarely
+ * looked at in the file until they are asked for. The header is read once, when the reader is made, and each record is read
+ * with a positioned read of just the bytes around it, so one reader can be used from any number of threads. Interrupting a thread
+ * part way through a read closes the file's channel for every thread, so the channel is opened again whenever it is found
+ * closed, and the interrupted thread finishes its read before its interrupt is put back.
+ *
+ * The offsets only hold for the file as it was loaded, so its size and modification time are noted when the reader is made, and
+ * a read fails if either has changed rather than returning part of some other record.
+ *
+ * @param <T> the type of record read
+ */
+public class CsvRecordReader<T> implements RecordSource<T> {
+    // how much of the file to read for a record at first, doubled until the whole record fits
+    private static final int READ_BYTES = 1 << 14;
+
+    private final File file;
+    // replaced when an interrupt closes it
+    private volatile FileChannel channel;
+    private final long size;
+    private final long lastModified;
+    private final Header header;
+    private final Function<Row, T> parser;
+
+    /**
+     * Opens a file and reads its header. Made before the file is loaded, so that a change to the file while it is being loaded
+     * is caught too.
+     *
+     * @param file the csv file, whose first record is its header
+     * @param parsers makes the parser for the file's records from its header
+     * @throws IOException if the file can't be read
+     */
+    public CsvRecordReader(File file, Function<Header, Function<Row, T>> parsers) throws IOException {
+        this.file = file;
+        this.lastModified = file.lastModified();
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+
+        Row headerRow = new Row(null);
+        if (size == 0 || readRecord(headerRow, 0) == Row.NO_RECORD) {
+            this.header = new Header(new String[0]);
+        }
+        else {
+            this.header = MappedCsvReader.headerOf(headerRow);
+        }
+        this.parser = parsers.apply(header);
+    }
+
+    /**
+     * Reads the record that starts at an offset
+     *
+     * @param offset where the record starts, as given by Row.offset when the file was loaded
+     * @return the parsed record
+     * @throws IllegalStateException if the file has changed since the reader was made, or there is no record at the offset
+     * @throws UncheckedIOException if the file can't be read
+     */
+    @Override
+    public T read(long offset) {
+        if (file.length() != size || file.lastModified() != lastModified) {
+            throw new IllegalStateException(file.getPath() + " has changed since it was loaded");
+        }
+        if (offset < 0 || offset >= size) {
+            throw new IllegalStateException("There is no record at byte " + offset + " of " + file.getPath());
+        }
+
+        Row row = new Row(header);
+        if (readRecord(row, offset) == Row.NO_RECORD) {
+            throw new IllegalStateException("There is no record at byte " + offset + " of " + file.getPath());
+        }
+        return parser.apply(row);
+    }
+
+    // reads the record starting at an offset into a row, reading more of the file until it fits
+    private int readRecord(Row row, long offset) {
+        int length = READ_BYTES;
+        while (true) {
+            int limit = (int) Math.min(length, size - offset);
+            boolean endOfFile = offset + limit == size;
+            ByteBuffer buffer = ByteBuffer.allocate(limit);
+            try {
+                read(buffer, offset);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            int end = row.read(buffer, 0, limit, endOfFile);
+            if (end != Row.INCOMPLETE) {
+                return end;
+            }
+            if (length == MappedCsvReader.MAX_CHUNK_BYTES) {
+                throw new UncheckedIOException(new IOException("Record at byte " + offset + " of " + file.getPath() + " is too large to read"));
+            }
+            length = Math.min(length * 2, MappedCsvReader.MAX_CHUNK_BYTES);
+        }
+    }
+
+    // reads from a position until the buffer is full or the file has got shorter, opening the channel again if it is closed
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                FileChannel current = channel;
+                try {
+                    while (buffer.hasRemaining() && current.read(buffer, position + buffer.position()) >= 0) {
+                        // read until the buffer is full, or the file has got shorter
+                    }
+                    return;
+                }
+                catch (ClosedChannelException e) {
+                    // closed by an interrupt of this thread or another one reading it. what was read so far is kept
+                    interrupted |= Thread.interrupted();
+                    reopen(current);
+                }
+            }
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // opens the channel again, unless another thread already has
+    private synchronized void reopen(FileChannel closed) throws IOException {
+        if (channel == closed) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+    }
+}
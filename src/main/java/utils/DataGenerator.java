@@ -0,0 +1,637 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Generates a synthetic dataset of any size in the same four csv formats as the real one, for loading and benchmarking at
+ * scales the sample in data/ can't reach. The files load with LoadData as they are.
+ *
+ * Everything is drawn from a SplittableRandom seeded from the seed given, one per file, so the same options always give the same
+ * files byte for byte, whichever order the files are written in. Popularity follows Zipf's law throughout: a few films get most
+ * of the ratings, a few users give most of them, and a few people turn up in the cast and crew of many films, so the stores see
+ * the same long tails and shared people as with the real data.
+ *
+ * Run with --help for the options, or through gradle with the generatedata task.
+ */
+public class DataGenerator {
+    // the ratings files hold every (user, film) pair at most once, so a user can rate at most this share of the films
+    private static final int MAX_USER_SHARE = 10;
+
+    private static final String[][] GENRES = {
+        {"28", "Action"}, {"12", "Adventure"}, {"16", "Animation"}, {"35", "Comedy"}, {"80", "Crime"}, {"99", "Documentary"},
+        {"18", "Drama"}, {"10751", "Family"}, {"14", "Fantasy"}, {"36", "History"}, {"27", "Horror"}, {"10402", "Music"},
+        {"9648", "Mystery"}, {"10749", "Romance"}, {"878", "Science Fiction"}, {"10770", "TV Movie"}, {"53", "Thriller"},
+        {"10752", "War"}, {"37", "Western"}
+    };
+    private static final String[][] LANGUAGES = {
+        {"en", "English"}, {"fr", "Français"}, {"es", "Español"}, {"de", "Deutsch"}, {"it", "Italiano"}, {"ja", "日本語"},
+        {"ru", "Pусский"}, {"hi", "हिन्दी"}, {"ko", "한국어/조선말"}, {"sv", "svenska"}, {"pt", "Português"}, {"zh", "普通话"}
+    };
+    private static final String[][] COUNTRIES = {
+        {"US", "United States of America"}, {"GB", "United Kingdom"}, {"FR", "France"}, {"DE", "Germany"}, {"IT", "Italy"},
+        {"JP", "Japan"}, {"CA", "Canada"}, {"ES", "Spain"}, {"IN", "India"}, {"KR", "South Korea"}, {"SE", "Sweden"},
+        {"AU", "Australia"}
+    };
+    private static final String[][] JOBS = {
+        {"Writing", "Screenplay"}, {"Writing", "Writer"}, {"Writing", "Novel"}, {"Production", "Producer"},
+        {"Production", "Executive Producer"}, {"Production", "Casting"}, {"Sound", "Original Music Composer"},
+        {"Camera", "Director of Photography"}, {"Editing", "Editor"}, {"Art", "Production Design"}, {"Art", "Art Direction"},
+        {"Costume & Make-Up", "Costume Design"}, {"Visual Effects", "Visual Effects Supervisor"}, {"Lighting", "Gaffer"}
+    };
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William", "Elizabeth", "David", "Barbara",
+        "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa",
+        "Anthony", "Margaret", "Mark", "Sandra", "Paul", "Ashley", "Steven", "Emily", "Andrew", "Donna", "Kenji", "Yuki", "Pierre",
+        "Amélie", "Hans", "Ingrid", "Giulia", "Marco", "Sofia", "Diego", "Priya", "Arjun", "Olga", "Ivan", "Min-jun", "Seo-yeon",
+        "Lars", "Astrid", "Chen", "Mei", "Fatima", "Omar", "Zoë", "Noah", "Chloé", "Björn"
+    };
+    private static final String[] SURNAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez",
+        "Lopez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Thompson", "White", "Harris",
+        "Clark", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Scott", "Green", "Baker", "Adams", "Nelson",
+        "Tanaka", "Suzuki", "Dubois", "Lefèvre", "Müller", "Schmidt", "Rossi", "Bianchi", "Fernández", "González", "Sharma",
+        "Patel", "Ivanov", "Petrova", "Kim", "Park", "Andersson", "Nilsson", "Wang", "Li", "Haddad", "Novák", "Kowalski", "Öztürk"
+    };
+    private static final String[] WORDS = {
+        "river", "night", "shadow", "city", "king", "love", "war", "secret", "dream", "storm", "fire", "stone", "house", "road",
+        "ghost", "star", "island", "winter", "summer", "blood", "heart", "silver", "iron", "last", "lost", "dark", "golden",
+        "wild", "silent", "broken", "hidden", "forgotten", "red", "blue", "black", "white", "journey", "garden", "empire",
+        "mountain", "ocean", "machine", "detective", "family", "school", "prison", "murder", "revenge", "escape", "treasure",
+        "monster", "robot", "wedding", "holiday", "hunter", "soldier", "spy", "witch", "dragon", "train", "circus", "village",
+        "desert", "jungle", "planet", "moon", "sun", "mirror", "letter", "song", "dance", "game", "bridge", "tower", "castle"
+    };
+    private static final String[] VERBS = {
+        "finds", "loses", "hunts", "escapes", "follows", "betrays", "rescues", "discovers", "fights", "remembers", "protects",
+        "chases", "joins", "leaves", "returns to", "searches for", "falls for", "confronts", "inherits", "builds"
+    };
+    private static final String[] PEOPLE = {
+        "a young woman", "an old man", "a detective", "a family", "two brothers", "a soldier", "a teacher", "a group of friends",
+        "a scientist", "a thief", "a lonely boy", "a journalist", "a retired spy", "a musician", "a small-town sheriff"
+    };
+
+    private final File directory;
+    private final int numMovies;
+    private final long numRatings;
+    private final int numUsers;
+    private final int numPeople;
+    private final int numKeywords;
+    private final int numCompanies;
+    private final int numCollections;
+    private final double skew;
+    private final long seed;
+    private boolean gzip = false;
+
+    // the film ids, in movies file order, and how good each film is, which its ratings and vote average are drawn around
+    private final int[] movieIds;
+    private final float[] quality;
+
+    /**
+     * Makes a generator, drawing the film ids straight away as every file refers to them
+     *
+     * @param directory where to write the csv files, made if it doesn't exist
+     * @param numMovies the number of films
+     * @param numRatings the number of ratings
+     * @param numUsers the number of users giving the ratings
+     * @param numPeople the number of people the cast and crew are drawn from
+     * @param skew the Zipf exponent of every popularity, 1 being as steep as real ratings and credits tend to be
+     * @param seed the seed every file is generated from
+     */
+    public DataGenerator(File directory, int numMovies, long numRatings, int numUsers, int numPeople, double skew, long seed) {
+        if (numMovies < 1 || numRatings < 0 || numUsers < 1 || numPeople < 1 || skew < 0) {
+            throw new IllegalArgumentException("There must be at least one film, user and person, and the skew can't be negative");
+        }
+        if (numRatings > (long) numUsers * Math.max(1, numMovies / MAX_USER_SHARE)) {
+            throw new IllegalArgumentException("Too many ratings for " + numUsers + " users to give without rating a film twice");
+        }
+        this.directory = directory;
+        this.numMovies = numMovies;
+        this.numRatings = numRatings;
+        this.numUsers = numUsers;
+        this.numPeople = numPeople;
+        this.numKeywords = Math.max(100, numMovies * 2);
+        this.numCompanies = Math.max(50, numMovies / 4);
+        this.numCollections = Math.max(10, numMovies / 20);
+        this.skew = skew;
+        this.seed = seed;
+
+        // ids are sparse and unique, like the real ids, spread out so that nothing can rely on them being dense
+        SplittableRandom random = random(0);
+        this.movieIds = new int[numMovies];
+        this.quality = new float[numMovies];
+        for (int i = 0; i < numMovies; i++) {
+            movieIds[i] = i * 4 + 2 + random.nextInt(4);
+            quality[i] = (float) (1.5 + 3 * bell(random));
+        }
+        shuffle(movieIds, random);
+    }
+
+    /**
+     * @param gzip whether to write the files gzip compressed, as name.csv.gz, in blocks that BlockGzip decompresses in parallel
+     */
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * Writes all four files at once, each on its own thread
+     *
+     * @throws IOException if a file can't be written
+     */
+    public void generate() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot make the directory " + directory.getPath());
+        }
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> files = new ArrayList<>();
+            files.add(writers.submit(() -> write("movies_metadata.csv", this::writeMovies)));
+            files.add(writers.submit(() -> write("credits.csv", this::writeCredits)));
+            files.add(writers.submit(() -> write("keywords.csv", this::writeKeywords)));
+            files.add(writers.submit(() -> write("ratings.csv", this::writeRatings)));
+            for (Future<Void> file : files) {
+                file.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating data");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally {
+            writers.shutdownNow();
+        }
+    }
+
+    private interface FileWriter {
+        void write(Writer out) throws IOException;
+    }
+
+    private Void write(String name, FileWriter fileWriter) throws IOException {
+        File file = new File(directory, gzip ? name + ".gz" : name);
+        long start = System.nanoTime();
+        OutputStream bytes = gzip ? new BlockGzip.Output(new FileOutputStream(file)) : new FileOutputStream(file);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8), 1 << 16)) {
+            fileWriter.write(out);
+        }
+        System.out.println("Wrote " + file.getPath() + " (" + file.length() / 1024 / 1024 + "MB) in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        return null;
+    }
+
+    private void writeMovies(Writer out) throws IOException {
+        SplittableRandom random = random(1);
+        Zipf companies = new Zipf(numCompanies, skew);
+        StringBuilder row = new StringBuilder();
+        out.write("adult,belongs_to_collection,budget,genres,homepage,tmdb_id,imdb_id,original_language,original_title,overview,popularity,poster_path,production_companies,production_countries,release_date,revenue,runtime,spoken_languages,status,tagline,title,video,vote_average,vote_count\n");
+
+        for (int i = 0; i < numMovies; i++) {
+            row.setLength(0);
+            int id = movieIds[i];
+            String title = title(random);
+            // films earlier in the popularity order are rated more, and score better with voters, as with the real data
+            double popularity = 40.0 / Math.pow(i + 1, skew * 0.5) + random.nextDouble();
+            boolean bigBudget = random.nextInt(4) == 0;
+            long budget = bigBudget ? 1_000_000L * (1 + random.nextInt(200)) : 0;
+            long revenue = bigBudget ? (long) (budget * 3 * random.nextDouble()) : 0;
+
+            row.append(random.nextInt(200) == 0 ? "True" : "False").append(',');
+            if (random.nextInt(10) == 0) {
+                int collection = random.nextInt(numCollections);
+                cell(row, "{'id': " + (10 + collection * 7) + ", 'name': '" + capitalise(WORDS[collection % WORDS.length]) + " Collection "
+                    + collection + "', 'poster_path': '" + path(random) + "', 'backdrop_path': " + (random.nextBoolean() ? "'" + path(random) + "'" : "None") + "}");
+            }
+            row.append(',').append(budget).append(',');
+            cell(row, idNameList(random, GENRES, 1 + random.nextInt(3), "id", "name"));
+            row.append(',');
+            if (random.nextInt(5) == 0) {
+                row.append("http://www.").append(title.toLowerCase().replaceAll("[^a-z]", "")).append(".com");
+            }
+            row.append(',').append(id).append(',');
+            row.append(String.format("tt%07d", 100_000 + id)).append(',');
+            String language = LANGUAGES[random.nextInt(3) == 0 ? random.nextInt(LANGUAGES.length) : 0][0];
+            row.append(language).append(',');
+            cell(row, title);
+            row.append(',');
+            cell(row, overview(random));
+            row.append(',').append((float) popularity).append(',').append(path(random)).append(',');
+
+            StringBuilder list = new StringBuilder("[");
+            int numCompanies = random.nextInt(4);
+            for (int c = 0; c < numCompanies; c++) {
+                int company = companies.next(random);
+                list.append(c == 0 ? "" : ", ").append("{'name': '").append(capitalise(WORDS[company % WORDS.length])).append(" Pictures ")
+                    .append(company).append("', 'id': ").append(1 + company).append('}');
+            }
+            cell(row, list.append(']').toString());
+            row.append(',');
+            cell(row, iso(random, COUNTRIES, "iso_3166_1", 1 + random.nextInt(2)));
+            row.append(',');
+            // more films are made each year, so release years lean towards the recent end
+            if (random.nextInt(50) != 0) {
+                int year = 1900 + (int) (120 * Math.sqrt(random.nextDouble()));
+                row.append(String.format("%04d-%02d-%02d", year, 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            }
+            row.append(',').append(revenue).append(',');
+            if (random.nextInt(30) != 0) {
+                row.append(60 + random.nextInt(120)).append(".0");
+            }
+            row.append(',');
+            cell(row, iso(random, LANGUAGES, "iso_639_1", 1 + random.nextInt(2)));
+            row.append(',').append(random.nextInt(100) == 0 ? "Post Production" : "Released").append(',');
+            if (random.nextInt(3) != 0) {
+                cell(row, capitalise(WORDS[random.nextInt(WORDS.length)]) + " is only the beginning.");
+            }
+            row.append(',');
+            cell(row, title);
+            row.append(",False,");
+            int votes = (int) (5000 / Math.pow(i + 1, skew * 0.5)) + random.nextInt(20);
+            row.append(Math.round(quality[i] * 20) / 10.0).append(',').append(votes).append('\n');
+            out.append(row);
+        }
+    }
+
+    private void writeCredits(Writer out) throws IOException {
+        SplittableRandom random = random(2);
+        // actors and crew are drawn from the same people with different favourites, so a few people are in both
+        Zipf actors = new Zipf(numPeople, skew);
+        Zipf crew = new Zipf(numPeople, skew);
+        int[] actorOrder = permutation(numPeople, random);
+        int[] crewOrder = permutation(numPeople, random);
+        StringBuilder row = new StringBuilder();
+        StringBuilder list = new StringBuilder();
+        HashSet<Integer> inFilm = new HashSet<>();
+        out.write("cast,crew,tmdb_id\n");
+
+        for (int i = 0; i < numMovies; i++) {
+            row.setLength(0);
+
+            list.setLength(0);
+            list.append('[');
+            inFilm.clear();
+            int castSize = random.nextInt(12) == 0 ? 0 : 1 + (int) (30 * Math.pow(random.nextDouble(), 2));
+            for (int c = 0; c < castSize; c++) {
+                int person = actorOrder[actors.next(random)];
+                if (!inFilm.add(person)) {
+                    continue;
+                }
+                list.append(inFilm.size() == 1 ? "" : ", ").append("{'cast_id': ").append(c + 1)
+                    .append(", 'character': '").append(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)])
+                    .append("', 'credit_id': '").append(hex(random)).append("', 'gender': ").append(gender(person))
+                    .append(", 'id': ").append(personId(person)).append(", 'name': '").append(name(person))
+                    .append("', 'order': ").append(inFilm.size() - 1).append(", 'profile_path': ").append(profile(random)).append('}');
+            }
+            cell(row, list.append(']').toString());
+            row.append(',');
+
+            list.setLength(0);
+            list.append('[');
+            inFilm.clear();
+            int crewSize = 1 + (int) (20 * Math.pow(random.nextDouble(), 2));
+            for (int c = 0; c < crewSize; c++) {
+                int person = crewOrder[crew.next(random)];
+                if (!inFilm.add(person)) {
+                    continue;
+                }
+                // every film has a director first
+                String[] job = c == 0 ? new String[]{"Directing", "Director"} : JOBS[random.nextInt(JOBS.length)];
+                list.append(inFilm.size() == 1 ? "" : ", ").append("{'credit_id': '").append(hex(random))
+                    .append("', 'department': '").append(job[0]).append("', 'gender': ").append(gender(person))
+                    .append(", 'id': ").append(personId(person)).append(", 'job': '").append(job[1])
+                    .append("', 'name': '").append(name(person)).append("', 'profile_path': ").append(profile(random)).append('}');
+            }
+            cell(row, list.append(']').toString());
+            row.append(',').append(movieIds[i]).append('\n');
+            out.append(row);
+        }
+    }
+
+    private void writeKeywords(Writer out) throws IOException {
+        SplittableRandom random = random(3);
+        Zipf keywords = new Zipf(numKeywords, skew);
+        int[] keywordOrder = permutation(numKeywords, random);
+        StringBuilder row = new StringBuilder();
+        StringBuilder list = new StringBuilder();
+        HashSet<Integer> inFilm = new HashSet<>();
+        out.write("tmdb_id,keywords\n");
+
+        for (int i = 0; i < numMovies; i++) {
+            row.setLength(0);
+            list.setLength(0);
+            list.append('[');
+            inFilm.clear();
+            int count = random.nextInt(6) == 0 ? 0 : 1 + (int) (15 * Math.pow(random.nextDouble(), 2));
+            for (int k = 0; k < count; k++) {
+                int keyword = keywordOrder[keywords.next(random)];
+                if (inFilm.add(keyword)) {
+                    list.append(inFilm.size() == 1 ? "" : ", ").append("{'id': ").append(100 + keyword * 3)
+                        .append(", 'name': '").append(keywordName(keyword)).append("'}");
+                }
+            }
+            row.append(movieIds[i]).append(',');
+            cell(row, list.append(']').toString());
+            out.append(row.append('\n'));
+        }
+    }
+
+    private void writeRatings(Writer out) throws IOException {
+        SplittableRandom random = random(4);
+        Zipf movies = new Zipf(numMovies, skew);
+        Zipf activity = new Zipf(numUsers, skew);
+        int[] userOrder = permutation(numUsers, random);
+        StringBuilder row = new StringBuilder();
+        HashSet<Integer> rated = new HashSet<>();
+        out.write("userId,movieLensId,tmdbId,rating,timestamp\n");
+
+        // each user gives their share of the ratings by how active they are, up to a tenth of the films, with what that cuts off
+        // handed out one at a time to the users below it
+        int maxPerUser = Math.max(1, numMovies / MAX_USER_SHARE);
+        int[] perUser = new int[numUsers];
+        long given = 0;
+        for (int rank = 0; rank < numUsers; rank++) {
+            perUser[rank] = (int) Math.min(maxPerUser, (long) (numRatings * activity.probability(rank)));
+            given += perUser[rank];
+        }
+        for (int rank = 0; given < numRatings; rank = (rank + 1) % numUsers) {
+            if (perUser[rank] < maxPerUser) {
+                perUser[rank]++;
+                given++;
+            }
+        }
+
+        for (int rank = 0; rank < numUsers; rank++) {
+            int userId = 1 + userOrder[rank];
+            rated.clear();
+            for (int r = 0; r < perUser[rank]; r++) {
+                // the most active users run out of popular films, so after a few repeats take any film instead
+                int movie = movies.next(random);
+                for (int attempt = 0; !rated.add(movie); attempt++) {
+                    movie = attempt < 8 ? movies.next(random) : random.nextInt(numMovies);
+                }
+                // ratings are on a half star scale, clustered around how good the film is
+                double stars = Math.max(0.5, Math.min(5.0, quality[movie] + 2 * (bell(random) - 0.5)));
+                long timestamp = 789_652_009L + (long) (random.nextDouble() * 740_000_000L);
+
+                row.setLength(0);
+                row.append(userId).append(',').append(movie + 1).append(',').append(movieIds[movie]).append(',')
+                   .append(Math.round(stars * 2) / 2.0).append(',').append(timestamp).append('\n');
+                out.append(row);
+            }
+        }
+    }
+
+    /**
+     * Draws ranks from 0 to n - 1 by Zipf's law, rank k being drawn in proportion to 1 / (k + 1)^skew. The cumulative weights are
+     * held in an array and searched, so each draw takes O(log n).
+     */
+    static class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double skew) {
+            cumulative = new double[n];
+            double total = 0;
+            for (int k = 0; k < n; k++) {
+                total += 1 / Math.pow(k + 1, skew);
+                cumulative[k] = total;
+            }
+            for (int k = 0; k < n; k++) {
+                cumulative[k] /= total;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            double target = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < target) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        double probability(int rank) {
+            return rank == 0 ? cumulative[0] : cumulative[rank] - cumulative[rank - 1];
+        }
+    }
+
+    // each file has its own stream, so that changing one file's generation doesn't change the others
+    private SplittableRandom random(int stream) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + stream);
+    }
+
+    // roughly bell shaped between 0 and 1, from the mean of three uniforms
+    private static double bell(SplittableRandom random) {
+        return (random.nextDouble() + random.nextDouble() + random.nextDouble()) / 3;
+    }
+
+    private static int[] permutation(int n, SplittableRandom random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        shuffle(order, random);
+        return order;
+    }
+
+    private static void shuffle(int[] values, SplittableRandom random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    // a person's name and gender are worked out from their index, so every film credits them the same way without a table
+    private static String name(int person) {
+        int h = mix(person);
+        return FIRST_NAMES[Integer.remainderUnsigned(h, FIRST_NAMES.length)] + " " + (char) ('A' + Integer.remainderUnsigned(h >>> 8, 26))
+               + ". " + SURNAMES[Integer.remainderUnsigned(h >>> 16, SURNAMES.length)];
+    }
+
+    private static int gender(int person) {
+        return Integer.remainderUnsigned(mix(person) >>> 4, 3);
+    }
+
+    private static int personId(int person) {
+        return 1000 + person * 3;
+    }
+
+    private static String keywordName(int keyword) {
+        String name = WORDS[keyword % WORDS.length];
+        int more = keyword / WORDS.length;
+        return more == 0 ? name : name + " " + WORDS[more % WORDS.length] + (more < WORDS.length ? "" : " " + more / WORDS.length);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static String title(SplittableRandom random) {
+        String title = "The " + capitalise(WORDS[random.nextInt(WORDS.length)]);
+        switch (random.nextInt(4)) {
+            case 0: return title;
+            case 1: return title + " of the " + capitalise(WORDS[random.nextInt(WORDS.length)]);
+            case 2: return capitalise(WORDS[random.nextInt(WORDS.length)]) + " " + capitalise(WORDS[random.nextInt(WORDS.length)]);
+            default: return title + " " + (2 + random.nextInt(4));
+        }
+    }
+
+    private static String overview(SplittableRandom random) {
+        StringBuilder overview = new StringBuilder();
+        int sentences = 1 + random.nextInt(4);
+        for (int s = 0; s < sentences; s++) {
+            overview.append(s == 0 ? "" : " ").append(capitalise(PEOPLE[random.nextInt(PEOPLE.length)])).append(' ')
+                    .append(VERBS[random.nextInt(VERBS.length)]).append(" the ").append(WORDS[random.nextInt(WORDS.length)])
+                    .append(random.nextBoolean() ? ", and nothing will be the same again." : " in the " + WORDS[random.nextInt(WORDS.length)] + ".");
+        }
+        return overview.toString();
+    }
+
+    private static String idNameList(SplittableRandom random, String[][] values, int count, String idKey, String nameKey) {
+        StringBuilder list = new StringBuilder("[");
+        int first = random.nextInt(values.length);
+        for (int i = 0; i < count; i++) {
+            String[] value = values[(first + i * 7) % values.length];
+            list.append(i == 0 ? "" : ", ").append("{'").append(idKey).append("': ").append(value[0])
+                .append(", '").append(nameKey).append("': '").append(value[1]).append("'}");
+        }
+        return list.append(']').toString();
+    }
+
+    private static String iso(SplittableRandom random, String[][] values, String isoKey, int count) {
+        StringBuilder list = new StringBuilder("[");
+        // mostly the first, as most films are American and in English
+        int first = random.nextInt(3) == 0 ? random.nextInt(values.length) : 0;
+        for (int i = 0; i < count; i++) {
+            String[] value = values[(first + i * 5) % values.length];
+            list.append(i == 0 ? "" : ", ").append("{'").append(isoKey).append("': '").append(value[0])
+                .append("', 'name': '").append(value[1]).append("'}");
+        }
+        return list.append(']').toString();
+    }
+
+    private static String path(SplittableRandom random) {
+        return "/" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + ".jpg";
+    }
+
+    private static String profile(SplittableRandom random) {
+        return random.nextInt(3) == 0 ? "None" : "'" + path(random) + "'";
+    }
+
+    private static String hex(SplittableRandom random) {
+        String digits = Long.toHexString(random.nextLong()) + Integer.toHexString(random.nextInt());
+        StringBuilder id = new StringBuilder(24);
+        for (int i = digits.length(); i < 24; i++) {
+            id.append('0');
+        }
+        return id.append(digits).toString();
+    }
+
+    private static String capitalise(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    // a csv cell, quoted if it holds anything that would otherwise end it
+    private static void cell(StringBuilder row, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            row.append(value);
+            return;
+        }
+        row.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder().longOpt("out").argName("directory")
+                                .hasArg().desc("The directory to write the csv files to (default data/generated)")
+                                .build());
+        options.addOption(Option.builder().longOpt("movies").argName("count")
+                                .hasArg().desc("The number of films (default 10000)")
+                                .build());
+        options.addOption(Option.builder().longOpt("ratings").argName("count")
+                                .hasArg().desc("The number of ratings (default 100 per film)")
+                                .build());
+        options.addOption(Option.builder().longOpt("users").argName("count")
+                                .hasArg().desc("The number of users giving the ratings (default one per 50 ratings)")
+                                .build());
+        options.addOption(Option.builder().longOpt("people").argName("count")
+                                .hasArg().desc("The number of people in the cast and crew (default 4 per film)")
+                                .build());
+        options.addOption(Option.builder().longOpt("skew").argName("exponent")
+                                .hasArg().desc("The Zipf exponent of every popularity (default 1.0)")
+                                .build());
+        options.addOption(Option.builder().longOpt("seed").argName("seed")
+                                .hasArg().desc("The seed to generate from, the same seed giving the same files (default 126)")
+                                .build());
+        options.addOption(Option.builder().longOpt("gzip")
+                                .desc("Write the files gzip compressed, as name.csv.gz")
+                                .build());
+        options.addOption("h", "help", false, "Show this help message");
+
+        CommandLineParser cliParser = new DefaultParser();
+        DataGenerator generator;
+        try {
+            CommandLine line = cliParser.parse(options, args);
+            if (line.hasOption("help")) {
+                new HelpFormatter().printHelp("DataGenerator", options);
+                return;
+            }
+            int numMovies = Integer.parseInt(line.getOptionValue("movies", "10000"));
+            long numRatings = Long.parseLong(line.getOptionValue("ratings", Long.toString(100L * numMovies)));
+            int numUsers = Integer.parseInt(line.getOptionValue("users", Long.toString(Math.max(1, numRatings / 50))));
+            int numPeople = Integer.parseInt(line.getOptionValue("people", Long.toString(4L * numMovies)));
+            double skew = Double.parseDouble(line.getOptionValue("skew", "1.0"));
+            long seed = Long.parseLong(line.getOptionValue("seed", "126"));
+            generator = new DataGenerator(new File(line.getOptionValue("out", "data/generated")), numMovies, numRatings, numUsers, numPeople, skew, seed);
+            generator.setGzip(line.hasOption("gzip"));
+        }
+        catch (ParseException | IllegalArgumentException e) {
+            System.err.println("Exception in parsing command line arguments: \n" + e.getMessage());
+            return;
+        }
+
+        try {
+            generator.generate();
+        }
+        catch (IOException e) {
+            System.err.println("Unable to generate the data: " + e.getMessage());
+        }
+    }
+}
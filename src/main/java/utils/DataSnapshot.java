@@ -0,0 +1,1042 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import interfaces.AbstractStores;
+import interfaces.ICredits;
+import interfaces.IKeywords;
+import interfaces.IMovies;
+import interfaces.IRatings;
+import stores.CastCredit;
+import stores.Company;
+import stores.CrewCredit;
+import stores.Genre;
+import stores.Keyword;
+import stores.MovieBatch;
+import utils.LoadData.CreditRecord;
+import utils.LoadData.KeywordRecord;
+import utils.LoadData.MovieRecord;
+import utils.LoadData.NumRecordsAdded;
+import utils.LoadData.RatingRecord;
+
+/**
+ * A binary copy of everything LoadData reads from the csv files, so that later runs can skip parsing them (and the json inside
+ * them) altogether.
+ *
+ * The file starts with a header holding a magic number, the format version and a fingerprint (path, size and last modified time)
+ * of each csv file it was made from, followed by a directory giving the offset and length of every column. Each column is a flat
+ * array of ints, longs, floats, doubles or bytes. Strings are stored once each in a dictionary, and string columns hold indexes
+ * into it. Nested arrays (a film's genres, a credit's cast, and so on) are flattened into their own columns, with an offset column
+ * saying where each record's items start.
+ *
+ * The snapshot is memory mapped read only, so any number of processes can read the same file at once. A single mapping can't be
+ * bigger than 2GB, so each column is mapped on its own, in segments of at most SEGMENT_BYTES, and copied out a segment at a time.
+ * It is written to a temporary file and moved into place, so readers never see a half-written snapshot.
+ */
+public class DataSnapshot {
+    private static final long MAGIC = 0x5750534E41505348L; // "WPSNAPSH"
+    private static final int VERSION = 1;
+
+    // stands in for a null string or release date
+    private static final int NONE = -1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    // the most of a column mapped at once, a whole number of items of every type
+    private static final int SEGMENT_BYTES = 1 << 30;
+
+    private enum Type {
+        INT(4), LONG(8), FLOAT(4), DOUBLE(8), BYTE(1);
+
+        final int width;
+
+        Type(int width) {
+            this.width = width;
+        }
+    }
+
+    /**
+     * Every column in the file, in the order they are stored. Adding, removing or reordering columns needs a new VERSION.
+     */
+    private enum Column {
+        // the string dictionary, as utf-8 bytes and where each string starts
+        STRING_OFFSETS(Type.INT), STRING_BYTES(Type.BYTE),
+
+        // films, in file order
+        MOVIE_ID(Type.INT), MOVIE_TITLE(Type.INT), MOVIE_ORIGINAL_TITLE(Type.INT), MOVIE_OVERVIEW(Type.INT),
+        MOVIE_TAGLINE(Type.INT), MOVIE_STATUS(Type.INT), MOVIE_RELEASE(Type.INT), MOVIE_BUDGET(Type.LONG),
+        MOVIE_REVENUE(Type.LONG), MOVIE_ORIGINAL_LANGUAGE(Type.INT), MOVIE_RUNTIME(Type.DOUBLE), MOVIE_HOMEPAGE(Type.INT),
+        MOVIE_ADULT(Type.BYTE), MOVIE_VIDEO(Type.BYTE), MOVIE_POSTER(Type.INT), MOVIE_VOTE_AVERAGE(Type.DOUBLE),
+        MOVIE_VOTE_COUNT(Type.INT), MOVIE_IMDB(Type.INT), MOVIE_POPULARITY(Type.DOUBLE), MOVIE_COLLECTION_ID(Type.INT),
+        MOVIE_COLLECTION_NAME(Type.INT), MOVIE_COLLECTION_POSTER(Type.INT), MOVIE_COLLECTION_BACKDROP(Type.INT),
+        GENRE_OFFSETS(Type.INT), GENRE_ID(Type.INT), GENRE_NAME(Type.INT),
+        LANGUAGE_OFFSETS(Type.INT), LANGUAGE(Type.INT),
+        COMPANY_OFFSETS(Type.INT), COMPANY_ID(Type.INT), COMPANY_NAME(Type.INT),
+        COUNTRY_OFFSETS(Type.INT), COUNTRY(Type.INT),
+
+        // for each film, its credits and keywords rows (or NONE), and where its ratings start in RATING_BY_MOVIE
+        MOVIE_CREDIT_ROW(Type.INT), MOVIE_KEYWORD_ROW(Type.INT), MOVIE_RATING_OFFSETS(Type.INT), RATING_BY_MOVIE(Type.INT),
+
+        // credits, in file order
+        CREDIT_MOVIE_ID(Type.INT),
+        CAST_OFFSETS(Type.INT), CAST_ELEMENT_ID(Type.INT), CAST_CHARACTER(Type.INT), CAST_CREDIT_ID(Type.INT), CAST_ID(Type.INT),
+        CAST_NAME(Type.INT), CAST_ORDER(Type.INT), CAST_PROFILE_PATH(Type.INT),
+        CREW_OFFSETS(Type.INT), CREW_CREDIT_ID(Type.INT), CREW_DEPARTMENT(Type.INT), CREW_ID(Type.INT), CREW_JOB(Type.INT),
+        CREW_NAME(Type.INT), CREW_PROFILE_PATH(Type.INT),
+
+        // keywords, in file order
+        KEYWORD_MOVIE_ID(Type.INT), KEYWORD_OFFSETS(Type.INT), KEYWORD_ID(Type.INT), KEYWORD_NAME(Type.INT),
+
+        // ratings, in file order
+        RATING_USER_ID(Type.INT), RATING_MOVIE_ID(Type.INT), RATING_VALUE(Type.FLOAT), RATING_TIMESTAMP(Type.LONG);
+
+        final Type type;
+
+        Column(Type type) {
+            this.type = type;
+        }
+    }
+
+    // the mapped segments of each column, and how many items it has
+    private final ByteBuffer[][] segments;
+    private final int[] counts;
+
+    // strings are decoded the first time they are needed, and shared after that. stores populated in parallel may each decode
+    // the same string, which is harmless as strings are immutable and only their contents are compared
+    private final int[] stringOffsets;
+    private final byte[] stringBytes;
+    private final String[] strings;
+
+    private DataSnapshot(ByteBuffer[][] segments, int[] counts) {
+        this.segments = segments;
+        this.counts = counts;
+        this.stringOffsets = ints(Column.STRING_OFFSETS);
+        this.stringBytes = bytes(Column.STRING_BYTES);
+        this.strings = new String[stringOffsets.length - 1];
+    }
+
+
+
+    /****************************************************/
+    /*                                                  */
+    /*                     Reading                      */
+    /*                                                  */
+    /****************************************************/
+
+    /**
+     * Maps a snapshot, if there is one that was made from exactly these csv files
+     *
+     * @return the snapshot, or null if it doesn't exist, is from another version, or any of the csv files have changed since
+     */
+    public static DataSnapshot open(String snapshotPath, String creditsPath, String keywordsPath, String movieMetadataPath, String ratingsPath) {
+        File snapshotFile = new File(snapshotPath);
+        if (!snapshotFile.isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // the header and directory are at the start, well within the first segment. mappings stay valid once the channel
+            // is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, SEGMENT_BYTES));
+
+            if (buffer.getLong() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != Column.values().length) {
+                System.out.println("Data snapshot ('" + snapshotPath + "') is from a different version, loading from csv files instead");
+                return null;
+            }
+            for (String sourcePath : new String[] {creditsPath, keywordsPath, movieMetadataPath, ratingsPath}) {
+                if (!readFingerprint(buffer).equals(fingerprint(sourcePath))) {
+                    System.out.println("Data snapshot ('" + snapshotPath + "') is out of date, loading from csv files instead");
+                    return null;
+                }
+            }
+
+            Column[] columns = Column.values();
+            long[] offsets = new long[columns.length];
+            int[] counts = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                offsets[i] = buffer.getLong();
+                counts[i] = buffer.getInt();
+                if (offsets[i] < 0 || counts[i] < 0 || offsets[i] + (long) counts[i] * columns[i].type.width > size) {
+                    System.err.println("Data snapshot ('" + snapshotPath + "') is corrupt, loading from csv files instead");
+                    return null;
+                }
+            }
+
+            ByteBuffer[][] segments = new ByteBuffer[columns.length][];
+            for (int i = 0; i < columns.length; i++) {
+                segments[i] = map(channel, offsets[i], (long) counts[i] * columns[i].type.width);
+            }
+            return new DataSnapshot(segments, counts);
+        }
+        catch (IOException | BufferUnderflowException e) {
+            System.err.println("Unable to read data snapshot ('" + snapshotPath + "'), loading from csv files instead: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the number of films in the snapshot
+     */
+    public int getNumMovieRecords() {
+        return counts[Column.MOVIE_ID.ordinal()];
+    }
+
+    /**
+     * Populates the stores with everything in the snapshot, as LoadData.populate would with the csv files
+     */
+    public NumRecordsAdded populate(AbstractStores stores) {
+        return populate(stores, false);
+    }
+
+    /**
+     * Populates the stores with everything in the snapshot, optionally filling the four stores at the same time
+     */
+    public NumRecordsAdded populate(AbstractStores stores, boolean parallel) {
+        return populate(stores, false, 0, getNumMovieRecords(), parallel);
+    }
+
+    /**
+     * Populates the stores with a range of films and their credits, keywords and ratings, as LoadData.populate would with the csv
+     * files
+     */
+    public NumRecordsAdded populate(AbstractStores stores, int firstMovieIndex, int numMovies) {
+        return populate(stores, firstMovieIndex, numMovies, false);
+    }
+
+    /**
+     * Populates the stores with a range of films, optionally filling the four stores at the same time
+     */
+    public NumRecordsAdded populate(AbstractStores stores, int firstMovieIndex, int numMovies, boolean parallel) {
+        System.out.println("Populating stores with restriction: " + numMovies + " movies...");
+        if (firstMovieIndex < 0 || numMovies <= 0) {
+            System.err.println("Unable to populate. Invalid firstMovieIndex or numMovies given");
+            return null;
+        }
+        if (firstMovieIndex + numMovies > getNumMovieRecords()) {
+            System.err.println("Invalid parameters for loading a section of the dataset. Asking to load past the end of the dataset");
+            numMovies = Math.max(0, getNumMovieRecords() - firstMovieIndex);
+        }
+        return populate(stores, true, firstMovieIndex, numMovies, parallel);
+    }
+
+    private NumRecordsAdded populate(AbstractStores stores, boolean loadSection, int firstMovieIndex, int numMovies, boolean parallel) {
+        System.out.println("Populating stores from snapshot...");
+        Instant start = Instant.now();
+
+        int[] movieRows = range(firstMovieIndex, firstMovieIndex + numMovies);
+        int[] creditRows;
+        int[] keywordRows;
+        int[] ratingRows;
+        if (!loadSection) {
+            creditRows = range(0, counts[Column.CREDIT_MOVIE_ID.ordinal()]);
+            keywordRows = range(0, counts[Column.KEYWORD_MOVIE_ID.ordinal()]);
+            ratingRows = null;
+        }
+        else {
+            // the other stores only get the records for the chosen films, in film order
+            creditRows = presentRows(ints(Column.MOVIE_CREDIT_ROW), firstMovieIndex, numMovies);
+            keywordRows = presentRows(ints(Column.MOVIE_KEYWORD_ROW), firstMovieIndex, numMovies);
+            int[] ratingOffsets = ints(Column.MOVIE_RATING_OFFSETS);
+            ratingRows = ints(Column.RATING_BY_MOVIE, ratingOffsets[firstMovieIndex], ratingOffsets[firstMovieIndex + numMovies]);
+        }
+
+        // every rating is given to the store when the whole snapshot is loaded
+        int numRatings = ratingRows == null ? counts[Column.RATING_USER_ID.ordinal()] : ratingRows.length;
+        NumRecordsAdded added = new NumRecordsAdded(creditRows.length, keywordRows.length, movieRows.length, numRatings);
+        LoadData.populateStores(parallel, added,
+                                () -> populateMovies(stores.getMovies(), movieRows),
+                                () -> populateCredits(stores.getCredits(), creditRows),
+                                () -> populateKeywords(stores.getKeywords(), keywordRows),
+                                () -> populateRatings(stores.getRatings(), ratingRows));
+
+        Duration d = Duration.between(start, Instant.now());
+        System.out.println("Overall time to populate stores:");
+        System.out.println(d.toMillis() + "ms");
+
+        return added;
+    }
+
+    private void populateMovies(IMovies movies, int[] rows) {
+        System.out.println("Populating Movies Store...");
+        int[] ids = ints(Column.MOVIE_ID);
+        int[] titles = ints(Column.MOVIE_TITLE);
+        int[] originalTitles = ints(Column.MOVIE_ORIGINAL_TITLE);
+        int[] overviews = ints(Column.MOVIE_OVERVIEW);
+        int[] taglines = ints(Column.MOVIE_TAGLINE);
+        int[] statuses = ints(Column.MOVIE_STATUS);
+        int[] releases = ints(Column.MOVIE_RELEASE);
+        long[] budgets = longs(Column.MOVIE_BUDGET);
+        long[] revenues = longs(Column.MOVIE_REVENUE);
+        int[] originalLanguages = ints(Column.MOVIE_ORIGINAL_LANGUAGE);
+        double[] runtimes = doubles(Column.MOVIE_RUNTIME);
+        int[] homepages = ints(Column.MOVIE_HOMEPAGE);
+        byte[] adult = bytes(Column.MOVIE_ADULT);
+        byte[] video = bytes(Column.MOVIE_VIDEO);
+        int[] posters = ints(Column.MOVIE_POSTER);
+        double[] voteAverages = doubles(Column.MOVIE_VOTE_AVERAGE);
+        int[] voteCounts = ints(Column.MOVIE_VOTE_COUNT);
+        int[] imdbIDs = ints(Column.MOVIE_IMDB);
+        double[] popularities = doubles(Column.MOVIE_POPULARITY);
+        int[] collectionIDs = ints(Column.MOVIE_COLLECTION_ID);
+        int[] collectionNames = ints(Column.MOVIE_COLLECTION_NAME);
+        int[] collectionPosters = ints(Column.MOVIE_COLLECTION_POSTER);
+        int[] collectionBackdrops = ints(Column.MOVIE_COLLECTION_BACKDROP);
+
+        int[] genreOffsets = ints(Column.GENRE_OFFSETS);
+        int[] genreIDs = ints(Column.GENRE_ID);
+        int[] genreNames = ints(Column.GENRE_NAME);
+        int[] languageOffsets = ints(Column.LANGUAGE_OFFSETS);
+        int[] languages = ints(Column.LANGUAGE);
+        int[] companyOffsets = ints(Column.COMPANY_OFFSETS);
+        int[] companyIDs = ints(Column.COMPANY_ID);
+        int[] companyNames = ints(Column.COMPANY_NAME);
+        int[] countryOffsets = ints(Column.COUNTRY_OFFSETS);
+        int[] countries = ints(Column.COUNTRY);
+
+        MovieBatch batch = new MovieBatch(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            batch.ids[i] = ids[row];
+            batch.titles[i] = string(titles[row]);
+            batch.originalTitles[i] = string(originalTitles[row]);
+            batch.overviews[i] = string(overviews[row]);
+            batch.taglines[i] = string(taglines[row]);
+            batch.statuses[i] = string(statuses[row]);
+            batch.releases[i] = releases[row] == NO_DATE ? null : LocalDate.ofEpochDay(releases[row]);
+            batch.budgets[i] = budgets[row];
+            batch.revenues[i] = revenues[row];
+            batch.originalLanguages[i] = string(originalLanguages[row]);
+            batch.runtimes[i] = runtimes[row];
+            batch.homepages[i] = string(homepages[row]);
+            batch.adult[i] = adult[row] != 0;
+            batch.video[i] = video[row] != 0;
+            batch.posters[i] = string(posters[row]);
+            batch.voteAverages[i] = voteAverages[row];
+            batch.voteCounts[i] = voteCounts[row];
+            batch.imdbIDs[i] = string(imdbIDs[row]);
+            batch.popularities[i] = popularities[row];
+            batch.collectionIDs[i] = collectionIDs[row];
+            batch.collectionNames[i] = string(collectionNames[row]);
+            batch.collectionPosterPaths[i] = string(collectionPosters[row]);
+            batch.collectionBackdropPaths[i] = string(collectionBackdrops[row]);
+
+            Genre[] genres = new Genre[genreOffsets[row + 1] - genreOffsets[row]];
+            for (int j = 0; j < genres.length; j++) {
+                int item = genreOffsets[row] + j;
+                genres[j] = new Genre(genreIDs[item], string(genreNames[item]));
+            }
+            batch.genres[i] = genres;
+
+            batch.languages[i] = strings(languages, languageOffsets[row], languageOffsets[row + 1]);
+
+            Company[] companies = new Company[companyOffsets[row + 1] - companyOffsets[row]];
+            for (int j = 0; j < companies.length; j++) {
+                int item = companyOffsets[row] + j;
+                companies[j] = new Company(companyIDs[item], string(companyNames[item]));
+            }
+            batch.productionCompanies[i] = companies;
+
+            batch.productionCountries[i] = strings(countries, countryOffsets[row], countryOffsets[row + 1]);
+        }
+        movies.addAll(batch);
+    }
+
+    private void populateCredits(ICredits credits, int[] rows) {
+        System.out.println("Populating Credits Store...");
+        int[] movieIDs = ints(Column.CREDIT_MOVIE_ID);
+        int[] castOffsets = ints(Column.CAST_OFFSETS);
+        int[] castElementIDs = ints(Column.CAST_ELEMENT_ID);
+        int[] castCharacters = ints(Column.CAST_CHARACTER);
+        int[] castCreditIDs = ints(Column.CAST_CREDIT_ID);
+        int[] castIDs = ints(Column.CAST_ID);
+        int[] castNames = ints(Column.CAST_NAME);
+        int[] castOrders = ints(Column.CAST_ORDER);
+        int[] castProfiles = ints(Column.CAST_PROFILE_PATH);
+        int[] crewOffsets = ints(Column.CREW_OFFSETS);
+        int[] crewCreditIDs = ints(Column.CREW_CREDIT_ID);
+        int[] crewDepartments = ints(Column.CREW_DEPARTMENT);
+        int[] crewIDs = ints(Column.CREW_ID);
+        int[] crewJobs = ints(Column.CREW_JOB);
+        int[] crewNames = ints(Column.CREW_NAME);
+        int[] crewProfiles = ints(Column.CREW_PROFILE_PATH);
+
+        CastCredit[][] cast = new CastCredit[rows.length][];
+        CrewCredit[][] crew = new CrewCredit[rows.length][];
+        int[] filmIDs = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            filmIDs[i] = movieIDs[row];
+
+            cast[i] = new CastCredit[castOffsets[row + 1] - castOffsets[row]];
+            for (int j = 0; j < cast[i].length; j++) {
+                int item = castOffsets[row] + j;
+                cast[i][j] = new CastCredit(castElementIDs[item], string(castCharacters[item]), string(castCreditIDs[item]),
+                                            castIDs[item], string(castNames[item]), castOrders[item], string(castProfiles[item]));
+            }
+
+            crew[i] = new CrewCredit[crewOffsets[row + 1] - crewOffsets[row]];
+            for (int j = 0; j < crew[i].length; j++) {
+                int item = crewOffsets[row] + j;
+                crew[i][j] = new CrewCredit(string(crewCreditIDs[item]), string(crewDepartments[item]), crewIDs[item],
+                                            string(crewJobs[item]), string(crewNames[item]), string(crewProfiles[item]));
+            }
+        }
+        credits.addAll(cast, crew, filmIDs);
+    }
+
+    private void populateKeywords(IKeywords keywords, int[] rows) {
+        System.out.println("Populating Keywords Store...");
+        int[] movieIDs = ints(Column.KEYWORD_MOVIE_ID);
+        int[] keywordOffsets = ints(Column.KEYWORD_OFFSETS);
+        int[] keywordIDs = ints(Column.KEYWORD_ID);
+        int[] keywordNames = ints(Column.KEYWORD_NAME);
+
+        int[] filmIDs = new int[rows.length];
+        Keyword[][] filmKeywords = new Keyword[rows.length][];
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            filmIDs[i] = movieIDs[row];
+            filmKeywords[i] = new Keyword[keywordOffsets[row + 1] - keywordOffsets[row]];
+            for (int j = 0; j < filmKeywords[i].length; j++) {
+                int item = keywordOffsets[row] + j;
+                filmKeywords[i][j] = new Keyword(keywordIDs[item], string(keywordNames[item]));
+            }
+        }
+        keywords.addAll(filmIDs, filmKeywords);
+    }
+
+    /**
+     * @param rows the ratings to add, or null for all of them in file order
+     */
+    private void populateRatings(IRatings ratings, int[] rows) {
+        System.out.println("Populating Ratings Store...");
+        int[] userIDs = ints(Column.RATING_USER_ID);
+        int[] movieIDs = ints(Column.RATING_MOVIE_ID);
+        float[] values = floats(Column.RATING_VALUE);
+        long[] timestamps = longs(Column.RATING_TIMESTAMP);
+
+        if (rows != null) {
+            int[] chosenUserIDs = new int[rows.length];
+            int[] chosenMovieIDs = new int[rows.length];
+            float[] chosenValues = new float[rows.length];
+            long[] chosenTimestamps = new long[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                chosenUserIDs[i] = userIDs[rows[i]];
+                chosenMovieIDs[i] = movieIDs[rows[i]];
+                chosenValues[i] = values[rows[i]];
+                chosenTimestamps[i] = timestamps[rows[i]];
+            }
+            userIDs = chosenUserIDs;
+            movieIDs = chosenMovieIDs;
+            values = chosenValues;
+            timestamps = chosenTimestamps;
+        }
+
+        ratings.addRatings(userIDs, movieIDs, values, timestamps);
+    }
+
+    private static int[] range(int from, int to) {
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = from + i;
+        }
+        return rows;
+    }
+
+    // the rows named by a by-film column for a range of films, skipping films without one
+    private static int[] presentRows(int[] rowByMovie, int firstMovieIndex, int numMovies) {
+        int count = 0;
+        for (int i = firstMovieIndex; i < firstMovieIndex + numMovies; i++) {
+            if (rowByMovie[i] != NONE) {
+                count++;
+            }
+        }
+        int[] rows = new int[count];
+        count = 0;
+        for (int i = firstMovieIndex; i < firstMovieIndex + numMovies; i++) {
+            if (rowByMovie[i] != NONE) {
+                rows[count++] = rowByMovie[i];
+            }
+        }
+        return rows;
+    }
+
+    private String string(int id) {
+        if (id == NONE) {
+            return null;
+        }
+        String string = strings[id];
+        if (string == null) {
+            string = new String(stringBytes, stringOffsets[id], stringOffsets[id + 1] - stringOffsets[id], StandardCharsets.UTF_8);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    private String[] strings(int[] ids, int from, int to) {
+        String[] result = new String[to - from];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = string(ids[from + i]);
+        }
+        return result;
+    }
+
+    // maps a column in segments of at most SEGMENT_BYTES
+    private static ByteBuffer[] map(FileChannel channel, long offset, long length) throws IOException {
+        ByteBuffer[] segments = new ByteBuffer[(int) ((length + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i * SEGMENT_BYTES;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(SEGMENT_BYTES, length - start));
+        }
+        return segments;
+    }
+
+    /**
+     * Copies some of the items of a column out of one of its segments
+     */
+    private interface SegmentCopy {
+        // copies count items from the start of a segment, to an index in the values being read
+        void copy(ByteBuffer segment, int index, int count);
+    }
+
+    // copies the items of a column from one index up to another, a segment at a time. each segment is read through its own view,
+    // so columns can be read independently
+    private void copy(Column column, int from, int to, SegmentCopy copy) {
+        int perSegment = SEGMENT_BYTES / column.type.width;
+        ByteBuffer[] columnSegments = segments[column.ordinal()];
+        int item = from;
+        while (item < to) {
+            int segment = item / perSegment;
+            int inSegment = item - segment * perSegment;
+            int count = Math.min(to - item, perSegment - inSegment);
+            ByteBuffer view = columnSegments[segment].duplicate();
+            view.position(inSegment * column.type.width);
+            copy.copy(view.slice(), item - from, count);
+            item += count;
+        }
+    }
+
+    private int[] ints(Column column) {
+        return ints(column, 0, counts[column.ordinal()]);
+    }
+
+    private int[] ints(Column column, int from, int to) {
+        int[] values = new int[to - from];
+        copy(column, from, to, (segment, index, count) -> segment.asIntBuffer().get(values, index, count));
+        return values;
+    }
+
+    private long[] longs(Column column) {
+        long[] values = new long[counts[column.ordinal()]];
+        copy(column, 0, values.length, (segment, index, count) -> segment.asLongBuffer().get(values, index, count));
+        return values;
+    }
+
+    private float[] floats(Column column) {
+        float[] values = new float[counts[column.ordinal()]];
+        copy(column, 0, values.length, (segment, index, count) -> segment.asFloatBuffer().get(values, index, count));
+        return values;
+    }
+
+    private double[] doubles(Column column) {
+        double[] values = new double[counts[column.ordinal()]];
+        copy(column, 0, values.length, (segment, index, count) -> segment.asDoubleBuffer().get(values, index, count));
+        return values;
+    }
+
+    private byte[] bytes(Column column) {
+        byte[] values = new byte[counts[column.ordinal()]];
+        copy(column, 0, values.length, (segment, index, count) -> segment.get(values, index, count));
+        return values;
+    }
+
+
+
+    /****************************************************/
+    /*                                                  */
+    /*                     Writing                      */
+    /*                                                  */
+    /****************************************************/
+
+    /**
+     * Writes a snapshot of everything a LoadData has read. Failing to write one isn't fatal, as the csv files can always be read
+     * again, so errors are only reported.
+     */
+    public static void write(String snapshotPath, LoadData data, String creditsPath, String keywordsPath, String movieMetadataPath, String ratingsPath) {
+        Instant start = Instant.now();
+        File snapshotFile = new File(snapshotPath).getAbsoluteFile();
+        File tempFile = null;
+        try {
+            Object[] columns = new Columns(data).columns;
+
+            // the header, then the directory, then each column in turn
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            ByteBuffer fixed = ByteBuffer.allocate(16).putLong(MAGIC).putInt(VERSION).putInt(columns.length);
+            header.write(fixed.array());
+            for (String sourcePath : new String[] {creditsPath, keywordsPath, movieMetadataPath, ratingsPath}) {
+                header.write(fingerprint(sourcePath).toBytes());
+            }
+
+            ByteBuffer directory = ByteBuffer.allocate(columns.length * 12);
+            long offset = header.size() + directory.capacity();
+            for (int i = 0; i < columns.length; i++) {
+                int count = length(columns[i]);
+                directory.putLong(offset).putInt(count);
+                offset += (long) count * Column.values()[i].type.width;
+            }
+            tempFile = File.createTempFile(snapshotFile.getName(), ".tmp", snapshotFile.getParentFile());
+            tempFile.deleteOnExit();
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+                put(channel, out, header.toByteArray());
+                put(channel, out, directory.array());
+                for (Object column : columns) {
+                    put(channel, out, column);
+                }
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+
+            // readers either see the old snapshot or the new one, never a partly written one
+            Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Wrote data snapshot to \"" + snapshotPath + "\" in " + Duration.between(start, Instant.now()).toMillis() + "ms");
+        }
+        catch (IOException e) {
+            System.err.println("Unable to write data snapshot ('" + snapshotPath + "'): " + e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Every column of a snapshot, built from a LoadData's records
+     */
+    private static class Columns {
+        final Object[] columns = new Object[Column.values().length];
+
+        // the string dictionary, built as columns are added
+        private final HashMap<String, Integer> stringIDs = new HashMap<>();
+        private final ArrayList<Integer> stringOffsets = new ArrayList<>();
+        private final ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+
+        Columns(LoadData data) {
+            stringOffsets.add(0);
+            addMovies(data.backendMovies);
+            addCredits(data.backendCredits);
+            addKeywords(data.backendKeywords);
+            addRatings(data.backendRatings);
+            addByMovie(data);
+
+            int[] offsets = new int[stringOffsets.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = stringOffsets.get(i);
+            }
+            set(Column.STRING_OFFSETS, offsets);
+            set(Column.STRING_BYTES, stringBytes.toByteArray());
+        }
+
+        private void set(Column column, Object values) {
+            columns[column.ordinal()] = values;
+        }
+
+        private int id(String string) {
+            if (string == null) {
+                return NONE;
+            }
+            Integer id = stringIDs.get(string);
+            if (id == null) {
+                id = stringIDs.size();
+                stringIDs.put(string, id);
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                stringBytes.write(bytes, 0, bytes.length);
+                stringOffsets.add(stringBytes.size());
+            }
+            return id;
+        }
+
+        private void addMovies(ArrayList<MovieRecord> movies) {
+            int n = movies.size();
+            int[] ids = new int[n], titles = new int[n], originalTitles = new int[n], overviews = new int[n], taglines = new int[n];
+            int[] statuses = new int[n], releases = new int[n], originalLanguages = new int[n], homepages = new int[n];
+            int[] posters = new int[n], voteCounts = new int[n], imdbIDs = new int[n], collectionIDs = new int[n];
+            int[] collectionNames = new int[n], collectionPosters = new int[n], collectionBackdrops = new int[n];
+            long[] budgets = new long[n], revenues = new long[n];
+            double[] runtimes = new double[n], voteAverages = new double[n], popularities = new double[n];
+            byte[] adult = new byte[n], video = new byte[n];
+            int[] genreOffsets = new int[n + 1], languageOffsets = new int[n + 1];
+            int[] companyOffsets = new int[n + 1], countryOffsets = new int[n + 1];
+            IntColumn genreIDs = new IntColumn(), genreNames = new IntColumn(), languages = new IntColumn();
+            IntColumn companyIDs = new IntColumn(), companyNames = new IntColumn(), countries = new IntColumn();
+
+            for (int i = 0; i < n; i++) {
+                MovieRecord mr = movies.get(i);
+                ids[i] = mr.id;
+                titles[i] = id(mr.title);
+                originalTitles[i] = id(mr.originalTitle);
+                overviews[i] = id(mr.overview);
+                taglines[i] = id(mr.tagline);
+                statuses[i] = id(mr.status);
+                releases[i] = mr.release == null ? NO_DATE : (int) mr.release.toEpochDay();
+                budgets[i] = mr.budget;
+                revenues[i] = mr.revenue;
+                originalLanguages[i] = id(mr.originalLanguage);
+                runtimes[i] = mr.runtime;
+                homepages[i] = id(mr.homepage);
+                adult[i] = (byte) (mr.adult ? 1 : 0);
+                video[i] = (byte) (mr.video ? 1 : 0);
+                posters[i] = id(mr.poster);
+                voteAverages[i] = mr.voteAverage;
+                voteCounts[i] = mr.voteCount;
+                imdbIDs[i] = id(mr.imdb);
+                popularities[i] = mr.popularity;
+                collectionIDs[i] = mr.collectionID;
+                collectionNames[i] = id(mr.collectionName);
+                collectionPosters[i] = id(mr.collectionPosterPath);
+                collectionBackdrops[i] = id(mr.collectionBackdropPath);
+
+                for (Genre genre : mr.genres) {
+                    genreIDs.add(genre.getID());
+                    genreNames.add(id(genre.getName()));
+                }
+                genreOffsets[i + 1] = genreIDs.size;
+                for (String language : mr.languages) {
+                    languages.add(id(language));
+                }
+                languageOffsets[i + 1] = languages.size;
+                for (Company company : mr.productionCompanies) {
+                    companyIDs.add(company.getID());
+                    companyNames.add(id(company.getName()));
+                }
+                companyOffsets[i + 1] = companyIDs.size;
+                for (String country : mr.productionCountries) {
+                    countries.add(id(country));
+                }
+                countryOffsets[i + 1] = countries.size;
+            }
+
+            set(Column.MOVIE_ID, ids);
+            set(Column.MOVIE_TITLE, titles);
+            set(Column.MOVIE_ORIGINAL_TITLE, originalTitles);
+            set(Column.MOVIE_OVERVIEW, overviews);
+            set(Column.MOVIE_TAGLINE, taglines);
+            set(Column.MOVIE_STATUS, statuses);
+            set(Column.MOVIE_RELEASE, releases);
+            set(Column.MOVIE_BUDGET, budgets);
+            set(Column.MOVIE_REVENUE, revenues);
+            set(Column.MOVIE_ORIGINAL_LANGUAGE, originalLanguages);
+            set(Column.MOVIE_RUNTIME, runtimes);
+            set(Column.MOVIE_HOMEPAGE, homepages);
+            set(Column.MOVIE_ADULT, adult);
+            set(Column.MOVIE_VIDEO, video);
+            set(Column.MOVIE_POSTER, posters);
+            set(Column.MOVIE_VOTE_AVERAGE, voteAverages);
+            set(Column.MOVIE_VOTE_COUNT, voteCounts);
+            set(Column.MOVIE_IMDB, imdbIDs);
+            set(Column.MOVIE_POPULARITY, popularities);
+            set(Column.MOVIE_COLLECTION_ID, collectionIDs);
+            set(Column.MOVIE_COLLECTION_NAME, collectionNames);
+            set(Column.MOVIE_COLLECTION_POSTER, collectionPosters);
+            set(Column.MOVIE_COLLECTION_BACKDROP, collectionBackdrops);
+            set(Column.GENRE_OFFSETS, genreOffsets);
+            set(Column.GENRE_ID, genreIDs.toArray());
+            set(Column.GENRE_NAME, genreNames.toArray());
+            set(Column.LANGUAGE_OFFSETS, languageOffsets);
+            set(Column.LANGUAGE, languages.toArray());
+            set(Column.COMPANY_OFFSETS, companyOffsets);
+            set(Column.COMPANY_ID, companyIDs.toArray());
+            set(Column.COMPANY_NAME, companyNames.toArray());
+            set(Column.COUNTRY_OFFSETS, countryOffsets);
+            set(Column.COUNTRY, countries.toArray());
+        }
+
+        private void addCredits(ArrayList<CreditRecord> credits) {
+            int n = credits.size();
+            int[] movieIDs = new int[n], castOffsets = new int[n + 1], crewOffsets = new int[n + 1];
+            IntColumn castElementIDs = new IntColumn(), castCharacters = new IntColumn(), castCreditIDs = new IntColumn();
+            IntColumn castIDs = new IntColumn(), castNames = new IntColumn(), castOrders = new IntColumn(), castProfiles = new IntColumn();
+            IntColumn crewCreditIDs = new IntColumn(), crewDepartments = new IntColumn(), crewIDs = new IntColumn();
+            IntColumn crewJobs = new IntColumn(), crewNames = new IntColumn(), crewProfiles = new IntColumn();
+
+            for (int i = 0; i < n; i++) {
+                CreditRecord cr = credits.get(i);
+                movieIDs[i] = cr.movieId;
+                for (CastCredit cast : cr.cast) {
+                    castElementIDs.add(cast.getElementID());
+                    castCharacters.add(id(cast.getCharacter()));
+                    castCreditIDs.add(id(cast.getCreditID()));
+                    castIDs.add(cast.getID());
+                    castNames.add(id(cast.getName()));
+                    castOrders.add(cast.getOrder());
+                    castProfiles.add(id(cast.getProfilePath()));
+                }
+                castOffsets[i + 1] = castIDs.size;
+                for (CrewCredit crew : cr.crew) {
+                    crewCreditIDs.add(id(crew.getElementID()));
+                    crewDepartments.add(id(crew.getDepartment()));
+                    crewIDs.add(crew.getID());
+                    crewJobs.add(id(crew.getJob()));
+                    crewNames.add(id(crew.getName()));
+                    crewProfiles.add(id(crew.getProfilePath()));
+                }
+                crewOffsets[i + 1] = crewIDs.size;
+            }
+
+            set(Column.CREDIT_MOVIE_ID, movieIDs);
+            set(Column.CAST_OFFSETS, castOffsets);
+            set(Column.CAST_ELEMENT_ID, castElementIDs.toArray());
+            set(Column.CAST_CHARACTER, castCharacters.toArray());
+            set(Column.CAST_CREDIT_ID, castCreditIDs.toArray());
+            set(Column.CAST_ID, castIDs.toArray());
+            set(Column.CAST_NAME, castNames.toArray());
+            set(Column.CAST_ORDER, castOrders.toArray());
+            set(Column.CAST_PROFILE_PATH, castProfiles.toArray());
+            set(Column.CREW_OFFSETS, crewOffsets);
+            set(Column.CREW_CREDIT_ID, crewCreditIDs.toArray());
+            set(Column.CREW_DEPARTMENT, crewDepartments.toArray());
+            set(Column.CREW_ID, crewIDs.toArray());
+            set(Column.CREW_JOB, crewJobs.toArray());
+            set(Column.CREW_NAME, crewNames.toArray());
+            set(Column.CREW_PROFILE_PATH, crewProfiles.toArray());
+        }
+
+        private void addKeywords(ArrayList<KeywordRecord> keywords) {
+            int n = keywords.size();
+            int[] movieIDs = new int[n], keywordOffsets = new int[n + 1];
+            IntColumn keywordIDs = new IntColumn(), keywordNames = new IntColumn();
+            for (int i = 0; i < n; i++) {
+                KeywordRecord kr = keywords.get(i);
+                movieIDs[i] = kr.movieId;
+                for (Keyword keyword : kr.keywords) {
+                    keywordIDs.add(keyword.getID());
+                    keywordNames.add(id(keyword.getName()));
+                }
+                keywordOffsets[i + 1] = keywordIDs.size;
+            }
+
+            set(Column.KEYWORD_MOVIE_ID, movieIDs);
+            set(Column.KEYWORD_OFFSETS, keywordOffsets);
+            set(Column.KEYWORD_ID, keywordIDs.toArray());
+            set(Column.KEYWORD_NAME, keywordNames.toArray());
+        }
+
+        private void addRatings(ArrayList<RatingRecord> ratings) {
+            int n = ratings.size();
+            int[] userIDs = new int[n], movieIDs = new int[n];
+            float[] values = new float[n];
+            long[] timestamps = new long[n];
+            for (int i = 0; i < n; i++) {
+                RatingRecord rr = ratings.get(i);
+                userIDs[i] = rr.userId;
+                movieIDs[i] = rr.movieId;
+                values[i] = rr.rating;
+                timestamps[i] = rr.timestamp.toEpochSecond(ZoneOffset.UTC);
+            }
+
+            set(Column.RATING_USER_ID, userIDs);
+            set(Column.RATING_MOVIE_ID, movieIDs);
+            set(Column.RATING_VALUE, values);
+            set(Column.RATING_TIMESTAMP, timestamps);
+        }
+
+        // the by-film columns that let a range of films be loaded without scanning every other record
+        private void addByMovie(LoadData data) {
+            int numMovies = data.backendMovies.size();
+            HashMap<Integer, Integer> movieRows = new HashMap<>();
+            for (int i = 0; i < numMovies; i++) {
+                movieRows.put(data.backendMovies.get(i).id, i);
+            }
+
+            int[] creditRows = new int[numMovies];
+            int[] keywordRows = new int[numMovies];
+            Arrays.fill(creditRows, NONE);
+            Arrays.fill(keywordRows, NONE);
+            for (int i = 0; i < data.backendCredits.size(); i++) {
+                creditRows[movieRows.get(data.backendCredits.get(i).movieId)] = i;
+            }
+            for (int i = 0; i < data.backendKeywords.size(); i++) {
+                keywordRows[movieRows.get(data.backendKeywords.get(i).movieId)] = i;
+            }
+
+            // group the ratings by film, keeping each film's ratings in file order
+            int[] movieIDs = (int[]) columns[Column.RATING_MOVIE_ID.ordinal()];
+            int[] ratingRows = new int[movieIDs.length];
+            int[] ratingOffsets = new int[numMovies + 1];
+            for (int i = 0; i < movieIDs.length; i++) {
+                ratingRows[i] = movieRows.get(movieIDs[i]);
+                ratingOffsets[ratingRows[i] + 1]++;
+            }
+            for (int i = 0; i < numMovies; i++) {
+                ratingOffsets[i + 1] += ratingOffsets[i];
+            }
+            int[] next = ratingOffsets.clone();
+            int[] ratingsByMovie = new int[movieIDs.length];
+            for (int i = 0; i < movieIDs.length; i++) {
+                ratingsByMovie[next[ratingRows[i]]++] = i;
+            }
+
+            set(Column.MOVIE_CREDIT_ROW, creditRows);
+            set(Column.MOVIE_KEYWORD_ROW, keywordRows);
+            set(Column.MOVIE_RATING_OFFSETS, ratingOffsets);
+            set(Column.RATING_BY_MOVIE, ratingsByMovie);
+        }
+    }
+
+    /**
+     * A growable int column, to avoid boxing every nested item
+     */
+    private static class IntColumn {
+        int[] values = new int[16];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static int length(Object column) {
+        if (column instanceof int[]) {
+            return ((int[]) column).length;
+        }
+        if (column instanceof long[]) {
+            return ((long[]) column).length;
+        }
+        if (column instanceof float[]) {
+            return ((float[]) column).length;
+        }
+        if (column instanceof double[]) {
+            return ((double[]) column).length;
+        }
+        return ((byte[]) column).length;
+    }
+
+    // copies a column into the output buffer, writing the buffer out whenever it fills up
+    private static void put(FileChannel channel, ByteBuffer out, Object column) throws IOException {
+        int length = length(column);
+        int position = 0;
+        while (position < length) {
+            if (out.remaining() < 8) {
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                out.clear();
+            }
+            if (column instanceof int[]) {
+                int n = Math.min(length - position, out.remaining() / 4);
+                out.asIntBuffer().put((int[]) column, position, n);
+                out.position(out.position() + n * 4);
+                position += n;
+            }
+            else if (column instanceof long[]) {
+                int n = Math.min(length - position, out.remaining() / 8);
+                out.asLongBuffer().put((long[]) column, position, n);
+                out.position(out.position() + n * 8);
+                position += n;
+            }
+            else if (column instanceof float[]) {
+                int n = Math.min(length - position, out.remaining() / 4);
+                out.asFloatBuffer().put((float[]) column, position, n);
+                out.position(out.position() + n * 4);
+                position += n;
+            }
+            else if (column instanceof double[]) {
+                int n = Math.min(length - position, out.remaining() / 8);
+                out.asDoubleBuffer().put((double[]) column, position, n);
+                out.position(out.position() + n * 8);
+                position += n;
+            }
+            else {
+                int n = Math.min(length - position, out.remaining());
+                out.put((byte[]) column, position, n);
+                position += n;
+            }
+        }
+    }
+
+
+
+    /****************************************************/
+    /*                                                  */
+    /*                   Fingerprints                   */
+    /*                                                  */
+    /****************************************************/
+
+    /**
+     * Identifies a csv file closely enough to tell if it has changed since a snapshot was made from it
+     */
+    private static class Fingerprint {
+        final String path;
+        final long size;
+        final long lastModified;
+
+        Fingerprint(String path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        byte[] toBytes() {
+            byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(4 + pathBytes.length + 16).putInt(pathBytes.length).put(pathBytes)
+                             .putLong(size).putLong(lastModified).array();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            return path.equals(other.path) && size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+    }
+
+    private static Fingerprint fingerprint(String sourcePath) throws IOException {
+        File file = new File(sourcePath);
+        return new Fingerprint(file.getCanonicalPath(), file.length(), file.lastModified());
+    }
+
+    private static Fingerprint readFingerprint(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] pathBytes = new byte[length];
+        buffer.get(pathBytes);
+        return new Fingerprint(new String(pathBytes, StandardCharsets.UTF_8), buffer.getLong(), buffer.getLong());
+    }
+}
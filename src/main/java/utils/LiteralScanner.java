@@ -0,0 +1,599 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Reads the json cells of the csv files, which are lists of dicts written as Python literals, such as
+ * "[{'id': 6270, 'name': 'high school'}, ...]". Each dict is read straight into the few keys wanted from it, as the start and end of
+ * their values in the cell, and handed to an ElementReader to build the element from. No JSONArray or JSONObject tree is built,
+ * values of other keys are skipped over without being decoded, and only the Strings that are read are made.
+ *
+ * Reads what org.json reads and fails where it fails, with the JSONException and message it would throw: strings in single or
+ * double quotes, bare words such as None read as Strings, and getInt and getString convert values the way JSONObject's do.
+ */
+public class LiteralScanner {
+    // what each wanted key held in the current dict
+    private static final byte MISSING = 0;
+    private static final byte QUOTED = 1;
+    private static final byte BARE = 2;
+    private static final byte NESTED = 3;
+
+    // the characters that end a bare word, as in org.json
+    private static final String BARE_WORD_ENDS = ",:]}/\\\"[{;=#";
+
+    /**
+     * Builds one element of a list from the dict it was written as
+     *
+     * @param <T> the type of element
+     */
+    public interface ElementReader<T> {
+        T read(LiteralScanner dict);
+    }
+
+    private final String[] keys;
+    private final byte[] kinds;
+    private final int[] starts;
+    private final int[] ends;
+    // whether each quoted value holds escapes, which have to be undone when it is read
+    private final boolean[] escaped;
+
+    private String text;
+    private int position;
+    // where the last value read was, as keys are read as values, and to describe a list element that isn't a dict
+    private byte lastKind;
+    private int lastStart;
+    private int lastEnd;
+    private boolean lastEscaped;
+    // the keys of the dicts being read, innermost last, to catch a key repeated in a dict as org.json does
+    private byte[] keyKinds = new byte[16];
+    private int[] keyStarts = new int[16];
+    private int[] keyEnds = new int[16];
+    private boolean[] keyEscapes = new boolean[16];
+    private int keyCount;
+
+    /**
+     * @param keys the keys to read from each dict, by index in this array
+     */
+    public LiteralScanner(String... keys) {
+        this.keys = keys;
+        this.kinds = new byte[keys.length];
+        this.starts = new int[keys.length];
+        this.ends = new int[keys.length];
+        this.escaped = new boolean[keys.length];
+    }
+
+    /**
+     * Reads a cell holding a list of dicts
+     *
+     * @param cell the text of the cell
+     * @param newArray makes an array of elements
+     * @param reader builds each element from the keys of its dict
+     * @return the elements, in the order they were written
+     * @throws JSONException if the cell isn't a list of dicts, or a value can't be read
+     */
+    public <T> T[] list(String cell, IntFunction<T[]> newArray, ElementReader<T> reader) {
+        text = cell;
+        position = 0;
+        keyCount = 0;
+        if (nextClean() != '[') {
+            throw error("A JSONArray text must start with '['");
+        }
+
+        T[] elements = newArray.apply(0);
+        int size = 0;
+        char c = nextClean();
+        if (c == 0) {
+            throw error("Expected a ',' or ']'");
+        }
+        if (c == ']') {
+            return elements;
+        }
+        position--;
+
+        // org.json reads the whole list before any of its elements, so a bad element is only reported once the list has been read
+        JSONException failure = null;
+        while (true) {
+            c = nextClean();
+            if (c == '{') {
+                readDict(true);
+                if (failure == null) {
+                    try {
+                        T element = reader.read(this);
+                        if (size == elements.length) {
+                            elements = Arrays.copyOf(elements, Math.max(8, size * 2));
+                        }
+                        elements[size++] = element;
+                    }
+                    catch (JSONException e) {
+                        failure = e;
+                    }
+                }
+            }
+            else {
+                position--;
+                // an empty element of a list is a null
+                Object value = JSONObject.NULL;
+                if (c != ',') {
+                    readValue(-1);
+                    value = valueOf(lastKind, lastStart, lastEnd, lastEscaped);
+                }
+                if (failure == null) {
+                    failure = wrongType("JSONArray[" + size + "]", "JSONObject", value);
+                }
+            }
+
+            c = nextClean();
+            if (c == ']') {
+                break;
+            }
+            if (c != ',') {
+                throw error("Expected a ',' or ']'");
+            }
+            // a trailing comma is allowed
+            c = nextClean();
+            if (c == 0) {
+                throw error("Expected a ',' or ']'");
+            }
+            if (c == ']') {
+                break;
+            }
+            position--;
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return size == elements.length ? elements : Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Reads a cell holding a single dict, whose keys can then be read from this scanner
+     *
+     * @param cell the text of the cell
+     * @throws JSONException if the cell isn't a dict
+     */
+    public void dict(String cell) {
+        text = cell;
+        position = 0;
+        keyCount = 0;
+        if (nextClean() != '{') {
+            throw error("A JSONObject text must begin with '{'");
+        }
+        readDict(true);
+    }
+
+    /**
+     * Reads the value of a key of the current dict as JSONObject.getString would
+     *
+     * @param key the index of the key
+     * @return the value, which for a bare word such as None is the word itself
+     * @throws JSONException if the key is missing, or its value isn't a String
+     */
+    public String getString(int key) {
+        switch (kinds[key]) {
+            case QUOTED:
+                return escaped[key] ? unescape(starts[key], ends[key]) : text.substring(starts[key], ends[key]);
+            case BARE:
+                Object value = JSONObject.stringToValue(text.substring(starts[key], ends[key]));
+                if (value instanceof String) {
+                    return (String) value;
+                }
+                break;
+            case MISSING:
+                throw notFound(key);
+        }
+        throw wrongType(name(key), "string", valueOf(kinds[key], starts[key], ends[key], escaped[key]));
+    }
+
+    /**
+     * Reads the value of a key of the current dict as JSONObject.getInt would
+     *
+     * @param key the index of the key
+     * @return the value
+     * @throws JSONException if the key is missing, or its value isn't an int
+     */
+    public int getInt(int key) {
+        switch (kinds[key]) {
+            case QUOTED:
+                try {
+                    return Integer.parseInt(getString(key));
+                }
+                catch (NumberFormatException e) {
+                    throw notInt(key);
+                }
+            case BARE:
+                // plain digits are the common case, and can't overflow when there are few enough of them
+                int start = starts[key];
+                int end = ends[key];
+                boolean negative = text.charAt(start) == '-';
+                int digits = negative ? start + 1 : start;
+                if (digits < end && end - digits <= 9) {
+                    int value = 0;
+                    for (int i = digits; i < end; i++) {
+                        int digit = text.charAt(i) - '0';
+                        if (digit < 0 || digit > 9) {
+                            value = -1;
+                            break;
+                        }
+                        value = value * 10 + digit;
+                    }
+                    if (value >= 0) {
+                        return negative ? -value : value;
+                    }
+                }
+
+                Object number = JSONObject.stringToValue(text.substring(start, end));
+                if (number instanceof Number) {
+                    return ((Number) number).intValue();
+                }
+                try {
+                    return Integer.parseInt(number.toString());
+                }
+                catch (NumberFormatException e) {
+                    throw notInt(key);
+                }
+            case MISSING:
+                throw notFound(key);
+            default:
+                throw notInt(key);
+        }
+    }
+
+    /**
+     * Reads a dict, once its opening brace has been read, in the same steps as JSONObject so that it fails in the same places
+     *
+     * @param wanted whether this is the dict being read, rather than one nested in it, so its wanted keys are noted
+     */
+    private void readDict(boolean wanted) {
+        if (wanted) {
+            Arrays.fill(kinds, MISSING);
+        }
+        // the keys of this dict start after those of the dicts it is nested in
+        int firstKey = keyCount;
+        boolean first = true;
+
+        while (true) {
+            char c = nextClean();
+            if (c == 0) {
+                throw error("A JSONObject text must end with '}'");
+            }
+            if (c == '}') {
+                keyCount = firstKey;
+                return;
+            }
+            // org.json only checks this against the character before the key, which is the opening brace for the first key
+            if (c == '{' || (c == '[' && first)) {
+                throw error("A JSON Object can not directly nest another JSON Object or JSON Array.");
+            }
+            position--;
+            first = false;
+
+            int key = readKey();
+            if (nextClean() != ':') {
+                throw error("Expected a ':' after a key");
+            }
+            for (int i = firstKey; i < keyCount; i++) {
+                if (sameKey(i, keyCount)) {
+                    throw error("Duplicate key \"" + keyString(keyCount) + "\"");
+                }
+            }
+            keyCount++;
+            readValue(wanted ? key : -1);
+
+            c = nextClean();
+            if (c == ',' || c == ';') {
+                // a trailing separator is allowed
+                if (nextClean() == '}') {
+                    keyCount = firstKey;
+                    return;
+                }
+                position--;
+            }
+            else if (c == '}') {
+                keyCount = firstKey;
+                return;
+            }
+            else {
+                throw error("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Reads a key of a dict, which org.json reads as any other value, keeping where it is to check for repeats
+     *
+     * @return the index of the key if it is one of the wanted keys, or -1
+     */
+    private int readKey() {
+        readValue(-1);
+        if (keyCount == keyKinds.length) {
+            keyKinds = Arrays.copyOf(keyKinds, keyCount * 2);
+            keyStarts = Arrays.copyOf(keyStarts, keyCount * 2);
+            keyEnds = Arrays.copyOf(keyEnds, keyCount * 2);
+            keyEscapes = Arrays.copyOf(keyEscapes, keyCount * 2);
+        }
+        keyKinds[keyCount] = lastKind;
+        keyStarts[keyCount] = lastStart;
+        keyEnds[keyCount] = lastEnd;
+        keyEscapes[keyCount] = lastEscaped;
+
+        if (lastKind == QUOTED || lastKind == BARE) {
+            for (int i = 0; i < keys.length; i++) {
+                String key = keys[i];
+                if (lastEscaped ? unescape(lastStart, lastEnd).equals(key)
+                                : lastEnd - lastStart == key.length() && text.startsWith(key, lastStart)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // whether two keys of a dict are the same, comparing the text when neither needs decoding
+    private boolean sameKey(int a, int b) {
+        if (keyKinds[a] == QUOTED && keyKinds[b] == QUOTED && !keyEscapes[a] && !keyEscapes[b]) {
+            int length = keyEnds[a] - keyStarts[a];
+            return length == keyEnds[b] - keyStarts[b] && text.regionMatches(keyStarts[a], text, keyStarts[b], length);
+        }
+        return keyString(a).equals(keyString(b));
+    }
+
+    // a key as org.json would have read it
+    private String keyString(int key) {
+        if (keyKinds[key] == NESTED) {
+            return new JSONArray(text.substring(keyStarts[key], keyEnds[key])).toString();
+        }
+        return valueOf(keyKinds[key], keyStarts[key], keyEnds[key], keyEscapes[key]).toString();
+    }
+
+    /**
+     * Reads a value, noting where it is if it belongs to a wanted key and skipping it otherwise
+     *
+     * @param key the index of the key the value belongs to, or -1
+     */
+    private void readValue(int key) {
+        char c = nextClean();
+        byte kind;
+        int start;
+        int end;
+        boolean valueEscaped = false;
+        if (c == '\'' || c == '"') {
+            kind = QUOTED;
+            start = position;
+            valueEscaped = skipString(c);
+            end = position - 1;
+        }
+        else if (c == '{' || c == '[') {
+            kind = NESTED;
+            start = position - 1;
+            if (c == '{') {
+                readDict(false);
+            }
+            else {
+                skipList();
+            }
+            end = position;
+        }
+        else if (c == 0) {
+            throw error("Missing value");
+        }
+        else {
+            kind = BARE;
+            position--;
+            start = position;
+            end = skipBareWord(start);
+            if (start == end) {
+                throw error("Missing value");
+            }
+        }
+
+        if (key >= 0) {
+            kinds[key] = kind;
+            starts[key] = start;
+            ends[key] = end;
+            escaped[key] = valueEscaped;
+        }
+        lastKind = kind;
+        lastStart = start;
+        lastEnd = end;
+        lastEscaped = valueEscaped;
+    }
+
+    // skips a list, once its opening bracket has been read, in the same steps as JSONArray
+    private void skipList() {
+        char c = nextClean();
+        if (c == 0) {
+            throw error("Expected a ',' or ']'");
+        }
+        if (c == ']') {
+            return;
+        }
+        position--;
+
+        while (true) {
+            // an empty element of a list is a null
+            c = nextClean();
+            position--;
+            if (c != ',') {
+                readValue(-1);
+            }
+
+            c = nextClean();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw error("Expected a ',' or ']'");
+            }
+            c = nextClean();
+            if (c == 0) {
+                throw error("Expected a ',' or ']'");
+            }
+            if (c == ']') {
+                return;
+            }
+            position--;
+        }
+    }
+
+    /**
+     * Skips to the end of a quoted string, once its opening quote has been read, checking its escapes as org.json would
+     *
+     * @return whether the string holds escapes
+     */
+    private boolean skipString(char quote) {
+        boolean hasEscapes = false;
+        while (true) {
+            if (position == text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(position++);
+            if (c == '\n' || c == '\r') {
+                throw error("Unterminated string");
+            }
+            if (c == quote) {
+                return hasEscapes;
+            }
+            if (c == '\\') {
+                hasEscapes = true;
+                if (position == text.length()) {
+                    throw error("Illegal escape.");
+                }
+                char escape = text.charAt(position++);
+                if (escape == 'u') {
+                    // org.json takes the next four characters, whatever they are, before checking them
+                    if (position + 4 > text.length()) {
+                        position = text.length();
+                        throw error("Substring bounds error");
+                    }
+                    position += 4;
+                    try {
+                        Integer.parseInt(text.substring(position - 4, position), 16);
+                    }
+                    catch (NumberFormatException e) {
+                        throw error("Illegal escape.");
+                    }
+                }
+                else if ("btnfr\"'\\/".indexOf(escape) < 0) {
+                    throw error("Illegal escape.");
+                }
+            }
+        }
+    }
+
+    // skips a bare word, returning where it ends once trailing whitespace is trimmed
+    private int skipBareWord(int start) {
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c < ' ' || BARE_WORD_ENDS.indexOf(c) >= 0) {
+                break;
+            }
+            position++;
+        }
+        int end = position;
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // undoes the escapes in a quoted string, which skipString has already checked
+    private String unescape(int start, int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            c = text.charAt(++i);
+            switch (c) {
+                case 'b': builder.append('\b');
+                    break;
+                case 't': builder.append('\t');
+                    break;
+                case 'n': builder.append('\n');
+                    break;
+                case 'f': builder.append('\f');
+                    break;
+                case 'r': builder.append('\r');
+                    break;
+                case 'u': builder.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default: builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The next character that isn't whitespace, or 0 at the end of the cell. Stepping back after the end rereads the cell's last
+     * character, as org.json does.
+     */
+    private char nextClean() {
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c > ' ') {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The value org.json would have read, to describe it in an error. A dict or list is only described by its class, as org.json
+     * does.
+     */
+    private Object valueOf(byte kind, int start, int end, boolean valueEscaped) {
+        switch (kind) {
+            case QUOTED:
+                return valueEscaped ? unescape(start, end) : text.substring(start, end);
+            case BARE:
+                return JSONObject.stringToValue(text.substring(start, end));
+            default:
+                return text.charAt(start) == '{' ? JSONObject.class : JSONArray.class;
+        }
+    }
+
+    // an error at the current position, counting lines and characters within them as org.json does
+    private JSONException error(String message) {
+        int line = 1;
+        int character = 1;
+        for (int i = 0; i < position; i++) {
+            char c = text.charAt(i);
+            if (c == '\r' || (c == '\n' && (i == 0 || text.charAt(i - 1) != '\r'))) {
+                line++;
+                character = 0;
+            }
+            else if (c != '\n') {
+                character++;
+            }
+        }
+        return new JSONException(message + " at " + position + " [character " + character + " line " + line + "]");
+    }
+
+    private String name(int key) {
+        return "JSONObject[\"" + keys[key] + "\"]";
+    }
+
+    private JSONException notFound(int key) {
+        return new JSONException(name(key) + " not found.");
+    }
+
+    private JSONException notInt(int key) {
+        return wrongType(name(key), "int", valueOf(kinds[key], starts[key], ends[key], escaped[key]));
+    }
+
+    private static JSONException wrongType(String name, String type, Object value) {
+        if (value instanceof Class) {
+            return new JSONException(name + " is not a " + type + " (" + value + ").");
+        }
+        return new JSONException(name + " is not a " + type + " (" + value.getClass() + " : " + value + ").");
+    }
+}
@@ -2,8 +2,6 @@ package utils;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -11,30 +9,44 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import interfaces.*;
 import stores.CastCredit;
 import stores.Company;
 import stores.CrewCredit;
+import stores.FilmCredits;
 import stores.Genre;
 import stores.Keyword;
+import stores.MovieBatch;
+import stores.MovieText;
+import structures.TokenIndex;
+import utils.CsvChunkReader.Chunk;
+import utils.CsvChunkReader.ParsedFile;
+import utils.MappedCsvReader.Header;
+import utils.MappedCsvReader.Row;
+import utils.MappedCsvReader.RowParser;
 import interfaces.AbstractStores;
 
 public class LoadData implements Runnable {
 
-    class MovieRecord {
+    static class MovieRecord {
         public int id = -1;
         public String name = "";
         public String title = "";
@@ -63,6 +75,11 @@ public class LoadData implements Runnable {
         public double popularity = -1.0;
         public Company[] productionCompanies = new Company[0];
         public String[] productionCountries = new String[0];
+        // where the record starts in the movies file, when the overview, tagline and homepage are left there, or -1
+        long offset = -1;
+        // the words of the overview and tagline, when they are left in the movies file
+        String[] overviewWords = null;
+        String[] taglineWords = null;
         MovieRecord( int id, String name, String title, String originalTitle, String overview,
                      String tagline, String status, Genre[] genres, LocalDate release, long budget,
                      long revenue, String[] languages, String originalLanguage, double runtime,
@@ -102,10 +119,12 @@ public class LoadData implements Runnable {
         }
     }
 
-    class CreditRecord {
+    static class CreditRecord {
         public CastCredit[] cast;
         public CrewCredit[] crew;
         public int movieId;
+        // where the record starts in the credits file, when the cast and crew are only kept to index the people, or -1
+        long offset = -1;
         CreditRecord(CastCredit[] cast, CrewCredit[] crew, int movieId){
             this.cast = cast;
             this.crew = crew;
@@ -113,7 +132,7 @@ public class LoadData implements Runnable {
         }
     }
 
-    class KeywordRecord {
+    static class KeywordRecord {
         public int movieId;
         public Keyword[] keywords;
         KeywordRecord(int movieId, Keyword[] keywords){
@@ -122,7 +141,7 @@ public class LoadData implements Runnable {
         }
     }
 
-    class RatingRecord {
+    static class RatingRecord {
         int userId;
         int movieId;
         float rating;
@@ -139,12 +158,6 @@ public class LoadData implements Runnable {
     public enum StoreType {CREDITS, KEYWORDS, METADATA, RATINGS}
 
 
-    private long currentNumber = 0;
-    private long totalNumber = 0;
-    private String loadingString = "";
-    private JProgressBar loadingBar;
-    private JLabel loadingText;
-    
     // Datastructures that the csv files are loaded into.
     ArrayList<CreditRecord> backendCredits = new ArrayList<>();
     HashMap<Integer, CreditRecord> backendCreditsByMovieId = new HashMap<>();
@@ -158,36 +171,21 @@ public class LoadData implements Runnable {
     ArrayList<RatingRecord> backendRatings = new ArrayList<>();
     HashMap<Integer, ArrayList<RatingRecord>> backendRatingsByMovieId = new HashMap<>();
 
-    private class FileLoadUiUpdater {
-        int totalNumLines = 0;
-        int totalNumCurrentlyProcessed = 0;
-        HashMap<StoreType, Long> numLines = new HashMap<>();
+    /**
+     * Shows loading progress on the loading screen's bar and label
+     */
+    static class FileLoadUiUpdater implements LoadProgressListener {
         JProgressBar loadingBar;
         JLabel loadingText;
-        public FileLoadUiUpdater(JProgressBar loadingBar, JLabel loadingText, File creditsFile, File keywordsFile, File movieFile, File ratingsFile) throws DataLoadException{
+        public FileLoadUiUpdater(JProgressBar loadingBar, JLabel loadingText){
             this.loadingBar = loadingBar;
             this.loadingText = loadingText;
-            try{
-                // Populate numLines with how many lines each file has
-                numLines.put(StoreType.CREDITS,  (Files.lines(creditsFile.toPath()).count() - 2));
-                numLines.put(StoreType.KEYWORDS, (Files.lines(keywordsFile.toPath()).count() - 2));
-                numLines.put(StoreType.METADATA, (Files.lines(movieFile.toPath()).count() - 2));
-                numLines.put(StoreType.RATINGS,  (Files.lines(ratingsFile.toPath()).count() - 2));
-                for (long fileNumLines : numLines.values()){
-                    totalNumLines += fileNumLines;
-                }
-            }
-            catch(IOException e){
-                throw new DataLoadException(e.getMessage());
-            }
         }
-        private void incrementUI(StoreType fileType, int numRecordsProcessed) {
-            if (loadingBar == null || loadingText == null) {
-                return;
-            }
-            totalNumCurrentlyProcessed++;
-            loadingBar.setValue((int) ((totalNumCurrentlyProcessed / (double) totalNumLines)*(double)loadingBar.getMaximum()));
-            loadingString = "[1/2] Loading Data into backend: ";
+        // Called on the event dispatch thread, at most once every LoadProgress.UPDATE_INTERVAL_MS
+        public void progressUpdated(LoadProgress progress) {
+            loadingBar.setValue((int) (progress.getFractionDone()*(double)loadingBar.getMaximum()));
+            StoreType fileType = progress.getCurrentFile();
+            String loadingString = "[1/2] Loading Data into backend: ";
             switch (fileType) {
                 case CREDITS: loadingString += "Credits..."; 
                     break;
@@ -199,9 +197,26 @@ public class LoadData implements Runnable {
                     break;
             }
 
-            loadingString += " (" + numRecordsProcessed + "/" + numLines.get(fileType) + ")";
-            loadingText.setText(loadingString);
+            loadingString += String.format(" (%.1f/%.1f MB, %,.0f records/s", progress.getBytesRead(fileType) / 1e6,
+                                           progress.getTotalBytes(fileType) / 1e6, progress.getRecordsPerSecond());
+            double secondsRemaining = progress.getSecondsRemaining();
+            if (secondsRemaining >= 0){
+                long seconds = Math.round(secondsRemaining);
+                loadingString += String.format(", %d:%02d left", seconds / 60, seconds % 60);
+            }
+            loadingText.setText(loadingString + ")");
+        }
     }
+
+    /**
+     * Makes the listener that shows progress on the loading screen
+     * @return the listener, or null if there isn't a loading screen
+     */
+    public static LoadProgressListener progressBarUpdater(JProgressBar loadingBar, JLabel loadingText){
+        if (loadingBar == null || loadingText == null){
+            return null;
+        }
+        return new FileLoadUiUpdater(loadingBar, loadingText);
     }
 
     //Load data into memory from default file locations
@@ -216,32 +231,115 @@ public class LoadData implements Runnable {
         this(null, null, creditsPath, keywordsPath, movieMetadataPath, ratingsPath);
     }
     public LoadData(JProgressBar loadingBar, JLabel loadingText, String creditsPath, String keywordsPath, String movieMetadataPath, String ratingsPath) throws DataLoadException{
-        this.loadingBar = loadingBar;
-        this.loadingText = loadingText;
-        System.out.println("Loading data into record structures (backend)");
+        this(progressBarUpdater(loadingBar, loadingText), LoadOptions.DEFAULT.withFiles(creditsPath, keywordsPath, movieMetadataPath, ratingsPath));
+    }
 
+    /***
+     * Load the files the options give into memory, telling a listener how far it has got. Only the files, shards and
+     * partition of the options are used.
+     * A dataset split into shards has each file in the shard directory, either whole, as credits.csv, keywords.csv,
+     * movies_metadata.csv and ratings.csv, or as any number of shards named like credits-0001.csv, each with its own header.
+     * Any of them can be gzip compressed, named with .csv.gz instead.
+     * The shards of a file are read as though they were joined together in name order, and every shard is parsed at once.
+     * With a partition, only the films of that partition are loaded, along with their credits, keywords and ratings.
+     * @param progressListener told how far loading has got, can be null
+     * @param options the files to load, and the partition of them
+     * @throws DataLoadException if a file is missing or invalid
+     */
+    public LoadData(LoadProgressListener progressListener, LoadOptions options) throws DataLoadException{
         //Create File objects for all input files and check if they are normal files
-        String formatString = "Cannot open %s file (%s). Does not exist or is not a normal file";
-        File creditsFile = new File(creditsPath);
-        if (!creditsFile.isFile())  { throw new DataLoadException(String.format(formatString, "credits", creditsPath)); }
+        this(progressListener, inputFiles(options, "credits", "credits", options.getCreditsPath()),
+             inputFiles(options, "keywords", "keywords", options.getKeywordsPath()),
+             inputFiles(options, "movies", "movies_metadata", options.getMovieMetadataPath()),
+             inputFiles(options, "ratings", "ratings", options.getRatingsPath()), options.getPartition());
+    }
+
+    // The files to read one kind of record from: its shards in the options' shard directory if there is one, otherwise its file
+    private static File[] inputFiles(LoadOptions options, String fileType, String shardName, String path) throws DataLoadException{
+        if (options.getShardDirectory() == null){
+            return new File[]{inputFile(fileType, path)};
+        }
+        File directory = new File(options.getShardDirectory());
+        if (!directory.isDirectory()){
+            throw new DataLoadException(String.format("Cannot open shard directory (%s). Does not exist or is not a directory", options.getShardDirectory()));
+        }
+        return shardFiles(directory, shardName);
+    }
 
-        File keywordsFile = new File(keywordsPath);
-        if (!keywordsFile.isFile()) { throw new DataLoadException(String.format(formatString, "keywords", keywordsPath)); }
+    private LoadData(LoadProgressListener progressListener, File[] creditsFiles, File[] keywordsFiles, File[] moviesFiles, File[] ratingsFiles, Partition partition) throws DataLoadException{
+        System.out.println("Loading data into record structures (backend)" + (partition == null ? "" : ", partition " + partition + " only"));
+
+        // Progress is measured by how far through each file parsing is, from the file sizes, so the files aren't read beforehand
+        LoadProgress progress = new LoadProgress(progressListener, totalLength(creditsFiles), totalLength(keywordsFiles),
+                                                 totalLength(moviesFiles), totalLength(ratingsFiles));
+
+        // Parse every file at once, each split into chunks across the pool. Records are only checked against each other
+        // (duplicates and validMovieIds) once parsed, in the same order as reading the files one after another would.
+        // Rows of films outside the partition are dropped by the parsers as soon as their film id is read.
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            ArrayList<ForkJoinTask<ParsedFile<MovieRecord>>> parsedMovies = new ArrayList<>();
+            for (File moviesFile : moviesFiles){
+                parsedMovies.add(MappedCsvReader.submit(pool, moviesFile, 24, header -> metadataParser(header, false, partition),
+                    progress.forFile(StoreType.METADATA)));
+            }
+            ArrayList<ForkJoinTask<ParsedFile<CreditRecord>>> parsedCredits = new ArrayList<>();
+            for (File creditsFile : creditsFiles){
+                parsedCredits.add(MappedCsvReader.submit(pool, creditsFile, 3, header -> creditParser(header, false, partition),
+                    progress.forFile(StoreType.CREDITS)));
+            }
+            ArrayList<ForkJoinTask<ParsedFile<KeywordRecord>>> parsedKeywords = new ArrayList<>();
+            for (File keywordsFile : keywordsFiles){
+                parsedKeywords.add(CsvChunkReader.submit(pool, keywordsFile, 2, (csvRecord, chunk) -> parseKeywordRecord(csvRecord, chunk, partition),
+                    progress.forFile(StoreType.KEYWORDS)));
+            }
+            ArrayList<ForkJoinTask<ParsedFile<RatingRecord>>> parsedRatings = new ArrayList<>();
+            for (File ratingsFile : ratingsFiles){
+                parsedRatings.add(MappedCsvReader.submit(pool, ratingsFile, 5, header -> ratingParser(header, partition),
+                    progress.forFile(StoreType.RATINGS)));
+            }
 
-        File moviesFile = new File(movieMetadataPath);
-        if (!moviesFile.isFile())   { throw new DataLoadException(String.format(formatString, "movies", movieMetadataPath)); }
+            //Load Metadata first to load validMovieIds
+            Set<Integer> validMovies = loadMetadata(moviesFiles, parsedMovies);
+            loadCredits(creditsFiles, parsedCredits, validMovies);
+            loadKeywords(keywordsFiles, parsedKeywords, validMovies);
+            loadRatings(ratingsFiles, parsedRatings, validMovies);
+            progress.finished();
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
 
-        File ratingsFile = new File(ratingsPath);
-        if (!ratingsFile.isFile())  { throw new DataLoadException(String.format(formatString, "ratings", ratingsPath)); }
+    // The whole file name.csv(.gz) if it is in the directory, otherwise its shards name-*.csv(.gz) in name order
+    static File[] shardFiles(File directory, String name) throws DataLoadException {
+        for (String whole : new String[]{name + ".csv", name + ".csv.gz"}){
+            if (new File(directory, whole).isFile()){
+                return new File[]{new File(directory, whole)};
+            }
+        }
+        File[] shards = directory.listFiles((dir, fileName) -> fileName.startsWith(name + "-") && (fileName.endsWith(".csv") || fileName.endsWith(".csv.gz")));
+        if (shards == null || shards.length == 0){
+            throw new DataLoadException(String.format("Cannot find %s.csv or any %s-*.csv shards in %s", name, name, directory.getPath()));
+        }
+        Arrays.sort(shards, Comparator.comparing(File::getName));
+        return shards;
+    }
 
-        // class to set total number of lines and number of lines for each type so that the actual load function can just do updateUI with what type it is and how many it has loaded
-        FileLoadUiUpdater loadingUiUpdater = new FileLoadUiUpdater(loadingBar, loadingText, creditsFile, keywordsFile, moviesFile, ratingsFile);
+    private static long totalLength(File[] files){
+        long length = 0;
+        for (File file : files){
+            length += file.length();
+        }
+        return length;
+    }
 
-        //Load Metadata first to load validMovieIds
-        Set<Integer> validMovies = loadMetadata(moviesFile, loadingUiUpdater);
-        loadCredits(creditsFile, loadingUiUpdater, validMovies);
-        loadKeywords(keywordsFile, loadingUiUpdater, validMovies);
-        loadRatings(ratingsFile, loadingUiUpdater, validMovies);
+    static File inputFile(String fileType, String path) throws DataLoadException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            throw new DataLoadException(String.format("Cannot open %s file (%s). Does not exist or is not a normal file", fileType, path));
+        }
+        return file;
     }
 
     public int getNumMovieRecords(){
@@ -275,11 +373,18 @@ public class LoadData implements Runnable {
         }
     }
 
-    public class NumRecordsAdded{
+    public static class NumRecordsAdded{
         public int credits;
         public int keywords;
         public int movies;
         public int ratings;
+        // how long each store took to populate, in milliseconds, or -1 if it wasn't timed
+        public long creditsMillis = -1;
+        public long keywordsMillis = -1;
+        public long moviesMillis = -1;
+        public long ratingsMillis = -1;
+        // how long populating took overall. when the stores are populated in parallel this is about the slowest store
+        public long totalMillis = -1;
         NumRecordsAdded(int credits, int keywords, int movies, int ratings){
             this.credits = credits;
             this.keywords = keywords;
@@ -288,18 +393,110 @@ public class LoadData implements Runnable {
         }
     }
 
+    /**
+     * Populates the four stores, one after another or each on its own thread, and records how long each took. The stores don't
+     * read each other while they are filled, so they can be filled at the same time, and populating takes about as long as the
+     * slowest store rather than all four together.
+     * @param parallel whether to populate the stores at the same time
+     * @param added the counts to record the timings in
+     */
+    static void populateStores(boolean parallel, NumRecordsAdded added, Runnable movies, Runnable credits, Runnable keywords, Runnable ratings){
+        Runnable[] tasks = {movies, credits, keywords, ratings};
+        String[] names = {"movies", "credits", "keywords", "ratings"};
+        long[] millis = new long[tasks.length];
+        long start = System.nanoTime();
+
+        if (!parallel){
+            for (int i = 0; i < tasks.length; i++){
+                millis[i] = timed(tasks[i]);
+            }
+        }
+        else{
+            Thread[] threads = new Thread[tasks.length];
+            Throwable[] failures = new Throwable[tasks.length];
+            for (int i = 0; i < tasks.length; i++){
+                int task = i;
+                threads[i] = new Thread(() -> {
+                    try{
+                        millis[task] = timed(tasks[task]);
+                    }
+                    catch (Throwable t){
+                        failures[task] = t;
+                    }
+                }, "populate-" + names[i]);
+                threads[i].start();
+            }
+
+            // a store that fails to populate fails the whole populate, once the others have finished with their stores
+            boolean interrupted = false;
+            for (Thread thread : threads){
+                while (true){
+                    try{
+                        thread.join();
+                        break;
+                    }
+                    catch (InterruptedException e){
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted){
+                Thread.currentThread().interrupt();
+            }
+            for (Throwable failure : failures){
+                if (failure instanceof RuntimeException){
+                    throw (RuntimeException) failure;
+                }
+                if (failure instanceof Error){
+                    throw (Error) failure;
+                }
+            }
+        }
+
+        added.moviesMillis = millis[0];
+        added.creditsMillis = millis[1];
+        added.keywordsMillis = millis[2];
+        added.ratingsMillis = millis[3];
+        added.totalMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Time to populate each store" + (parallel ? " in parallel" : "") + ": movies " + added.moviesMillis + "ms, credits "
+                         + added.creditsMillis + "ms, keywords " + added.keywordsMillis + "ms, ratings " + added.ratingsMillis + "ms");
+    }
+
+    private static long timed(Runnable task){
+        long start = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
 
     /**
      * Populate the student's data stores with the data loaded into the backend structures
      * @param stores
      */
     public NumRecordsAdded populate(AbstractStores stores){
+        return populate(stores, false);
+    }
+
+    /**
+     * Populate the student's data stores with the data loaded into the backend structures
+     * @param stores
+     * @param parallel whether to fill the four stores at the same time, each on its own thread
+     */
+    public NumRecordsAdded populate(AbstractStores stores, boolean parallel){
         // Purposefully uses the same function as populating a section of the data.
         // To make sure that these two use cases have the same results!
-        return populate(stores, false, -1, -1);
+        return populate(stores, false, -1, -1, parallel);
     }
     
     public NumRecordsAdded populate(AbstractStores stores, int firstMovieIndex, int numMovies){
+        return populate(stores, firstMovieIndex, numMovies, false);
+    }
+
+    /**
+     * Populate the student's data stores with a range of the films, and their credits, keywords and ratings
+     * @param parallel whether to fill the four stores at the same time, each on its own thread
+     */
+    public NumRecordsAdded populate(AbstractStores stores, int firstMovieIndex, int numMovies, boolean parallel){
         System.out.println("Populating stores with restriction: " + numMovies + " movies...");
         if (firstMovieIndex < 0){
             System.err.println("Unable to populate. Invalid firstMovieIndex given");
@@ -313,7 +510,7 @@ public class LoadData implements Runnable {
             System.err.println("Unable to populate. Cannot populate with negative movies");
             return null;
         }
-        return populate(stores, true, firstMovieIndex, numMovies);
+        return populate(stores, true, firstMovieIndex, numMovies, parallel);
     }
 
     /***
@@ -331,8 +528,9 @@ public class LoadData implements Runnable {
      * @param loadSection whether to only load a section of the data
      * @param firstMovieIndex The movie index to load from
      * @param numMovies
+     * @param parallel whether to fill the four stores at the same time
      */
-    private NumRecordsAdded populate(AbstractStores stores, boolean loadSection, int firstMovieIndex, int numMovies){
+    private NumRecordsAdded populate(AbstractStores stores, boolean loadSection, int firstMovieIndex, int numMovies, boolean parallel){
 
         System.out.println("Populating stores...");
         ICredits credits = stores.getCredits();
@@ -386,58 +584,129 @@ public class LoadData implements Runnable {
             }
         }
 
-        populateMovies(movies, movieRecords);
-        populateCredits(credits, creditRecords);
-        populateKeywords(keywords, keywordRecords);
-        populateRatings(ratings, ratingRecords);
+        NumRecordsAdded added = new NumRecordsAdded(creditRecords.size(), keywordRecords.size(), movieRecords.size(), ratingRecords.size());
+        populateStores(parallel, added,
+                       () -> populateMovies(movies, movieRecords),
+                       () -> populateCredits(credits, creditRecords),
+                       () -> populateKeywords(keywords, keywordRecords),
+                       () -> populateRatings(ratings, ratingRecords));
 
         Instant end = Instant.now();
         Duration d = Duration.between(start, end);
         System.out.println("Overall time to populate stores:");
         System.out.println(d.toMillis() + "ms");
 
-        return new NumRecordsAdded(creditRecords.size(), keywordRecords.size(), movieRecords.size(), ratingRecords.size());
+        return added;
     }
 
 
     private void populateCredits(ICredits credits, ArrayList<CreditRecord> creditRecords){
         System.out.println("Populating Credits Store...");
-        for (CreditRecord cr : creditRecords){
-            credits.add(cr.cast, cr.crew, cr.movieId);
+        addCredits(credits, creditRecords);
+    }
+
+    static void addCredits(ICredits credits, List<CreditRecord> creditRecords){
+        int n = creditRecords.size();
+        CastCredit[][] cast = new CastCredit[n][];
+        CrewCredit[][] crew = new CrewCredit[n][];
+        int[] movieIds = new int[n];
+        long[] offsets = new long[n];
+        boolean lazy = false;
+        for (int i = 0; i < n; i++){
+            CreditRecord cr = creditRecords.get(i);
+            cast[i] = cr.cast;
+            crew[i] = cr.crew;
+            movieIds[i] = cr.movieId;
+            offsets[i] = cr.offset;
+            lazy |= cr.offset >= 0;
+        }
+        if (lazy){
+            credits.addAll(cast, crew, movieIds, offsets);
+        }
+        else{
+            credits.addAll(cast, crew, movieIds);
         }
     }
     
     private void populateKeywords(IKeywords keywords, ArrayList<KeywordRecord> keywordRecords){
         System.out.println("Populating Keywords Store...");
-        for (KeywordRecord kr : keywordRecords){
-            keywords.add(kr.movieId, kr.keywords);
+        addKeywords(keywords, keywordRecords);
+    }
+
+    static void addKeywords(IKeywords keywords, List<KeywordRecord> keywordRecords){
+        int n = keywordRecords.size();
+        int[] movieIds = new int[n];
+        Keyword[][] filmKeywords = new Keyword[n][];
+        for (int i = 0; i < n; i++){
+            KeywordRecord kr = keywordRecords.get(i);
+            movieIds[i] = kr.movieId;
+            filmKeywords[i] = kr.keywords;
         }
+        keywords.addAll(movieIds, filmKeywords);
     }
 
     private void populateMovies(IMovies movies, ArrayList<MovieRecord> movieRecords){
         System.out.println("Populating Movies Store...");
-        for (MovieRecord mr : movieRecords){
-            movies.add(mr.id, mr.title, mr.originalTitle, mr.overview, mr.tagline, mr.status, mr.genres, mr.release, mr.budget, mr.revenue, mr.languages, mr.originalLanguage, mr.runtime, mr.homepage, mr.adult, mr.video, mr.poster);
-
-            movies.setVote(mr.id, mr.voteAverage, mr.voteCount);
-            movies.setIMDB(mr.id, mr.imdb);
-            movies.setPopularity(mr.id, mr.popularity);
-            movies.addToCollection(mr.id, mr.collectionID, mr.collectionName, mr.collectionPosterPath, mr.collectionBackdropPath);
-            for (Company c : mr.productionCompanies){
-                movies.addProductionCompany(mr.id, c);
-            }
+        addMovies(movies, movieRecords);
+    }
 
-            for (String country : mr.productionCountries){
-                movies.addProductionCountry(mr.id, country);
-            }
+    static void addMovies(IMovies movies, List<MovieRecord> movieRecords){
+        MovieBatch batch = new MovieBatch(movieRecords.size());
+        for (int i = 0; i < batch.size; i++){
+            MovieRecord mr = movieRecords.get(i);
+            batch.ids[i] = mr.id;
+            batch.titles[i] = mr.title;
+            batch.originalTitles[i] = mr.originalTitle;
+            batch.overviews[i] = mr.overview;
+            batch.taglines[i] = mr.tagline;
+            batch.statuses[i] = mr.status;
+            batch.genres[i] = mr.genres;
+            batch.releases[i] = mr.release;
+            batch.budgets[i] = mr.budget;
+            batch.revenues[i] = mr.revenue;
+            batch.languages[i] = mr.languages;
+            batch.originalLanguages[i] = mr.originalLanguage;
+            batch.runtimes[i] = mr.runtime;
+            batch.homepages[i] = mr.homepage;
+            batch.adult[i] = mr.adult;
+            batch.video[i] = mr.video;
+            batch.posters[i] = mr.poster;
+            batch.voteAverages[i] = mr.voteAverage;
+            batch.voteCounts[i] = mr.voteCount;
+            batch.imdbIDs[i] = mr.imdb;
+            batch.popularities[i] = mr.popularity;
+            batch.collectionIDs[i] = mr.collectionID;
+            batch.collectionNames[i] = mr.collectionName;
+            batch.collectionPosterPaths[i] = mr.collectionPosterPath;
+            batch.collectionBackdropPaths[i] = mr.collectionBackdropPath;
+            batch.productionCompanies[i] = mr.productionCompanies;
+            batch.productionCountries[i] = mr.productionCountries;
+            batch.offsets[i] = mr.offset;
+            batch.overviewWords[i] = mr.overviewWords;
+            batch.taglineWords[i] = mr.taglineWords;
         }
+        movies.addAll(batch);
     }
 
     private void populateRatings(IRatings ratings, ArrayList<RatingRecord> ratingRecords){
         System.out.println("Populating Ratings Store...");
-        for (RatingRecord rr : ratingRecords){
-            ratings.add(rr.userId, rr.movieId, rr.rating, rr.timestamp);
+        addRatings(ratings, ratingRecords);
+    }
+
+    static void addRatings(IRatings ratings, List<RatingRecord> ratingRecords){
+        int n = ratingRecords.size();
+        int[] userIds = new int[n];
+        int[] movieIds = new int[n];
+        float[] values = new float[n];
+        long[] timestamps = new long[n];
+        for (int i = 0; i < n; i++){
+            RatingRecord rr = ratingRecords.get(i);
+            userIds[i] = rr.userId;
+            movieIds[i] = rr.movieId;
+            values[i] = rr.rating;
+            timestamps[i] = rr.timestamp.toEpochSecond(ZoneOffset.UTC);
         }
+        ratings.addRatings(userIds, movieIds, values, timestamps);
     }
 
 
@@ -456,402 +725,665 @@ public class LoadData implements Runnable {
     /*                                                  */
     /****************************************************/
 
-    private void loadCredits(File creditsCsvFile, FileLoadUiUpdater loadingUiUpdater, Set<Integer> validMovies) throws DataLoadException {
-        System.out.println("\nLoading credits from \"" + creditsCsvFile.getPath() + "\"...");
-
-        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-                            .setHeader()
-                            .setSkipHeaderRecord(true)
-                            .build();
-        int record_count = 1;
-        try (CSVParser parser = CSVParser.parse(creditsCsvFile, Charset.forName("UTF-8"), csvFormat)){
-            for (CSVRecord csvRecord : parser){
-                if (csvRecord.size() != 3){
-                    throw new DataLoadException("[CREDITS] Incorrect number of csv fields in record number: " + record_count + ". Number of fields found: " + csvRecord.size());
-                }
+    /***
+     * Make the parser for the records of a credits file. Runs on a parsing thread, so only reads the record itself.
+     * The movie id is read last, as credits are only checked against the other records once they have parsed.
+     * @param lazy whether the cast and crew will be read back from the file later, in which case the record notes where it starts
+     */
+    static RowParser<CreditRecord> creditParser(Header header, boolean lazy) {
+        return creditParser(header, lazy, null);
+    }
 
-                // Parse cast
-                JSONArray castJsonArray = new JSONArray(csvRecord.get("cast"));
-                CastCredit[] castArray = new CastCredit[castJsonArray.length()];
-                for (int i = 0; i < castJsonArray.length(); i++){
-                    // Each cast member
-                    JSONObject castJsonObject = castJsonArray.getJSONObject(i);
-
-                    int castElementId  = castJsonObject.getInt("cast_id");
-                    String character   = castJsonObject.getString("character");
-                    String creditId    = castJsonObject.getString("credit_id");
-                    int gender         = castJsonObject.getInt("gender"); //Note: ignoring this field
-                    int castId         = castJsonObject.getInt("id");
-                    String name        = castJsonObject.getString("name");
-                    int order          = castJsonObject.getInt("order"); 
-                    String profilePath = castJsonObject.getString("profile_path");
-
-                    castArray[i] = new CastCredit(castElementId, character, creditId, 
-                                            castId, name, order, profilePath);
-                }
+    /***
+     * Make the parser for the records of a credits file, which skips the records of films outside the partition.
+     * @param partition the partition being loaded, or null to keep every record
+     */
+    static RowParser<CreditRecord> creditParser(Header header, boolean lazy, Partition partition) {
+        int castColumn    = header.column("cast");
+        int crewColumn    = header.column("crew");
+        int movieIdColumn = header.column("tmdb_id");
+
+        return (row, chunk) -> {
+            // When partitioned the id is read first, so the cast and crew of other partitions' films are never parsed
+            if (partition != null && !partition.owns(row.getInt(movieIdColumn))){
+                return null;
+            }
+            CastCredit[] castArray = parseCast(row.getString(castColumn));
+            CrewCredit[] crewArray = parseCrew(row.getString(crewColumn));
+            int movieId = Integer.parseInt(row.getString(movieIdColumn));
 
-                // Parse crew
-                JSONArray crewJsonArray = new JSONArray(csvRecord.get("crew"));
-                CrewCredit[] crewArray = new CrewCredit[crewJsonArray.length()];
-                for (int i = 0; i < crewJsonArray.length(); i++){
-                    // Each crew member
-                    JSONObject crewJsonObject = crewJsonArray.getJSONObject(i);
-                    String crewElementId = crewJsonObject.getString("credit_id");
-                    String department    = crewJsonObject.getString("department");
-                    int gender           = crewJsonObject.getInt("gender"); //Note: ignoring this field
-                    int crewId           = crewJsonObject.getInt("id");
-                    String job           = crewJsonObject.getString("job");
-                    String name          = crewJsonObject.getString("name");
-                    String profilePath   = crewJsonObject.getString("profile_path");
-
-                    crewArray[i] = new CrewCredit(crewElementId, department, crewId, job, name, profilePath);
-                }
+            CreditRecord record = new CreditRecord(castArray, crewArray, movieId);
+            if (lazy){
+                record.offset = row.offset();
+            }
+            return record;
+        };
+    }
+
+    /***
+     * Make the reader for the cast and crew of single records of a credits file, for a store to read back what it was loaded
+     * without.
+     */
+    static Function<Row, FilmCredits> filmCreditsParser(Header header) {
+        int castColumn = header.column("cast");
+        int crewColumn = header.column("crew");
 
-                // Parse top level id in csv file (never empty)
-                int movieId = Integer.parseInt(csvRecord.get("tmdb_id"));
+        return row -> new FilmCredits(parseCast(row.getString(castColumn)), parseCrew(row.getString(crewColumn)));
+    }
 
-                if (!validMovies.contains(movieId)){
-                    String message = "Credits file contains a credit for a movie (id:" + movieId + ") that doesn't exist in the movie metadata file!";
-                    throw new DataLoadException(message);
-                }
-                
-                if (backendCreditsByMovieId.containsKey(movieId)){
-                    String message = "Credits file contains multiple records for movie (id:" + movieId + ")";
-                    throw new DataLoadException(message);
-                }
+    // Parse the json cast array of a credits record
+    private static CastCredit[] parseCast(String cell) {
+        LiteralScanner castScanner = new LiteralScanner("cast_id", "character", "credit_id", "gender", "id", "name", "order", "profile_path");
+        return castScanner.list(cell, CastCredit[]::new, castMember -> {
+            int castElementId  = castMember.getInt(0);
+            String character   = castMember.getString(1);
+            String creditId    = castMember.getString(2);
+            int gender         = castMember.getInt(3); //Note: ignoring this field
+            int castId         = castMember.getInt(4);
+            String name        = castMember.getString(5);
+            int order          = castMember.getInt(6);
+            String profilePath = castMember.getString(7);
+
+            return new CastCredit(castElementId, character, creditId,
+                                  castId, name, order, profilePath);
+        });
+    }
 
-                CreditRecord cr = new CreditRecord(castArray, crewArray, movieId);
-                backendCredits.add(cr);
-                backendCreditsByMovieId.put(movieId, cr);
+    // Parse the json crew array of a credits record
+    private static CrewCredit[] parseCrew(String cell) {
+        LiteralScanner crewScanner = new LiteralScanner("credit_id", "department", "gender", "id", "job", "name", "profile_path");
+        return crewScanner.list(cell, CrewCredit[]::new, crewMember -> {
+            String crewElementId = crewMember.getString(0);
+            String department    = crewMember.getString(1);
+            int gender           = crewMember.getInt(2); //Note: ignoring this field
+            int crewId           = crewMember.getInt(3);
+            String job           = crewMember.getString(4);
+            String name          = crewMember.getString(5);
+            String profilePath   = crewMember.getString(6);
+
+            return new CrewCredit(crewElementId, department, crewId, job, name, profilePath);
+        });
+    }
 
-                loadingUiUpdater.incrementUI(StoreType.CREDITS, record_count++);
-                
-            } //for each csv record
-        }
-        catch (IOException e){
-            String message = "[ UNRECOVERABLE I/O ERROR ] Unable to open credits file ('" + creditsCsvFile.getPath() +"') for parsing. Please make sure it is in the 'data' directory.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
-        }
-        catch (JSONException e){
-            String message = "[" + record_count + "] --CREDITS-- Unable to read json. Key not found or cannot convert to correct type.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
+    /***
+     * Parse a single keywords record. Runs on a parsing thread, so only reads the record itself.
+     */
+    static KeywordRecord parseKeywordRecord(CSVRecord csvRecord, Chunk<KeywordRecord> chunk) {
+        return parseKeywordRecord(csvRecord, chunk, null);
+    }
+
+    /***
+     * Parse a single keywords record, skipping it if its film is outside the partition.
+     * @param partition the partition being loaded, or null to keep every record
+     * @return the record, or null if it was skipped
+     */
+    static KeywordRecord parseKeywordRecord(CSVRecord csvRecord, Chunk<KeywordRecord> chunk, Partition partition) {
+        int movieId = Integer.parseInt(csvRecord.get("tmdb_id"));
+        if (partition != null && !partition.owns(movieId)){
+            return null;
         }
+        // The id is checked against the other records before the keywords themselves, so keep it in case they fail to parse
+        chunk.keyRead(movieId);
+
+        // Read from the json keyword array that looks like "[{'id':100, 'name':'based on the novel'},...]"
+        LiteralScanner keywordScanner = new LiteralScanner("id", "name");
+        Keyword[] keywordArray = keywordScanner.list(csvRecord.get("keywords"), Keyword[]::new, jsonKeyword -> {
+            // each {'id':100, 'name':'based on the novel'} in the array
+            int keyword_id      = jsonKeyword.getInt(0);
+            String keyword_name = jsonKeyword.getString(1);
 
+            return new Keyword(keyword_id, keyword_name);
+        });
+
+        return new KeywordRecord(movieId, keywordArray);
     }
 
-    private void loadKeywords(File keywordsCsvFile, FileLoadUiUpdater loadingUiUpdater, Set<Integer> validMovies) throws DataLoadException {
-        System.out.println("\nLoading keywords from \"" + keywordsCsvFile.getPath() + "\"...");
+    /***
+     * Make the parser for the film records of a movies file. Columns are looked up once, from the file's header, and the parser
+     * runs on the parsing threads, so only reads the record itself.
+     */
+    static RowParser<MovieRecord> metadataParser(Header header) {
+        return metadataParser(header, false);
+    }
 
-        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-                            .setHeader()
-                            .setSkipHeaderRecord(true)
-                            .build();
-        int record_count = 1;
-        try (CSVParser parser = CSVParser.parse(keywordsCsvFile, Charset.forName("UTF-8") , csvFormat)){
-            for (CSVRecord csvRecord : parser){ // For every csv line, excluding the header
-                if (csvRecord.size() != 2){
-                    throw new DataLoadException("[KEYWORDS] Incorrect number of csv fields in record number: " + record_count + ". Number of fields found: " + csvRecord.size());
-                }
+    /***
+     * Make the parser for the film records of a movies file.
+     * @param lazy whether to leave the overview, tagline and homepage in the file, to be read back later by movieTextParser. The
+     *             record notes where it starts instead.
+     */
+    static RowParser<MovieRecord> metadataParser(Header header, boolean lazy) {
+        return metadataParser(header, lazy, null);
+    }
 
-                int movieId = Integer.parseInt(csvRecord.get("tmdb_id"));
+    /***
+     * Make the parser for the film records of a movies file, which skips the films outside the partition.
+     * @param partition the partition being loaded, or null to keep every film
+     */
+    static RowParser<MovieRecord> metadataParser(Header header, boolean lazy, Partition partition) {
+        int idColumn                  = header.column("tmdb_id");
+        int budgetColumn              = header.column("budget");
+        int revenueColumn             = header.column("revenue");
+        int runtimeColumn             = header.column("runtime");
+        int adultColumn               = header.column("adult");
+        int videoColumn               = header.column("video");
+        int voteAverageColumn         = header.column("vote_average");
+        int voteCountColumn           = header.column("vote_count");
+        int imdbIdColumn              = header.column("imdb_id");
+        int popularityColumn          = header.column("popularity");
+        int titleColumn               = header.column("title");
+        int originalTitleColumn       = header.column("original_title");
+        int overviewColumn            = header.column("overview");
+        int taglineColumn             = header.column("tagline");
+        int statusColumn              = header.column("status");
+        int originalLanguageColumn    = header.column("original_language");
+        int homepageColumn            = header.column("homepage");
+        int posterPathColumn          = header.column("poster_path");
+        int genresColumn              = header.column("genres");
+        int spokenLanguagesColumn     = header.column("spoken_languages");
+        int releaseDateColumn         = header.column("release_date");
+        int collectionColumn          = header.column("belongs_to_collection");
+        int productionCompaniesColumn = header.column("production_companies");
+        int productionCountriesColumn = header.column("production_countries");
+
+        return (row, chunk) -> {
+            int movieId = row.getInt(idColumn);
+            if (partition != null && !partition.owns(movieId)){
+                return null;
+            }
+            // Duplicates are found before the rest of the record is read, so keep the id in case the rest fails to parse
+            chunk.keyRead(movieId);
+
+            // Parse simple fields
+            long budget    = row.getLong(budgetColumn);
+            long revenue   = row.getLong(revenueColumn);
+            double runtime;
+            if (row.isEmpty(runtimeColumn)){
+                runtime = -1;
+            }
+            else{
+                runtime = row.getDouble(runtimeColumn);
+            }
+            boolean adult       = row.getBoolean(adultColumn);
+            boolean video       = row.getBoolean(videoColumn);
+
+            //Imdb
+            double vote_average = row.getDouble(voteAverageColumn);
+            int vote_count      = row.getInt(voteCountColumn);
+            String imdbId       = row.getString(imdbIdColumn);
+            Double popularity   = row.getDouble(popularityColumn);
+
+            String title            = row.getString(titleColumn);
+            String originalTitle    = row.getString(originalTitleColumn);
+            String status           = row.getString(statusColumn);
+            String originalLanguage = row.getString(originalLanguageColumn);
+            String poster_path      = row.getString(posterPathColumn);
+            String overview         = null;
+            String tagline          = null;
+            String homepage         = null;
+            String[] overviewWords  = null;
+            String[] taglineWords   = null;
+            if (!lazy){
+                overview = row.getString(overviewColumn);
+                tagline  = row.getString(taglineColumn);
+                homepage = row.getString(homepageColumn);
+            }
+            else{
+                // Not kept, though still checked for so that a missing column fails as it would otherwise.
+                // Only the overview's and tagline's words are kept, so the store can search them without holding them
+                overviewWords = TokenIndex.words(row.getString(overviewColumn));
+                taglineWords  = TokenIndex.words(row.getString(taglineColumn));
+                row.isEmpty(homepageColumn);
+            }
 
-                // Check if have already parsed a keyword record for that movieId 
-                // (if there are multiple lines for that movieId in the file)
-                if (backendKeywordsByMovieId.containsKey(movieId)){
-                    String message = "Keywords file contains multiple records for movie (id:" + movieId + ")";
-                    throw new DataLoadException(message);
-                }
+            // Parse Genres, and the companies below, which are dicts of the same id and name
+            LiteralScanner idNameScanner = new LiteralScanner("id", "name");
+            Genre[] genreArray = idNameScanner.list(row.getString(genresColumn), Genre[]::new,
+                                                    gObject -> new Genre(gObject.getInt(0), gObject.getString(1)));
 
-                // Check if this line in the keywords file is referring to a movie that actually exists
-                if (!validMovies.contains(movieId)){
-                    String message = "Keywords file contains a keyword record for a movie (id:" + movieId + ") that doesn't exist in the movie metadata file!";
-                    throw new DataLoadException(message);
-                }
+            // Parse Languages
+            LiteralScanner languageScanner = new LiteralScanner("iso_639_1");
+            String[] languageArray = languageScanner.list(row.getString(spokenLanguagesColumn), String[]::new,
+                                                          lObject -> lObject.getString(0));
 
-                JSONArray jsonKeywordArray = new JSONArray(csvRecord.get("keywords"));
-                
-                Keyword[] keywordArray = new Keyword[jsonKeywordArray.length()];
-                // Read from the json keyword array that looks like "[{'id':100, 'name':'based on the novel'},...]"
-                for (int i = 0; i < jsonKeywordArray.length(); i++){
-                    JSONObject jsonKeyword = jsonKeywordArray.getJSONObject(i); 
-                    // each {'id':100, 'name':'based on the novel'} in the array
-
-                    int keyword_id      = jsonKeyword.getInt("id");
-                    String keyword_name = jsonKeyword.getString("name");
-                    
-                    keywordArray[i] = new Keyword(keyword_id, keyword_name);
-                }
+            // Parse Release Date
+            LocalDate release;
+            if (!row.isEmpty(releaseDateColumn)){
+                release = LocalDate.parse(row.getString(releaseDateColumn));
+            }
+            else{
+                release = null;
+            }
 
-                KeywordRecord kr = new KeywordRecord(movieId, keywordArray);
-                backendKeywords.add(kr);
-                backendKeywordsByMovieId.put(movieId, kr);
-                
-                loadingUiUpdater.incrementUI(StoreType.KEYWORDS, record_count++);
+            // Add Collection
+            int collectionId = -1;
+            String collectionName = null;
+            String collectionPoster = null;   //Note: currently unused
+            String collectionBackdrop = null; //Note: currently unused
+            if (!row.isEmpty(collectionColumn)){
+                LiteralScanner collectionObject = new LiteralScanner("id", "name", "poster_path", "backdrop_path");
+                collectionObject.dict(row.getString(collectionColumn));
+                collectionId       = collectionObject.getInt(0);
+                collectionName     = collectionObject.getString(1);
+                collectionPoster   = collectionObject.getString(2);
+                collectionBackdrop = collectionObject.getString(3);
             }
-        }
-        catch (IOException e){
-            String message = "[ UNRECOVERABLE I/O ERROR ] Unable to open keyword file ('" + keywordsCsvFile.getPath() +"') for parsing. Please make sure it is in the 'data' directory.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
-        }
-        catch (IllegalArgumentException e){
-            String message = "[" + record_count + "] --KEYWORDS-- Unable to read csv. Item for specified header not found.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
-        }
-        catch (JSONException e){
-            String message = "[" + record_count + "] --KEYWORDS-- Unable to read json. Key not found or cannot convert to correct type.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
-        }
+
+            // Add Companies
+            Company[] companyArray = idNameScanner.list(row.getString(productionCompaniesColumn), Company[]::new,
+                                                        jsonCompanyObject -> new Company(jsonCompanyObject.getInt(0), jsonCompanyObject.getString(1)));
+
+            // Add Countries
+            LiteralScanner countryScanner = new LiteralScanner("iso_3166_1");
+            String[] countryArray = countryScanner.list(row.getString(productionCountriesColumn), String[]::new,
+                                                        jsonCountryObject -> jsonCountryObject.getString(0));
+
+            MovieRecord record = new MovieRecord(movieId, collectionName, title, originalTitle, overview, tagline,
+                status, genreArray, release, budget, revenue, languageArray, originalLanguage,
+                runtime, homepage, adult, video, poster_path, vote_average, vote_count, collectionId,
+                collectionName, collectionPoster, collectionBackdrop, imdbId, popularity, companyArray, countryArray);
+            if (lazy){
+                record.offset = row.offset();
+                record.overviewWords = overviewWords;
+                record.taglineWords = taglineWords;
+            }
+            return record;
+        };
     }
 
     /***
-     * Load Film data from csv file.
-     * @param metadataCsvFile
-     * @param loadingUiUpdater
-     * @return Set of movie IDs that were loaded
-     * @throws DataLoadException
+     * Make the reader for the text fields of single records of a movies file, for a store to read back what it was loaded
+     * without.
      */
-    private Set<Integer> loadMetadata(File metadataCsvFile, FileLoadUiUpdater loadingUiUpdater) throws DataLoadException {
-        System.out.println("\nLoading movies metadata from \"" + metadataCsvFile.getPath() + "\"...");
-        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-                            .setHeader()
-                            .setSkipHeaderRecord(true)
-                            .build();
-        int record_count = 0;
-        try (CSVParser parser = CSVParser.parse(metadataCsvFile, Charset.forName("UTF-8"), csvFormat)){
-            for (CSVRecord csvRecord : parser){ // For each record line in the file
-                if (csvRecord.size() != 24) {
-                    throw new DataLoadException("[" + record_count + "] --METADATA-- Incorrect number of fields. Number of fields found: " + csvRecord.size());
-                }
+    static Function<Row, MovieText> movieTextParser(Header header) {
+        int overviewColumn = header.column("overview");
+        int taglineColumn  = header.column("tagline");
+        int homepageColumn = header.column("homepage");
 
-                int movieId = Integer.parseInt(csvRecord.get("tmdb_id"));
+        return row -> new MovieText(row.getString(overviewColumn), row.getString(taglineColumn), row.getString(homepageColumn));
+    }
 
-                //HARD FAIL if duplicate movies exist in the input file
-                if (backendMoviesByMovieId.containsKey(movieId)){
-                    throw new DataLoadException("[" + record_count + "] --METADATA-- Input file ('" + metadataCsvFile.getPath() +"') contains duplicate Movie! id: " + movieId);
-                }
+    /***
+     * Make the parser for the records of a ratings file. Every field is a number, so they are all read straight from the file
+     * without making a String.
+     */
+    static RowParser<RatingRecord> ratingParser(Header header) {
+        return ratingParser(header, null);
+    }
 
-                // Parse simple fields
-                long budget    = Long.parseLong(csvRecord.get("budget"));
-                long revenue   = Long.parseLong(csvRecord.get("revenue"));
-                String runtime_in_file = csvRecord.get("runtime");
-                double runtime;
-                if (runtime_in_file.equals("")){ 
-                    runtime = -1; 
-                }
-                else{ 
-                    runtime = Double.parseDouble(csvRecord.get("runtime")); 
-                }
-                boolean adult       = Boolean.parseBoolean(csvRecord.get("adult"));
-                boolean video       = Boolean.parseBoolean(csvRecord.get("video"));
-
-                //Imdb
-                double vote_average = Double.parseDouble(csvRecord.get("vote_average"));
-                int vote_count      = Integer.parseInt(csvRecord.get("vote_count"));
-                String imdbId       = csvRecord.get("imdb_id");
-                Double popularity   = Double.parseDouble(csvRecord.get("popularity"));
-
-                String title            = csvRecord.get("title");
-                String originalTitle    = csvRecord.get("original_title");
-                String overview         = csvRecord.get("overview");
-                String tagline          = csvRecord.get("tagline");
-                String status           = csvRecord.get("status");
-                String originalLanguage = csvRecord.get("original_language");
-                String homepage         = csvRecord.get("homepage");
-                String poster_path      = csvRecord.get("poster_path");
-
-                // Parse Genres
-                JSONArray jsonGenreArray = new JSONArray(csvRecord.get("genres"));
-                Genre[] genreArray = new Genre[jsonGenreArray.length()];
-                for (int i = 0; i < jsonGenreArray.length(); i++){
-                    JSONObject gObject = jsonGenreArray.getJSONObject(i);
-                    int genreId = gObject.getInt("id");
-                    String genreName = gObject.getString("name");
-                    genreArray[i] = new Genre(genreId, genreName);
-                }
+    /***
+     * Make the parser for the records of a ratings file, which skips the ratings of films outside the partition.
+     * @param partition the partition being loaded, or null to keep every rating
+     */
+    static RowParser<RatingRecord> ratingParser(Header header, Partition partition) {
+        int movieIdColumn   = header.column("tmdbId");
+        int userIdColumn    = header.column("userId");
+        int ratingColumn    = header.column("rating");
+        int timestampColumn = header.column("timestamp");
+
+        return (row, chunk) -> {
+            int movieId  = row.getInt(movieIdColumn);
+            if (partition != null && !partition.owns(movieId)){
+                return null;
+            }
+            // The movie is checked before the rest of the record is read, so keep the id in case the rest fails to parse
+            chunk.keyRead(movieId);
 
-                // Parse Languages
-                JSONArray jsonLanguageArray = new JSONArray(csvRecord.get("spoken_languages"));
-                String[] languageArray = new String[jsonLanguageArray.length()];
-                for (int i = 0; i < jsonLanguageArray.length(); i++){
-                    JSONObject lObject = jsonLanguageArray.getJSONObject(i);
-                    String lang_short = lObject.getString("iso_639_1");
-                    languageArray[i] = lang_short;
-                }
+            int userId   = row.getInt(userIdColumn);
+            float rating = row.getFloat(ratingColumn);
 
-                // Parse Release Date
-                String release_in_file = csvRecord.get("release_date");
-                LocalDate release;
-                if (!release_in_file.equals("")){
-                    release = LocalDate.parse(csvRecord.get("release_date"));
-                }
-                else{
-                    release = null;
-                }
+            long ts_in_file = row.getLong(timestampColumn);
+            LocalDateTime time = LocalDateTime.ofEpochSecond(ts_in_file, 0 , ZoneOffset.UTC);
 
-                // Add Collection
-                String collectionString = csvRecord.get("belongs_to_collection");
-                int collectionId = -1;
-                String collectionName = null;
-                String collectionPoster = null;   //Note: currently unused
-                String collectionBackdrop = null; //Note: currently unused
-                if (!collectionString.equals("")){
-                    JSONObject collectionObject = new JSONObject(csvRecord.get("belongs_to_collection"));
-                    collectionId       = collectionObject.getInt("id");
-                    collectionName     = collectionObject.getString("name");
-                    collectionPoster   = collectionObject.getString("poster_path");
-                    collectionBackdrop = collectionObject.getString("backdrop_path");
-                }
+            return new RatingRecord(userId, movieId, rating, time);
+        };
+    }
 
-                // Add Companies
-                JSONArray jsonCompanyArray = new JSONArray(csvRecord.get("production_companies"));
-                Company[] companyArray = new Company[jsonCompanyArray.length()];
-                for (int i = 0; i < jsonCompanyArray.length(); i++){
-                    JSONObject jsonCompanyObject = jsonCompanyArray.getJSONObject(i);
-                    String companyName = jsonCompanyObject.getString("name");
-                    int companyId = jsonCompanyObject.getInt("id");
-                    companyArray[i] = new Company(companyId, companyName);
-                }
+    /***
+     * Checks parsed records against each other and against the movies file, in file order, and passes on the valid ones.
+     * Chunks are joined one at a time with the record count carried between them, so error messages number records from
+     * the start of the file however it was split up, and are raised for the same record a sequential read would stop at.
+     */
+    static abstract class RecordJoin<T> {
+        File csvFile;
+        int record_count;
+        private final int firstRecord;
+
+        RecordJoin(File csvFile, int firstRecord){
+            this.csvFile = csvFile;
+            this.record_count = firstRecord;
+            this.firstRecord = firstRecord;
+        }
+
+        // Moves on to the next shard of a file, numbering its records from its own start. The checks carry on across shards.
+        void nextFile(File csvFile){
+            this.csvFile = csvFile;
+            this.record_count = firstRecord;
+        }
+
+        abstract int movieId(T record);
+
+        // Checks the movie id of a record before it is passed on, throwing if the record is invalid
+        abstract void check(int movieId) throws DataLoadException;
+
+        // Called once a record has passed its checks
+        void accepted(int movieId){
+        }
+
+        abstract String fileDescription();
+
+        abstract DataLoadException badFieldCount(int numFields);
 
-                // Add Countries
-                JSONArray jsonCountryArray = new JSONArray(csvRecord.get("production_countries"));
-                String[] countryArray = new String[jsonCountryArray.length()];
-                for (int i = 0; i < jsonCountryArray.length(); i++){
-                    JSONObject jsonCountryObject = jsonCountryArray.getJSONObject(i);
-                    String countryIdShort = jsonCountryObject.getString("iso_3166_1");
+        // Turns the exception a record failed to parse with into the error to report, or rethrows it if there isn't one
+        abstract DataLoadException failure(RuntimeException e);
 
-                    countryArray[i] = countryIdShort;
+        void joinAll(ParsedFile<T> parsedFile, Consumer<T> sink) throws DataLoadException {
+            if (parsedFile.ioFailure != null){
+                throw ioFailure(parsedFile.ioFailure);
+            }
+            for (Chunk<T> chunk : parsedFile.chunks){
+                join(chunk, sink);
+            }
+        }
+
+        void join(Chunk<T> chunk, Consumer<T> sink) throws DataLoadException {
+            for (int i = 0; i < chunk.records.size(); i++){
+                // rows skipped by the parser, as another partition's, aren't checked but still count towards the numbering
+                record_count += chunk.skippedBefore(i);
+                T record = chunk.records.get(i);
+                int movieId = movieId(record);
+                check(movieId);
+                accepted(movieId);
+                sink.accept(record);
+                record_count++;
+            }
+            record_count += chunk.skippedAfter();
+
+            if (chunk.badFieldCount >= 0){
+                throw badFieldCount(chunk.badFieldCount);
+            }
+            if (chunk.failure != null){
+                if (chunk.failedKeyKnown){
+                    check(chunk.failedKey);
                 }
+                throw failure(chunk.failure);
+            }
+        }
 
-                MovieRecord mr = new MovieRecord(movieId, collectionName, title, originalTitle, overview, tagline, 
-                    status, genreArray, release, budget, revenue, languageArray, originalLanguage, 
-                    runtime, homepage, adult, video, poster_path, vote_average, vote_count, collectionId, 
-                    collectionName, collectionPoster, collectionBackdrop, imdbId, popularity, companyArray, countryArray);
-                
-                backendMovies.add(mr);
-                backendMoviesByMovieId.put(movieId, mr);
-                
-                loadingUiUpdater.incrementUI(StoreType.METADATA, record_count++);
+        DataLoadException ioFailure(IOException e){
+            return reported("[ UNRECOVERABLE I/O ERROR ] Unable to open " + fileDescription() + " ('" + csvFile.getPath() +"') for parsing. Please make sure it is in the 'data' directory.", e);
+        }
+    }
 
-            } //for each record
+    static DataLoadException reported(String message, Exception e){
+        System.err.println(message);
+        System.err.println(e.getMessage());
+        System.err.println(e.getStackTrace());
+        return new DataLoadException(message);
+    }
 
-            return backendMoviesByMovieId.keySet();
+    static class CreditsJoin extends RecordJoin<CreditRecord> {
+        private final Set<Integer> validMovies;
+        private final HashSet<Integer> seen = new HashSet<>();
 
+        CreditsJoin(File creditsCsvFile, Set<Integer> validMovies){
+            super(creditsCsvFile, 1);
+            this.validMovies = validMovies;
         }
-        catch (IOException e){
-            String message = "[ UNRECOVERABLE I/O ERROR ] Unable to open movies metadata file ('" + metadataCsvFile.getPath() +"') for parsing. Please make sure it is in the 'data' directory.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
+
+        int movieId(CreditRecord cr){
+            return cr.movieId;
         }
-        catch (IllegalArgumentException e){
-            String message = "[" + record_count + "] --MOVIE METADATA-- Unable to read csv. Item for specified header not found.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
+
+        void check(int movieId) throws DataLoadException {
+            if (!validMovies.contains(movieId)){
+                String message = "Credits file contains a credit for a movie (id:" + movieId + ") that doesn't exist in the movie metadata file!";
+                throw new DataLoadException(message);
+            }
+
+            if (seen.contains(movieId)){
+                String message = "Credits file contains multiple records for movie (id:" + movieId + ")";
+                throw new DataLoadException(message);
+            }
         }
-        catch (DateTimeParseException e){
-            String message = "[" + record_count + "] --MOVIE METADATA-- Unable to read csv. Unable to parse date.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
+
+        void accepted(int movieId){
+            seen.add(movieId);
+        }
+
+        String fileDescription(){
+            return "credits file";
+        }
+
+        DataLoadException badFieldCount(int numFields){
+            return new DataLoadException("[CREDITS] Incorrect number of csv fields in record number: " + record_count + ". Number of fields found: " + numFields);
+        }
+
+        DataLoadException failure(RuntimeException e){
+            try {
+                throw e;
+            }
+            catch (JSONException je){
+                return reported("[" + record_count + "] --CREDITS-- Unable to read json. Key not found or cannot convert to correct type.", je);
+            }
         }
     }
 
+    static class KeywordsJoin extends RecordJoin<KeywordRecord> {
+        private final Set<Integer> validMovies;
+        private final HashSet<Integer> seen = new HashSet<>();
 
+        KeywordsJoin(File keywordsCsvFile, Set<Integer> validMovies){
+            super(keywordsCsvFile, 1);
+            this.validMovies = validMovies;
+        }
 
+        int movieId(KeywordRecord kr){
+            return kr.movieId;
+        }
 
+        void check(int movieId) throws DataLoadException {
+            // Check if have already parsed a keyword record for that movieId
+            // (if there are multiple lines for that movieId in the file)
+            if (seen.contains(movieId)){
+                String message = "Keywords file contains multiple records for movie (id:" + movieId + ")";
+                throw new DataLoadException(message);
+            }
 
-    /***
-     * Load the Ratings file into RatingRecord objects in backend datastructures
-     * @param ratingsCsvFile The file to load in
-     * @param loadUiUpdater
-     * @param validMovies The set of movies that have been parsed from the movies file
-     * @throws DataLoadException When the file is of the incorrect format
-     */
-    private void loadRatings(File ratingsCsvFile, FileLoadUiUpdater loadUiUpdater, Set<Integer> validMovies) throws DataLoadException {
-        System.out.println("\nLoading ratings from \"" + ratingsCsvFile.getPath() + "\"...\n\n");
-        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-                            .setHeader()
-                            .setSkipHeaderRecord(true)
-                            .build();
-        int record_count = 0;
-        try (CSVParser parser = CSVParser.parse(ratingsCsvFile, Charset.forName("utf-8"), csvFormat)){
-            for (CSVRecord csvRecord : parser){
-                //For each record in csv file
-                if (csvRecord.size() != 5){
-                    String message = "[" + record_count + "] --RATINGS-- Incorrect list of ratings... No. fields found = " + csvRecord.size();
-                    throw new DataLoadException(message);
-                }
+            // Check if this line in the keywords file is referring to a movie that actually exists
+            if (!validMovies.contains(movieId)){
+                String message = "Keywords file contains a keyword record for a movie (id:" + movieId + ") that doesn't exist in the movie metadata file!";
+                throw new DataLoadException(message);
+            }
+        }
 
-                int movieId  = Integer.parseInt(csvRecord.get("tmdbId"));
+        void accepted(int movieId){
+            seen.add(movieId);
+        }
 
-                // Check if this line in the ratings file is referring to a movie that actually exists
-                if (!validMovies.contains(movieId)){
-                    String message = "Ratings file contains a rating for a movie (id:" + movieId + ") that doesn't exist in the movie metadata file!";
-                    throw new DataLoadException(message);
-                }
+        String fileDescription(){
+            return "keyword file";
+        }
 
-                int userId   = Integer.parseInt(csvRecord.get("userId"));
-                float rating = Float.parseFloat(csvRecord.get("rating"));
+        DataLoadException badFieldCount(int numFields){
+            return new DataLoadException("[KEYWORDS] Incorrect number of csv fields in record number: " + record_count + ". Number of fields found: " + numFields);
+        }
 
-                long ts_in_file = Long.parseLong(csvRecord.get("timestamp"));
-                LocalDateTime time = LocalDateTime.ofEpochSecond(ts_in_file, 0 , ZoneOffset.UTC);
+        DataLoadException failure(RuntimeException e){
+            try {
+                throw e;
+            }
+            catch (IllegalArgumentException iae){
+                return reported("[" + record_count + "] --KEYWORDS-- Unable to read csv. Item for specified header not found.", iae);
+            }
+            catch (JSONException je){
+                return reported("[" + record_count + "] --KEYWORDS-- Unable to read json. Key not found or cannot convert to correct type.", je);
+            }
+        }
+    }
 
-                RatingRecord rr = new RatingRecord(userId, movieId, rating, time);
+    static class MetadataJoin extends RecordJoin<MovieRecord> {
+        // The movie ids loaded so far, which become the validMovies the other files are checked against
+        final HashSet<Integer> seen = new HashSet<>();
 
-                backendRatings.add(rr);
-                if (!backendRatingsByMovieId.containsKey(movieId)){
-                    backendRatingsByMovieId.put(movieId, new ArrayList<>());
-                }
-                backendRatingsByMovieId.get(movieId).add(rr);
+        MetadataJoin(File metadataCsvFile){
+            super(metadataCsvFile, 0);
+        }
 
-                loadUiUpdater.incrementUI(StoreType.RATINGS, record_count++);
+        int movieId(MovieRecord mr){
+            return mr.id;
+        }
 
+        void check(int movieId) throws DataLoadException {
+            //HARD FAIL if duplicate movies exist in the input file
+            if (seen.contains(movieId)){
+                throw new DataLoadException("[" + record_count + "] --METADATA-- Input file ('" + csvFile.getPath() +"') contains duplicate Movie! id: " + movieId);
             }
+        }
 
+        void accepted(int movieId){
+            seen.add(movieId);
         }
-        catch (IOException e){
-            String message = "[ UNRECOVERABLE I/O ERROR ] Unable to open ratings file ('" + ratingsCsvFile.getPath() +"') for parsing. Please make sure it is in the 'data' directory.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
+
+        String fileDescription(){
+            return "movies metadata file";
         }
-        catch (IllegalArgumentException e){
-            String message = "[" + record_count + "] --RATINGS-- Unable to read csv. Item for specified header not found.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
+
+        DataLoadException badFieldCount(int numFields){
+            return new DataLoadException("[" + record_count + "] --METADATA-- Incorrect number of fields. Number of fields found: " + numFields);
+        }
+
+        DataLoadException failure(RuntimeException e){
+            try {
+                throw e;
+            }
+            catch (IllegalArgumentException iae){
+                return reported("[" + record_count + "] --MOVIE METADATA-- Unable to read csv. Item for specified header not found.", iae);
+            }
+            catch (DateTimeParseException dtpe){
+                return reported("[" + record_count + "] --MOVIE METADATA-- Unable to read csv. Unable to parse date.", dtpe);
+            }
+        }
+    }
+
+    static class RatingsJoin extends RecordJoin<RatingRecord> {
+        private final Set<Integer> validMovies;
+
+        RatingsJoin(File ratingsCsvFile, Set<Integer> validMovies){
+            super(ratingsCsvFile, 0);
+            this.validMovies = validMovies;
+        }
+
+        int movieId(RatingRecord rr){
+            return rr.movieId;
         }
-        catch (DateTimeParseException e){
-            String message = "[" + record_count + "] --RATINGS-- Unable to read csv. Unable to parse date.";
-            System.err.println(message);
-            System.err.println(e.getMessage());
-            System.err.println(e.getStackTrace());
-            throw new DataLoadException(message);
+
+        void check(int movieId) throws DataLoadException {
+            // Check if this line in the ratings file is referring to a movie that actually exists
+            if (!validMovies.contains(movieId)){
+                String message = "Ratings file contains a rating for a movie (id:" + movieId + ") that doesn't exist in the movie metadata file!";
+                throw new DataLoadException(message);
+            }
+        }
+
+        String fileDescription(){
+            return "ratings file";
+        }
+
+        DataLoadException badFieldCount(int numFields){
+            return new DataLoadException("[" + record_count + "] --RATINGS-- Incorrect list of ratings... No. fields found = " + numFields);
+        }
+
+        DataLoadException failure(RuntimeException e){
+            try {
+                throw e;
+            }
+            catch (IllegalArgumentException iae){
+                return reported("[" + record_count + "] --RATINGS-- Unable to read csv. Item for specified header not found.", iae);
+            }
+            catch (DateTimeParseException dtpe){
+                return reported("[" + record_count + "] --RATINGS-- Unable to read csv. Unable to parse date.", dtpe);
+            }
+        }
+    }
+
+    private void loadCredits(File[] creditsCsvFiles, List<ForkJoinTask<ParsedFile<CreditRecord>>> parsedFiles, Set<Integer> validMovies) throws DataLoadException {
+        System.out.println("\nLoading credits from " + describe(creditsCsvFiles) + "...");
+        joinShards(new CreditsJoin(creditsCsvFiles[0], validMovies), creditsCsvFiles, parsedFiles,
+                   size -> backendCredits.ensureCapacity(backendCredits.size() + size), cr -> {
+            backendCredits.add(cr);
+            backendCreditsByMovieId.put(cr.movieId, cr);
+        });
+    }
+
+    private void loadKeywords(File[] keywordsCsvFiles, List<ForkJoinTask<ParsedFile<KeywordRecord>>> parsedFiles, Set<Integer> validMovies) throws DataLoadException {
+        System.out.println("\nLoading keywords from " + describe(keywordsCsvFiles) + "...");
+        joinShards(new KeywordsJoin(keywordsCsvFiles[0], validMovies), keywordsCsvFiles, parsedFiles,
+                   size -> backendKeywords.ensureCapacity(backendKeywords.size() + size), kr -> {
+            backendKeywords.add(kr);
+            backendKeywordsByMovieId.put(kr.movieId, kr);
+        });
+    }
+
+    /***
+     * Load Film data from the parsed csv files.
+     * @param metadataCsvFiles
+     * @param parsedFiles
+     * @return Set of movie IDs that were loaded
+     * @throws DataLoadException
+     */
+    private Set<Integer> loadMetadata(File[] metadataCsvFiles, List<ForkJoinTask<ParsedFile<MovieRecord>>> parsedFiles) throws DataLoadException {
+        System.out.println("\nLoading movies metadata from " + describe(metadataCsvFiles) + "...");
+        MetadataJoin join = new MetadataJoin(metadataCsvFiles[0]);
+        joinShards(join, metadataCsvFiles, parsedFiles,
+                   size -> backendMovies.ensureCapacity(backendMovies.size() + size), mr -> {
+            backendMovies.add(mr);
+            backendMoviesByMovieId.put(mr.id, mr);
+        });
+        return join.seen;
+    }
+
+    /***
+     * Load the parsed Ratings files into RatingRecord objects in backend datastructures
+     * @param ratingsCsvFiles The files that were loaded in
+     * @param parsedFiles The records parsed from each file
+     * @param validMovies The set of movies that have been parsed from the movies file
+     * @throws DataLoadException When the file is of the incorrect format
+     */
+    private void loadRatings(File[] ratingsCsvFiles, List<ForkJoinTask<ParsedFile<RatingRecord>>> parsedFiles, Set<Integer> validMovies) throws DataLoadException {
+        System.out.println("\nLoading ratings from " + describe(ratingsCsvFiles) + "...\n\n");
+        joinShards(new RatingsJoin(ratingsCsvFiles[0], validMovies), ratingsCsvFiles, parsedFiles,
+                   size -> backendRatings.ensureCapacity(backendRatings.size() + size), rr -> {
+            backendRatings.add(rr);
+            if (!backendRatingsByMovieId.containsKey(rr.movieId)){
+                backendRatingsByMovieId.put(rr.movieId, new ArrayList<>());
+            }
+            backendRatingsByMovieId.get(rr.movieId).add(rr);
+        });
+    }
+
+    /***
+     * Check the parsed shards of a file in name order, as though they were one file. Records are numbered from the start of
+     * each shard, so errors point at the right line of the right shard.
+     * @param reserve Told how many records a shard holds before they are passed on
+     */
+    private static <T> void joinShards(RecordJoin<T> join, File[] files, List<ForkJoinTask<ParsedFile<T>>> parsedFiles,
+                                       IntConsumer reserve, Consumer<T> sink) throws DataLoadException {
+        for (int i = 0; i < files.length; i++){
+            ParsedFile<T> parsedFile = parsedFiles.get(i).join();
+            join.nextFile(files[i]);
+            reserve.accept(parsedFile.size());
+            join.joinAll(parsedFile, sink);
+        }
+    }
+
+    private static String describe(File[] files){
+        if (files.length == 1){
+            return "\"" + files[0].getPath() + "\"";
         }
+        return files.length + " shards in \"" + files[0].getParent() + "\"";
     }
 
-    public class DataLoadException extends Exception {
+    public static class DataLoadException extends Exception {
         public DataLoadException(String message){
             super(message);
         }
@@ -0,0 +1,193 @@
+package utils;
+
+/**
+ * How to load the dataset: which files to read, how to read them and what to do once they are loaded. Options are immutable, and
+ * each with method returns a copy with one thing changed, starting from DEFAULT, which reads the default csv files in full through
+ * the default snapshot.
+ *
+ * Not every option applies to every loader. LoadData reads the files, shards and partition. StreamingLoader reads the files,
+ * number of films, laziness and partition. WarwickPlus.start uses all of them to pick a loader.
+ */
+public class LoadOptions {
+    /**
+     * The default csv files, all of them, through the default snapshot
+     */
+    public static final LoadOptions DEFAULT = new LoadOptions();
+
+    private String creditsPath = Constants.defaultCreditsPath;
+    private String keywordsPath = Constants.defaultKeywordsPath;
+    private String movieMetadataPath = Constants.defaultMovieMetadataPath;
+    private String ratingsPath = Constants.defaultRatingsPath;
+    private String shardDirectory = null;
+    private Integer numMovies = null;
+    private String snapshotPath = Constants.defaultSnapshotPath;
+    private boolean streaming = false;
+    private boolean lazy = false;
+    private boolean followRatings = false;
+    private Partition partition = null;
+    private boolean parallelPopulate = false;
+
+    private LoadOptions() {
+    }
+
+    private LoadOptions copy() {
+        LoadOptions copy = new LoadOptions();
+        copy.creditsPath = creditsPath;
+        copy.keywordsPath = keywordsPath;
+        copy.movieMetadataPath = movieMetadataPath;
+        copy.ratingsPath = ratingsPath;
+        copy.shardDirectory = shardDirectory;
+        copy.numMovies = numMovies;
+        copy.snapshotPath = snapshotPath;
+        copy.streaming = streaming;
+        copy.lazy = lazy;
+        copy.followRatings = followRatings;
+        copy.partition = partition;
+        copy.parallelPopulate = parallelPopulate;
+        return copy;
+    }
+
+    /**
+     * @return these options reading the given csv files, any of which can be gzip compressed
+     */
+    public LoadOptions withFiles(String creditsPath, String keywordsPath, String movieMetadataPath, String ratingsPath) {
+        LoadOptions copy = copy();
+        copy.creditsPath = creditsPath;
+        copy.keywordsPath = keywordsPath;
+        copy.movieMetadataPath = movieMetadataPath;
+        copy.ratingsPath = ratingsPath;
+        return copy;
+    }
+
+    /**
+     * @param shardDirectory a directory holding every csv file, each whole or split into shards as LoadData reads them, in place
+     *                       of the csv files, or null to read the csv files
+     * @return these options reading the shards
+     */
+    public LoadOptions withShards(String shardDirectory) {
+        LoadOptions copy = copy();
+        copy.shardDirectory = shardDirectory;
+        return copy;
+    }
+
+    /**
+     * @param numMovies the number of films to load, taken from the start of the movies file (or partition), or null for all of
+     *                  them. Only the credits, keywords and ratings of those films are loaded
+     * @return these options loading that many films
+     */
+    public LoadOptions withNumMovies(Integer numMovies) {
+        LoadOptions copy = copy();
+        copy.numMovies = numMovies;
+        return copy;
+    }
+
+    /**
+     * @param snapshotPath the snapshot to load from if it was made from the same csv files, and to write otherwise, or null to
+     *                     always load from the csv files
+     * @return these options using that snapshot
+     */
+    public LoadOptions withSnapshot(String snapshotPath) {
+        LoadOptions copy = copy();
+        copy.snapshotPath = snapshotPath;
+        return copy;
+    }
+
+    /**
+     * @param streaming whether to parse the csv files straight into the stores, without holding a second copy of the data
+     * @return these options streaming or not
+     */
+    public LoadOptions withStreaming(boolean streaming) {
+        LoadOptions copy = copy();
+        copy.streaming = streaming;
+        return copy;
+    }
+
+    /**
+     * @param lazy whether to stream the csv files, leaving each film's overview, tagline, homepage, cast and crew in them to be
+     *             read when first asked for
+     * @return these options loading lazily or not
+     */
+    public LoadOptions withLazy(boolean lazy) {
+        LoadOptions copy = copy();
+        copy.lazy = lazy;
+        return copy;
+    }
+
+    /**
+     * @param followRatings whether to keep adding the ratings appended to the ratings file once loading is done
+     * @return these options following the ratings or not
+     */
+    public LoadOptions withFollowRatings(boolean followRatings) {
+        LoadOptions copy = copy();
+        copy.followRatings = followRatings;
+        return copy;
+    }
+
+    /**
+     * @param partition the only partition of the films to load, with their credits, keywords and ratings, or null for every film
+     * @return these options loading that partition
+     */
+    public LoadOptions withPartition(Partition partition) {
+        LoadOptions copy = copy();
+        copy.partition = partition;
+        return copy;
+    }
+
+    /**
+     * @param parallelPopulate whether to fill the four stores at the same time once the data is read, rather than one after another
+     * @return these options populating in parallel or not
+     */
+    public LoadOptions withParallelPopulate(boolean parallelPopulate) {
+        LoadOptions copy = copy();
+        copy.parallelPopulate = parallelPopulate;
+        return copy;
+    }
+
+    public String getCreditsPath() {
+        return creditsPath;
+    }
+
+    public String getKeywordsPath() {
+        return keywordsPath;
+    }
+
+    public String getMovieMetadataPath() {
+        return movieMetadataPath;
+    }
+
+    public String getRatingsPath() {
+        return ratingsPath;
+    }
+
+    public String getShardDirectory() {
+        return shardDirectory;
+    }
+
+    public Integer getNumMovies() {
+        return numMovies;
+    }
+
+    public String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public boolean isFollowRatings() {
+        return followRatings;
+    }
+
+    public Partition getPartition() {
+        return partition;
+    }
+
+    public boolean isParallelPopulate() {
+        return parallelPopulate;
+    }
+}
@@ -0,0 +1,178 @@
+package utils;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.swing.SwingUtilities;
+
+import utils.CsvChunkReader.ProgressListener;
+import utils.LoadData.StoreType;
+
+/**
+ * Tracks how much of each csv file has been parsed, by bytes of the file rather than records, so nothing has to be counted
+ * before loading starts. The parsing threads only add to counters, and at most one update every UPDATE_INTERVAL_MS is passed on
+ * to the listener, on the Swing event dispatch thread. An update that is still waiting to be delivered isn't queued again, and
+ * reads the counters when it runs, so a busy event thread only ever gets the latest progress.
+ */
+public class LoadProgress {
+    public static final long UPDATE_INTERVAL_MS = 50;
+
+    private static final long UPDATE_INTERVAL_NANOS = UPDATE_INTERVAL_MS * 1_000_000;
+
+    private final LoadProgressListener listener;
+    private final long[] totalBytes = new long[StoreType.values().length];
+    private final AtomicLongArray bytesRead = new AtomicLongArray(StoreType.values().length);
+    private final AtomicLongArray recordsRead = new AtomicLongArray(StoreType.values().length);
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong lastUpdateNanos = new AtomicLong(startNanos);
+    private final AtomicBoolean updatePending = new AtomicBoolean(false);
+    private volatile StoreType currentFile = StoreType.METADATA;
+
+    /**
+     * @param listener told of the progress, can be null
+     */
+    LoadProgress(LoadProgressListener listener, File creditsFile, File keywordsFile, File moviesFile, File ratingsFile) {
+        this(listener, creditsFile.length(), keywordsFile.length(), moviesFile.length(), ratingsFile.length());
+    }
+
+    /**
+     * @param listener told of the progress, can be null
+     * @param creditsBytes the size of the credits, added up across every shard of the file
+     */
+    LoadProgress(LoadProgressListener listener, long creditsBytes, long keywordsBytes, long moviesBytes, long ratingsBytes) {
+        this.listener = listener;
+        totalBytes[StoreType.CREDITS.ordinal()] = creditsBytes;
+        totalBytes[StoreType.KEYWORDS.ordinal()] = keywordsBytes;
+        totalBytes[StoreType.METADATA.ordinal()] = moviesBytes;
+        totalBytes[StoreType.RATINGS.ordinal()] = ratingsBytes;
+    }
+
+    /**
+     * @param fileType the file being parsed
+     * @return a listener for the parsing threads of the file to report to
+     */
+    ProgressListener forFile(StoreType fileType) {
+        return (records, bytes) -> parsed(fileType, records, bytes);
+    }
+
+    private void parsed(StoreType fileType, int records, long bytes) {
+        recordsRead.addAndGet(fileType.ordinal(), records);
+        bytesRead.addAndGet(fileType.ordinal(), bytes);
+        currentFile = fileType;
+
+        // only the thread that moves the last update time on sends the update
+        long now = System.nanoTime();
+        long lastUpdate = lastUpdateNanos.get();
+        if (now - lastUpdate >= UPDATE_INTERVAL_NANOS && lastUpdateNanos.compareAndSet(lastUpdate, now)) {
+            update();
+        }
+    }
+
+    /**
+     * Sends a last update, whenever the previous one was sent, so the listener sees where parsing finished
+     */
+    void finished() {
+        update();
+    }
+
+    private void update() {
+        if (listener != null && updatePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                updatePending.set(false);
+                listener.progressUpdated(this);
+            });
+        }
+    }
+
+    /**
+     * @return the file that was parsed from most recently
+     */
+    public StoreType getCurrentFile() {
+        return currentFile;
+    }
+
+    public long getBytesRead(StoreType fileType) {
+        return bytesRead.get(fileType.ordinal());
+    }
+
+    public long getTotalBytes(StoreType fileType) {
+        return totalBytes[fileType.ordinal()];
+    }
+
+    public long getRecordsRead(StoreType fileType) {
+        return recordsRead.get(fileType.ordinal());
+    }
+
+    /**
+     * @return the bytes parsed across every file
+     */
+    public long getBytesRead() {
+        long read = 0;
+        for (int i = 0; i < totalBytes.length; i++) {
+            read += bytesRead.get(i);
+        }
+        return read;
+    }
+
+    /**
+     * @return the size of every file together
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for (long fileBytes : totalBytes) {
+            total += fileBytes;
+        }
+        return total;
+    }
+
+    /**
+     * @return the records parsed across every file
+     */
+    public long getRecordsRead() {
+        long read = 0;
+        for (int i = 0; i < totalBytes.length; i++) {
+            read += recordsRead.get(i);
+        }
+        return read;
+    }
+
+    /**
+     * @return how much of the files have been parsed, from 0 to 1
+     */
+    public double getFractionDone() {
+        long total = getTotalBytes();
+        if (total == 0) {
+            return 1;
+        }
+        return Math.min(1, getBytesRead() / (double) total);
+    }
+
+    /**
+     * @return the records parsed per second since loading started
+     */
+    public double getRecordsPerSecond() {
+        double seconds = secondsSinceStart();
+        if (seconds <= 0) {
+            return 0;
+        }
+        return getRecordsRead() / seconds;
+    }
+
+    /**
+     * @return how many more seconds parsing should take at the rate it has gone so far, or -1 if nothing has been parsed yet
+     */
+    public double getSecondsRemaining() {
+        long read = getBytesRead();
+        if (read == 0) {
+            return -1;
+        }
+        long remaining = Math.max(0, getTotalBytes() - read);
+        return remaining * secondsSinceStart() / read;
+    }
+
+    private double secondsSinceStart() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+}
@@ -0,0 +1,10 @@
+package utils;
+
+/**
+ * Told how far loading the csv files has got. Updates are rate limited, to at most one every LoadProgress.UPDATE_INTERVAL_MS, and
+ * are delivered on the Swing event dispatch thread, so a listener can update components straight away.
+ */
+public interface LoadProgressListener {
+    // called with the progress so far, which can be read from until the call returns
+    void progressUpdated(LoadProgress progress);
+}
@@ -0,0 +1,663 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+import utils.CsvChunkReader.Chunk;
+import utils.CsvChunkReader.ChunkParser;
+import utils.CsvChunkReader.ChunkStream;
+import utils.CsvChunkReader.FileTask;
+import utils.CsvChunkReader.ParsedFile;
+import utils.CsvChunkReader.ProgressListener;
+
+/**
+ * Parses a csv file with a header row straight out of a memory-mapped copy of it, in place of commons-csv. A record is tokenized
+ * into the start and end of each field in the mapped bytes and nothing else, so numbers are parsed from the bytes without a String
+ * being made, and Strings are only decoded for the fields that are read as text. Columns are looked up by name once per file,
+ * from its header, rather than on every record.
+ *
+ * Reads the same records as CSVFormat.DEFAULT: fields split on commas, optionally in double quotes with doubled quotes inside
+ * them, records ending at a \n, \r\n or \r, and empty lines skipped. Files are split and parsed by CsvChunkReader's tasks, so
+ * chunks are handed back exactly as it hands them back and the same record checks can be run on the result. Gzip compressed files are decompressed into memory a
+ * piece at a time instead of being mapped, as CsvChunkReader reads them.
+ */
+public class MappedCsvReader {
+    // no chunk is mapped bigger than this, since field positions within a chunk are ints
+    static final int MAX_CHUNK_BYTES = 1 << 28;
+
+    // how much of a file to map at a time when streaming it, grown if a single record doesn't fit
+    private static final int STREAM_WINDOW_BYTES = 1 << 24;
+
+    /**
+     * Turns one csv record into a loaded record. A parser is shared by every thread parsing a file, so must not touch shared state.
+     *
+     * @param <T> the type of record produced
+     */
+    public interface RowParser<T> {
+        // parses a record, calling chunk.keyRead with the record's key if it should be validated before the rest of the record.
+        // returns null to skip the record, which is still counted when numbering records
+        T parse(Row row, Chunk<T> chunk);
+    }
+
+    /**
+     * The column names from the first record of a file
+     */
+    public static class Header {
+        private final String[] names;
+
+        // the columns asked for that the file doesn't have, so a record can say which one was missing when it is read
+        private final ArrayList<String> missing = new ArrayList<>();
+
+        Header(String[] names) {
+            this.names = names;
+        }
+
+        /**
+         * Finds a column by name. A missing column isn't an error until a record's value for it is read, as with a CSVRecord.
+         *
+         * @param name the column name
+         * @return the index of the column, to read from each row with
+         */
+        public int column(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            missing.add(name);
+            return -missing.size();
+        }
+    }
+
+    /**
+     * One record of a file, as the positions of its fields in the mapped bytes. A row is reused for every record of a chunk, so
+     * values must be read from it before the next record is.
+     */
+    public static class Row {
+        private static final float[] FLOAT_POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+        private static final double[] DOUBLE_POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                                                              1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+        // returned by read when there are no more records, only empty lines
+        static final int NO_RECORD = -1;
+
+        // returned by read when a record runs past the end of the mapped bytes
+        static final int INCOMPLETE = -2;
+
+        private final Header header;
+        private ByteBuffer buffer;
+        private ByteBuffer reader;
+        // where the mapped bytes start in the file, and where the last record read starts in them
+        long base = 0;
+        private int recordStart;
+        private int size = 0;
+        private int[] starts = new int[32];
+        private int[] ends = new int[32];
+        // whether each field holds doubled quotes, which have to be undone when it is read
+        private boolean[] escaped = new boolean[32];
+        private byte[] scratch = new byte[256];
+
+        // the digits of the last number scanned by decimal, without its sign or decimal point
+        private long mantissa;
+        private int fractionDigits;
+        private boolean negative;
+
+        Row(Header header) {
+            this.header = header;
+        }
+
+        /**
+         * Tokenizes the record starting at a position in the mapped bytes
+         *
+         * @param buffer the mapped bytes
+         * @param position where the record starts, possibly after some empty lines
+         * @param limit the end of the mapped bytes
+         * @param endOfFile whether the limit is the end of the file, or a record that reaches it might carry on past it
+         * @return the position after the record, or NO_RECORD or INCOMPLETE
+         */
+        int read(ByteBuffer buffer, int position, int limit, boolean endOfFile) {
+            if (this.buffer != buffer) {
+                this.buffer = buffer;
+                this.reader = buffer.duplicate();
+            }
+            size = 0;
+
+            // empty lines aren't records
+            while (position < limit && (buffer.get(position) == '\n' || buffer.get(position) == '\r')) {
+                position++;
+            }
+            if (position == limit) {
+                return endOfFile ? NO_RECORD : INCOMPLETE;
+            }
+            recordStart = position;
+
+            while (true) {
+                if (position < limit && buffer.get(position) == '"') {
+                    // a quoted field, which runs to the next quote that isn't doubled
+                    int start = ++position;
+                    boolean doubled = false;
+                    while (true) {
+                        if (position == limit) {
+                            if (endOfFile) {
+                                throw new UncheckedIOException(new IOException("EOF reached before encapsulated token finished"));
+                            }
+                            return INCOMPLETE;
+                        }
+                        if (buffer.get(position) == '"') {
+                            if (position + 1 < limit && buffer.get(position + 1) == '"') {
+                                doubled = true;
+                                position += 2;
+                                continue;
+                            }
+                            if (position + 1 == limit && !endOfFile) {
+                                // the quote after it might be past the limit
+                                return INCOMPLETE;
+                            }
+                            break;
+                        }
+                        position++;
+                    }
+                    addField(start, position, doubled);
+                    position++;
+                    if (position < limit) {
+                        byte b = buffer.get(position);
+                        if (b != ',' && b != '\n' && b != '\r') {
+                            throw new UncheckedIOException(new IOException("Invalid char between encapsulated token and delimiter"));
+                        }
+                    }
+                }
+                else {
+                    int start = position;
+                    while (position < limit) {
+                        byte b = buffer.get(position);
+                        if (b == ',' || b == '\n' || b == '\r') {
+                            break;
+                        }
+                        position++;
+                    }
+                    addField(start, position, false);
+                }
+
+                if (position == limit) {
+                    return endOfFile ? limit : INCOMPLETE;
+                }
+                if (buffer.get(position) != ',') {
+                    // a \r\n leaves the \n behind as an empty line, which the next read skips
+                    return position + 1;
+                }
+                position++;
+            }
+        }
+
+        private void addField(int start, int end, boolean doubled) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                escaped = Arrays.copyOf(escaped, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            escaped[size] = doubled;
+            size++;
+        }
+
+        /**
+         * @return where the record starts in the file, to read it again from later
+         */
+        public long offset() {
+            return base + recordStart;
+        }
+
+        /**
+         * @return the number of fields in the record
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param column a column from the file's header
+         * @return whether the record's value for the column is empty
+         */
+        public boolean isEmpty(int column) {
+            int field = field(column);
+            return starts[field] == ends[field];
+        }
+
+        /**
+         * @param column a column from the file's header
+         * @return the record's value for the column
+         */
+        public String getString(int column) {
+            int field = field(column);
+            int length = ends[field] - starts[field];
+            if (length == 0) {
+                return "";
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            reader.limit(ends[field]).position(starts[field]);
+            reader.get(scratch, 0, length);
+            if (escaped[field]) {
+                // keep one of each pair of quotes
+                int kept = 0;
+                for (int i = 0; i < length; i++) {
+                    scratch[kept++] = scratch[i];
+                    if (scratch[i] == '"') {
+                        i++;
+                    }
+                }
+                length = kept;
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @param column a column from the file's header
+         * @return the record's value for the column, parsed as Integer.parseInt would
+         * @throws NumberFormatException if the value isn't an int
+         */
+        public int getInt(int column) {
+            int field = field(column);
+            if (integer(field, 9)) {
+                return (int) (negative ? -mantissa : mantissa);
+            }
+            return Integer.parseInt(getString(column));
+        }
+
+        /**
+         * @param column a column from the file's header
+         * @return the record's value for the column, parsed as Long.parseLong would
+         * @throws NumberFormatException if the value isn't a long
+         */
+        public long getLong(int column) {
+            int field = field(column);
+            if (integer(field, 18)) {
+                return negative ? -mantissa : mantissa;
+            }
+            return Long.parseLong(getString(column));
+        }
+
+        /**
+         * @param column a column from the file's header
+         * @return the record's value for the column, parsed as Float.parseFloat would
+         * @throws NumberFormatException if the value isn't a float
+         */
+        public float getFloat(int column) {
+            int field = field(column);
+            // both parts are exact floats, so the division rounds the same way parsing the text would
+            if (decimal(field) && mantissa < (1 << 24) && fractionDigits < FLOAT_POWERS_OF_TEN.length) {
+                float value = mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+                return negative ? -value : value;
+            }
+            return Float.parseFloat(getString(column));
+        }
+
+        /**
+         * @param column a column from the file's header
+         * @return the record's value for the column, parsed as Double.parseDouble would
+         * @throws NumberFormatException if the value isn't a double
+         */
+        public double getDouble(int column) {
+            int field = field(column);
+            // both parts are exact doubles, so the division rounds the same way parsing the text would
+            if (decimal(field) && mantissa < (1L << 53) && fractionDigits < DOUBLE_POWERS_OF_TEN.length) {
+                double value = mantissa / DOUBLE_POWERS_OF_TEN[fractionDigits];
+                return negative ? -value : value;
+            }
+            return Double.parseDouble(getString(column));
+        }
+
+        /**
+         * @param column a column from the file's header
+         * @return the record's value for the column, parsed as Boolean.parseBoolean would
+         */
+        public boolean getBoolean(int column) {
+            int field = field(column);
+            if (ends[field] - starts[field] != 4) {
+                return false;
+            }
+            int start = starts[field];
+            return (buffer.get(start) | 0x20) == 't' && (buffer.get(start + 1) | 0x20) == 'r'
+                && (buffer.get(start + 2) | 0x20) == 'u' && (buffer.get(start + 3) | 0x20) == 'e';
+        }
+
+        /**
+         * Scans a field of plain ascii digits with an optional sign into mantissa and negative
+         *
+         * @param field the field
+         * @param maxDigits the most digits that can't overflow
+         * @return false if the field is anything else, to be left to the JDK to parse or reject
+         */
+        private boolean integer(int field, int maxDigits) {
+            int position = starts[field];
+            int end = ends[field];
+            negative = false;
+            if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position) == '-';
+                position++;
+            }
+            if (position == end || end - position > maxDigits) {
+                return false;
+            }
+            mantissa = 0;
+            for (; position < end; position++) {
+                int digit = buffer.get(position) - '0';
+                if (digit < 0 || digit > 9) {
+                    return false;
+                }
+                mantissa = mantissa * 10 + digit;
+            }
+            return true;
+        }
+
+        /**
+         * Scans a field of plain ascii digits with an optional sign and decimal point into mantissa, fractionDigits and negative
+         *
+         * @param field the field
+         * @return false if the field is anything else, to be left to the JDK to parse or reject
+         */
+        private boolean decimal(int field) {
+            int position = starts[field];
+            int end = ends[field];
+            negative = false;
+            if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position) == '-';
+                position++;
+            }
+            mantissa = 0;
+            fractionDigits = 0;
+            int digits = 0;
+            boolean point = false;
+            for (; position < end; position++) {
+                byte b = buffer.get(position);
+                if (b == '.' && !point) {
+                    point = true;
+                    continue;
+                }
+                int digit = b - '0';
+                if (digit < 0 || digit > 9 || ++digits > 18) {
+                    return false;
+                }
+                mantissa = mantissa * 10 + digit;
+                if (point) {
+                    fractionDigits++;
+                }
+            }
+            return digits > 0;
+        }
+
+        // checks a column can be read from this record, failing as CSVRecord.get would if it can't
+        private int field(int column) {
+            if (column < 0) {
+                throw new IllegalArgumentException(String.format("Mapping for %s not found, expected one of %s",
+                                                   header.missing.get(-column - 1), Arrays.toString(header.names)));
+            }
+            if (column >= size) {
+                throw new IllegalArgumentException(String.format("Index for header '%s' is %d but CSVRecord only has %d values!",
+                                                   header.names[column], column, size));
+            }
+            return column;
+        }
+    }
+
+    private MappedCsvReader() {
+    }
+
+    /**
+     * Starts parsing a file on the given pool
+     *
+     * @param pool the pool to parse on
+     * @param file the csv file, whose first record is its header
+     * @param numFields the number of fields every record must have
+     * @param parsers makes the parser for the file once its header has been read, so that columns are only looked up once
+     * @param listener told as records are parsed, can be null
+     * @return a task whose result is the parsed file
+     */
+    public static <T> ForkJoinTask<ParsedFile<T>> submit(ForkJoinPool pool, File file, int numFields, Function<Header, RowParser<T>> parsers, ProgressListener listener) {
+        return pool.submit(new FileTask<>(file, header -> rowChunks(header, numFields, parsers), listener, pool.getParallelism()));
+    }
+
+    // tokenizes each chunk straight out of its bytes, with the columns looked up from the header once for the whole file
+    private static <T> ChunkParser<T> rowChunks(ByteBuffer headerBytes, int numFields, Function<Header, RowParser<T>> parsers) {
+        Header header = readHeader(headerBytes);
+        RowParser<T> parser = parsers.apply(header);
+        return (bytes, start, chunk, task) -> {
+            int limit = bytes.limit();
+            Row row = new Row(header);
+            row.base = start;
+            int position = 0;
+            while (true) {
+                // chunks end on record boundaries, so every chunk is read as though it were the end of the file
+                int next = row.read(bytes, position, limit, true);
+                if (next == Row.NO_RECORD || !parseInto(chunk, row, numFields, parser)) {
+                    break;
+                }
+                position = next;
+                task.parsed(position);
+            }
+        };
+    }
+
+    /**
+     * Starts parsing a file in order on a new thread, mapping a window of it at a time
+     *
+     * @param file the csv file, whose first record is its header
+     * @param numFields the number of fields every record must have
+     * @param parsers makes the parser for the file once its header has been read, so that columns are only looked up once
+     * @param listener told as records are parsed, can be null
+     * @param chunkRecords the number of records in each chunk
+     * @param bufferedChunks the number of parsed chunks that can wait to be read before parsing pauses
+     * @return the stream of chunks
+     */
+    public static <T> ChunkStream<T> stream(File file, int numFields, Function<Header, RowParser<T>> parsers, ProgressListener listener, int chunkRecords, int bufferedChunks) {
+        return new ChunkStream<>(file, stream -> {
+            Chunk<T> chunk = new Chunk<>();
+            IOException ioFailure = null;
+            long parsedTo = 0;
+            try (Windows windows = BlockGzip.isGzip(file) ? new StreamWindows(BlockGzip.open(file)) : new MappedWindows(file)) {
+                long offset = 0;
+                int window = STREAM_WINDOW_BYTES;
+                Row row = new Row(null);
+                RowParser<T> parser = null;
+                reading:
+                while (true) {
+                    ByteBuffer buffer = windows.window(offset, window);
+                    int limit = buffer.limit();
+                    boolean endOfFile = windows.reachesEnd(offset, limit);
+                    if (limit == 0) {
+                        break;
+                    }
+                    row.base = offset;
+
+                    // records are only taken up to the last one that ends inside the window, the rest is mapped again next time
+                    int consumed = 0;
+                    while (true) {
+                        int next = row.read(buffer, consumed, limit, endOfFile);
+                        if (next == Row.NO_RECORD) {
+                            consumed = limit;
+                            break;
+                        }
+                        if (next == Row.INCOMPLETE) {
+                            break;
+                        }
+                        consumed = next;
+
+                        if (parser == null) {
+                            Header header = headerOf(row);
+                            parser = parsers.apply(header);
+                            row = new Row(header);
+                            row.base = offset;
+                            continue;
+                        }
+                        if (!parseInto(chunk, row, numFields, parser)) {
+                            break reading;
+                        }
+                        if (chunk.records.size() == chunkRecords) {
+                            stream.put(chunk, offset + consumed);
+                            chunk = new Chunk<>();
+                        }
+                    }
+
+                    if (consumed == 0) {
+                        // a single record bigger than the window
+                        if (window == MAX_CHUNK_BYTES) {
+                            throw new IOException("Record at byte " + offset + " is too large to read");
+                        }
+                        window = (int) Math.min((long) window * 2, MAX_CHUNK_BYTES);
+                    }
+                    offset += consumed;
+                    parsedTo = windows.position(offset);
+                    if (endOfFile && consumed == limit) {
+                        break;
+                    }
+                }
+            }
+            catch (IOException e) {
+                ioFailure = e;
+            }
+            catch (RuntimeException e) {
+                chunk.failure = e;
+            }
+
+            // the last chunk, which is the only one that can hold a failure
+            if (!chunk.records.isEmpty() || chunk.failed()) {
+                stream.put(chunk, parsedTo);
+            }
+            stream.reached(parsedTo);
+            if (ioFailure != null) {
+                throw ioFailure;
+            }
+        }, listener, bufferedChunks);
+    }
+
+    /**
+     * The bytes of a file being streamed, a window at a time from the start. Each window starts where the last record taken from
+     * the one before ended.
+     */
+    private interface Windows extends AutoCloseable {
+        // the bytes from an offset, as many as length or up to the end of the file
+        ByteBuffer window(long offset, int length) throws IOException;
+
+        // whether a window ends at the end of the file
+        boolean reachesEnd(long offset, int limit);
+
+        // how far through the file reading up to an offset is, for measuring progress
+        long position(long offset);
+
+        @Override
+        void close() throws IOException;
+    }
+
+    // a plain file, whose windows are mapped
+    private static class MappedWindows implements Windows {
+        private final FileChannel channel;
+        private final long size;
+
+        MappedWindows(File file) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.size = channel.size();
+        }
+
+        public ByteBuffer window(long offset, int length) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(length, size - offset));
+        }
+
+        public boolean reachesEnd(long offset, int limit) {
+            return offset + limit == size;
+        }
+
+        public long position(long offset) {
+            return offset;
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // a compressed file, read into a buffer that keeps the bytes after the last record taken and is topped up from the stream
+    private static class StreamWindows implements Windows {
+        private final BlockGzip.Decompressed input;
+        private byte[] bytes = new byte[STREAM_WINDOW_BYTES];
+        // the offset in the file of the first byte held, and how many are held
+        private long bytesStart = 0;
+        private int length = 0;
+        private boolean ended = false;
+
+        StreamWindows(BlockGzip.Decompressed input) {
+            this.input = input;
+        }
+
+        public ByteBuffer window(long offset, int length) throws IOException {
+            int kept = (int) (this.length - (offset - bytesStart));
+            System.arraycopy(bytes, this.length - kept, bytes, 0, kept);
+            this.length = kept;
+            bytesStart = offset;
+            if (bytes.length < length) {
+                bytes = Arrays.copyOf(bytes, length);
+            }
+            while (this.length < length && !ended) {
+                int read = input.read(bytes, this.length, length - this.length);
+                if (read < 0) {
+                    ended = true;
+                }
+                else {
+                    this.length += read;
+                }
+            }
+            // wrapped afresh each time, so a Row never mistakes it for the last window
+            return ByteBuffer.wrap(bytes, 0, Math.min(length, this.length)).slice();
+        }
+
+        public boolean reachesEnd(long offset, int limit) {
+            return ended && limit == length;
+        }
+
+        public long position(long offset) {
+            return input.compressedRead();
+        }
+
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    private static Header readHeader(ByteBuffer buffer) {
+        Row row = new Row(null);
+        if (row.read(buffer, 0, buffer.limit(), true) == Row.NO_RECORD) {
+            return new Header(new String[0]);
+        }
+        return headerOf(row);
+    }
+
+    static Header headerOf(Row row) {
+        String[] names = new String[row.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = row.getString(i);
+        }
+        return new Header(names);
+    }
+
+    // parses a record onto the end of a chunk, returning false instead if it has the wrong number of fields
+    private static <T> boolean parseInto(Chunk<T> chunk, Row row, int numFields, RowParser<T> parser) {
+        if (row.size() != numFields) {
+            chunk.badFieldCount = row.size();
+            return false;
+        }
+        chunk.failedKeyKnown = false;
+        chunk.add(parser.parse(row, chunk));
+        return true;
+    }
+}
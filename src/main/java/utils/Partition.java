@@ -0,0 +1,74 @@
+package utils;
+
+/**
+ * One of N partitions of the dataset, split by film. A film belongs to a partition by a hash of its id, and its credits,
+ * keywords and ratings go with it, so each partition is a self-contained slice of the data that can be loaded into its own
+ * process. Rows of other partitions are skipped as soon as their film id has been read, before the rest of the row is parsed.
+ */
+public class Partition {
+    private final int index;
+    private final int count;
+
+    /**
+     * @param index which partition this is, from 0 to count - 1
+     * @param count the number of partitions
+     * @throws IllegalArgumentException if the index isn't one of the partitions
+     */
+    public Partition(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Partition " + index + "/" + count + " doesn't exist. It must be i/N with 0 <= i < N");
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Reads a partition written as "i/N"
+     *
+     * @param spec the partition, such as "2/8"
+     * @return the partition
+     * @throws IllegalArgumentException if the spec isn't a partition
+     */
+    public static Partition parse(String spec) {
+        int slash = spec.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Partition \"" + spec + "\" must be written as i/N");
+        }
+        try {
+            return new Partition(Integer.parseInt(spec.substring(0, slash).trim()), Integer.parseInt(spec.substring(slash + 1).trim()));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Partition \"" + spec + "\" must be written as i/N");
+        }
+    }
+
+    /**
+     * @param movieId the id of a film
+     * @return whether the film, and everything about it, belongs to this partition
+     */
+    public boolean owns(int movieId) {
+        return count == 1 || Integer.remainderUnsigned(mix(movieId), count) == index;
+    }
+
+    // spreads the bits of an id, so ids that are close together or share a stride still land in every partition evenly
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,339 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import interfaces.AbstractStores;
+import interfaces.IMovies;
+import interfaces.IRatings;
+import utils.CsvChunkReader.Chunk;
+import utils.LoadData.RatingRecord;
+import utils.MappedCsvReader.Header;
+import utils.MappedCsvReader.Row;
+import utils.MappedCsvReader.RowParser;
+
+/**
+ * Follows a ratings csv file as rows are appended to it, adding each new rating to the live ratings store, so the stores keep up
+ * with the file without being reloaded. Only the bytes after the last one processed are read, whenever the file's directory
+ * reports a change or, failing that, once every POLL_SECONDS. A row is only taken once its line has ended, so a row that is half
+ * written is left for the next read.
+ *
+ * Rows are parsed on the follower's own thread and added in batches, with add or, for a rating the user has already given, set.
+ * They are added on the follower's thread too unless an executor is passed to add them on, so the ratings store has to be safe to
+ * change while the screens read it, as Ratings and LsmRatings are. Rows that can't be parsed, or rate a film that isn't loaded,
+ * are skipped and counted as rejected, as one bad row shouldn't stop the rest being followed.
+ */
+public class RatingsFollower implements Closeable {
+    // the most of the file read and handed over at once
+    private static final int READ_BYTES = 1 << 22;
+
+    // how often to check the file when no change has been reported, as not every file system reports them
+    private static final long POLL_SECONDS = 1;
+
+    private final File file;
+    private final IRatings ratings;
+    private final IMovies movies;
+    private final Executor applier;
+    private final Header header;
+    private final RowParser<RatingRecord> parser;
+    // where the first row starts, after the header
+    private final long headerEnd;
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    // the counters, read from any thread
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong offset = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rowsApplied = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong batchesApplied = new AtomicLong();
+    private final AtomicLong lastLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    /**
+     * Makes a follower, which doesn't read anything until it is started
+     *
+     * @param stores the stores to add the ratings to, whose films the ratings are checked against
+     * @param ratingsPath the ratings csv file
+     * @param loadedTo the size of the file before it was loaded into the stores, so the follower carries on from there. Rows
+     *                 around this point may be added twice, which leaves the same rating, as the second is a set.
+     * @param applier runs each batch of ratings, or null to add them on the follower's thread
+     * @throws IOException if the file's header can't be read, or the file is compressed
+     */
+    public RatingsFollower(AbstractStores stores, String ratingsPath, long loadedTo, Executor applier) throws IOException {
+        this.file = new File(ratingsPath);
+        if (BlockGzip.isGzip(file)) {
+            throw new IOException("Cannot follow " + ratingsPath + " while it is gzip compressed");
+        }
+        this.ratings = stores.getRatings();
+        this.movies = stores.getMovies();
+        this.applier = applier != null ? applier : Runnable::run;
+
+        // the header fixes which column is which for every row that follows
+        Row headerRow = new Row(null);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = read(channel, 0, (int) Math.min(channel.size(), 1 << 16));
+            int end = headerRow.read(buffer, 0, buffer.limit(), false);
+            if (end < 0) {
+                throw new IOException("Cannot read the header of " + file.getPath());
+            }
+            this.headerEnd = end;
+            long start = Math.max(loadedTo, headerEnd);
+
+            // the file may have been part way through a row when it was measured, in which case carry on from the next row
+            if (start > headerEnd && start <= channel.size()) {
+                byte previous = read(channel, start - 1, 1).get(0);
+                while (previous != '\n' && previous != '\r' && start < channel.size()) {
+                    previous = read(channel, start++, 1).get(0);
+                }
+            }
+            offset.set(start);
+        }
+        this.header = MappedCsvReader.headerOf(headerRow);
+        this.parser = LoadData.ratingParser(header);
+
+        this.thread = new Thread(this::follow, "ratings-follower");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts following the file, first adding any rows appended since it was measured
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops following the file. Batches already handed to the applier are still added.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void follow() {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Path directory = file.getAbsoluteFile().toPath().getParent();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            readNewRows();
+            while (!closed) {
+                // any change in the directory, or none for a while, is a cue to check the file's size
+                WatchKey key = watcher.poll(POLL_SECONDS, TimeUnit.SECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                readNewRows();
+            }
+        }
+        catch (InterruptedException e) {
+            // closed
+        }
+        catch (IOException | UncheckedIOException e) {
+            System.err.println("Stopped following " + file.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the rows appended since the last read, handing them to the applier a batch at a time
+     */
+    private void readNewRows() throws IOException {
+        long size = file.length();
+        long from = offset.get();
+        if (size < from) {
+            // the file has been cut short or replaced, so read it again from the start. ratings already added are only set again
+            System.out.println("\n" + file.getPath() + " got shorter, following it again from the start");
+            from = headerEnd;
+        }
+        if (from >= size) {
+            offset.set(from);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (from < size && !closed) {
+                long noticed = System.nanoTime();
+                ByteBuffer buffer = read(channel, from, (int) Math.min(READ_BYTES, size - from));
+                ArrayList<RatingRecord> batch = new ArrayList<>();
+                int consumed = parseRows(buffer, from, batch);
+                if (consumed < 0) {
+                    // a row that couldn't be split into fields, skipped up to the end of its line
+                    consumed = -consumed;
+                    rowsRejected.incrementAndGet();
+                }
+                if (consumed == 0) {
+                    // only part of a row has been written so far
+                    break;
+                }
+
+                from += consumed;
+                offset.set(from);
+                bytesRead.addAndGet(consumed);
+                apply(batch, noticed);
+            }
+        }
+    }
+
+    /**
+     * Parses the complete rows at the start of a buffer into a batch, skipping rows with bad values
+     *
+     * @param from where the buffer starts in the file
+     * @return the number of bytes of rows read, or that negated if they end with a row that couldn't be split into fields
+     */
+    private int parseRows(ByteBuffer buffer, long from, ArrayList<RatingRecord> batch) {
+        Row row = new Row(header);
+        Chunk<RatingRecord> chunk = new Chunk<>();
+        int position = 0;
+        while (true) {
+            int next;
+            try {
+                // a row running to the end of the buffer may not have been finished yet, or may carry on past the buffer
+                next = row.read(buffer, position, buffer.limit(), false);
+            }
+            catch (UncheckedIOException e) {
+                System.err.println("Skipping an unreadable row at byte " + (from + position) + " of " + file.getPath() + ": " + e.getCause().getMessage());
+                int end = lineEnd(buffer, position);
+                return end < 0 ? position : -end;
+            }
+            if (next < 0) {
+                return position;
+            }
+            position = next;
+
+            try {
+                if (row.size() != 5) {
+                    throw new IllegalArgumentException("Incorrect number of fields: " + row.size());
+                }
+                batch.add(parser.parse(row, chunk));
+            }
+            catch (RuntimeException e) {
+                System.err.println("Skipping a bad row ending at byte " + (from + position) + " of " + file.getPath() + ": " + e.getMessage());
+                rowsRejected.incrementAndGet();
+            }
+        }
+    }
+
+    // where the line containing a position ends, after its line break, or -1 if it hasn't ended yet
+    private static int lineEnd(ByteBuffer buffer, int position) {
+        for (int i = position; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n' || buffer.get(i) == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hands a batch of ratings to the applier to add to the store
+     *
+     * @param noticed when the rows were first read, to measure how far behind the file the store is once they are added
+     */
+    private void apply(ArrayList<RatingRecord> batch, long noticed) {
+        applier.execute(() -> {
+            int applied = 0;
+            int rejected = 0;
+            for (RatingRecord rr : batch) {
+                // ratings are only kept for loaded films, as when loading
+                if (movies.getTitle(rr.movieId) == null) {
+                    rejected++;
+                    continue;
+                }
+                if (!ratings.add(rr.userId, rr.movieId, rr.rating, rr.timestamp)) {
+                    ratings.set(rr.userId, rr.movieId, rr.rating, rr.timestamp);
+                }
+                applied++;
+            }
+            rowsApplied.addAndGet(applied);
+            rowsRejected.addAndGet(rejected);
+            batchesApplied.incrementAndGet();
+
+            long lag = System.nanoTime() - noticed;
+            lastLagNanos.set(lag);
+            maxLagNanos.accumulateAndGet(lag, Math::max);
+        });
+    }
+
+    // reads a range of a file into a buffer, which is shorter than asked for if the file is
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // read until the buffer is full, or the file has got shorter
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return the byte of the file the next row is read from
+     */
+    public long getOffset() {
+        return offset.get();
+    }
+
+    /**
+     * @return the bytes of rows read since the follower started
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return the ratings added or set in the store since the follower started
+     */
+    public long getRowsApplied() {
+        return rowsApplied.get();
+    }
+
+    /**
+     * @return the rows skipped since the follower started, because they couldn't be read or rate a film that isn't loaded
+     */
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    /**
+     * @return the batches of ratings added since the follower started
+     */
+    public long getBatchesApplied() {
+        return batchesApplied.get();
+    }
+
+    /**
+     * @return the ratings added per second since the follower started
+     */
+    public double getRowsPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds <= 0 ? 0 : rowsApplied.get() / seconds;
+    }
+
+    /**
+     * @return how long the last batch took from being read to being in the store, in milliseconds
+     */
+    public double getLagMillis() {
+        return lastLagNanos.get() / 1e6;
+    }
+
+    /**
+     * @return the longest any batch has taken from being read to being in the store, in milliseconds
+     */
+    public double getMaxLagMillis() {
+        return maxLagNanos.get() / 1e6;
+    }
+}
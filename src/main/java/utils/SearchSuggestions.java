@@ -0,0 +1,128 @@
+package utils;
+
+import java.util.ArrayList;
+
+import interfaces.AbstractStores;
+import interfaces.ICredits;
+import interfaces.IKeywords;
+import interfaces.IMovies;
+import stores.Keyword;
+import stores.Person;
+import structures.PrefixIndex;
+
+/**
+ * Suggests completions of a search as it is typed, from the titles of the films and the names of the cast, crew and keywords in
+ * the stores. Films are weighted by popularity and people by how many films they have worked on, so the best known come first.
+ * Keywords have no cheap count of their films, so they come in alphabetical order.
+ *
+ * The suggestions are a snapshot of the stores when they are built, which takes a pass over each store, so they are built once
+ * and reused. Completing a prefix only looks at the texts starting with it, taking microseconds however many there are.
+ */
+public class SearchSuggestions {
+    /**
+     * What a suggestion is the name of
+     */
+    public enum Kind {
+        FILM, CAST, CREW, KEYWORD
+    }
+
+    /**
+     * A completion of a search, and what it is the name of
+     */
+    public static class Suggestion {
+        public final Kind kind;
+        public final int id;
+        public final String text;
+
+        Suggestion(Kind kind, int id, String text) {
+            this.kind = kind;
+            this.id = id;
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    // the index, ids and texts of each kind, by Kind.ordinal
+    private final PrefixIndex[] indexes = new PrefixIndex[Kind.values().length];
+    private final int[][] ids = new int[Kind.values().length][];
+    private final String[][] texts = new String[Kind.values().length][];
+
+    /**
+     * Builds the suggestions for the films, people and keywords in some stores
+     *
+     * @param stores the stores
+     */
+    public SearchSuggestions(AbstractStores stores) {
+        IMovies movies = stores.getMovies();
+        int[] filmIDs = movies.getAllIDs();
+        String[] titles = new String[filmIDs.length];
+        double[] popularities = new double[filmIDs.length];
+        for (int i = 0; i < filmIDs.length; i++) {
+            titles[i] = movies.getTitle(filmIDs[i]);
+            popularities[i] = movies.getPopularity(filmIDs[i]);
+        }
+        index(Kind.FILM, filmIDs, titles, popularities);
+
+        ICredits credits = stores.getCredits();
+        Person[] cast = credits.getUniqueCast();
+        double[] castFilms = new double[cast.length];
+        for (int i = 0; i < cast.length; i++) {
+            castFilms[i] = credits.getNumCastCredits(cast[i].getID());
+        }
+        index(Kind.CAST, cast, castFilms);
+
+        Person[] crew = credits.getUniqueCrew();
+        double[] crewFilms = new double[crew.length];
+        for (int i = 0; i < crew.length; i++) {
+            crewFilms[i] = credits.getCrewFilms(crew[i].getID()).length;
+        }
+        index(Kind.CREW, crew, crewFilms);
+
+        IKeywords keywords = stores.getKeywords();
+        Keyword[] unique = keywords.getUnique();
+        int[] keywordIDs = new int[unique.length];
+        String[] names = new String[unique.length];
+        for (int i = 0; i < unique.length; i++) {
+            keywordIDs[i] = unique[i].getID();
+            names[i] = unique[i].getName();
+        }
+        index(Kind.KEYWORD, keywordIDs, names, new double[unique.length]);
+    }
+
+    private void index(Kind kind, Person[] people, double[] weights) {
+        int[] personIDs = new int[people.length];
+        String[] personNames = new String[people.length];
+        for (int i = 0; i < people.length; i++) {
+            personIDs[i] = people[i].getID();
+            personNames[i] = people[i].getName();
+        }
+        index(kind, personIDs, personNames, weights);
+    }
+
+    private void index(Kind kind, int[] kindIDs, String[] kindTexts, double[] weights) {
+        ids[kind.ordinal()] = kindIDs;
+        texts[kind.ordinal()] = kindTexts;
+        indexes[kind.ordinal()] = new PrefixIndex(kindTexts, weights);
+    }
+
+    /**
+     * Suggests completions of a search, the best few of each kind
+     *
+     * @param prefix the search typed so far
+     * @param perKind the most suggestions of each kind
+     * @return the suggestions, films first, then cast, crew and keywords, each best first
+     */
+    public Suggestion[] suggest(String prefix, int perKind) {
+        ArrayList<Suggestion> suggestions = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            for (int i : indexes[kind.ordinal()].complete(prefix, perKind)) {
+                suggestions.add(new Suggestion(kind, ids[kind.ordinal()][i], texts[kind.ordinal()][i]));
+            }
+        }
+        return suggestions.toArray(new Suggestion[0]);
+    }
+}
@@ -0,0 +1,214 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import interfaces.AbstractStores;
+import stores.FilmCredits;
+import stores.MovieText;
+import utils.CsvChunkReader.Chunk;
+import utils.CsvChunkReader.ChunkStream;
+import utils.LoadData.CreditRecord;
+import utils.LoadData.CreditsJoin;
+import utils.LoadData.DataLoadException;
+import utils.LoadData.KeywordRecord;
+import utils.LoadData.KeywordsJoin;
+import utils.LoadData.MetadataJoin;
+import utils.LoadData.MovieRecord;
+import utils.LoadData.NumRecordsAdded;
+import utils.LoadData.RatingRecord;
+import utils.LoadData.RatingsJoin;
+import utils.LoadData.RecordJoin;
+import utils.LoadData.StoreType;
+
+/**
+ * Loads the csv files straight into the stores, without LoadData's backend copy of every record. Each file is parsed in order on
+ * its own thread and handed over a chunk at a time through a small bounded queue, and one thread per store checks each chunk and
+ * adds it with a single bulk call while the rest of the file is still being parsed. Only a few chunks of each file are held at
+ * once, so memory use stays flat however large the files are.
+ *
+ * Records are checked exactly as LoadData checks them and fail with the same errors. As records are added as soon as they have
+ * been checked though, an error part way through a file leaves the stores holding the records before it.
+ */
+public class StreamingLoader {
+    // the number of records handed over at a time
+    private static final int CHUNK_RECORDS = 4096;
+
+    // the number of parsed chunks of each file that can wait for their store before parsing pauses
+    private static final int BUFFERED_CHUNKS = 4;
+
+    // the number of films whose overview, tagline and homepage, and whose cast and crew, are kept in memory at once when loading
+    // lazily
+    public static final int LAZY_CACHE_FILMS = 1024;
+
+    private StreamingLoader() {
+    }
+
+    /**
+     * Loads the csv files the options give into the stores. Only the files, number of films, laziness and partition of the options
+     * are used.
+     *
+     * When loading lazily the overview, tagline and homepage of each film, and its cast and crew, are not kept. The stores are
+     * given where each film's records start instead, and read the fields back from the files the first time they are asked for,
+     * holding only the LAZY_CACHE_FILMS films used most recently. The people in the credits are still indexed, so finding people
+     * and their films works as before.
+     *
+     * With a partition, only its films are kept along with their credits, keywords and ratings. The rows of other films are
+     * skipped by the parsers as soon as their film id has been read, so are never checked against the rest of the data either.
+     *
+     * Only the credits, keywords and ratings of the films loaded are loaded, though every record is still checked.
+     *
+     * @param progressListener told how much of the files have been parsed, can be null
+     * @param options the files to load, and how
+     * @return the number of records added to each store
+     * @throws DataLoadException if any of the files are invalid, in the same way LoadData would, or the options are for shards,
+     *                           which can't be streamed
+     */
+    public static NumRecordsAdded load(AbstractStores stores, LoadProgressListener progressListener, LoadOptions options) throws DataLoadException {
+        if (options.getShardDirectory() != null) {
+            throw new DataLoadException("A dataset split into shards can't be streamed");
+        }
+        Integer numMovies = options.getNumMovies();
+        boolean lazy = options.isLazy();
+        Partition partition = options.getPartition();
+        System.out.println((lazy ? "Streaming data into stores, leaving heavy fields in the files" : "Streaming data into stores")
+                           + (partition == null ? "" : ", partition " + partition + " only"));
+        File creditsFile  = LoadData.inputFile("credits", options.getCreditsPath());
+        File keywordsFile = LoadData.inputFile("keywords", options.getKeywordsPath());
+        File moviesFile   = LoadData.inputFile("movies", options.getMovieMetadataPath());
+        File ratingsFile  = LoadData.inputFile("ratings", options.getRatingsPath());
+        LoadProgress progress = new LoadProgress(progressListener, creditsFile, keywordsFile, moviesFile, ratingsFile);
+
+        if (lazy) {
+            // records are read back from where they start in the files, which a compressed file can't be read at
+            if (BlockGzip.isGzip(moviesFile) || BlockGzip.isGzip(creditsFile)) {
+                throw new DataLoadException("The movies and credits files can't be loaded lazily while they are gzip compressed");
+            }
+            // the readers note the files as they are before parsing, so they refuse to read from a file that changes after
+            try {
+                stores.getMovies().setTextSource(new CsvRecordReader<MovieText>(moviesFile, LoadData::movieTextParser), LAZY_CACHE_FILMS);
+                stores.getCredits().setCreditSource(new CsvRecordReader<FilmCredits>(creditsFile, LoadData::filmCreditsParser), LAZY_CACHE_FILMS);
+            }
+            catch (IOException e) {
+                throw new DataLoadException("Cannot open the movies or credits file to read from lazily: " + e.getMessage());
+            }
+        }
+
+        Instant start = Instant.now();
+
+        // every file starts parsing straight away, though the others can only get a few chunks ahead until the films are in
+        // when loading lazily the records note where they start in the files, which only the mapped reader knows
+        ChunkStream<MovieRecord> movieStream = MappedCsvReader.stream(moviesFile, 24, header -> LoadData.metadataParser(header, lazy, partition),
+                progress.forFile(StoreType.METADATA), CHUNK_RECORDS, BUFFERED_CHUNKS);
+        ChunkStream<CreditRecord> creditStream = MappedCsvReader.stream(creditsFile, 3, header -> LoadData.creditParser(header, lazy, partition),
+                progress.forFile(StoreType.CREDITS), CHUNK_RECORDS, BUFFERED_CHUNKS);
+        ChunkStream<KeywordRecord> keywordStream = CsvChunkReader.stream(keywordsFile, 2, (csvRecord, chunk) -> LoadData.parseKeywordRecord(csvRecord, chunk, partition),
+                progress.forFile(StoreType.KEYWORDS), CHUNK_RECORDS, BUFFERED_CHUNKS);
+        ChunkStream<RatingRecord> ratingStream = MappedCsvReader.stream(ratingsFile, 5, header -> LoadData.ratingParser(header, partition),
+                progress.forFile(StoreType.RATINGS), CHUNK_RECORDS, BUFFERED_CHUNKS);
+
+        ExecutorService storeThreads = Executors.newFixedThreadPool(3);
+        try {
+            // the films go in first, as every other file is checked against them
+            System.out.println("\nStreaming movies metadata from \"" + moviesFile.getPath() + "\"...");
+            MetadataJoin movieJoin = new MetadataJoin(moviesFile);
+            HashSet<Integer> keptMovies = new HashSet<>();
+            int limit = numMovies == null ? Integer.MAX_VALUE : numMovies;
+            int moviesAdded = drain(movieStream, movieJoin,
+                                    mr -> keptMovies.size() < limit && keptMovies.add(mr.id),
+                                    batch -> LoadData.addMovies(stores.getMovies(), batch));
+            HashSet<Integer> validMovies = movieJoin.seen;
+
+            // then the rest at once, each on its own thread so that each store is only used by one thread
+            System.out.println("\nStreaming credits, keywords and ratings...");
+            Future<Integer> creditsAdded = storeThreads.submit(() -> drain(creditStream, new CreditsJoin(creditsFile, validMovies),
+                                    cr -> numMovies == null || keptMovies.contains(cr.movieId),
+                                    batch -> LoadData.addCredits(stores.getCredits(), batch)));
+            Future<Integer> keywordsAdded = storeThreads.submit(() -> drain(keywordStream, new KeywordsJoin(keywordsFile, validMovies),
+                                    kr -> numMovies == null || keptMovies.contains(kr.movieId),
+                                    batch -> LoadData.addKeywords(stores.getKeywords(), batch)));
+            Future<Integer> ratingsAdded = storeThreads.submit(() -> drain(ratingStream, new RatingsJoin(ratingsFile, validMovies),
+                                    rr -> numMovies == null || keptMovies.contains(rr.movieId),
+                                    batch -> LoadData.addRatings(stores.getRatings(), batch)));
+
+            // errors are reported in the same order the files are checked in by LoadData
+            NumRecordsAdded added = new NumRecordsAdded(result(creditsAdded), result(keywordsAdded), moviesAdded, result(ratingsAdded));
+            progress.finished();
+
+            System.out.println("Overall time to stream stores:");
+            System.out.println(Duration.between(start, Instant.now()).toMillis() + "ms");
+            return added;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataLoadException("Interrupted while loading data");
+        }
+        finally {
+            storeThreads.shutdownNow();
+            movieStream.close();
+            creditStream.close();
+            keywordStream.close();
+            ratingStream.close();
+        }
+    }
+
+    /**
+     * Checks every chunk of a file as it arrives, and adds the records that are kept to a store
+     *
+     * @param keep which of the valid records to add
+     * @param store adds a batch of records to the store
+     * @return the number of records added
+     */
+    private static <T> int drain(ChunkStream<T> stream, RecordJoin<T> join, Predicate<T> keep, Consumer<List<T>> store) throws DataLoadException, InterruptedException {
+        int added = 0;
+        ArrayList<T> batch = new ArrayList<>();
+        try {
+            for (Chunk<T> chunk = stream.next(); chunk != null; chunk = stream.next()) {
+                batch.clear();
+                join.join(chunk, record -> {
+                    if (keep.test(record)) {
+                        batch.add(record);
+                    }
+                });
+                if (!batch.isEmpty()) {
+                    store.accept(batch);
+                    added += batch.size();
+                }
+            }
+        }
+        catch (IOException e) {
+            throw join.ioFailure(e);
+        }
+        return added;
+    }
+
+    private static int result(Future<Integer> added) throws DataLoadException, InterruptedException {
+        try {
+            return added.get();
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataLoadException) {
+                throw (DataLoadException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DataLoadException(cause.getMessage());
+        }
+    }
+}
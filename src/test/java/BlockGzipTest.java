@@ -0,0 +1,179 @@
+import utils.BlockGzip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockGzipTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * A gzip file without BGZF headers should be decompressed in order, across many of the blocks it is handed over in
+     */
+    @Test void testPlainGzip() throws IOException {
+        System.out.println("\nStarting testPlainGzip...");
+        byte[] text = rows(1, 20000);
+        File file = gzip("plain.csv.gz", text);
+
+        assertTrue(BlockGzip.isGzip(file));
+        assertArrayEquals(text, readAll(file));
+
+        File csv = directory.resolve("plain.csv").toFile();
+        Files.write(csv.toPath(), text);
+        assertFalse(BlockGzip.isGzip(csv), "An uncompressed file isn't gzip, whatever it is named");
+    }
+
+    /**
+     * A file written by Output should be made of many members, which are decompressed in parallel and handed back in order, and
+     * which any other gzip reader can read too
+     */
+    @Test void testBlockedOutput() throws IOException {
+        System.out.println("\nStarting testBlockedOutput...");
+        byte[] text = rows(2, 20000);
+        File file = directory.resolve("blocked.csv.gz").toFile();
+        try (OutputStream out = new BlockGzip.Output(new FileOutputStream(file))) {
+            // written in uneven pieces, so that members don't line up with the writes
+            for (int offset = 0; offset < text.length; offset += 1000) {
+                out.write(text, offset, Math.min(1000, text.length - offset));
+            }
+        }
+        assertTrue(text.length > 4 * 0xff00, "The text should need several members");
+
+        byte[] compressed = Files.readAllBytes(file.toPath());
+        assertEquals(4, compressed[3] & 4, "Each member should have an extra field");
+        assertEquals('B', compressed[12]);
+        assertEquals('C', compressed[13]);
+
+        try (BlockGzip.Decompressed input = BlockGzip.open(file)) {
+            assertArrayEquals(text, readAll(input));
+            assertEquals(file.length(), input.compressedRead(), "The whole file should have been read through");
+        }
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            assertArrayEquals(text, readAll(input), "Any gzip reader should read what Output writes");
+        }
+
+        // an empty file is only the member that ends it
+        File empty = directory.resolve("empty.csv.gz").toFile();
+        new BlockGzip.Output(new FileOutputStream(empty)).close();
+        assertEquals(0, readAll(empty).length);
+    }
+
+    /**
+     * Members written one after another should be read as one file, whether plain, blocked, or a plain member after blocked ones
+     */
+    @Test void testConcatenatedMembers() throws IOException {
+        System.out.println("\nStarting testConcatenatedMembers...");
+        byte[] first = rows(3, 3000);
+        byte[] second = rows(4, 3000);
+        byte[] both = concat(first, second);
+
+        File plain = directory.resolve("plain.csv.gz").toFile();
+        Files.write(plain.toPath(), concat(gzipBytes(first), gzipBytes(second)));
+        assertArrayEquals(both, readAll(plain));
+
+        // the blocked members are read in parallel, then the plain one in order from where they end
+        ByteArrayOutputStream blocked = new ByteArrayOutputStream();
+        try (OutputStream out = new BlockGzip.Output(blocked)) {
+            out.write(first);
+        }
+        File mixed = directory.resolve("mixed.csv.gz").toFile();
+        Files.write(mixed.toPath(), concat(blocked.toByteArray(), gzipBytes(second)));
+        assertArrayEquals(both, readAll(mixed));
+
+        // and a blocked file after a plain member is read in order throughout
+        File plainFirst = directory.resolve("plainFirst.csv.gz").toFile();
+        Files.write(plainFirst.toPath(), concat(gzipBytes(second), blocked.toByteArray()));
+        assertArrayEquals(concat(second, first), readAll(plainFirst));
+    }
+
+    /**
+     * A member whose CRC doesn't match its data should fail the read, rather than hand back the data
+     */
+    @Test void testCorruptCrc() throws IOException {
+        System.out.println("\nStarting testCorruptCrc...");
+        byte[] text = rows(5, 5000);
+        ByteArrayOutputStream blocked = new ByteArrayOutputStream();
+        try (OutputStream out = new BlockGzip.Output(blocked)) {
+            out.write(text);
+        }
+        byte[] compressed = blocked.toByteArray();
+
+        // the CRC is the first half of the 8 byte trailer of the first member, whose size less one is in its BC subfield
+        int memberSize = ((compressed[16] & 0xff) | (compressed[17] & 0xff) << 8) + 1;
+        compressed[memberSize - 8] ^= 1;
+        File file = directory.resolve("corrupt.csv.gz").toFile();
+        Files.write(file.toPath(), compressed);
+        IOException e = assertThrows(IOException.class, () -> readAll(file));
+        assertTrue(e.getMessage().contains("CRC mismatch"), e.getMessage());
+
+        // a plain member is checked by GZIPInputStream
+        byte[] plain = gzipBytes(text);
+        plain[plain.length - 8] ^= 1;
+        File plainFile = directory.resolve("corruptPlain.csv.gz").toFile();
+        Files.write(plainFile.toPath(), plain);
+        assertThrows(IOException.class, () -> readAll(plainFile));
+    }
+
+    // csv like rows of random numbers, which compress a little but not too much
+    private static byte[] rows(long seed, int count) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i).append(',').append(random.nextInt(100000)).append(',').append(random.nextInt(5) + 0.5).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private File gzip(String name, byte[] bytes) throws IOException {
+        File file = directory.resolve(name).toFile();
+        Files.write(file.toPath(), gzipBytes(bytes));
+        return file;
+    }
+
+    private static byte[] gzipBytes(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] joined = new byte[a.length + b.length];
+        System.arraycopy(a, 0, joined, 0, a.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        try (InputStream input = BlockGzip.open(file)) {
+            return readAll(input);
+        }
+    }
+
+    // read in odd sized pieces, to cross the blocks the file is handed back in
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[777];
+        int read;
+        while ((read = input.read(buffer, 0, buffer.length)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,237 @@
+import utils.BlockGzip;
+import utils.CsvChunkReader;
+import utils.CsvChunkReader.Chunk;
+import utils.CsvChunkReader.ParsedFile;
+import utils.MappedCsvReader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+    // the fields records are made of, including quoted ones that hold the delimiter, quotes and every kind of line break
+    private static final String[] FIELDS = {
+        "plain", "", "\"with, comma\"", "\"two\nlines\"", "\"crlf\r\nlines\"", "\"return\rline\"", "\"say \"\"hi\"\"\"", "\"\"",
+        "mid\"quote", " spaced ", "\"\"\"\"", "\"ends in newline\n\"", "12345", "\"café 中\"",
+        "\"\"\"quoted\"\"\nline\""
+    };
+    private static final String[] LINE_ENDS = {"\n", "\r\n", "\r", "\n\n", "\r\n\r\n"};
+    private static final String[] READERS = {"CsvChunkReader", "MappedCsvReader", "A streamed CsvChunkReader", "A streamed MappedCsvReader"};
+
+    @TempDir
+    Path directory;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Quoted fields should be read whole, with their doubled quotes undone, and the quotes inside unquoted fields kept
+     */
+    @Test void testQuotedFields() throws Exception {
+        System.out.println("\nStarting testQuotedFields...");
+        String text = "a,b,c\n"
+            + "1,\"two\nlines\",\"say \"\"hi\"\"\"\n"
+            + "2,\"\",\"with, comma\"\n"
+            + "3,mid\"quote, spaced \n"
+            + "4,\"\"\"\",\"crlf\r\nlines\"\n";
+        List<List<String>> expected = Arrays.asList(
+            Arrays.asList("1", "two\nlines", "say \"hi\""),
+            Arrays.asList("2", "", "with, comma"),
+            Arrays.asList("3", "mid\"quote", " spaced "),
+            Arrays.asList("4", "\"", "crlf\r\nlines"));
+        assertEquals(expected, commonsCsv(text), "commons-csv should read the text as expected");
+        checkReaders(write("quoted.csv", text), expected);
+    }
+
+    /**
+     * Records should end at LF, CRLF or a lone CR, blank lines should be skipped, and the last record should be read whether or
+     * not it ends in a line break
+     */
+    @Test void testLineEndings() throws Exception {
+        System.out.println("\nStarting testLineEndings...");
+        List<List<String>> expected = Arrays.asList(
+            Arrays.asList("1", "x", ""),
+            Arrays.asList("2", "y", "z"),
+            Arrays.asList("3", "", "last"));
+        String[] texts = {
+            "a,b,c\r\n1,x,\r\n2,y,z\r\n3,,last\r\n",
+            "a,b,c\r1,x,\r2,y,z\r3,,last\r",
+            "a,b,c\n\n1,x,\n\r\n\r\n2,y,z\n\n3,,last\n\n",
+            "a,b,c\n1,x,\n2,y,z\n3,,last",
+            "a,b,c\n1,x,\n2,y,z\n3,,\"last\"",
+        };
+        for (int i = 0; i < texts.length; i++) {
+            assertEquals(expected, commonsCsv(texts[i]), "commons-csv should read text " + i + " as expected");
+            checkReaders(write("endings" + i + ".csv", texts[i]), expected);
+        }
+
+        // a file of only its header has no records
+        checkReaders(write("header.csv", "a,b,c"), new ArrayList<>());
+    }
+
+    /**
+     * A file too big for one chunk should be split between records, including ones whose quoted fields hold line breaks, and
+     * read just as commons-csv reads it whole
+     */
+    @Test void testChunkBoundaries() throws Exception {
+        System.out.println("\nStarting testChunkBoundaries...");
+        String text = records(1, 150_000);
+        List<List<String>> expected = commonsCsv(text);
+        assertEquals(150_000, expected.size());
+
+        List<List<Chunk<List<String>>>> read = checkReaders(write("big.csv", text), expected);
+        assertTrue(read.get(0).size() > 1, "The file should be split into several chunks");
+        assertTrue(read.get(1).size() > 1, "The file should be split into several chunks");
+    }
+
+    /**
+     * A compressed file should be split as it is decompressed, with records straddling the blocks it is decompressed in
+     */
+    @Test void testCompressedChunkBoundaries() throws Exception {
+        System.out.println("\nStarting testCompressedChunkBoundaries...");
+        String text = records(2, 150_000);
+        List<List<String>> expected = commonsCsv(text);
+
+        File file = directory.resolve("big.csv.gz").toFile();
+        try (OutputStream out = new BlockGzip.Output(new FileOutputStream(file))) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        List<List<Chunk<List<String>>>> read = checkReaders(file, expected);
+        assertTrue(read.get(0).size() > 1, "The file should be split into several pieces as it is decompressed");
+        assertTrue(read.get(1).size() > 1, "The file should be split into several pieces as it is decompressed");
+    }
+
+    /**
+     * A quoted field left open at the end of the file, or followed by more than a delimiter, should fail the record it is in once
+     * the records before it are read, as it does in commons-csv
+     */
+    @Test void testMalformedQuotes() throws Exception {
+        System.out.println("\nStarting testMalformedQuotes...");
+        String[] texts = {"a,b,c\n1,2,3\n4,\"open,6\n7,8,9\n", "a,b,c\n1,2,3\n4,\"x\"y,6\n7,8,9\n"};
+        for (int t = 0; t < texts.length; t++) {
+            String text = texts[t];
+            assertThrows(RuntimeException.class, () -> commonsCsv(text), "commons-csv should fail to read text " + t);
+
+            List<List<Chunk<List<String>>>> read = readAll(write("malformed" + t + ".csv", text));
+            for (int i = 0; i < READERS.length; i++) {
+                List<Chunk<List<String>>> chunks = read.get(i);
+                Chunk<List<String>> last = chunks.get(chunks.size() - 1);
+                assertNotNull(last.failure, READERS[i] + " should fail at the quote in text " + t);
+                last.failure = null;
+                assertEquals(Arrays.asList(Arrays.asList("1", "2", "3")), records(chunks), READERS[i] + " should read the records before it");
+            }
+        }
+    }
+
+    // checks that each reader, in parallel and streamed, reads the file as expected, returning the chunks they read it in
+    private List<List<Chunk<List<String>>>> checkReaders(File file, List<List<String>> expected) throws Exception {
+        List<List<Chunk<List<String>>>> read = readAll(file);
+        for (int i = 0; i < READERS.length; i++) {
+            assertEquals(expected, records(read.get(i)), READERS[i] + " should read " + file.getName() + " as commons-csv does");
+        }
+        return read;
+    }
+
+    // the chunks each reader reads a file in, in the order of READERS
+    private List<List<Chunk<List<String>>>> readAll(File file) throws Exception {
+        List<List<Chunk<List<String>>>> read = new ArrayList<>();
+        read.add(chunks(CsvChunkReader.<List<String>>submit(pool, file, 3, (csvRecord, chunk) -> csvRecord.toList(), null).get()));
+        read.add(chunks(MappedCsvReader.<List<String>>submit(pool, file, 3, header -> (row, chunk) -> fields(row), null).get()));
+        try (CsvChunkReader.ChunkStream<List<String>> stream = CsvChunkReader.stream(file, 3, (csvRecord, chunk) -> csvRecord.toList(), null, 1000, 4)) {
+            read.add(chunks(stream));
+        }
+        try (CsvChunkReader.ChunkStream<List<String>> stream = MappedCsvReader.stream(file, 3, header -> (row, chunk) -> fields(row), null, 1000, 4)) {
+            read.add(chunks(stream));
+        }
+        return read;
+    }
+
+    private static List<Chunk<List<String>>> chunks(ParsedFile<List<String>> parsed) {
+        assertNull(parsed.ioFailure);
+        return parsed.chunks;
+    }
+
+    private static List<Chunk<List<String>>> chunks(CsvChunkReader.ChunkStream<List<String>> stream) throws Exception {
+        List<Chunk<List<String>>> chunks = new ArrayList<>();
+        for (Chunk<List<String>> chunk = stream.next(); chunk != null; chunk = stream.next()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static List<List<String>> records(List<Chunk<List<String>>> chunks) {
+        List<List<String>> records = new ArrayList<>();
+        for (Chunk<List<String>> chunk : chunks) {
+            assertFalse(chunk.failed(), "Every record has three fields");
+            records.addAll(chunk.records);
+        }
+        return records;
+    }
+
+    private static List<String> fields(MappedCsvReader.Row row) {
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) {
+            fields.add(row.getString(i));
+        }
+        return fields;
+    }
+
+    // reads the whole text in one go with commons-csv, as the files were read before they were split into chunks
+    private static List<List<String>> commonsCsv(String text) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        CSVFormat format = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build();
+        try (CSVParser parser = CSVParser.parse(text, format)) {
+            for (CSVRecord csvRecord : parser) {
+                records.add(csvRecord.toList());
+            }
+        }
+        return records;
+    }
+
+    // random records of three fields, with every kind of line ending, and the last one left without a line break
+    private static String records(long seed, int count) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder("id,first,second\n");
+        for (int i = 0; i < count; i++) {
+            text.append(i).append(',').append(FIELDS[random.nextInt(FIELDS.length)]).append(',').append(FIELDS[random.nextInt(FIELDS.length)]);
+            if (i < count - 1) {
+                text.append(LINE_ENDS[random.nextInt(LINE_ENDS.length)]);
+            }
+        }
+        return text.toString();
+    }
+
+    private File write(String name, String text) throws IOException {
+        File file = directory.resolve(name).toFile();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,184 @@
+import stores.*;
+import utils.DataSnapshot;
+import utils.LoadData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSnapshotTest {
+    private static final String MOVIES =
+        "adult,belongs_to_collection,budget,genres,homepage,tmdb_id,imdb_id,original_language,original_title,overview,popularity,"
+        + "poster_path,production_companies,production_countries,release_date,revenue,runtime,spoken_languages,status,tagline,title,"
+        + "video,vote_average,vote_count\n"
+        + "False,\"{'id': 5, 'name': 'Ten Collection', 'poster_path': '/p.jpg', 'backdrop_path': '/b.jpg'}\",1000,"
+        + "\"[{'id': 18, 'name': 'Drama'}, {'id': 53, 'name': 'Thriller'}]\",http://ten.example,10,tt0000010,en,Dix,"
+        + "\"An overview, with a comma\",1.5,/ten.jpg,\"[{'name': 'Ten Pictures', 'id': 7}]\","
+        + "\"[{'iso_3166_1': 'GB', 'name': 'United Kingdom'}]\",2000-01-02,5000,90.0,\"[{'iso_639_1': 'en', 'name': 'English'}]\","
+        + "Released,A tagline,Ten,False,7.5,20\n"
+        + "True,,0,[],,20,,fr,Vingt,,0.25,,[],[],,0,,[],Rumored,,Twenty,True,0.0,0\n";
+    private static final String CREDITS =
+        "tmdb_id,cast,crew\n"
+        + "10,\"[{'cast_id': 1, 'character': 'Hero', 'credit_id': 'c1', 'gender': 2, 'id': 100, 'name': 'Ann Actor', 'order': 0, "
+        + "'profile_path': '/a.jpg'}]\",\"[{'credit_id': 'c2', 'department': 'Directing', 'gender': 1, 'id': 200, 'job': 'Director', "
+        + "'name': 'Dee Director', 'profile_path': None}]\"\n"
+        + "20,[],[]\n";
+    private static final String KEYWORDS =
+        "tmdb_id,keywords\n"
+        + "10,\"[{'id': 1, 'name': 'alpha'}, {'id': 2, 'name': 'beta'}]\"\n"
+        + "20,[]\n";
+    private static final String RATINGS =
+        "userId,movieLensId,tmdbId,rating,timestamp\n"
+        + "1,0,10,4.0,1000000000\n"
+        + "2,0,10,3.0,1000000100\n"
+        + "2,0,20,1.5,1000000200\n";
+
+    @TempDir
+    Path directory;
+
+    private String creditsPath;
+    private String keywordsPath;
+    private String moviesPath;
+    private String ratingsPath;
+    private String snapshotPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        creditsPath = write("credits.csv", CREDITS);
+        keywordsPath = write("keywords.csv", KEYWORDS);
+        moviesPath = write("movies_metadata.csv", MOVIES);
+        ratingsPath = write("ratings.csv", RATINGS);
+        snapshotPath = directory.resolve("data.snapshot").toString();
+    }
+
+    /**
+     * A snapshot written from the csv files should be opened, and should fill the stores just as the csv files do
+     */
+    @Test void testRoundTrip() throws Exception {
+        System.out.println("\nStarting testRoundTrip...");
+        assertNull(open(), "There is no snapshot yet");
+
+        LoadData data = new LoadData(creditsPath, keywordsPath, moviesPath, ratingsPath);
+        Stores fromCsv = new Stores();
+        data.populate(fromCsv);
+        DataSnapshot.write(snapshotPath, data, creditsPath, keywordsPath, moviesPath, ratingsPath);
+
+        DataSnapshot snapshot = open();
+        assertNotNull(snapshot, "The snapshot was made from these csv files");
+        assertEquals(2, snapshot.getNumMovieRecords());
+        Stores fromSnapshot = new Stores();
+        LoadData.NumRecordsAdded added = snapshot.populate(fromSnapshot);
+        assertEquals(2, added.movies);
+        assertEquals(3, added.ratings);
+
+        for (Stores stores : new Stores[] {fromCsv, fromSnapshot}) {
+            assertEquals("Ten", stores.getMovies().getTitle(10));
+            assertEquals("Dix", stores.getMovies().getOriginalTitle(10));
+            assertEquals("An overview, with a comma", stores.getMovies().getOverview(10));
+            assertEquals(LocalDate.of(2000, 1, 2), stores.getMovies().getRelease(10));
+            assertEquals(1000, stores.getMovies().getBudget(10));
+            assertEquals(2, stores.getMovies().getGenres(10).length);
+            assertEquals("Thriller", stores.getMovies().getGenres(10)[1].getName());
+            assertArrayEquals(new String[] {"en"}, stores.getMovies().getLanguages(10));
+            assertEquals(5, stores.getMovies().getCollectionID(10));
+            assertEquals("Ten Collection", stores.getMovies().getCollectionName(5));
+            assertEquals("Ten Pictures", stores.getMovies().getProductionCompanies(10)[0].getName());
+            assertEquals(7.5, stores.getMovies().getVoteAverage(10), 1e-9);
+
+            assertEquals("Twenty", stores.getMovies().getTitle(20));
+            assertNull(stores.getMovies().getRelease(20), "Film 20 has no release date");
+            assertTrue(stores.getMovies().getAdult(20));
+            assertEquals(0, stores.getMovies().getGenres(20).length);
+
+            assertEquals("Ann Actor", stores.getCredits().getFilmCast(10)[0].getName());
+            assertEquals("Hero", stores.getCredits().getFilmCast(10)[0].getCharacter());
+            assertEquals("Director", stores.getCredits().getFilmCrew(10)[0].getJob());
+            assertEquals(0, stores.getCredits().sizeOfCast(20));
+
+            assertEquals(2, stores.getKeywords().getKeywordsForFilm(10).length);
+            assertArrayEquals(new int[] {10}, stores.getKeywords().getFilmsWithKeyword(2));
+
+            assertEquals(3, stores.getRatings().size());
+            assertEquals(3.5f, stores.getRatings().getMovieAverageRating(10), 1e-6f);
+            assertEquals(1.5f, stores.getRatings().getMovieAverageRating(20), 1e-6f);
+        }
+    }
+
+    /**
+     * A csv file that has changed since the snapshot was made should stop the snapshot being used, so the csv files are read
+     * instead
+     */
+    @Test void testStaleFingerprint() throws Exception {
+        System.out.println("\nStarting testStaleFingerprint...");
+        writeSnapshot();
+        assertNotNull(open());
+
+        // a new rating changes the file's size
+        Files.write(Paths.get(ratingsPath), "3,0,20,5.0,1000000300\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNull(open(), "The ratings file has grown since the snapshot was made");
+
+        // the same size, but modified later
+        writeSnapshot();
+        assertNotNull(open());
+        File keywords = new File(keywordsPath);
+        assertTrue(keywords.setLastModified(keywords.lastModified() + 60_000));
+        assertNull(open(), "The keywords file was modified after the snapshot was made");
+
+        // loading from the csv files again picks up the new rating, and makes a snapshot that can be used
+        writeSnapshot();
+        DataSnapshot snapshot = open();
+        assertNotNull(snapshot);
+        Stores stores = new Stores();
+        snapshot.populate(stores);
+        assertEquals(4, stores.getRatings().size());
+        assertEquals(3.25f, stores.getRatings().getMovieAverageRating(20), 1e-6f);
+    }
+
+    /**
+     * A snapshot from another version of the format, or that isn't a snapshot at all, should be ignored rather than read
+     */
+    @Test void testWrongVersion() throws Exception {
+        System.out.println("\nStarting testWrongVersion...");
+        writeSnapshot();
+        assertNotNull(open());
+
+        // the version follows the 8 byte magic number
+        try (RandomAccessFile file = new RandomAccessFile(snapshotPath, "rw")) {
+            file.seek(8);
+            int version = file.readInt();
+            file.seek(8);
+            file.writeInt(version + 1);
+        }
+        assertNull(open(), "The snapshot is from another version");
+
+        Files.write(Paths.get(snapshotPath), "tmdb_id,keywords\n".getBytes(StandardCharsets.UTF_8));
+        assertNull(open(), "The file isn't a snapshot");
+    }
+
+    private DataSnapshot open() {
+        return DataSnapshot.open(snapshotPath, creditsPath, keywordsPath, moviesPath, ratingsPath);
+    }
+
+    private void writeSnapshot() throws Exception {
+        LoadData data = new LoadData(creditsPath, keywordsPath, moviesPath, ratingsPath);
+        DataSnapshot.write(snapshotPath, data, creditsPath, keywordsPath, moviesPath, ratingsPath);
+    }
+
+    private String write(String name, String text) throws IOException {
+        Path path = directory.resolve(name);
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path.toString();
+    }
+}
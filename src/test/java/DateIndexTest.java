@@ -0,0 +1,140 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DateIndexTest {
+
+    /**
+     * Tests that a range includes its first day and leaves out the day after its last, and that results are in date order and
+     * then id order
+     */
+    @Test
+    void testExclusiveBounds() {
+        System.out.println("\nStarting testExclusiveBounds...");
+        DateIndex index = new DateIndex();
+        index.add(7, 10);
+        index.add(3, 11);
+        index.add(5, 10);
+        index.addAll(new int[] {1, 9}, new int[] {12, 10}, 2);
+
+        assertArrayEquals(new int[] {5, 7, 9, 3, 1}, index.range(10, 13));
+        assertArrayEquals(new int[] {5, 7, 9}, index.range(10, 11));
+        assertArrayEquals(new int[] {3}, index.range(11, 12));
+        assertEquals(0, index.range(11, 11).length);
+        assertEquals(0, index.range(13, 10).length);
+        assertEquals(0, index.count(12, 11));
+        assertEquals(5, index.count(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(5, index.size());
+    }
+
+    /**
+     * Tests days and ids at either end of the int range, and negative days from before 1970
+     */
+    @Test
+    void testExtremes() {
+        System.out.println("\nStarting testExtremes...");
+        DateIndex index = new DateIndex();
+        index.add(Integer.MIN_VALUE, -5);
+        index.add(Integer.MAX_VALUE, -5);
+        index.addAll(new int[] {-1, 0}, new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE - 1}, 2);
+
+        assertArrayEquals(new int[] {-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0}, index.range(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertArrayEquals(new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE}, index.range(-5, -4));
+        assertTrue(index.remove(Integer.MAX_VALUE, -5));
+        assertFalse(index.remove(0, -5), "0 was added with a different day");
+        assertArrayEquals(new int[] {Integer.MIN_VALUE}, index.range(-5, -4));
+    }
+
+    /**
+     * Tests removing from the main arrays and the delta, removing twice, and adding a removed id back
+     */
+    @Test
+    void testRemove() {
+        System.out.println("\nStarting testRemove...");
+        DateIndex index = new DateIndex();
+        index.addAll(new int[] {1, 2, 3}, new int[] {100, 200, 300}, 3);
+        index.add(4, 150);
+
+        assertTrue(index.remove(2, 200));
+        assertFalse(index.remove(2, 200));
+        assertTrue(index.remove(4, 150));
+        assertFalse(index.remove(4, 150));
+        assertArrayEquals(new int[] {1, 3}, index.range(0, 1000));
+        assertEquals(2, index.count(0, 1000));
+        assertEquals(2, index.size());
+
+        index.add(2, 200);
+        assertArrayEquals(new int[] {1, 2, 3}, index.range(0, 1000));
+        index.add(4, 50);
+        assertArrayEquals(new int[] {4, 1, 2, 3}, index.range(0, 1000));
+        assertEquals(4, index.size());
+    }
+
+    /**
+     * Tests enough single adds to merge the delta into the main arrays twice, with a batch added on top of them
+     */
+    @Test
+    void testDeltaMerge() {
+        System.out.println("\nStarting testDeltaMerge...");
+        DateIndex index = new DateIndex();
+        for (int id = 0; id < 600; id++) {
+            index.add(id, 1000 - id);
+        }
+        int[] batchIDs = new int[100];
+        int[] batchDays = new int[100];
+        for (int i = 0; i < 100; i++) {
+            batchIDs[i] = 699 - i;
+            batchDays[i] = 300;
+        }
+        index.addAll(batchIDs, batchDays, 100);
+
+        // the batch all on day 300 by id, then the single adds by day, which is the reverse of their ids
+        int[] all = index.range(0, 2000);
+        assertEquals(700, all.length);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(600 + i, all[i]);
+        }
+        for (int i = 100; i < 700; i++) {
+            assertEquals(699 - i, all[i]);
+        }
+        assertArrayEquals(new int[] {100, 99, 98}, index.range(900, 903));
+        assertEquals(3, index.count(900, 903));
+        assertEquals(700, index.size());
+    }
+
+    /**
+     * Tests removing more entries of the main arrays than the removed run holds, so it is compacted, and adding removed ids
+     * back with their old day and a new one
+     */
+    @Test
+    void testRemoveMany() {
+        System.out.println("\nStarting testRemoveMany...");
+        DateIndex index = new DateIndex();
+        int[] ids = new int[1000];
+        int[] days = new int[1000];
+        for (int id = 0; id < 1000; id++) {
+            ids[id] = id;
+            days[id] = id / 10;
+        }
+        index.addAll(ids, days, 1000);
+
+        // remove the first three ids of each day
+        for (int id = 0; id < 1000; id++) {
+            if (id % 10 < 3) {
+                assertTrue(index.remove(id, id / 10));
+            }
+        }
+        assertFalse(index.remove(0, 0), "0 was already removed");
+        assertArrayEquals(new int[] {3, 4, 5, 6, 7, 8, 9, 13, 14, 15, 16, 17, 18, 19}, index.range(0, 2));
+        assertEquals(700, index.count(0, 100));
+        assertEquals(700, index.size());
+
+        index.add(10, 1);
+        index.add(0, 99);
+        assertArrayEquals(new int[] {3, 4, 5, 6, 7, 8, 9, 10, 13, 14, 15, 16, 17, 18, 19}, index.range(0, 2));
+        assertArrayEquals(new int[] {0, 993, 994, 995, 996, 997, 998, 999}, index.range(99, 100));
+        assertEquals(702, index.size());
+    }
+}
@@ -0,0 +1,83 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzyIndexTest {
+
+    /**
+     * Tests the edit distance, and the edits allowed for each length of word
+     */
+    @Test
+    void testDistance() {
+        System.out.println("\nStarting testDistance...");
+        assertEquals(0, FuzzyIndex.distance("", ""));
+        assertEquals(3, FuzzyIndex.distance("abc", ""));
+        assertEquals(2, FuzzyIndex.distance("speilberg", "spielberg"));
+        assertEquals(1, FuzzyIndex.distance("termnator", "terminator"));
+        assertEquals(3, FuzzyIndex.distance("kitten", "sitting"));
+
+        assertEquals(0, FuzzyIndex.maxEdits(2));
+        assertEquals(1, FuzzyIndex.maxEdits(3));
+        assertEquals(1, FuzzyIndex.maxEdits(5));
+        assertEquals(2, FuzzyIndex.maxEdits(6));
+    }
+
+    /**
+     * Tests that words are folded before they are compared, and that a record needs a close word for every query word
+     */
+    @Test
+    void testFind() {
+        System.out.println("\nStarting testFind...");
+        FuzzyIndex index = new FuzzyIndex();
+        index.add(1, "Steven Spielberg");
+        index.add(2, "Bj\u00f6rk");
+        index.add(3, "The Terminator", null);
+        index.add(4, "Terminator 2");
+
+        assertArrayEquals(new int[] {1}, index.find("Speilberg"));
+        assertArrayEquals(new int[] {2}, index.find("bjork"));
+        assertArrayEquals(new int[] {3, 4}, index.find("termnator"));
+        assertArrayEquals(new int[] {3}, index.find("the termnator"));
+        assertArrayEquals(new int[] {4}, index.find("terminator 2"));
+        assertEquals(0, index.find("steven terminator").length);
+        assertEquals(0, index.find("!!").length);
+
+        // a record added again replaces its words
+        index.add(4, "Aliens");
+        assertArrayEquals(new int[] {3}, index.find("terminator"));
+        assertTrue(index.remove(3));
+        assertFalse(index.remove(3));
+        assertEquals(0, index.find("terminator").length);
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Tests that skipping the words after a prefix that is already too far off doesn't skip a close word sharing a shorter
+     * prefix, and that records are ordered by their total edits and then by id
+     */
+    @Test
+    void testSkippedPrefixes() {
+        System.out.println("\nStarting testSkippedPrefixes...");
+        FuzzyIndex index = new FuzzyIndex();
+        index.add(1, "aaaa");
+        index.add(2, "aaab");
+        index.add(3, "abzz");
+        index.add(4, "abbb");
+        index.add(5, "bbbb");
+        index.add(6, "bbbbbbbb");
+        index.add(7, "b");
+
+        // "aa" and "abz" are two edits from any start of "bbbb", so the words after them are skipped, but not "abbb"
+        assertArrayEquals(new int[] {5, 4}, index.find("bbbb"));
+        assertArrayEquals(new int[] {6}, index.find("bbbbbbb"));
+
+        // a word no record has any more isn't found, and ties on total edits go to the smaller id
+        assertTrue(index.remove(5));
+        assertArrayEquals(new int[] {4}, index.find("bbbb"));
+        index.add(8, "abbb bbbc");
+        assertArrayEquals(new int[] {4, 8}, index.find("bbbb"));
+        assertArrayEquals(new int[] {8}, index.find("bbbc abbb"));
+    }
+}
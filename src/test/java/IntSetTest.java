@@ -0,0 +1,163 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntSetTest {
+
+    /**
+     * Checks that a small set keeps its values in insertion order, and sorts them once it grows past the small array
+     */
+    @Test
+    void testSmallToSorted() {
+        System.out.println("\nStarting testSmallToSorted...");
+        IntSet set = new IntSet();
+        assertTrue(set.isEmpty());
+        int[] values = {5, -3, 9, 0, 7, 1, 8, 2};
+        for (int value : values) {
+            assertTrue(set.add(value));
+        }
+        assertFalse(set.add(9), "9 is already in the set");
+        assertArrayEquals(values, set.toArray(), "A small set should keep insertion order");
+
+        // the ninth value moves the set to a sorted array
+        assertTrue(set.add(4));
+        int[] sorted = {-3, 0, 1, 2, 4, 5, 7, 8, 9};
+        assertArrayEquals(sorted, set.toArray());
+        for (int value : sorted) {
+            assertTrue(set.contains(value));
+        }
+        assertFalse(set.contains(3));
+        assertEquals(sorted.length, set.size());
+    }
+
+    /**
+     * Checks that removing from a small set moves its last value into the gap
+     */
+    @Test
+    void testSmallRemove() {
+        System.out.println("\nStarting testSmallRemove...");
+        IntSet set = new IntSet();
+        set.add(1);
+        set.add(2);
+        set.add(3);
+        set.add(4);
+
+        assertTrue(set.remove(2));
+        assertFalse(set.remove(2), "2 was already removed");
+        assertArrayEquals(new int[] {1, 4, 3}, set.toArray());
+        assertTrue(set.remove(1));
+        assertTrue(set.remove(4));
+        assertTrue(set.remove(3));
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.toArray().length);
+    }
+
+    /**
+     * Checks that a dense set moves to a bitmap and widens it downwards and upwards, starting off a word boundary
+     */
+    @Test
+    void testBitmapWidens() {
+        System.out.println("\nStarting testBitmapWidens...");
+        IntSet set = new IntSet();
+
+        // 64 values in a range of 190 are dense enough for a bitmap
+        for (int i = 0; i < 64; i++) {
+            set.add(1000 + i * 3);
+        }
+        assertArrayEquals(steps(1000, 64, 3), set.toArray());
+        assertTrue(set.contains(1189));
+        assertFalse(set.contains(1001));
+        assertFalse(set.contains(1190));
+
+        // a value a few words below and one a few words above the bitmap
+        assertTrue(set.add(900));
+        assertTrue(set.add(1400));
+        assertFalse(set.add(900), "900 is already in the set");
+        int[] expected = new int[66];
+        expected[0] = 900;
+        System.arraycopy(steps(1000, 64, 3), 0, expected, 1, 64);
+        expected[65] = 1400;
+        assertArrayEquals(expected, set.toArray());
+        assertTrue(set.contains(900));
+        assertTrue(set.contains(1400));
+        assertFalse(set.contains(899));
+        assertFalse(set.contains(1401));
+        assertEquals(66, set.size());
+    }
+
+    /**
+     * Checks that a bitmap goes back to a sorted array when a far off value is added, and when it drops below the bitmap
+     * size, without losing any values
+     */
+    @Test
+    void testBitmapToSorted() {
+        System.out.println("\nStarting testBitmapToSorted...");
+        IntSet set = new IntSet();
+        for (int value = 0; value < 100; value++) {
+            set.add(value);
+        }
+
+        // 101 values over a range of 2^30 are far too sparse for a bitmap
+        assertTrue(set.add(1 << 30));
+        int[] expected = new int[101];
+        System.arraycopy(steps(0, 100, 1), 0, expected, 0, 100);
+        expected[100] = 1 << 30;
+        assertArrayEquals(expected, set.toArray());
+        assertTrue(set.remove(1 << 30));
+        assertFalse(set.contains(1 << 30));
+
+        // adding a dense value goes back to a bitmap, and removing the odd values leaves too few for one
+        assertTrue(set.add(100));
+        for (int value = 1; value <= 100; value += 2) {
+            assertTrue(set.remove(value));
+            assertFalse(set.remove(value), value + " was already removed");
+        }
+        assertArrayEquals(steps(0, 51, 2), set.toArray());
+        assertTrue(set.contains(100));
+        assertFalse(set.contains(99));
+        assertEquals(51, set.size());
+    }
+
+    /**
+     * Checks that negative values, and values at either end of the int range, work in every representation
+     */
+    @Test
+    void testExtremes() {
+        System.out.println("\nStarting testExtremes...");
+        IntSet set = new IntSet();
+        int[] extremes = {Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE + 63, Integer.MAX_VALUE - 63};
+        for (int value : extremes) {
+            set.add(value);
+        }
+        assertArrayEquals(extremes, set.toArray());
+
+        // a dense run of negative values, crossing 0, to make a bitmap with a negative base once the extremes are gone
+        for (int value = -130; value < 10; value++) {
+            set.add(value);
+        }
+        assertEquals(144, set.size());
+        assertTrue(set.contains(Integer.MIN_VALUE));
+        assertTrue(set.contains(Integer.MAX_VALUE - 63));
+        assertFalse(set.contains(Integer.MAX_VALUE - 62));
+        for (int value : extremes) {
+            assertTrue(set.remove(value));
+        }
+        assertTrue(set.add(-131));
+        assertArrayEquals(steps(-131, 141, 1), set.toArray());
+        assertFalse(set.contains(Integer.MIN_VALUE));
+        assertFalse(set.contains(Integer.MAX_VALUE));
+        assertFalse(set.contains(-132));
+        assertFalse(set.contains(10));
+    }
+
+    // count values from first, step apart
+    private static int[] steps(int first, int count, int step) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = first + i * step;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,146 @@
+import stores.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class KeywordsTest {
+
+    private Stores stores = new Stores();
+
+    private Keyword toy = new Keyword(30, "toy");
+    private Keyword toyStory = new Keyword(10, "Toy Story");
+    private Keyword boyhood = new Keyword(20, "boyhood");
+    private Keyword ex = new Keyword(5, "ex");
+    private Keyword mexico = new Keyword(40, "mexico");
+
+    @BeforeAll
+    void setUp(){
+        // the same keywords on several films, so findKeywords has to return each one once
+        stores.getKeywords().add(1, new Keyword[] {toy, toyStory, boyhood});
+        stores.getKeywords().add(2, new Keyword[] {toy, mexico});
+        stores.getKeywords().add(3, toyStory);
+        stores.getKeywords().add(3, ex);
+        stores.getKeywords().addAll(new int[] {4, 1}, new Keyword[][] {{boyhood, toy}, {mexico}});
+    }
+
+    /**
+     * Tests that a keyword on many films is only returned once, and that results are in id order rather than the order the
+     * keywords were added in
+     */
+    @Test
+    void testFindKeywordsUnique() {
+        System.out.println("\nStarting testFindKeywordsUnique...");
+        assertArrayEquals(new int[] {30}, ids(stores.getKeywords().findKeywords("toy")));
+        assertArrayEquals(new int[] {10, 20, 30}, ids(stores.getKeywords().findKeywords("oy")));
+        assertArrayEquals(new int[] {5, 10, 20, 30, 40}, ids(stores.getKeywords().findKeywords("")));
+    }
+
+    /**
+     * Tests terms shorter than a trigram, which check every name
+     */
+    @Test
+    void testFindKeywordsShort() {
+        System.out.println("\nStarting testFindKeywordsShort...");
+        assertArrayEquals(new int[] {5, 40}, ids(stores.getKeywords().findKeywords("ex")));
+        assertArrayEquals(new int[] {10, 20, 30, 40}, ids(stores.getKeywords().findKeywords("o")));
+        assertArrayEquals(new int[] {10}, ids(stores.getKeywords().findKeywords(" ")));
+        assertEquals(0, stores.getKeywords().findKeywords("q").length);
+    }
+
+    /**
+     * Tests that matching is case sensitive, as String.contains is
+     */
+    @Test
+    void testFindKeywordsCase() {
+        System.out.println("\nStarting testFindKeywordsCase...");
+        assertArrayEquals(new int[] {10}, ids(stores.getKeywords().findKeywords("Toy")));
+        assertArrayEquals(new int[] {10}, ids(stores.getKeywords().findKeywords("T")));
+        assertEquals(0, stores.getKeywords().findKeywords("TOY").length);
+        assertEquals(0, stores.getKeywords().findKeywords("story").length);
+        assertArrayEquals(new int[] {10}, ids(stores.getKeywords().findKeywords("Story")));
+    }
+
+    /**
+     * Tests names whose packed trigrams collide, which the index can match but String.contains has to rule out
+     */
+    @Test
+    void testFindKeywordsCollisions() {
+        System.out.println("\nStarting testFindKeywordsCollisions...");
+        // '\u0461' is 'a' with bit 10 set, which the packed key folds into the 'y', making "xy\u0461" pack like "xxa"
+        Stores collidingStores = new Stores();
+        collidingStores.getKeywords().add(1, new Keyword[] {new Keyword(50, "xy\u0461"), new Keyword(60, "xxa")});
+
+        assertArrayEquals(new int[] {60}, ids(collidingStores.getKeywords().findKeywords("xxa")));
+        assertArrayEquals(new int[] {50}, ids(collidingStores.getKeywords().findKeywords("xy\u0461")));
+        assertArrayEquals(new int[] {50, 60}, ids(collidingStores.getKeywords().findKeywords("x")));
+        assertEquals(0, collidingStores.getKeywords().findKeywords("xya").length);
+    }
+
+    /**
+     * Tests that a keyword stops being found once no film has it, whether its film is removed or it is removed from its film,
+     * and is found again when it is added back
+     */
+    @Test
+    void testFindKeywordsAfterRemove() {
+        System.out.println("\nStarting testFindKeywordsAfterRemove...");
+        Stores removeStores = new Stores();
+        Keyword space = new Keyword(8, "space");
+        Keyword spaceship = new Keyword(9, "spaceship");
+        removeStores.getKeywords().add(1, new Keyword[] {new Keyword(7, "toy story")});
+        removeStores.getKeywords().add(2, new Keyword[] {space, spaceship});
+        removeStores.getKeywords().add(3, spaceship);
+
+        assertTrue(removeStores.getKeywords().remove(1));
+        assertEquals(0, removeStores.getKeywords().findKeywords("toy").length, "Film 1 was the only one with toy story");
+
+        assertTrue(removeStores.getKeywords().removeKeywordFromFilm(2, 8));
+        assertArrayEquals(new int[] {9}, ids(removeStores.getKeywords().findKeywords("spa")), "Film 2 was the only one with space");
+
+        // spaceship is still on film 3 after film 2 goes
+        assertTrue(removeStores.getKeywords().remove(2));
+        assertArrayEquals(new int[] {9}, ids(removeStores.getKeywords().findKeywords("spa")));
+        assertTrue(removeStores.getKeywords().remove(3));
+        assertEquals(0, removeStores.getKeywords().findKeywords("spa").length);
+
+        removeStores.getKeywords().add(4, space);
+        assertArrayEquals(new int[] {8}, ids(removeStores.getKeywords().findKeywords("spa")));
+    }
+
+    /**
+     * Tests that a misspelt keyword stops being found once no film has it, and is found again when it is added back
+     */
+    @Test
+    void testFindKeywordsFuzzyAfterRemove() {
+        System.out.println("\nStarting testFindKeywordsFuzzyAfterRemove...");
+        Stores removeStores = new Stores();
+        Keyword spaceship = new Keyword(9, "spaceship");
+        removeStores.getKeywords().add(1, new Keyword[] {new Keyword(7, "dinosaur"), spaceship});
+        removeStores.getKeywords().add(2, spaceship);
+
+        assertTrue(removeStores.getKeywords().removeKeywordFromFilm(1, 7));
+        assertEquals(0, removeStores.getKeywords().findKeywordsFuzzy("dinosuar").length, "Film 1 was the only one with dinosaur");
+
+        assertTrue(removeStores.getKeywords().remove(1));
+        assertArrayEquals(new int[] {9}, ids(removeStores.getKeywords().findKeywordsFuzzy("spacehsip")), "Film 2 still has spaceship");
+        assertTrue(removeStores.getKeywords().remove(2));
+        assertEquals(0, removeStores.getKeywords().findKeywordsFuzzy("spacehsip").length);
+
+        removeStores.getKeywords().add(3, spaceship);
+        assertArrayEquals(new int[] {9}, ids(removeStores.getKeywords().findKeywordsFuzzy("spacehsip")));
+    }
+
+    private static int[] ids(Keyword[] keywords) {
+        int[] result = new int[keywords.length];
+        for (int i = 0; i < keywords.length; i++) {
+            result[i] = keywords[i].getID();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,211 @@
+import utils.LiteralScanner;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LiteralScannerTest {
+
+    /**
+     * Bare words such as None are read as Strings, while true and null aren't Strings
+     */
+    @Test
+    void testBareWords() {
+        System.out.println("\nStarting testBareWords...");
+        check("[{'id': 1, 'name': None}]", "1=None;");
+        check("[{'id': 2, 'name': abc def }]", "2=abc def;");
+        check("[{id: 3, name: x}]", "3=x;");
+        check("[{'id': 4, 'name': true}]", "ERR JSONObject[\"name\"] is not a string (class java.lang.Boolean : true).");
+        check("[{'id': 5, 'name': null}]", "ERR JSONObject[\"name\"] is not a string (class org.json.JSONObject$Null : null).");
+        check("[{'id': 6, 'name': 12}]", "ERR JSONObject[\"name\"] is not a string (class java.lang.Integer : 12).");
+    }
+
+    /**
+     * Escapes are undone in single and double quoted strings, and bad escapes fail where org.json fails
+     */
+    @Test
+    void testEscapes() {
+        System.out.println("\nStarting testEscapes...");
+        check("[{'id': 1, 'name': 'it\\'s \\\"q\\\" \\u00e9\\n\\/'}]", "1=it's \"q\" \u00e9\n/;");
+        check("[{'id': 2, \"name\": \"double \\u0041\"}]", "2=double A;");
+        check("[{'id': 3, 'name': \"it's\"}]", "3=it's;");
+        check("[{'id': '\\u0031', 'name': 'x'}]", "1=x;");
+        check("[{'id': 4, 'name': 'bad \\x'}]", "ERR Illegal escape. at 26 [character 27 line 1]");
+        check("[{'id': 5, 'name': 'bad \\u00g1'}]", "ERR Illegal escape. at 30 [character 31 line 1]");
+        check("[{'id': 6, 'name': 'a\\u00'}]", "ERR Illegal escape. at 27 [character 28 line 1]");
+        check("[{'id': 7, 'name': 'a\\u0'", "ERR Substring bounds error at 25 [character 26 line 1]");
+        check("[{'id': 8, 'name': 'a\\", "ERR Illegal escape. at 22 [character 23 line 1]");
+    }
+
+    /**
+     * A trailing comma is allowed after the last key of a dict and the last dict of a list, but not an empty element
+     */
+    @Test
+    void testTrailingCommas() {
+        System.out.println("\nStarting testTrailingCommas...");
+        check("[{'id': 1, 'name': 'a',},]", "1=a;");
+        check("[]", "");
+        check(" [ ] ", "");
+        check("[{'id': 2, 'name': 'b'},,]", "ERR JSONArray[1] is not a JSONObject (class org.json.JSONObject$Null : null).");
+        check("[,]", "ERR JSONArray[0] is not a JSONObject (class org.json.JSONObject$Null : null).");
+        check("[{'id': 3,}", "ERR Expected a ',' or ']' at 11 [character 12 line 1]");
+    }
+
+    /**
+     * Semicolons separate the keys of a dict, but not the dicts of a list
+     */
+    @Test
+    void testSemicolons() {
+        System.out.println("\nStarting testSemicolons...");
+        check("[{'id': 5; 'name': 'b';}]", "5=b;");
+        check("[{'id': 5, 'name': 'b'}; {'id': 6, 'name': 'c'}]", "ERR Expected a ',' or ']' at 24 [character 25 line 1]");
+    }
+
+    /**
+     * Nested lists and dicts are skipped when they belong to other keys, and aren't Strings or ints when they belong to a wanted
+     * key
+     */
+    @Test
+    void testNestedValues() {
+        System.out.println("\nStarting testNestedValues...");
+        check("[{'id': 6, 'extra': {'x': [1, 2, {'y': 'z'}], 'w': []}, 'name': 'c'}]", "6=c;");
+        check("[{'id': 7, 'x': [1,,2], 'name': 'n'}]", "7=n;");
+        check("[{'id': 8, 'name': ['x']}]", "ERR JSONObject[\"name\"] is not a string (class org.json.JSONArray).");
+        check("[{'id': {'a': 1}, 'name': 'x'}]", "ERR JSONObject[\"id\"] is not a int (class org.json.JSONObject).");
+        check("[{'id': 9, 'name': 'x'}, [1]]", "ERR JSONArray[1] is not a JSONObject (class org.json.JSONArray).");
+        check("[{'a': {'x': 1, 'x': 2}}]", "ERR Duplicate key \"x\" at 20 [character 21 line 1]");
+    }
+
+    /**
+     * Quoted ints are read as ints, as long as the whole string is one
+     */
+    @Test
+    void testQuotedInts() {
+        System.out.println("\nStarting testQuotedInts...");
+        check("[{'id': '8', 'name': 'd'}]", "8=d;");
+        check("[{'id': ' 8', 'name': 'd'}]", "ERR JSONObject[\"id\"] is not a int (class java.lang.String :  8).");
+        check("[{'id': '8.5', 'name': 'd'}]", "ERR JSONObject[\"id\"] is not a int (class java.lang.String : 8.5).");
+        check("[{'id': 'it\\'s', 'name': 'x'}]", "ERR JSONObject[\"id\"] is not a int (class java.lang.String : it's).");
+    }
+
+    /**
+     * Ints of ten or more digits wrap around as org.json's do, and other numbers are cut down to ints
+     */
+    @Test
+    void testLongInts() {
+        System.out.println("\nStarting testLongInts...");
+        check("[{'id': 1234567890, 'name': 'e'}]", "1234567890=e;");
+        check("[{'id': 2147483648, 'name': 'e'}]", "-2147483648=e;");
+        check("[{'id': 12345678901, 'name': 'e'}]", "-539222987=e;");
+        check("[{'id': -2147483649, 'name': 'e'}]", "2147483647=e;");
+        check("[{'id': 99999999999999999999, 'name': 'e'}]", "1661992959=e;");
+        check("[{'id': -0012, 'name': 'e'}]", "-12=e;");
+        check("[{'id': 1.9, 'name': 'e'}]", "1=e;");
+        check("[{'id': 1e3, 'name': 'e'}]", "1000=e;");
+        check("[{'id': 0x1F, 'name': 'e'}]", "ERR JSONObject[\"id\"] is not a int (class java.lang.String : 0x1F).");
+    }
+
+    /**
+     * Malformed cells fail with org.json's message, at the same position, including ones that end early
+     */
+    @Test
+    void testMalformed() {
+        System.out.println("\nStarting testMalformed...");
+        check("", "ERR A JSONArray text must start with '[' at 0 [character 1 line 1]");
+        check("{'id': 1}", "ERR A JSONArray text must start with '[' at 1 [character 2 line 1]");
+        check("[", "ERR Expected a ',' or ']' at 1 [character 2 line 1]");
+        check("[{", "ERR A JSONObject text must end with '}' at 2 [character 3 line 1]");
+        check("[{'id': 1,", "ERR Missing value at 9 [character 10 line 1]");
+        check("[{'id': 1, 'name': 'a'}", "ERR Expected a ',' or ']' at 23 [character 24 line 1]");
+        check("[{'id': 1, 'name': 'a'},", "ERR Expected a ',' or ']' at 24 [character 25 line 1]");
+        check("[{'id': 1, 'name': 'unterminated}]", "ERR Unterminated string at 34 [character 35 line 1]");
+        check("[{'id' 1}]", "ERR Expected a ':' after a key at 8 [character 9 line 1]");
+        check("[{'id': 1 'name': 'a'}]", "ERR Expected a ',' or '}' at 17 [character 18 line 1]");
+        check("[{'id': , 'name': 'a'}]", "ERR Missing value at 8 [character 9 line 1]");
+        check("[{'id': 1, 'id': 2, 'name': 'a'}]", "ERR Duplicate key \"id\" at 16 [character 17 line 1]");
+        check("[{'id': 1, 'x': 1, 'x': 2, 'name': 'a'}]", "ERR Duplicate key \"x\" at 23 [character 24 line 1]");
+        check("[{[1]: 2}]", "ERR A JSON Object can not directly nest another JSON Object or JSON Array. at 3 [character 4 line 1]");
+        check("\r\n[{'id': 1,\r\n\r\n 'name' 'a'}]", "ERR Expected a ':' after a key at 25 [character 9 line 4]");
+        check("[{'id': 1}]", "ERR JSONObject[\"name\"] not found.");
+        check("[1]", "ERR JSONArray[0] is not a JSONObject (class java.lang.Integer : 1).");
+
+        // the whole list is read before its elements, so a later syntax error wins over an earlier bad element
+        check("[{'id': 'x', 'name': 'a'}, {bad]", "ERR Expected a ':' after a key at 32 [character 33 line 1]");
+        check("[{'id': 1, 'name': 'x'}, 7, {'id': 'bad'}]", "ERR JSONArray[1] is not a JSONObject (class java.lang.Integer : 7).");
+    }
+
+    /**
+     * A single dict is read as JSONObject reads it, ignoring anything after it
+     */
+    @Test
+    void testDict() {
+        System.out.println("\nStarting testDict...");
+        checkDict("{'id': 10, 'name': 'Collection', 'poster_path': None}", "10=Collection");
+        checkDict("{'id': 10, 'name': 'Collection'} x", "10=Collection");
+        checkDict("{'id': '10', 'name': 'Collection', 'x': [{'y': 1}]}", "10=Collection");
+        checkDict("[{'id': 10}]", "ERR A JSONObject text must begin with '{' at 1 [character 2 line 1]");
+        checkDict("{'id': 10", "ERR Expected a ',' or '}' at 9 [character 10 line 1]");
+        checkDict("{'name': 'Collection'}", "ERR JSONObject[\"id\"] not found.");
+    }
+
+    // checks that both org.json and the scanner read a list of id and name dicts as expected
+    private static void check(String cell, String expected) {
+        assertEquals(expected, readJson(cell), "org.json should read " + cell + " as expected");
+        assertEquals(expected, readScanner(cell), "The scanner should read " + cell + " as org.json does");
+    }
+
+    private static void checkDict(String cell, String expected) {
+        String json;
+        try {
+            JSONObject object = new JSONObject(cell);
+            json = object.getInt("id") + "=" + object.getString("name");
+        }
+        catch (JSONException e) {
+            json = "ERR " + e.getMessage();
+        }
+        assertEquals(expected, json, "org.json should read " + cell + " as expected");
+
+        String scanned;
+        try {
+            LiteralScanner scanner = new LiteralScanner("id", "name");
+            scanner.dict(cell);
+            scanned = scanner.getInt(0) + "=" + scanner.getString(1);
+        }
+        catch (JSONException e) {
+            scanned = "ERR " + e.getMessage();
+        }
+        assertEquals(expected, scanned, "The scanner should read " + cell + " as org.json does");
+    }
+
+    private static String readJson(String cell) {
+        try {
+            JSONArray array = new JSONArray(cell);
+            StringBuilder read = new StringBuilder();
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject object = array.getJSONObject(i);
+                read.append(object.getInt("id")).append('=').append(object.getString("name")).append(';');
+            }
+            return read.toString();
+        }
+        catch (JSONException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    private static String readScanner(String cell) {
+        try {
+            String[] elements = new LiteralScanner("id", "name").list(cell, String[]::new, dict -> dict.getInt(0) + "=" + dict.getString(1));
+            StringBuilder read = new StringBuilder();
+            for (String element : elements) {
+                read.append(element).append(';');
+            }
+            return read.toString();
+        }
+        catch (JSONException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import utils.LoadData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadDataTest {
+    private static final String MOVIES_HEADER =
+        "adult,belongs_to_collection,budget,genres,homepage,tmdb_id,imdb_id,original_language,original_title,overview,popularity,"
+        + "poster_path,production_companies,production_countries,release_date,revenue,runtime,spoken_languages,status,tagline,title,"
+        + "video,vote_average,vote_count\n";
+    private static final String CREDITS_HEADER = "tmdb_id,cast,crew\n";
+    private static final String KEYWORDS_HEADER = "tmdb_id,keywords\n";
+    private static final String RATINGS_HEADER = "userId,movieLensId,tmdbId,rating,timestamp\n";
+
+    private static final String CAST = "\"[{'cast_id': 1, 'character': 'Hero', 'credit_id': 'c1', 'gender': 2, 'id': 100, "
+        + "'name': 'Ann Actor', 'order': 0, 'profile_path': '/a.jpg'}]\"";
+
+    @TempDir
+    Path directory;
+
+    private String creditsPath;
+    private String keywordsPath;
+    private String moviesPath;
+    private String ratingsPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        creditsPath = write("credits.csv", CREDITS_HEADER + "10,[],[]\n20,[],[]\n");
+        keywordsPath = write("keywords.csv", KEYWORDS_HEADER + "10,[]\n20,[]\n");
+        moviesPath = write("movies_metadata.csv", MOVIES_HEADER + movie(10, "2000-01-02") + movie(20, "") + movie(30, ""));
+        ratingsPath = write("ratings.csv", RATINGS_HEADER + "1,0,10,4.0,1000000000\n");
+    }
+
+    /**
+     * The valid files should load, so that each of the other tests fails only on the record it breaks
+     */
+    @Test void testValidFiles() throws Exception {
+        System.out.println("\nStarting testValidFiles...");
+        assertEquals(3, new LoadData(creditsPath, keywordsPath, moviesPath, ratingsPath).getNumMovieRecords());
+    }
+
+    /**
+     * Movies are numbered from 0, counting quoted line breaks and blank lines as part of the records around them
+     */
+    @Test void testMetadataErrors() throws IOException {
+        System.out.println("\nStarting testMetadataErrors...");
+        String overview = "\"Two\nlines, \"\"quoted\"\"\"";
+        String wellFormed = MOVIES_HEADER + movie(10, overview, "2000-01-02").replace("\n", "\r\n") + "\r\n" + movie(20, "");
+
+        write("movies_metadata.csv", wellFormed + movie(30, "").replace(",0\n", "\n"));
+        assertEquals("[2] --METADATA-- Incorrect number of fields. Number of fields found: 23", loadError());
+
+        write("movies_metadata.csv", wellFormed + "\n" + movie(10, ""));
+        assertEquals("[2] --METADATA-- Input file ('" + moviesPath + "') contains duplicate Movie! id: 10", loadError());
+
+        write("movies_metadata.csv", wellFormed + movie(30, "2000-13-01"));
+        assertEquals("[2] --MOVIE METADATA-- Unable to read csv. Unable to parse date.", loadError());
+
+        // a duplicate is found before the rest of its record is read
+        write("movies_metadata.csv", wellFormed + movie(20, "2000-13-01"));
+        assertEquals("[2] --METADATA-- Input file ('" + moviesPath + "') contains duplicate Movie! id: 20", loadError());
+
+        write("movies_metadata.csv", MOVIES_HEADER + movie(10, "").replace(",0,[],,10,", ",x,[],,10,"));
+        assertEquals("[0] --MOVIE METADATA-- Unable to read csv. Item for specified header not found.", loadError());
+    }
+
+    /**
+     * Credits are numbered from 1, and their cast and crew are read before their film is checked
+     */
+    @Test void testCreditsErrors() throws IOException {
+        System.out.println("\nStarting testCreditsErrors...");
+        write("credits.csv", CREDITS_HEADER + "10," + CAST + ",[]\r\n\r\n20,[]\n");
+        assertEquals("[CREDITS] Incorrect number of csv fields in record number: 2. Number of fields found: 2", loadError());
+
+        write("credits.csv", CREDITS_HEADER + "10," + CAST + ",[]\n20,[],\"[{'credit_id': 'c2'}]\"\n");
+        assertEquals("[2] --CREDITS-- Unable to read json. Key not found or cannot convert to correct type.", loadError());
+
+        write("credits.csv", CREDITS_HEADER + "10,[],[]\n40,[{,[]\n");
+        assertEquals("[2] --CREDITS-- Unable to read json. Key not found or cannot convert to correct type.", loadError());
+
+        write("credits.csv", CREDITS_HEADER + "10,[],[]\n40,[],[]\n");
+        assertEquals("Credits file contains a credit for a movie (id:40) that doesn't exist in the movie metadata file!", loadError());
+
+        write("credits.csv", CREDITS_HEADER + "10,[],[]\n20,[],[]\n10," + CAST + ",[]\n");
+        assertEquals("Credits file contains multiple records for movie (id:10)", loadError());
+    }
+
+    /**
+     * Keywords are numbered from 1, and their film is checked before their keywords are read
+     */
+    @Test void testKeywordsErrors() throws IOException {
+        System.out.println("\nStarting testKeywordsErrors...");
+        write("keywords.csv", KEYWORDS_HEADER + "10,\"[{'id': 1, 'name': 'a,b'}]\"\n20\n");
+        assertEquals("[KEYWORDS] Incorrect number of csv fields in record number: 2. Number of fields found: 1", loadError());
+
+        write("keywords.csv", KEYWORDS_HEADER + "10,[]\n20,\"[{'id': 'x', 'name': 'a'}]\"\n");
+        assertEquals("[2] --KEYWORDS-- Unable to read json. Key not found or cannot convert to correct type.", loadError());
+
+        write("keywords.csv", KEYWORDS_HEADER + "10,[]\n\n2O,[]\n");
+        assertEquals("[2] --KEYWORDS-- Unable to read csv. Item for specified header not found.", loadError());
+
+        write("keywords.csv", KEYWORDS_HEADER + "10,[]\n10,[{\n");
+        assertEquals("Keywords file contains multiple records for movie (id:10)", loadError());
+
+        write("keywords.csv", KEYWORDS_HEADER + "10,[]\n40,[{\n");
+        assertEquals("Keywords file contains a keyword record for a movie (id:40) that doesn't exist in the movie metadata file!", loadError());
+    }
+
+    /**
+     * Ratings are numbered from 0, and their film is checked before the rest of the rating is read
+     */
+    @Test void testRatingsErrors() throws IOException {
+        System.out.println("\nStarting testRatingsErrors...");
+        write("ratings.csv", RATINGS_HEADER + "1,0,10,4.0,1000000000\r\n\r\n2,0,10,3.5,1000000100\r\n3,0,10,3.0\r\n");
+        assertEquals("[2] --RATINGS-- Incorrect list of ratings... No. fields found = 4", loadError());
+
+        write("ratings.csv", RATINGS_HEADER + "1,0,10,4.0,1000000000\n2,0,10,three,1000000100\n");
+        assertEquals("[1] --RATINGS-- Unable to read csv. Item for specified header not found.", loadError());
+
+        write("ratings.csv", RATINGS_HEADER + "1,0,10,4.0,1000000000\n2,0,40,three,1000000100\n");
+        assertEquals("Ratings file contains a rating for a movie (id:40) that doesn't exist in the movie metadata file!", loadError());
+    }
+
+    /**
+     * A file split into several chunks should number its records from the start of the file, not of the chunk they are in
+     */
+    @Test void testRecordNumbersAcrossChunks() throws IOException {
+        System.out.println("\nStarting testRecordNumbersAcrossChunks...");
+        // a few megabytes, so the file is parsed as more than one chunk
+        StringBuilder ratings = new StringBuilder(RATINGS_HEADER);
+        for (int i = 0; i < 150_000; i++) {
+            ratings.append(i).append(",0,").append(i % 2 == 0 ? 10 : 20).append(",4.0,").append(1_000_000_000 + i).append('\n');
+        }
+        write("ratings.csv", ratings + "0,0,10,4.5,x\n");
+        assertEquals("[150000] --RATINGS-- Unable to read csv. Item for specified header not found.", loadError());
+
+        write("ratings.csv", ratings.toString().replace("\n149000,0,10,4.0,", "\n149000,0,40,4.0,"));
+        assertEquals("Ratings file contains a rating for a movie (id:40) that doesn't exist in the movie metadata file!", loadError());
+
+        write("ratings.csv", ratings.toString().replace("\n140000,0,10,4.0,", "\n140000,0,10,"));
+        assertEquals("[140000] --RATINGS-- Incorrect list of ratings... No. fields found = 4", loadError());
+    }
+
+    // a valid movie with a plain overview, and a release date that can be empty
+    private static String movie(int id, String release) {
+        return movie(id, "An overview", release);
+    }
+
+    private static String movie(int id, String overview, String release) {
+        return "False,,0,[],," + id + ",,en,Film " + id + "," + overview + ",0.5,,[],[]," + release + ",0,,[],Released,,Film " + id
+            + ",False,0.0,0\n";
+    }
+
+    // loads the files, which should fail, returning the message they failed with
+    private String loadError() {
+        LoadData.DataLoadException e = assertThrows(LoadData.DataLoadException.class,
+            () -> new LoadData(creditsPath, keywordsPath, moviesPath, ratingsPath));
+        return e.getMessage();
+    }
+
+    private String write(String name, String text) throws IOException {
+        Path path = directory.resolve(name);
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path.toString();
+    }
+}
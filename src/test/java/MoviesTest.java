@@ -1,4 +1,5 @@
 import stores.*;
+import interfaces.IMovies;
 
 import java.time.LocalDate;
 import java.util.Collections;
@@ -534,6 +535,43 @@ class MoviesTest {
         assertTrue(checkContentsOfArray(expected, result), "The list of IDs does not match what is expected");
     }
 
+    /**
+     * Open ended ranges, such as from LocalDate.MIN, should find every film in them
+     */
+    @Test void testGetAllIDsReleasedInRangeOpen() {
+        System.out.println("\nStarting testGetAllIDsReleasedInRangeOpen...");
+
+        assertArrayEquals(new int[]{1, 2}, stores.getMovies().getAllIDsReleasedInRange(LocalDate.MIN, LocalDate.MAX), "Every film was released between MIN and MAX");
+        assertArrayEquals(new int[]{1}, stores.getMovies().getAllIDsReleasedInRange(LocalDate.MIN, LocalDate.of(2001, 1, 1)), "Only film 1 was released before 2001");
+        assertArrayEquals(new int[]{2}, stores.getMovies().getAllIDsReleasedInRange(LocalDate.of(2000, 1, 1), LocalDate.MAX), "Only film 2 was released after 2000-01-01");
+        assertArrayEquals(new int[]{}, stores.getMovies().getAllIDsReleasedInRange(LocalDate.MAX, LocalDate.MIN), "Nothing is released in a backwards range");
+    }
+
+    /**
+     * Removed films shouldn't be found in a range, and should be found again once added back
+     */
+    @Test void testGetAllIDsReleasedInRangeAfterRemove() {
+        System.out.println("\nStarting testGetAllIDsReleasedInRangeAfterRemove...");
+
+        IMovies movies = batchStores.getMovies();
+        int[] all = movies.getAllIDsReleasedInRange(LocalDate.MIN, LocalDate.MAX);
+        assertEquals(batchSize, all.length, "Every batch film has a release date");
+
+        for (int i = 0; i < batchSize; i += 2) {
+            assertTrue(movies.remove(IDs.get(i)), "The film is in the store, so should be removed");
+        }
+        int[] left = movies.getAllIDsReleasedInRange(LocalDate.MIN, LocalDate.MAX);
+        assertEquals(batchSize / 2, left.length, "Only the films that weren't removed should be found");
+        for (int id : left) {
+            assertTrue(IDs.indexOf(id) % 2 == 1, "Film " + id + " was removed, so shouldn't be found");
+        }
+
+        int i = 0;
+        movies.add(IDs.get(i), titles.get(i), originalTitles.get(i), overviews.get(i), taglines.get(i), statuses.get(i), genresList.get(i), releases.get(i),
+            budgets.get(i), revenues.get(i), languagesList.get(i), originalLanguages.get(i), runtimes.get(i), homepages.get(i), adults.get(i), videos.get(i), posters.get(i));
+        assertEquals(batchSize / 2 + 1, movies.getAllIDsReleasedInRange(LocalDate.MIN, LocalDate.MAX).length, "The film added back should be found again");
+    }
+
     /**
      * Checks against default value.
      */
@@ -839,6 +877,38 @@ class MoviesTest {
         
     }
 
+    /**
+     * Each film should be counted in the year and decade it was released in, including films released on the first day of one
+     */
+    @Test void testGetReleaseCounts() {
+        System.out.println("\nStarting testGetReleaseCounts...");
+
+        assertArrayEquals(new int[]{0, 1, 1, 0}, stores.getMovies().getReleaseCountsByYear(1999, 2002), "Film 1 was released in 2000 and film 2 in 2001");
+        assertArrayEquals(new int[]{0, 2}, stores.getMovies().getReleaseCountsByDecade(1990, 2000), "Both films were released in the 2000s");
+        assertArrayEquals(new int[]{}, stores.getMovies().getReleaseCountsByYear(2001, 2000), "A backwards range has no years");
+
+        // count the batch films, which are released on the 1st of January, by checking each one
+        int[] years = new int[80];
+        int[] decades = new int[8];
+        for (int i = 0; i < batchSize; i++) {
+            years[releases.get(i).getYear() - 1945]++;
+            decades[(releases.get(i).getYear() - 1945) / 10]++;
+        }
+        assertArrayEquals(years, batchStores.getMovies().getReleaseCountsByYear(1945, 2024), "Wrong counts by year");
+        assertArrayEquals(decades, batchStores.getMovies().getReleaseCountsByDecade(1945, 2015), "Wrong counts by decade");
+    }
+
+    /**
+     * Asking for no films, or a negative number of films, should give an empty array
+     */
+    @Test void testSearchFilmsNonPositiveK() {
+        System.out.println("\nStarting testSearchFilmsNonPositiveK...");
+
+        assertArrayEquals(new int[]{2}, stores.getMovies().searchFilms("toy story", 1), "Film 2 is Toy Story");
+        assertEquals(0, stores.getMovies().searchFilms("toy story", 0).length, "No films were asked for");
+        assertEquals(0, stores.getMovies().searchFilms("toy story", -1).length, "A negative k should not throw");
+    }
+
     /**
      * Compares value of 1 to value returned by getBudget.
      */
@@ -0,0 +1,188 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MyIntHashMapTest {
+
+    /**
+     * Any int can be a key, including 0 and negative keys, as the probe table doesn't reserve one for empty slots
+     */
+    @Test
+    void testAnyKey() {
+        System.out.println("\nStarting testAnyKey...");
+        MyIntHashMap<String> map = new MyIntHashMap<>();
+        assertTrue(map.put(0, "zero"), "0 is a new key");
+        assertTrue(map.put(-1, "minus one"), "-1 is a new key");
+        assertTrue(map.put(Integer.MIN_VALUE, "min"), "MIN_VALUE is a new key");
+        assertTrue(map.put(Integer.MAX_VALUE, "max"), "MAX_VALUE is a new key");
+
+        assertEquals(4, map.size());
+        assertEquals("zero", map.get(0));
+        assertEquals("minus one", map.get(-1));
+        assertEquals("min", map.get(Integer.MIN_VALUE));
+        assertEquals("max", map.get(Integer.MAX_VALUE));
+        assertFalse(map.containsKey(1), "1 was never added");
+        assertNull(map.get(1), "1 was never added");
+    }
+
+    /**
+     * Putting an existing key should replace its value, return false and keep the key's place in insertion order
+     */
+    @Test
+    void testReplace() {
+        System.out.println("\nStarting testReplace...");
+        MyIntHashMap<String> map = new MyIntHashMap<>();
+        map.put(5, "a");
+        map.put(6, "b");
+
+        assertFalse(map.put(5, "c"), "5 is already a key, so put should return false");
+        assertEquals("c", map.get(5));
+        assertEquals(2, map.size());
+        assertArrayEquals(new int[]{5, 6}, map.keys());
+    }
+
+    /**
+     * Removing a key should leave every other key findable, including the keys probed past it
+     */
+    @Test
+    void testRemove() {
+        System.out.println("\nStarting testRemove...");
+        MyIntHashMap<Integer> map = new MyIntHashMap<>();
+        for (int key = 0; key < 1000; key++) {
+            map.put(key, key * 2);
+        }
+        for (int key = 0; key < 1000; key += 2) {
+            assertTrue(map.remove(key), key + " is in the map");
+        }
+
+        assertFalse(map.remove(0), "0 was already removed");
+        assertFalse(map.remove(1000), "1000 was never added");
+        assertEquals(500, map.size());
+        for (int key = 0; key < 1000; key++) {
+            assertEquals(key % 2 == 1, map.containsKey(key), "Only the odd keys should be left");
+        }
+        assertEquals(Integer.valueOf(1998), map.get(999));
+    }
+
+    /**
+     * A key removed and added again goes to the end of the insertion order
+     */
+    @Test
+    void testKeysOrder() {
+        System.out.println("\nStarting testKeysOrder...");
+        MyIntHashMap<String> map = new MyIntHashMap<>();
+        map.put(30, "a");
+        map.put(10, "b");
+        map.put(20, "c");
+        map.remove(30);
+        map.put(30, "d");
+
+        assertArrayEquals(new int[]{10, 20, 30}, map.keys());
+    }
+
+    /**
+     * A map presized for 2 entries should grow to hold many more, and removed entries shouldn't stop it from growing
+     */
+    @Test
+    void testGrow() {
+        System.out.println("\nStarting testGrow...");
+        MyIntHashMap<Integer> map = new MyIntHashMap<>(2);
+        for (int key = 0; key < 100; key++) {
+            map.put(key, key);
+            map.remove(key);
+        }
+        for (int key = 0; key < 5000; key++) {
+            map.put(key * 7919, key);
+        }
+
+        assertEquals(5000, map.size());
+        assertEquals(5000, map.keys().length);
+        assertEquals(Integer.valueOf(4999), map.get(4999 * 7919));
+        assertFalse(map.containsKey(1), "1 isn't a multiple of 7919");
+    }
+
+    /**
+     * Clear should empty the map, which should still work afterwards
+     */
+    @Test
+    void testClear() {
+        System.out.println("\nStarting testClear...");
+        MyIntHashMap<String> map = new MyIntHashMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertEquals(0, map.keys().length);
+        assertFalse(map.containsKey(1), "The map was cleared");
+
+        assertTrue(map.put(1, "c"), "1 was cleared, so is a new key");
+        assertEquals("c", map.get(1));
+    }
+
+    /**
+     * The cursor should visit each entry in insertion order, skipping removed entries
+     */
+    @Test
+    void testCursor() {
+        System.out.println("\nStarting testCursor...");
+        MyIntHashMap<String> map = new MyIntHashMap<>();
+        map.put(3, "c");
+        map.put(1, "a");
+        map.put(2, "b");
+        map.remove(1);
+
+        MyIntHashMap<String>.Cursor cursor = map.cursor();
+        assertTrue(cursor.next());
+        assertEquals(3, cursor.key());
+        assertEquals("c", cursor.value());
+        assertTrue(cursor.next());
+        assertEquals(2, cursor.key());
+        assertEquals("b", cursor.value());
+        assertFalse(cursor.next(), "1 was removed, so there are only two entries");
+
+        assertFalse(new MyIntHashMap<String>().cursor().next(), "An empty map has no entries");
+    }
+
+    /**
+     * forEach should pass each key with its value in insertion order, skipping removed entries
+     */
+    @Test
+    void testForEach() {
+        System.out.println("\nStarting testForEach...");
+        MyIntHashMap<String> map = new MyIntHashMap<>();
+        map.put(-4, "x");
+        map.put(8, "y");
+        map.put(0, "z");
+        map.remove(8);
+
+        StringBuilder visited = new StringBuilder();
+        map.forEach((key, value) -> visited.append(key).append('=').append(value).append(' '));
+        assertEquals("-4=x 0=z ", visited.toString());
+    }
+
+    /**
+     * ensureCapacity should keep every entry, and drop removed ones, when it resizes the map
+     */
+    @Test
+    void testEnsureCapacity() {
+        System.out.println("\nStarting testEnsureCapacity...");
+        MyIntHashMap<String> map = new MyIntHashMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        map.put(3, "c");
+        map.remove(2);
+        map.ensureCapacity(10000);
+
+        assertEquals(2, map.size());
+        assertArrayEquals(new int[]{1, 3}, map.keys());
+        assertEquals("c", map.get(3));
+        assertFalse(map.containsKey(2), "2 was removed before the resize");
+
+        // a smaller capacity than the map has is left alone
+        map.ensureCapacity(1);
+        assertArrayEquals(new int[]{1, 3}, map.keys());
+    }
+}
@@ -0,0 +1,70 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefixIndexTest {
+
+    /**
+     * Tests completing from the start of any word, over several words, and only to whole words after a space
+     */
+    @Test
+    void testComplete() {
+        System.out.println("\nStarting testComplete...");
+        String[] texts = {"Tom Hanks", "Tomorrow Never Dies", null, "The Tomb", "Hanks: A Life"};
+        double[] weights = {5, 3, 9, 1, 2};
+        PrefixIndex index = new PrefixIndex(texts, weights);
+        assertEquals(10, index.size());
+
+        assertArrayEquals(new int[] {0, 1, 3}, index.complete("to", 10));
+        assertArrayEquals(new int[] {0, 1}, index.complete("to", 2));
+        assertArrayEquals(new int[] {0}, index.complete("tom ", 10));
+        assertArrayEquals(new int[] {0, 4}, index.complete("HANKS", 10));
+        assertArrayEquals(new int[] {4}, index.complete("hanks a", 10));
+        assertArrayEquals(new int[] {1}, index.complete("never di", 10));
+        assertEquals(0, index.complete("tom", 0).length);
+        assertEquals(0, index.complete("  ", 10).length);
+        assertEquals(0, index.complete("x", 10).length);
+    }
+
+    /**
+     * Tests that equal texts are each returned, by weight and then by index, and that a text with a repeated word is only
+     * returned once
+     */
+    @Test
+    void testDuplicateTexts() {
+        System.out.println("\nStarting testDuplicateTexts...");
+        String[] texts = {"New York", "New New York", "New York", "new york", "York"};
+        double[] weights = {1, 2, 1, 3, 1};
+        PrefixIndex index = new PrefixIndex(texts, weights);
+
+        assertArrayEquals(new int[] {3, 1, 0, 2}, index.complete("new", 10));
+        assertArrayEquals(new int[] {3, 1, 0, 2, 4}, index.complete("york", 10));
+        assertArrayEquals(new int[] {1}, index.complete("new new", 10));
+        assertArrayEquals(new int[] {3, 1}, index.complete("new", 2));
+    }
+
+    /**
+     * Tests prefixes matching ranges of many keys, so the top n has to be gathered from many nodes of the segment tree
+     */
+    @Test
+    void testManyTexts() {
+        System.out.println("\nStarting testManyTexts...");
+        String[] texts = new String[1000];
+        double[] weights = new double[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = "Film " + i;
+            weights[i] = i;
+        }
+        PrefixIndex index = new PrefixIndex(texts, weights);
+        assertEquals(2000, index.size());
+
+        assertArrayEquals(new int[] {999, 998, 997, 996, 995}, index.complete("film", 5));
+        assertArrayEquals(new int[] {599, 598, 597}, index.complete("film 5", 3));
+        assertArrayEquals(new int[] {999, 998, 997}, index.complete("9", 3));
+        assertArrayEquals(new int[] {999, 998, 997, 996, 995, 994, 993, 992, 991, 990, 99}, index.complete("film 99", 100));
+        assertArrayEquals(new int[] {0}, index.complete("0", 100));
+        assertEquals(0, index.complete("film 1000", 10).length);
+    }
+}
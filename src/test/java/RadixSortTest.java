@@ -0,0 +1,73 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RadixSortTest {
+
+    /**
+     * Checks that negative keys sort before positive ones, including the extremes of the long range
+     */
+    @Test
+    void testSignedKeys() {
+        System.out.println("\nStarting testSignedKeys...");
+        long[] keys = {5, -1, Long.MAX_VALUE, 0, Long.MIN_VALUE, -70000, 70000, 1L << 40, -(1L << 40)};
+        int[] order = RadixSort.order(keys, keys.length);
+        long[] expected = {Long.MIN_VALUE, -(1L << 40), -70000, -1, 0, 5, 70000, 1L << 40, Long.MAX_VALUE};
+        assertEquals(keys.length, order.length);
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(expected[i], keys[order[i]]);
+        }
+    }
+
+    /**
+     * Checks that equal keys keep the order they were given in, including when every key is equal so no pass is made
+     */
+    @Test
+    void testStable() {
+        System.out.println("\nStarting testStable...");
+        long[] keys = {3, -2, 3, 3, -2, 1L << 50, 3, 1L << 50};
+        assertArrayEquals(new int[] {1, 4, 0, 2, 3, 6, 5, 7}, RadixSort.order(keys, keys.length));
+
+        long[] same = {-9, -9, -9, -9};
+        assertArrayEquals(new int[] {0, 1, 2, 3}, RadixSort.order(same, same.length));
+    }
+
+    /**
+     * Checks that only the first length keys are sorted, and that no keys gives an empty order
+     */
+    @Test
+    void testLength() {
+        System.out.println("\nStarting testLength...");
+        long[] keys = {9, 4, 7, 1, 0};
+        assertArrayEquals(new int[] {1, 2, 0}, RadixSort.order(keys, 3));
+        assertArrayEquals(new int[] {0}, RadixSort.order(keys, 1));
+        assertEquals(0, RadixSort.order(keys, 0).length);
+    }
+
+    /**
+     * Checks keys that only differ in the top digit, so the lower passes are skipped, and keys that differ in every digit, so
+     * an earlier pass's order has to carry through each later one
+     */
+    @Test
+    void testDigits() {
+        System.out.println("\nStarting testDigits...");
+        long[] top = {3L << 48 | 7, -1L << 48 | 7, 1L << 48 | 7, 0L << 48 | 7};
+        assertArrayEquals(new int[] {1, 3, 2, 0}, RadixSort.order(top, top.length));
+
+        long[] every = {
+            0x0001_0002_0003_0004L,
+            0x0001_0002_0003_0003L,
+            0x0001_0002_0002_0005L,
+            0x0001_0001_0004_0005L,
+            0x0000_0003_0004_0005L,
+            0x0001_0002_0003_0004L,
+        };
+        assertArrayEquals(new int[] {4, 3, 2, 1, 0, 5}, RadixSort.order(every, every.length));
+
+        // a low digit that wraps past 0xffff differs in the next digit up
+        long[] carry = {0x1_0000L, 0xffffL, 0x1_0001L, -0x1_0000L};
+        assertArrayEquals(new int[] {3, 1, 0, 2}, RadixSort.order(carry, carry.length));
+    }
+}
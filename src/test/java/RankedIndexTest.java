@@ -0,0 +1,114 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankedIndexTest {
+
+    /**
+     * Tests a score worked out by hand with BM25F, for one word in two fields with different boosts
+     */
+    @Test
+    void testScore() {
+        System.out.println("\nStarting testScore...");
+        RankedIndex index = new RankedIndex(2.0, 1.0);
+        index.setField(1, 0, new String[] {"star", "wars"});
+        index.setField(1, 1, new String[] {"star", "star", "hope", "a"});
+        index.setField(2, 1, new String[] {"hope"});
+
+        // field 0 averages 2 words over the 2 records, field 1 averages 5
+        double weighted = 2.0 * 1 / (1 - 0.75 + 0.75 * 2 / 1.0) + 1.0 * 2 / (1 - 0.75 + 0.75 * 4 / 2.5);
+        double idf = Math.log(1 + (2 - 1 + 0.5) / (1 + 0.5));
+        assertEquals(idf * weighted * 2.2 / (1.2 + weighted), index.score(1, new String[] {"star"}), 1e-12);
+        assertEquals(0.0, index.score(2, new String[] {"star"}));
+        assertEquals(0.0, index.score(3, new String[] {"star"}));
+        assertEquals(0.0, index.score(1, new String[] {"missing"}));
+    }
+
+    /**
+     * Tests that a record whose fields are all cleared leaves the index, and that unknown or empty queries find nothing
+     */
+    @Test
+    void testClearFields() {
+        System.out.println("\nStarting testClearFields...");
+        RankedIndex index = new RankedIndex(1.0, 1.0);
+        index.setField(1, 0, new String[] {"star"});
+        index.setField(1, 1, new String[] {"star"});
+        index.setField(2, 0, new String[] {"wars"});
+        assertEquals(2, index.size());
+        assertArrayEquals(new int[] {1}, index.search(new String[] {"star"}, 5));
+
+        index.setField(1, 0, null);
+        assertArrayEquals(new int[] {1}, index.search(new String[] {"star"}, 5));
+        index.setField(1, 1, new String[0]);
+        assertEquals(1, index.size());
+        assertEquals(0, index.search(new String[] {"star"}, 5).length);
+
+        assertEquals(0, index.search(new String[] {"missing"}, 5).length);
+        assertEquals(0, index.search(new String[0], 5).length);
+        assertEquals(0, index.search(new String[] {"wars"}, 0).length);
+        assertTrue(index.remove(2));
+        assertFalse(index.remove(2));
+        assertEquals(0, index.size());
+    }
+
+    /**
+     * Tests that equal scores go to the smaller id, even when the larger id is read first, so search can't stop on a tie
+     */
+    @Test
+    void testTies() {
+        System.out.println("\nStarting testTies...");
+        RankedIndex index = new RankedIndex(1.0);
+        index.setField(5, 0, new String[] {"star", "wars"});
+        index.setField(3, 0, new String[] {"star", "wars"});
+        index.setField(4, 0, new String[] {"hope"});
+        assertArrayEquals(new int[] {3}, index.search(new String[] {"star"}, 1));
+        assertArrayEquals(new int[] {3, 5}, index.search(new String[] {"wars", "star"}, 2));
+    }
+
+    /**
+     * Tests that search doesn't stop before a record that is near the bottom of each word's list but has the best total
+     */
+    @Test
+    void testEarlyStop() {
+        System.out.println("\nStarting testEarlyStop...");
+        RankedIndex index = new RankedIndex(1.0);
+        index.setField(1, 0, new String[] {"star", "star", "star"});
+        index.setField(2, 0, new String[] {"wars", "wars", "wars"});
+        index.setField(3, 0, new String[] {"star", "wars"});
+        for (int id = 4; id < 20; id++) {
+            index.setField(id, 0, new String[] {"empire"});
+        }
+
+        String[] query = {"star", "wars"};
+        double both = index.score(3, query);
+        assertTrue(index.score(3, new String[] {"star"}) < index.score(1, query), "3 should be last for star alone");
+        assertTrue(both > index.score(1, query), "3 should be best for star and wars together");
+        assertEquals(index.score(1, query), index.score(2, query));
+
+        assertArrayEquals(new int[] {3}, index.search(query, 1));
+        assertArrayEquals(new int[] {3, 1, 2}, index.search(query, 3));
+        assertArrayEquals(new int[] {1, 3}, index.search(new String[] {"star"}, 5));
+    }
+
+    /**
+     * Tests that the sorted lists built by one search are rebuilt once a record changes
+     */
+    @Test
+    void testSearchAfterChange() {
+        System.out.println("\nStarting testSearchAfterChange...");
+        RankedIndex index = new RankedIndex(1.0, 1.0);
+        index.setField(1, 0, new String[] {"jedi"});
+        index.setField(2, 0, new String[] {"jedi", "return", "of", "the"});
+        assertArrayEquals(new int[] {1, 2}, index.search(new String[] {"jedi"}, 5));
+
+        index.setField(2, 1, new String[] {"jedi", "jedi"});
+        assertArrayEquals(new int[] {2, 1}, index.search(new String[] {"jedi"}, 5));
+        index.remove(2);
+        assertArrayEquals(new int[] {1}, index.search(new String[] {"jedi"}, 5));
+        index.setField(1, 0, new String[] {"force"});
+        assertEquals(0, index.search(new String[] {"jedi"}, 5).length);
+        assertArrayEquals(new int[] {1}, index.search(new String[] {"force"}, 5));
+    }
+}
@@ -0,0 +1,137 @@
+import stores.*;
+import utils.RatingsFollower;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RatingsFollowerTest {
+    private static final String HEADER = "userId,movieLensId,tmdbId,rating,timestamp\n";
+
+    @TempDir
+    Path directory;
+
+    private Stores stores;
+    private File ratingsFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stores = new Stores();
+        Genre[] genres = {new Genre(1, "Genre")};
+        String[] languages = {"en"};
+        stores.getMovies().add(10, "Ten", "Ten", "overview", "tagline", "released", genres, LocalDate.of(2000, 1, 1), 1, 2, languages, "en", 90.0, "", false, false, "");
+        stores.getMovies().add(20, "Twenty", "Twenty", "overview", "tagline", "released", genres, LocalDate.of(2001, 1, 1), 1, 2, languages, "en", 90.0, "", false, false, "");
+
+        ratingsFile = directory.resolve("ratings.csv").toFile();
+        write(HEADER);
+    }
+
+    /**
+     * A row whose line hasn't ended yet should be left until it has, and then added
+     */
+    @Test void testPartialTrailingLine() throws IOException {
+        System.out.println("\nStarting testPartialTrailingLine...");
+        append("1,0,10,4.0,100\n2,0,10,3");
+
+        try (RatingsFollower follower = new RatingsFollower(stores, ratingsFile.getPath(), 0, null)) {
+            follower.start();
+            waitFor(() -> follower.getRowsApplied() == 1, "The first row should be added");
+            assertEquals(HEADER.length() + "1,0,10,4.0,100\n".length(), follower.getOffset(), "The half written row should be left unread");
+            assertEquals(0, stores.getRatings().getUserRatings(2).length, "The half written row shouldn't be added yet");
+
+            append(".5,200\n");
+            waitFor(() -> follower.getRowsApplied() == 2, "The row should be added once its line ends");
+            assertEquals(3.75f, stores.getRatings().getMovieAverageRating(10), 1e-6f);
+            assertEquals(0, follower.getRowsRejected());
+        }
+    }
+
+    /**
+     * Rows with bad values or the wrong number of fields should be skipped, and the rows after them still added
+     */
+    @Test void testBadRow() throws IOException {
+        System.out.println("\nStarting testBadRow...");
+        append("1,0,10,4.0,100\nx,0,10,oops,100\n3,0,10\n4,0,20,2.0,300\n");
+
+        try (RatingsFollower follower = new RatingsFollower(stores, ratingsFile.getPath(), 0, null)) {
+            follower.start();
+            waitFor(() -> follower.getOffset() == ratingsFile.length() && follower.getRowsApplied() == 2, "Both good rows should be added");
+            assertEquals(2, follower.getRowsRejected(), "Both bad rows should be counted");
+            assertEquals(2, stores.getRatings().size());
+            assertEquals(2.0f, stores.getRatings().getMovieAverageRating(20), 1e-6f);
+        }
+    }
+
+    /**
+     * A rating of a film that isn't loaded should be rejected rather than added
+     */
+    @Test void testFilmNotLoaded() throws IOException {
+        System.out.println("\nStarting testFilmNotLoaded...");
+        append("1,0,99,4.0,100\n2,0,10,5.0,200\n");
+
+        try (RatingsFollower follower = new RatingsFollower(stores, ratingsFile.getPath(), 0, null)) {
+            follower.start();
+            waitFor(() -> follower.getRowsApplied() + follower.getRowsRejected() == 2, "Both rows should be read");
+            assertEquals(1, follower.getRowsApplied());
+            assertEquals(1, follower.getRowsRejected(), "Film 99 isn't loaded");
+            assertEquals(0, stores.getRatings().getMovieRatings(99).length);
+            assertEquals(1, stores.getRatings().size());
+        }
+    }
+
+    /**
+     * A file cut shorter than the rows already read should be followed again from its first row, setting ratings it had already
+     * added and adding new ones
+     */
+    @Test void testTruncateAndRestart() throws IOException {
+        System.out.println("\nStarting testTruncateAndRestart...");
+        append("1,0,10,4.0,100\n2,0,10,3.0,200\n3,0,20,2.0,300\n");
+
+        try (RatingsFollower follower = new RatingsFollower(stores, ratingsFile.getPath(), 0, null)) {
+            follower.start();
+            waitFor(() -> follower.getRowsApplied() == 3, "The first three rows should be added");
+
+            write(HEADER + "1,0,10,1.0,400\n");
+            waitFor(() -> follower.getRowsApplied() == 4, "The shorter file should be read again from its first row");
+            assertEquals(HEADER.length() + "1,0,10,1.0,400\n".length(), follower.getOffset());
+            assertEquals(3, stores.getRatings().size(), "User 1's rating of film 10 should be set, not added again");
+            assertEquals(2.0f, stores.getRatings().getMovieAverageRating(10), 1e-6f);
+
+            append("5,0,20,4.0,500\n");
+            waitFor(() -> follower.getRowsApplied() == 5, "Rows appended after the restart should be added");
+            assertEquals(3.0f, stores.getRatings().getMovieAverageRating(20), 1e-6f);
+        }
+    }
+
+    private void write(String text) throws IOException {
+        Files.write(ratingsFile.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void append(String text) throws IOException {
+        Files.write(ratingsFile.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    // the follower checks the file at least once a second, so give it a few goes before failing
+    private static void waitFor(BooleanSupplier condition, String message) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, message);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                fail("Interrupted while waiting: " + message);
+            }
+        }
+    }
+}
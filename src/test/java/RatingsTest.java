@@ -2,6 +2,12 @@ import stores.*;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import interfaces.IRatings;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeAll;
@@ -326,6 +332,262 @@ public class RatingsTest {
     @Test void testSize(){
         assertEquals(15, stores.getRatings().size(), "Incorrect size.");
     }
-    
-    
+
+    /**
+     * Removing a rating whose tree node has two children used to count it as removed twice, so the size and sum drifted with
+     * every remove and set until getMovieRatings threw a NegativeArraySizeException
+     */
+    @Test void testRepeatedRemoveAndSet() {
+        System.out.println("\nStarting testRepeatedRemoveAndSet...");
+
+        IRatings ratings = new Stores().getRatings();
+        for (int user = 1; user <= 7; user++) {
+            ratings.add(user, 300, user, calendarYear(2000 + user));
+        }
+
+        for (int round = 0; round < 20; round++) {
+            assertTrue(ratings.remove(4, 300), "Rating should be removed on round " + round);
+            assertTrue(ratings.set(4, 300, 4.0f, calendarYear(2020)), "Rating should be set on round " + round);
+            assertTrue(ratings.set(2, 300, 2.0f, calendarYear(2021)), "Rating should be replaced on round " + round);
+        }
+
+        assertEquals(7, ratings.getNumRatings(300), "Every user should still have one rating");
+        assertEquals(7, ratings.getMovieRatings(300).length, "Every user should still have one rating");
+        assertEquals(4.0f, ratings.getMovieAverageRating(300), "The sum should only change by the ratings removed and added");
+        assertEquals(7, ratings.size(), "Incorrect size.");
+    }
+
+    /**
+     * Adds, removes and sets the same ratings on a store that stays mutable and on one that is frozen part way through, which
+     * should give the same answers
+     */
+    @Test void testRoundTripMutable() {
+        System.out.println("\nStarting testRoundTripMutable...");
+        checkRoundTrip(false);
+    }
+
+    @Test void testRoundTripFrozen() {
+        System.out.println("\nStarting testRoundTripFrozen...");
+        checkRoundTrip(true);
+    }
+
+    void checkRoundTrip(boolean freeze) {
+        Ratings ratings = (Ratings) new Stores().getRatings();
+        assertTrue(ratings.add(1, 10, 2.0f, calendarYear(2000)), "New rating should be added");
+        assertFalse(ratings.add(1, 10, 3.0f, calendarYear(2001)), "Repeated rating shouldn't be added");
+        assertTrue(ratings.add(2, 10, 4.0f, calendarYear(2002)), "New rating should be added");
+        assertTrue(ratings.add(1, 11, 5.0f, calendarYear(2003)), "New rating should be added");
+
+        if (freeze) {
+            ratings.freeze();
+        }
+
+        assertTrue(ratings.remove(1, 10), "Rating should be removed");
+        assertFalse(ratings.remove(1, 10), "Rating was already removed");
+        assertArrayEquals(new float[] {4.0f}, ratings.getMovieRatings(10), "Only user 2's rating should be left");
+        assertArrayEquals(new float[] {5.0f}, ratings.getUserRatings(1), "Only the rating of movie 11 should be left");
+
+        // ratings come back in descending order of the other id
+        assertTrue(ratings.add(1, 10, 1.0f, calendarYear(2004)), "Removed rating should be added again");
+        assertArrayEquals(new float[] {4.0f, 1.0f}, ratings.getMovieRatings(10), "Both ratings should be back");
+        assertTrue(ratings.set(2, 10, 3.0f, calendarYear(2005)), "Rating should be set");
+        assertEquals(2.0f, ratings.getMovieAverageRating(10), "Average should use the set rating");
+        assertEquals(3.0f, ratings.getUserAverageRating(1), "Average should use the added rating");
+
+        // a movie and user seen for the first time, whose row is kept once its only rating is removed
+        assertTrue(ratings.set(3, 12, 2.5f, calendarYear(2006)), "New rating should be set");
+        assertEquals(1, ratings.getNumRatings(12), "Movie 12 should have one rating");
+        assertArrayEquals(new int[] {10, 11, 12}, ratings.getMostRatedMovies(3), "Ties should be broken by ascending id");
+        assertTrue(ratings.remove(3, 12), "Rating should be removed");
+        assertEquals(0, ratings.getNumRatings(12), "Movie 12 should have no ratings left");
+        assertEquals(0.0f, ratings.getMovieAverageRating(12), "Movie 12 should have no ratings left");
+        assertEquals(3, ratings.size(), "Incorrect size.");
+
+        assertEquals(freeze, ratings.isFrozen(), "Changes shouldn't thaw a frozen store");
+    }
+
+    /**
+     * Random adds, removes and sets, checked against a map of the ratings there should be. The frozen store is frozen early on,
+     * so most changes go through its delta, which is folded in several times along the way
+     */
+    @Test void testRandomChangesMatchModel() {
+        System.out.println("\nStarting testRandomChangesMatchModel...");
+
+        Ratings mutable = (Ratings) new Stores().getRatings();
+        Ratings frozen = (Ratings) new Stores().getRatings();
+        LsmRatings lsm = (LsmRatings) new Stores(true).getRatings();
+        IRatings[] all = {mutable, frozen, lsm};
+        Map<Long, Float> model = new HashMap<>();
+
+        Random random = new Random(126);
+        for (int i = 0; i < 40000; i++) {
+            int user = random.nextInt(300);
+            int movie = random.nextInt(200);
+            float rating = (1 + random.nextInt(10)) / 2f;
+            long key = (long) movie << 32 | user;
+            int op = random.nextInt(3);
+
+            boolean expected = op == 2 || (op == 0 ? !model.containsKey(key) : model.containsKey(key));
+            if (op == 1) {
+                model.remove(key);
+            }
+            else if (expected) {
+                model.put(key, rating);
+            }
+            for (IRatings ratings : all) {
+                boolean result = op == 0 ? ratings.add(user, movie, rating, calendarYear(2000 + i % 20))
+                               : op == 1 ? ratings.remove(user, movie)
+                               : ratings.set(user, movie, rating, calendarYear(2000 + i % 20));
+                assertEquals(expected, result, ratings.getClass().getSimpleName() + " disagrees on change " + i);
+            }
+
+            if (i == 1000) {
+                frozen.freeze();
+            }
+            if (i % 5000 == 0) {
+                lsm.compact();
+            }
+            if (i % 4000 == 3999) {
+                for (IRatings ratings : all) {
+                    checkAgainstModel(ratings, model);
+                }
+                assertArrayEquals(mutable.getMostRatedMovies(20), frozen.getMostRatedMovies(20), "Most rated movies differ");
+                assertArrayEquals(mutable.getMostRatedUsers(20), frozen.getMostRatedUsers(20), "Most rated users differ");
+                assertArrayEquals(mutable.getTopAverageRatedMovies(20), frozen.getTopAverageRatedMovies(20), "Top average movies differ");
+            }
+        }
+        assertTrue(frozen.isFrozen(), "Changes shouldn't thaw a frozen store");
+    }
+
+    // checks the ratings of each movie and user, their counts and averages, and the size against the model
+    void checkAgainstModel(IRatings ratings, Map<Long, Float> model) {
+        String name = ratings.getClass().getSimpleName();
+        assertEquals(model.size(), ratings.size(), name + " has the wrong size");
+
+        for (int movie = 0; movie < 200; movie++) {
+            // the model's ratings for the movie, in descending order of user id
+            float[] expected = new float[300];
+            int count = 0;
+            float sum = 0;
+            for (int user = 299; user >= 0; user--) {
+                Float rating = model.get((long) movie << 32 | user);
+                if (rating != null) {
+                    expected[count++] = rating;
+                    sum += rating;
+                }
+            }
+            expected = Arrays.copyOf(expected, count);
+
+            float[] actual = ratings.getMovieRatings(movie);
+            if (ratings instanceof LsmRatings) {
+                Arrays.sort(expected);
+                Arrays.sort(actual);
+            }
+            assertArrayEquals(expected, actual, name + " has the wrong ratings for movie " + movie);
+            if (count > 0) {
+                assertEquals(count, ratings.getNumRatings(movie), name + " has the wrong count for movie " + movie);
+                assertEquals(sum / count, ratings.getMovieAverageRating(movie), 1e-4f, name + " has the wrong average for movie " + movie);
+            }
+        }
+
+        for (int user = 0; user < 300; user++) {
+            int count = 0;
+            float sum = 0;
+            for (int movie = 0; movie < 200; movie++) {
+                Float rating = model.get((long) movie << 32 | user);
+                if (rating != null) {
+                    count++;
+                    sum += rating;
+                }
+            }
+            assertEquals(count, ratings.getUserRatings(user).length, name + " has the wrong ratings for user " + user);
+            if (count > 0) {
+                assertEquals(sum / count, ratings.getUserAverageRating(user), 1e-4f, name + " has the wrong average for user " + user);
+            }
+        }
+    }
+
+    /**
+     * addRatings on an empty store builds the frozen rows straight away, keeping the first of any repeated rating, and should
+     * give the same answers as adding the ratings one at a time, before and after more are added
+     */
+    @Test void testAddRatingsMatchesAdd() {
+        System.out.println("\nStarting testAddRatingsMatchesAdd...");
+
+        Random random = new Random(7);
+        int[] users = new int[5000];
+        int[] movies = new int[5000];
+        float[] values = new float[5000];
+        long[] timestamps = new long[5000];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = random.nextInt(400);
+            movies[i] = random.nextInt(100) - 20;
+            values[i] = (1 + random.nextInt(10)) / 2f;
+            timestamps[i] = 946684800L + i;
+        }
+
+        Ratings bulk = (Ratings) new Stores().getRatings();
+        Ratings single = (Ratings) new Stores().getRatings();
+        int added = bulk.addRatings(users, movies, values, timestamps);
+        int expected = 0;
+        for (int i = 0; i < users.length; i++) {
+            if (single.add(users[i], movies[i], values[i], LocalDateTime.of(2000, 1, 1, 0, 0).plusSeconds(i))) {
+                expected++;
+            }
+        }
+        assertEquals(expected, added, "Repeated ratings should be dropped");
+        assertTrue(bulk.isFrozen(), "The batch should be built straight into the frozen rows");
+        checkSame(single, bulk);
+
+        for (int i = 0; i < 2000; i++) {
+            int user = random.nextInt(500);
+            int movie = random.nextInt(120) - 20;
+            assertEquals(single.set(user, movie, 3.0f, calendarYear(2010)), bulk.set(user, movie, 3.0f, calendarYear(2010)));
+            assertEquals(single.remove(user + 1, movie), bulk.remove(user + 1, movie));
+        }
+        checkSame(single, bulk);
+    }
+
+    /**
+     * Every LsmRatings store should merge its runs on the same compaction thread, so stores that are dropped don't leave
+     * threads behind, and a store should still be right once its merges have run
+     */
+    @Test void testLsmCompactionThreadShared() {
+        System.out.println("\nStarting testLsmCompactionThreadShared...");
+
+        LsmRatings last = null;
+        for (int i = 0; i < 5; i++) {
+            last = (LsmRatings) new Stores(true).getRatings();
+            last.add(1, i, 4.0f, calendarYear(2000));
+            last.compact();
+            last.add(2, i, 3.0f, calendarYear(2001));
+            last.compact();
+        }
+
+        int compactors = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("ratings-compaction")) {
+                compactors++;
+            }
+        }
+        assertEquals(1, compactors, "Every store should share one compaction thread");
+        assertEquals(2, last.size(), "Both ratings should survive the merges");
+        assertEquals(3.5f, last.getMovieAverageRating(4), 1e-6f);
+    }
+
+    // checks two stores hold the same ratings
+    void checkSame(IRatings expected, IRatings actual) {
+        assertEquals(expected.size(), actual.size(), "Incorrect size.");
+        for (int movie = -20; movie < 100; movie++) {
+            assertArrayEquals(expected.getMovieRatings(movie), actual.getMovieRatings(movie), "Wrong ratings for movie " + movie);
+            assertEquals(expected.getNumRatings(movie), actual.getNumRatings(movie), "Wrong count for movie " + movie);
+            assertEquals(expected.getMovieAverageRating(movie), actual.getMovieAverageRating(movie), "Wrong average for movie " + movie);
+        }
+        for (int user = 0; user < 500; user++) {
+            assertArrayEquals(expected.getUserRatings(user), actual.getUserRatings(user), "Wrong ratings for user " + user);
+            assertEquals(expected.getUserAverageRating(user), actual.getUserAverageRating(user), "Wrong average for user " + user);
+        }
+        assertArrayEquals(expected.getMostRatedMovies(10), actual.getMostRatedMovies(10), "Most rated movies differ");
+        assertArrayEquals(expected.getTopAverageRatedMovies(10), actual.getTopAverageRatedMovies(10), "Top average movies differ");
+    }
 }
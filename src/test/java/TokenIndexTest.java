@@ -0,0 +1,110 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenIndexTest {
+
+    /**
+     * Tests splitting texts into distinct words
+     */
+    @Test
+    void testTokens() {
+        System.out.println("\nStarting testTokens...");
+        assertArrayEquals(new String[] {"star", "wars", "ep4"}, TokenIndex.tokens("Star Wars: star-WARS ep4", null));
+        assertArrayEquals(new String[] {"a", "b"}, TokenIndex.tokens("a", "B a"));
+        assertEquals(0, TokenIndex.tokens("--- !").length);
+    }
+
+    /**
+     * Tests that words keeps repeated words, in order
+     */
+    @Test
+    void testWords() {
+        System.out.println("\nStarting testWords...");
+        assertArrayEquals(new String[] {"star", "wars", "star"}, TokenIndex.words("Star Wars, star!"));
+        assertEquals(0, TokenIndex.words(null).length);
+    }
+
+    /**
+     * Tests that phrases only match starting and ending on word boundaries, ignoring case
+     */
+    @Test
+    void testContainsWords() {
+        System.out.println("\nStarting testContainsWords...");
+        assertTrue(TokenIndex.containsWords("A New Hope", "new hope"));
+        assertFalse(TokenIndex.containsWords("Renewal", "new"));
+        assertTrue(TokenIndex.containsWords("Renewal, new", "new"));
+        assertFalse(TokenIndex.containsWords("A New Hope", "hope new"));
+        assertTrue(TokenIndex.containsWords("Who? Me", "? me"));
+        assertFalse(TokenIndex.containsWords(null, "new"));
+    }
+
+    /**
+     * Tests that a query word cut off by either end of the query matches any word it could be part of, and that whole words
+     * inside the query only match whole words
+     */
+    @Test
+    void testCandidates() {
+        System.out.println("\nStarting testCandidates...");
+        TokenIndex index = sampleIndex();
+
+        assertArrayEquals(new int[] {1, 2, 3, 4}, index.candidates("star"));
+        assertArrayEquals(new int[] {1}, index.candidates("tar W"));
+        assertArrayEquals(new int[] {2}, index.candidates("ship Troop"));
+        assertArrayEquals(new int[] {3}, index.candidates("Lone Star"));
+        assertEquals(0, index.candidates("Star Trek").length);
+        assertNull(index.candidates("!!"), "A query without words can't narrow the records down");
+
+        // "s" is part of words with 5 records between them, more than the 4 indexed
+        assertNull(index.candidates("s"));
+    }
+
+    /**
+     * Tests that withWords only matches whole words, in any order and ignoring case
+     */
+    @Test
+    void testWithWords() {
+        System.out.println("\nStarting testWithWords...");
+        TokenIndex index = sampleIndex();
+
+        assertArrayEquals(new int[] {1, 3}, index.withWords("star"));
+        assertArrayEquals(new int[] {1, 3}, index.withWords("STAR"));
+        assertArrayEquals(new int[] {1}, index.withWords("wars, star"));
+        assertEquals(0, index.withWords("sta").length);
+        assertEquals(0, index.withWords("star troopers").length);
+        assertNull(index.withWords("--"));
+    }
+
+    /**
+     * Tests that adding a record again replaces its words, and that removed records are no longer found
+     */
+    @Test
+    void testReplaceAndRemove() {
+        System.out.println("\nStarting testReplaceAndRemove...");
+        TokenIndex index = sampleIndex();
+        index.add(3, TokenIndex.tokens("Dark Star", "Lone Wolf"));
+        assertArrayEquals(new int[] {1, 3}, index.withWords("star"));
+        assertArrayEquals(new int[] {3}, index.withWords("wolf lone"));
+        assertEquals(4, index.size());
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1), "1 was already removed");
+        assertFalse(index.contains(1));
+        assertTrue(index.contains(3));
+        assertArrayEquals(new int[] {3}, index.withWords("star"));
+        assertEquals(0, index.withWords("wars").length);
+        assertArrayEquals(new int[] {2, 3, 4}, index.candidates("tar"));
+        assertEquals(3, index.size());
+    }
+
+    private static TokenIndex sampleIndex() {
+        TokenIndex index = new TokenIndex();
+        index.add(1, TokenIndex.tokens("Star Wars"));
+        index.add(2, TokenIndex.tokens("Starship Troopers"));
+        index.add(3, TokenIndex.tokens("Lone Star"));
+        index.add(4, TokenIndex.tokens("Mustard"));
+        return index;
+    }
+}
@@ -0,0 +1,107 @@
+import structures.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKTest {
+
+    /**
+     * Checks that equal scores are broken by the smaller key, whatever order the candidates are offered in
+     */
+    @Test
+    void testTieRule() {
+        System.out.println("\nStarting testTieRule...");
+        TopK forwards = new TopK(3);
+        TopK backwards = new TopK(3);
+        for (int key = 1; key <= 10; key++) {
+            forwards.offer(key, 1.0);
+            backwards.offer(11 - key, 1.0);
+        }
+        assertArrayEquals(new int[] {1, 2, 3}, forwards.result());
+        assertArrayEquals(new int[] {1, 2, 3}, backwards.result());
+
+        // a higher score still beats a smaller key
+        TopK mixed = new TopK(2);
+        mixed.offer(1, 1.0);
+        mixed.offer(9, 2.0);
+        mixed.offer(2, 1.0);
+        assertArrayEquals(new int[] {9, 1}, mixed.result());
+    }
+
+    /**
+     * Checks that k of 0 keeps nothing, and that fewer than k candidates are all returned, best first
+     */
+    @Test
+    void testSmallInputs() {
+        System.out.println("\nStarting testSmallInputs...");
+        TopK none = new TopK(0);
+        none.offer(1, 5.0);
+        assertEquals(0, none.result().length);
+
+        TopK negative = new TopK(-4);
+        negative.offer(1, 5.0);
+        assertEquals(0, negative.result().length);
+
+        TopK few = new TopK(10);
+        few.offer(4, 0.5);
+        few.offer(7, 3.0);
+        few.offer(2, -1.0);
+        assertArrayEquals(new int[] {7, 4, 2}, few.result());
+
+        TopK large = new TopK(1000);
+        large.offer(4, 0.5);
+        large.offer(7, 3.0);
+        assertArrayEquals(new int[] {7, 4}, large.result());
+    }
+
+    /**
+     * Checks the worst kept score, which is only tracked by the heap once it is full
+     */
+    @Test
+    void testWorstKeptScore() {
+        System.out.println("\nStarting testWorstKeptScore...");
+        TopK topK = new TopK(2);
+        topK.offer(1, 4.0);
+        assertEquals(Double.NEGATIVE_INFINITY, topK.worstKeptScore());
+        topK.offer(2, 6.0);
+        assertEquals(4.0, topK.worstKeptScore());
+        topK.offer(3, 5.0);
+        assertEquals(5.0, topK.worstKeptScore());
+
+        // quickselect doesn't track it
+        TopK large = new TopK(300);
+        for (int key = 0; key < 1000; key++) {
+            large.offer(key, key);
+        }
+        assertEquals(Double.NEGATIVE_INFINITY, large.worstKeptScore());
+    }
+
+    /**
+     * Checks k either side of the heap limit, and a large k whose quickselect buffer is cut back many times, with candidates
+     * offered worst key first so every tie has to be broken
+     */
+    @Test
+    void testHeapAndQuickselect() {
+        System.out.println("\nStarting testHeapAndQuickselect...");
+        // scores of 9 first, then 8 and 7, each by ascending key
+        int[] expected = new int[300];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (i % 100) * 10 + 9 - i / 100;
+        }
+
+        int[] ks = {255, 256, 257, 300};
+        for (int k : ks) {
+            TopK topK = new TopK(k);
+            for (int key = 9999; key >= 0; key--) {
+                // only the keys below 1000 can score 7 or more
+                topK.offer(key, key < 1000 || key % 10 < 7 ? key % 10 : -1);
+            }
+            int[] result = topK.result();
+            assertEquals(k, result.length);
+            for (int i = 0; i < k; i++) {
+                assertEquals(expected[i], result[i], "Wrong key " + i + " for k=" + k);
+            }
+        }
+    }
+}